@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.com.auster.common.datastruct.FrozenRangeMap;
+import br.com.auster.common.datastruct.RangeMap;
+import br.com.auster.common.datastruct.RangeMapBuilder;
+
+/**
+ * <p><b>Title:</b> RangeMapGetBenchmark</p>
+ * <p><b>Description:</b> Latency of single key lookups on maps of 10^3 to 10^7 ranges</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * The maps hold disjoint ranges and are looked up with a fixed batch of
+ * random keys. Scores are per key. The largest maps need a few GB of heap,
+ * pass <code>-jvmArgs -Xmx6g</code> if the default is not enough.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeMapGetBenchmark {
+
+  private static final int KEYS = 4096;
+
+  @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+  public int size;
+
+  private RangeMap map;
+  private FrozenRangeMap frozen;
+  private long[] keys;
+  private long[] sortedKeys;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Ranges ranges = Ranges.create(Ranges.DISJOINT, this.size);
+    RangeMapBuilder builder = new RangeMapBuilder(this.size);
+    for (int i = 0; i < this.size; i++) {
+      builder.add(ranges.from[i], ranges.to[i], new Integer(i));
+    }
+    this.map = builder.build();
+    this.frozen = this.map.freeze();
+    this.keys = ranges.keys(KEYS, false);
+    this.sortedKeys = ranges.keys(KEYS, true);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public void get(Blackhole blackhole) {
+    for (int i = 0; i < KEYS; i++) {
+      blackhole.consume(this.map.get(this.keys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public void getFirst(Blackhole blackhole) {
+    for (int i = 0; i < KEYS; i++) {
+      blackhole.consume(this.map.getFirst(this.keys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public List[] getAllSorted() {
+    return this.map.getAll(this.sortedKeys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(KEYS)
+  public void frozenGet(Blackhole blackhole) {
+    for (int i = 0; i < KEYS; i++) {
+      blackhole.consume(this.frozen.get(this.keys[i]));
+    }
+  }
+}
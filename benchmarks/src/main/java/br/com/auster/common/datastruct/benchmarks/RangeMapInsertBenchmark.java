@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.auster.common.datastruct.IntRangeList;
+import br.com.auster.common.datastruct.IntervalTree;
+import br.com.auster.common.datastruct.RangeMap;
+import br.com.auster.common.datastruct.RangeMapBuilder;
+
+/**
+ * <p><b>Title:</b> RangeMapInsertBenchmark</p>
+ * <p><b>Description:</b> Time to load a whole set of ranges into each structure</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Each invocation builds a new structure with all the ranges of the chosen
+ * shape, so the score is the time of a full load. Divide by
+ * <code>count</code> for the cost of a single insert.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeMapInsertBenchmark {
+
+  @Param({ Ranges.DISJOINT, Ranges.OVERLAPPING, Ranges.NESTED })
+  public String shape;
+
+  @Param({ "1000", "100000" })
+  public int count;
+
+  private Ranges ranges;
+  private Object value = "value";
+
+  @Setup
+  public void setUp() {
+    this.ranges = Ranges.create(this.shape, this.count);
+  }
+
+  @Benchmark
+  public RangeMap rangeMapAdd() {
+    RangeMap map = new RangeMap();
+    for (int i = 0; i < this.count; i++) {
+      map.add(this.ranges.from[i], this.ranges.to[i], this.value);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public RangeMap rangeMapBuilder() {
+    RangeMapBuilder builder = new RangeMapBuilder(this.count);
+    for (int i = 0; i < this.count; i++) {
+      builder.add(this.ranges.from[i], this.ranges.to[i], this.value);
+    }
+    return builder.build();
+  }
+
+  @Benchmark
+  public IntervalTree intervalTreeAdd() {
+    IntervalTree tree = new IntervalTree();
+    for (int i = 0; i < this.count; i++) {
+      tree.add(this.ranges.from[i], this.ranges.to[i], this.value);
+    }
+    return tree;
+  }
+
+  @Benchmark
+  public IntRangeList intRangeListAdd() {
+    IntRangeList list = new IntRangeList();
+    for (int i = 0; i < this.count; i++) {
+      // IntRangeList limits are both inclusive
+      list.add((int) this.ranges.from[i], (int) this.ranges.to[i] - 1, this.value);
+    }
+    return list;
+  }
+}
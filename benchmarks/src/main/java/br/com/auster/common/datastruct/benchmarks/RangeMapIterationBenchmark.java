@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct.benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.com.auster.common.datastruct.FrozenRangeMap;
+import br.com.auster.common.datastruct.RangeEntry;
+import br.com.auster.common.datastruct.RangeMap;
+import br.com.auster.common.datastruct.RangeMapBuilder;
+
+/**
+ * <p><b>Title:</b> RangeMapIterationBenchmark</p>
+ * <p><b>Description:</b> Cost of a full scan over all ranges of a map</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeMapIterationBenchmark {
+
+  @Param({ Ranges.DISJOINT, Ranges.OVERLAPPING })
+  public String shape;
+
+  @Param({ "1000", "100000" })
+  public int count;
+
+  private RangeMap map;
+  private FrozenRangeMap frozen;
+
+  @Setup
+  public void setUp() {
+    Ranges ranges = Ranges.create(this.shape, this.count);
+    RangeMapBuilder builder = new RangeMapBuilder(this.count);
+    for (int i = 0; i < this.count; i++) {
+      builder.add(ranges.from[i], ranges.to[i], new Integer(i));
+    }
+    this.map = builder.build();
+    this.frozen = this.map.freeze();
+  }
+
+  @Benchmark
+  public void iterate(Blackhole blackhole) {
+    for (Iterator it = this.map.iterator(); it.hasNext();) {
+      RangeEntry entry = (RangeEntry) it.next();
+      blackhole.consume(entry.getFrom());
+      blackhole.consume(entry.getFirstValue());
+    }
+  }
+
+  @Benchmark
+  public void iterateFrozen(Blackhole blackhole) {
+    for (Iterator it = this.frozen.iterator(); it.hasNext();) {
+      RangeEntry entry = (RangeEntry) it.next();
+      blackhole.consume(entry.getFrom());
+      blackhole.consume(entry.getFirstValue());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p><b>Title:</b> Ranges</p>
+ * <p><b>Description:</b> Generates the range inputs used by the benchmarks</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Every shape returns <code>count</code> ranges as two parallel arrays, in
+ * random order and always with the same seed, so runs can be compared.
+ * <ul>
+ *   <li><b>disjoint</b>: ranges of 10 keys with gaps between them;</li>
+ *   <li><b>overlapping</b>: each range covers the second half of the
+ *       previous one;</li>
+ *   <li><b>nested</b>: blocks of {@link #NESTING} ranges, each one inside
+ *       the previous one of its block.</li>
+ * </ul>
+ *
+ * @version $Id$
+ */
+public final class Ranges {
+
+  public static final String DISJOINT = "disjoint";
+  public static final String OVERLAPPING = "overlapping";
+  public static final String NESTED = "nested";
+
+  /** How many ranges each nested block has. */
+  public static final int NESTING = 16;
+
+  private static final long SEED = 20061021L;
+
+  public final long[] from;
+  public final long[] to;
+
+  private Ranges(int count) {
+    this.from = new long[count];
+    this.to = new long[count];
+  }
+
+  public static Ranges create(String shape, int count) {
+    Ranges ranges = new Ranges(count);
+    for (int i = 0; i < count; i++) {
+      if (DISJOINT.equals(shape)) {
+        ranges.from[i] = i * 20L;
+        ranges.to[i] = i * 20L + 10;
+      } else if (OVERLAPPING.equals(shape)) {
+        ranges.from[i] = i * 10L;
+        ranges.to[i] = i * 10L + 20;
+      } else if (NESTED.equals(shape)) {
+        long block = (i / NESTING) * 100L;
+        int depth = i % NESTING;
+        ranges.from[i] = block + depth;
+        ranges.to[i] = block + 100 - depth;
+      } else {
+        throw new IllegalArgumentException("Unknown shape " + shape);
+      }
+    }
+    ranges.shuffle(new Random(SEED));
+    return ranges;
+  }
+
+  /**
+   * Returns <code>count</code> random keys spread over all the ranges, some
+   * of them falling in gaps.
+   */
+  public long[] keys(int count, boolean sorted) {
+    long max = 0;
+    for (int i = 0; i < this.to.length; i++) {
+      max = Math.max(max, this.to[i]);
+    }
+    Random random = new Random(SEED);
+    long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = (long) (random.nextDouble() * max);
+    }
+    if (sorted) {
+      Arrays.sort(keys);
+    }
+    return keys;
+  }
+
+  private void shuffle(Random random) {
+    for (int i = this.from.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      long swap = this.from[i];
+      this.from[i] = this.from[j];
+      this.from[j] = swap;
+      swap = this.to[i];
+      this.to[i] = this.to[j];
+      this.to[j] = swap;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+/**
+ * A Bloom filter over the key hashes of a table, used to answer lookups of
+ * absent keys without searching the table.
+ * 
+ * The filter is split in blocks of 512 bits, one cache line, and all the
+ * bits of a key are set in the same block, so a check costs at most one
+ * cache miss however many bits are tested. Blocking makes the filter a bit
+ * less precise than a classic one of the same size, which is compensated by
+ * giving it some extra bits.
+ * 
+ * Keys are given as the 32 bit hashes their table already computes, and
+ * are mixed again here, so the filter does not depend on how the table uses
+ * them. A filter never rejects a key that was added; keys not added are
+ * accepted with about the configured false positive rate.
+ * 
+ * Keys must all be added before the filter is shared. Checks are then safe
+ * from any number of threads.
+ * 
+ * @version $Id$
+ */
+public final class BloomFilter implements MemoryFootprint {
+
+	private static final int BLOCK_BITS = 512;
+	private static final int BLOCK_LONGS = BLOCK_BITS / 64;
+	// extra bits that make up for the blocking
+	private static final double BLOCKING_OVERHEAD = 1.2;
+	private static final int MAX_HASHES = 16;
+
+	private final long[] bits;
+	private final int blocks;
+	private final int hashCount;
+	private final double falsePositiveRate;
+	private final StripedCounter rejections = new StripedCounter();
+
+	/**
+	 * Creates an empty filter.
+	 * 
+	 * @param expectedKeys how many keys will be added
+	 * @param falsePositiveRate the fraction of absent keys that may be
+	 *                          accepted, between 0 and 1 exclusive
+	 */
+	public BloomFilter(int expectedKeys, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		int keys = Math.max(1, expectedKeys);
+		double ln2 = Math.log(2);
+		double bitsPerKey = -Math.log(falsePositiveRate) / (ln2 * ln2);
+		long totalBits = (long) Math.ceil(keys * bitsPerKey * BLOCKING_OVERHEAD);
+		long blockCount = Math.max(1, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+		if (blockCount > Integer.MAX_VALUE / BLOCK_LONGS) {
+			throw new IllegalArgumentException("Filter for " + expectedKeys + " keys at rate " + 
+			                                   falsePositiveRate + " is too large");
+		}
+		this.blocks = (int) blockCount;
+		this.bits = new long[this.blocks * BLOCK_LONGS];
+		this.hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * ln2)));
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	/**
+	 * Adds the key with the given hash.
+	 */
+	public void add(int hash) {
+		long mixed = mix(hash);
+		int base = block(mixed);
+		int h = (int) mixed;
+		for (int i = 0; i < this.hashCount; i++) {
+			h *= 0x9E3779B9;
+			int bit = h >>> 23;
+			this.bits[base + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Returns false if the key with the given hash was surely not added, in
+	 * which case the rejection is counted, or true if it may have been.
+	 */
+	public boolean mightContain(int hash) {
+		long mixed = mix(hash);
+		int base = block(mixed);
+		int h = (int) mixed;
+		for (int i = 0; i < this.hashCount; i++) {
+			h *= 0x9E3779B9;
+			int bit = h >>> 23;
+			if ((this.bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+				this.rejections.increment();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns how many checks rejected their key.
+	 */
+	public long getRejections() {
+		return this.rejections.get();
+	}
+
+	/**
+	 * Sets the count of rejections back to zero.
+	 */
+	void clearRejections() {
+		this.rejections.clear();
+	}
+
+	/**
+	 * Returns the false positive rate the filter was sized for.
+	 */
+	public double getFalsePositiveRate() {
+		return this.falsePositiveRate;
+	}
+
+	/**
+	 * Returns the number of bits tested for each key.
+	 */
+	public int getHashCount() {
+		return this.hashCount;
+	}
+
+	/**
+	 * Returns the size of the filter, in bits.
+	 */
+	public long getBitCount() {
+		return (long) this.bits.length * 64;
+	}
+
+	public long estimateBytes() {
+		return CacheTableStats.sizeOfArray(this.bits.length, 8);
+	}
+
+	/**
+	 * Returns the index of the first long of the block of a key.
+	 */
+	private int block(long mixed) {
+		return (int) (((mixed >>> 32) * this.blocks) >>> 32) * BLOCK_LONGS;
+	}
+
+	private static long mix(int hash) {
+		long x = hash & 0xffffffffL;
+		x ^= x >>> 33;
+		x *= 0xff51afd7ed558ccdL;
+		x ^= x >>> 33;
+		x *= 0xc4ceb9fe1a85ec53L;
+		return x ^ (x >>> 33);
+	}
+}
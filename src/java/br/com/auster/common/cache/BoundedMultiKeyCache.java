@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import br.com.auster.common.xml.DOMUtils;
+
+
+/**
+ * A {@link MultiKeyCache} for tables that do not fit in memory.
+ * 
+ * Instead of loading the whole data file, each table keeps a
+ * {@link HashedLineIndex} of it on disk and at most <code>max-entries</code>
+ * looked up values in memory. Values not in memory are read from the data
+ * file through the index, and the least recently used ones are evicted when
+ * the limit is reached. Keys not found are remembered too, so repeated
+ * lookups of missing keys do not go to the disk.
+ * 
+ * The configuration is the same as for MultiKeyCache, with these extra
+ * attributes in the table element:
+ * 
+ * <table 
+ *		max-entries="100000"				===>Optional. Values kept in memory, defaults to 10000
+ *		hash-index-path="idx/CNL.idx">		===>Optional. Where the index is written, defaults to a temporary file
+ * 
+ * The index is rebuilt every time the cache is configured. It is written
+ * aside and renamed over the old one, so lookups still using the previous
+ * table are not disturbed; the previous table is closed once replaced, and
+ * its index deleted if it was a temporary file. As in
+ * MultiKeyCache, when the same keys appear in more than one line the last
+ * one wins, keys are trimmed before lookups and an empty string is returned
+ * when they are not found.
+ * 
+ * The number of hits, misses and evictions of each table are available from
+ * its {@link Table} handle. Its {@link CacheTableStats}, also published as an
+ * MBean, count as hits the lookups that found the keys, whether in memory or
+ * in the file. Their memory estimate is left unknown, since the memory used
+ * is bounded by <code>max-entries</code>.
+ * 
+ * @version $Id$
+ */
+public class BoundedMultiKeyCache implements ExternalTableManager {
+
+	/**
+	 * A table of the cache, as returned by {@link BoundedMultiKeyCache#table(String)}.
+	 */
+	public static final class Table {
+		// cached for keys not found in the file
+		private static final String NOT_FOUND = new String();
+		
+		private final String name;
+		private final MultiKeyRecordFormat format;
+		private final HashedLineIndex index;
+		private final int maxEntries;
+		private final Map entries;
+		private final CacheTableStats stats;
+		private final boolean temporaryIndex;
+		private long hits;
+		private long misses;
+		private long evictions;
+		
+		Table(String name, MultiKeyRecordFormat format, HashedLineIndex index, int maxEntries, 
+		      CacheTableStats stats, boolean temporaryIndex) {
+			this.name = name;
+			this.temporaryIndex = temporaryIndex;
+			this.stats = stats;
+			this.format = format;
+			this.index = index;
+			this.maxEntries = maxEntries;
+			this.entries = new LinkedHashMap(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry eldest) {
+					if (size() > Table.this.maxEntries) {
+						evictions++;
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+		
+		/**
+		 * Returns the value mapped to the keys, ignoring their leading and
+		 * trailing whitespace, or an empty string if there is none. As with
+		 * {@link MultiKeyCache}, an empty string is also returned if the table
+		 * does not have exactly that number of keys.
+		 */
+		public String get(String[] keys) throws IOException {
+			if (keys.length != format.getKeyCount()) {
+				return "";
+			}
+			String[] trimmed = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				trimmed[i] = keys[i].trim();
+			}
+			long start = stats.startLookup();
+			Key key = new Key(trimmed);
+			String value;
+			synchronized (entries) {
+				value = (String) entries.get(key);
+				if (value != null) {
+					hits++;
+				} else {
+					misses++;
+				}
+			}
+			if (value == null) {
+				value = read(key);
+				synchronized (entries) {
+					entries.put(key, value);
+				}
+			}
+			stats.endLookup(start, value != NOT_FOUND);
+			return (value == NOT_FOUND ? "" : value);
+		}
+		
+		/**
+		 * Reads the value of the last line of the data file with the given keys. 
+		 */
+		private String read(Key key) throws IOException {
+			String value = NOT_FOUND;
+			String[] fields = new String[key.keys.length + 1];
+			for (int i = index.first(key.hash); i < index.size() && index.hashAt(i) == key.hash; i++) {
+				if (format.parse(index.lineAt(i), fields) && key.matches(fields)) {
+					value = fields[key.keys.length];
+				}
+			}
+			// not backed by the line it was read from
+			return (value == NOT_FOUND ? value : new String(value));
+		}
+		
+		/**
+		 * @return Returns the name of the table.
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * @return Returns the index file of the table.
+		 */
+		public File getIndexFile() {
+			return index.getIndexFile();
+		}
+		
+		/**
+		 * @return Returns the maximum number of values kept in memory.
+		 */
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+		
+		/**
+		 * @return Returns the number of values currently in memory.
+		 */
+		public int getEntryCount() {
+			synchronized (entries) {
+				return entries.size();
+			}
+		}
+		
+		/**
+		 * @return Returns how many lookups were answered from memory.
+		 */
+		public long getHits() {
+			synchronized (entries) {
+				return hits;
+			}
+		}
+		
+		/**
+		 * @return Returns how many lookups had to read the data file.
+		 */
+		public long getMisses() {
+			synchronized (entries) {
+				return misses;
+			}
+		}
+		
+		/**
+		 * @return Returns the load and lookup metrics of the table.
+		 */
+		public CacheTableStats getStats() {
+			return stats;
+		}
+		
+		/**
+		 * @return Returns how many values were evicted from memory.
+		 */
+		public long getEvictions() {
+			synchronized (entries) {
+				return evictions;
+			}
+		}
+		
+		/**
+		 * Closes the data file, and deletes the index if it is a temporary
+		 * file. Lookups still running may fail with an IOException.
+		 */
+		void close() throws IOException {
+			index.close();
+			if (temporaryIndex) {
+				// still mapped by lookups in progress, where the file system allows
+				index.getIndexFile().delete();
+			}
+		}
+		
+		public String toString() {
+			return "Table " + name + ": " + getEntryCount() + "/" + maxEntries + " entries, " + 
+			       getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " evictions";
+		}
+	}
+	
+	/**
+	 * The trimmed keys of a lookup.
+	 */
+	private static final class Key {
+		final String[] keys;
+		final int hash;
+		
+		Key(String[] keys) {
+			this.keys = keys;
+			this.hash = MultiKeyTable.hash(keys);
+		}
+		
+		boolean matches(String[] fields) {
+			for (int i = 0; i < keys.length; i++) {
+				if (!keys[i].equals(fields[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		public int hashCode() {
+			return hash;
+		}
+		
+		public boolean equals(Object other) {
+			return (other instanceof Key) && hash == ((Key) other).hash && matches(((Key) other).keys);
+		}
+	}
+	
+	private static final String TABLE_ELEMENT = "table";
+	private static final String DATA_FILE_ATTR = "data-path";
+	private static final String TABLE_NAME_ATTR = "table-name";
+	private static final String ITEMS_ELEMENT = "items";
+	private static final String MAX_ENTRIES_ATTR = "max-entries";
+	private static final String INDEX_PATH_ATTR = "hash-index-path";
+	private static final int DEFAULT_MAX_ENTRIES = 10000;
+	
+	private static Logger log = Logger.getLogger(BoundedMultiKeyCache.class);
+	
+	private static Map tablesMap = new ConcurrentHashMap();
+	
+	public BoundedMultiKeyCache() {
+		super();
+	}
+	
+	public BoundedMultiKeyCache(Element config) throws Exception {
+		super();
+		configure(config);
+	}
+	
+	/* (non-Javadoc)
+	 * @see br.com.auster.common.cache.ExternalTableManager#configure(org.w3c.dom.Element)
+	 */
+	public void configure(Element manager) throws Exception {
+		NodeList children = DOMUtils.getElements(manager,TABLE_ELEMENT);
+		int qtde = children.getLength();
+		for (int i=0; i < qtde; i++) {
+			Element table = (Element) children.item(i);
+			String tableName = DOMUtils.getAttribute(table,TABLE_NAME_ATTR,true);
+			File dataFile = new File(DOMUtils.getAttribute(table,DATA_FILE_ATTR,true));
+			int maxEntries = DOMUtils.getIntAttribute(table,MAX_ENTRIES_ATTR,false);
+			String indexPath = DOMUtils.getAttribute(table,INDEX_PATH_ATTR,false);
+			MultiKeyRecordFormat format = MultiKeyCache.createFormat(DOMUtils.getElement(table,ITEMS_ELEMENT,true));
+			
+			File indexFile;
+			if (indexPath.length() > 0) {
+				indexFile = new File(indexPath);
+			} else {
+				indexFile = File.createTempFile("table-" + tableName, ".idx");
+				indexFile.deleteOnExit();
+			}
+			// the metrics, and their MBean, outlive the tables they describe
+			Table previous = (Table) tablesMap.get(tableName);
+			CacheTableStats stats = (previous != null ? previous.getStats() : new CacheTableStats(tableName));
+			long start = System.currentTimeMillis();
+			HashedLineIndex index;
+			try {
+				HashedLineIndex.build(dataFile, format, indexFile);
+				index = new HashedLineIndex(dataFile, indexFile);
+			} catch (IOException e) {
+				if (indexPath.length() == 0) {
+					indexFile.delete();
+				}
+				stats.recordFailure(e);
+				throw e;
+			}
+			long millis = System.currentTimeMillis() - start;
+			log.info("Indexed " + index.size() + " lines of table " + tableName + " in " + millis + "ms");
+			stats.recordLoad(index.size(), millis);
+			
+			previous = (Table) tablesMap.put(tableName, 
+				new Table(tableName, format, index, maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES, stats, 
+				          indexPath.length() == 0));
+			if (previous != null) {
+				previous.close();
+			} else {
+				stats.publish("BoundedMultiKeyCache");
+			}
+		}
+	}
+	
+	/**
+	 * Returns the given table.
+	 * 
+	 * @param tableName the name of the table
+	 * @throws IllegalArgumentException if there is no such table
+	 */
+	public static Table table(String tableName) {
+		Table table = (Table) tablesMap.get(tableName);
+		if (table == null) {
+			throw new IllegalArgumentException("Unknown table " + tableName);
+		}
+		return table;
+	}
+	
+	/**
+	 * Returns the names of the configured tables.
+	 */
+	public static String[] getTableNames() {
+		return (String[]) tablesMap.keySet().toArray(new String[0]);
+	}
+	
+	/**
+	 * Removes all tables, closing their data files.
+	 */
+	public static void clear() throws IOException {
+		for (Iterator it = tablesMap.values().iterator(); it.hasNext();) {
+			((Table) it.next()).close();
+			it.remove();
+		}
+	}
+	
+	public String get(String tableName, String key) throws IOException {
+		return table(tableName).get(new String[] {key});
+	}
+	public String get(String tableName, String key1, String key2) throws IOException {
+		return table(tableName).get(new String[] {key1,key2});
+	}
+	public String get(String tableName, String key1, String key2, String key3) throws IOException {
+		return table(tableName).get(new String[] {key1,key2,key3});
+	}
+	public String get(String tableName, String key1, String key2, String key3, String key4) throws IOException {
+		return table(tableName).get(new String[] {key1,key2,key3,key4});
+	}
+	public String get(String tableName, String key1, String key2, String key3, String key4, String key5) throws IOException {
+		return table(tableName).get(new String[] {key1,key2,key3,key4,key5});
+	}
+}
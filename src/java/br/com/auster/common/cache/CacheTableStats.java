@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.text.MessageFormat;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import br.com.auster.common.jmx.AusterManagementServices;
+
+/**
+ * Load and lookup metrics of a cached table.
+ * 
+ * Load metrics are updated by the thread that loads or reloads the table.
+ * Lookups are counted by the threads doing them: the counters are striped by
+ * thread, so they do not become a point of contention, and the time of one
+ * lookup in every {@value #SAMPLE_RATE} is kept in a histogram, from which
+ * percentiles are estimated. All metrics are safe to read from any thread.
+ * 
+ * When an MBean register is in effect, see {@link AusterManagementServices},
+ * the cache managers publish the metrics of each of their tables as an MBean
+ * named <code>type=&lt;manager&gt;,name=&lt;table&gt;</code>.
+ * 
+ * @version $Id$
+ */
+public class CacheTableStats implements CacheTableStatsMBean {
+
+	/**
+	 * Value returned by {@link #startLookup()} when the lookup is not timed.
+	 */
+	public static final long NOT_TIMED = Long.MIN_VALUE;
+
+	// one lookup in SAMPLE_RATE is timed; must be a power of two
+	private static final int SAMPLE_RATE = 16;
+
+	private static Logger log = Logger.getLogger(CacheTableStats.class);
+
+	private final String tableName;
+	private volatile int size;
+	private volatile long loadMillis;
+	private volatile long loadedAt;
+	private volatile int loadCount;
+	private volatile int failureCount;
+	private volatile String lastError;
+	private volatile MemoryFootprint contents;
+	private volatile long bytes = -1;
+	private volatile BloomFilter filter;
+	private final StripedCounter lookups = new StripedCounter();
+	private final StripedCounter hits = new StripedCounter();
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private String mbeanName;
+
+	public CacheTableStats(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Records a successful load.
+	 * 
+	 * @param size the number of entries loaded
+	 * @param millis how long the load took
+	 */
+	public synchronized void recordLoad(int size, long millis) {
+		recordLoad(size, millis, null);
+	}
+
+	/**
+	 * Records a successful load.
+	 * 
+	 * @param size the number of entries loaded
+	 * @param millis how long the load took
+	 * @param contents the loaded table, asked for its memory use only when
+	 *                 needed; null if unknown
+	 */
+	public synchronized void recordLoad(int size, long millis, MemoryFootprint contents) {
+		this.size = size;
+		this.loadMillis = millis;
+		this.loadedAt = System.currentTimeMillis();
+		this.loadCount++;
+		this.contents = contents;
+		this.bytes = -1;
+	}
+
+	/**
+	 * Records the filter of the table just loaded, or null if it has none.
+	 */
+	public void recordFilter(BloomFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Records a failed load. The table keeps its previous contents.
+	 */
+	public synchronized void recordFailure(Throwable error) {
+		this.failureCount++;
+		this.lastError = String.valueOf(error);
+	}
+
+	/**
+	 * Counts a lookup that is about to start, and tells whether it should be
+	 * timed. The value returned must be given back to
+	 * {@link #endLookup(long, boolean)}.
+	 * 
+	 * @return the start time of the lookup, or {@link #NOT_TIMED}
+	 */
+	public long startLookup() {
+		return ((this.lookups.increment() & (SAMPLE_RATE - 1)) == 0 ? System.nanoTime() : NOT_TIMED);
+	}
+
+	/**
+	 * Records the result of a lookup counted by {@link #startLookup()}.
+	 * 
+	 * @param start the value returned by startLookup
+	 * @param hit whether the lookup found anything
+	 */
+	public void endLookup(long start, boolean hit) {
+		if (hit) {
+			this.hits.increment();
+		}
+		if (start != NOT_TIMED) {
+			this.latencies.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Publishes these metrics as an MBean, if an MBean register is in effect.
+	 * 
+	 * @param managerName the name of the cache manager, used as the MBean type
+	 */
+	void publish(String managerName) {
+		if (AusterManagementServices.getRegister() == null) {
+			log.debug("No MBean register in effect, metrics of table " + this.tableName + " not published");
+			return;
+		}
+		setMBeanName(managerName, this.tableName);
+		AusterManagementServices.registerMBean(this);
+	}
+
+	/**
+	 * @return Returns the name of the table.
+	 */
+	public String getTableName() {
+		return this.tableName;
+	}
+
+	/**
+	 * @return Returns the number of entries of the table when it was last loaded.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the approximate memory used by the table, or -1 if unknown. It
+	 * is computed the first time it is asked for after each load.
+	 */
+	public long getApproximateBytes() {
+		long bytes = this.bytes;
+		MemoryFootprint contents = this.contents;
+		if (bytes < 0 && contents != null) {
+			bytes = contents.estimateBytes();
+			this.bytes = bytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return Returns how long the last successful load took, in milliseconds.
+	 */
+	public long getLoadMillis() {
+		return this.loadMillis;
+	}
+
+	/**
+	 * @return Returns when the table was last loaded, as in
+	 *         <code>System.currentTimeMillis()</code>, or 0 if it never was.
+	 */
+	public long getLoadedAt() {
+		return this.loadedAt;
+	}
+
+	/**
+	 * @return Returns how many times the table was loaded, including the first.
+	 */
+	public int getLoadCount() {
+		return this.loadCount;
+	}
+
+	/**
+	 * @return Returns how many loads failed.
+	 */
+	public int getFailureCount() {
+		return this.failureCount;
+	}
+
+	/**
+	 * @return Returns the error of the last failed load, or null.
+	 */
+	public String getLastError() {
+		return this.lastError;
+	}
+
+	/**
+	 * @return Returns how many lookups were made.
+	 */
+	public long getLookups() {
+		return this.lookups.get();
+	}
+
+	/**
+	 * @return Returns how many lookups found what they were looking for.
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return Returns how many lookups found nothing.
+	 */
+	public long getMisses() {
+		return Math.max(0, getLookups() - getHits());
+	}
+
+	/**
+	 * @return Returns the fraction of the lookups that were hits, or 0 if
+	 *         there were none.
+	 */
+	public double getHitRatio() {
+		long lookups = getLookups();
+		return (lookups == 0 ? 0 : Math.min(1.0, (double) getHits() / lookups));
+	}
+
+	/**
+	 * @return Returns the median lookup time, in nanoseconds.
+	 */
+	public long getLookupNanosP50() {
+		return this.latencies.percentile(0.5);
+	}
+
+	/**
+	 * @return Returns the 99th percentile of the lookup time, in nanoseconds.
+	 */
+	public long getLookupNanosP99() {
+		return this.latencies.percentile(0.99);
+	}
+
+	/**
+	 * @return Returns how many lookups were answered by the filter of the
+	 *         table, without searching it, since it was last loaded or the
+	 *         lookups were reset.
+	 */
+	public long getFilterRejections() {
+		BloomFilter filter = this.filter;
+		return (filter == null ? 0 : filter.getRejections());
+	}
+
+	/**
+	 * @return Returns the false positive rate the filter of the table was
+	 *         sized for, or 0 if it has none.
+	 */
+	public double getFilterFalsePositiveRate() {
+		BloomFilter filter = this.filter;
+		return (filter == null ? 0 : filter.getFalsePositiveRate());
+	}
+
+	/**
+	 * @return Returns the size of the filter of the table in bytes, or 0 if
+	 *         it has none.
+	 */
+	public long getFilterBytes() {
+		BloomFilter filter = this.filter;
+		return (filter == null ? 0 : filter.getBitCount() / 8);
+	}
+
+	/**
+	 * Sets the lookup counters and times back to zero.
+	 */
+	public void resetLookups() {
+		this.lookups.clear();
+		this.hits.clear();
+		this.latencies.clear();
+		BloomFilter filter = this.filter;
+		if (filter != null) {
+			filter.clearRejections();
+		}
+	}
+
+	/**
+	 * @see br.com.auster.common.jmx.AusterMBean#getMBeanName()
+	 */
+	public String getMBeanName() {
+		return this.mbeanName;
+	}
+
+	/**
+	 * @see br.com.auster.common.jmx.AusterMBean#setMBeanName(java.lang.String)
+	 */
+	public void setMBeanName(String _name) {
+		setMBeanName(_name, _name);
+	}
+
+	/**
+	 * @see br.com.auster.common.jmx.AusterMBean#setMBeanName(java.lang.String, java.lang.String)
+	 */
+	public void setMBeanName(String _type, String _name) {
+		this.mbeanName = MessageFormat.format(MBEAN_NAME_FORMAT, new Object[] {quote(_type), quote(_name)});
+	}
+
+	public String toString() {
+		return "Table " + this.tableName + ": " + this.size + " entries, loaded " + this.loadCount + 
+		       " times (last in " + this.loadMillis + "ms), " + this.failureCount + " failures, " +
+		       getLookups() + " lookups, " + getHits() + " hits";
+	}
+
+	/**
+	 * Quotes an ObjectName value if it has characters that are not allowed
+	 * unquoted.
+	 */
+	private static String quote(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (",=:\"*?\n".indexOf(value.charAt(i)) >= 0) {
+				return ObjectName.quote(value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Approximate size of a string, including its character array.
+	 */
+	static long sizeOf(String value) {
+		return 24 + align(16 + 2L * value.length());
+	}
+
+	/**
+	 * Approximate size of an array.
+	 * 
+	 * @param length the number of elements
+	 * @param elementBytes the size of each element: 4 for ints and references
+	 */
+	static long sizeOfArray(int length, int elementBytes) {
+		return align(16 + (long) length * elementBytes);
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+}
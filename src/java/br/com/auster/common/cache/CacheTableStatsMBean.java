@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import br.com.auster.common.jmx.AusterMBean;
+
+/**
+ * Management interface of {@link CacheTableStats}, published for each table
+ * of the cache managers.
+ * 
+ * @version $Id$
+ */
+public interface CacheTableStatsMBean extends AusterMBean {
+
+	public String getTableName();
+
+	/**
+	 * Returns the number of entries of the table when it was last loaded.
+	 */
+	public int getSize();
+
+	/**
+	 * Returns the approximate memory used by the table, or -1 if unknown.
+	 */
+	public long getApproximateBytes();
+
+	public long getLoadMillis();
+
+	public long getLoadedAt();
+
+	public int getLoadCount();
+
+	public int getFailureCount();
+
+	public String getLastError();
+
+	public long getLookups();
+
+	/**
+	 * Returns how many lookups found what they were looking for.
+	 */
+	public long getHits();
+
+	/**
+	 * Returns how many lookups found nothing, and so returned an empty string
+	 * or an empty list.
+	 */
+	public long getMisses();
+
+	/**
+	 * Returns the fraction of the lookups that were hits, or 0 if there were none.
+	 */
+	public double getHitRatio();
+
+	/**
+	 * Returns the median lookup time, in nanoseconds.
+	 */
+	public long getLookupNanosP50();
+
+	/**
+	 * Returns the 99th percentile of the lookup time, in nanoseconds.
+	 */
+	public long getLookupNanosP99();
+
+	/**
+	 * Returns how many lookups were answered by the Bloom filter of the table,
+	 * without searching it, since the table was last loaded or the lookups
+	 * were reset.
+	 */
+	public long getFilterRejections();
+
+	public double getFilterFalsePositiveRate();
+
+	public long getFilterBytes();
+
+	/**
+	 * Sets the lookup counters and times back to zero.
+	 */
+	public void resetLookups();
+}
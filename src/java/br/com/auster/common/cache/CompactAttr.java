@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Read-only view of an attribute of a {@link CompactNodeStore}. Attributes
+ * have no children: their value is only available as a string.
+ * 
+ * @version $Id$
+ */
+final class CompactAttr extends CompactNode implements Attr {
+
+	CompactAttr(CompactNodeStore store, int index) {
+		super(store, index);
+	}
+
+	double order() {
+		int owner = this.store.attrOwner(this.index);
+		int first = this.store.firstAttr(owner);
+		int count = this.store.endAttr(owner) - first;
+		return owner + (this.index - first + 1) / (double) (count + 1);
+	}
+
+	public String getNodeName() {
+		return getName();
+	}
+
+	public String getNodeValue() {
+		return getValue();
+	}
+
+	public short getNodeType() {
+		return ATTRIBUTE_NODE;
+	}
+
+	public Node getParentNode() {
+		return null;
+	}
+
+	public NodeList getChildNodes() {
+		return new CompactNodeList(this.store, new int[0], 0, false);
+	}
+
+	public Node getFirstChild() {
+		return null;
+	}
+
+	public Node getLastChild() {
+		return null;
+	}
+
+	public Node getPreviousSibling() {
+		return null;
+	}
+
+	public Node getNextSibling() {
+		return null;
+	}
+
+	public String getNamespaceURI() {
+		return this.store.attrUri(this.index);
+	}
+
+	public String getLocalName() {
+		return this.store.attrLocalName(this.index);
+	}
+
+	public String getTextContent() {
+		return getValue();
+	}
+
+	public String getName() {
+		return this.store.attrName(this.index);
+	}
+
+	public boolean getSpecified() {
+		return true;
+	}
+
+	public String getValue() {
+		return this.store.attrValue(this.index);
+	}
+
+	public void setValue(String value) throws DOMException {
+		throw readOnly();
+	}
+
+	public Element getOwnerElement() {
+		return (Element) this.store.node(this.store.attrOwner(this.index));
+	}
+
+	public TypeInfo getSchemaTypeInfo() {
+		return null;
+	}
+
+	public boolean isId() {
+		return false;
+	}
+
+	Node namespaceContext() {
+		return getOwnerElement();
+	}
+
+	boolean isAncestorOf(CompactNode node) {
+		return false;
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+/**
+ * Read-only view of the document node of a {@link CompactNodeStore}. No new
+ * nodes can be created from it.
+ * 
+ * @version $Id$
+ */
+final class CompactDocument extends CompactNode implements Document {
+
+	CompactDocument(CompactNodeStore store) {
+		super(store, 0);
+	}
+
+	public String getNodeName() {
+		return "#document";
+	}
+
+	public short getNodeType() {
+		return DOCUMENT_NODE;
+	}
+
+	public Document getOwnerDocument() {
+		return null;
+	}
+
+	public String getPrefix() {
+		return null;
+	}
+
+	Node namespaceContext() {
+		return getDocumentElement();
+	}
+
+	public DocumentType getDoctype() {
+		return null;
+	}
+
+	public DOMImplementation getImplementation() {
+		return null;
+	}
+
+	public Element getDocumentElement() {
+		for (Node child = getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == ELEMENT_NODE) {
+				return (Element) child;
+			}
+		}
+		return null;
+	}
+
+	public Element createElement(String tagName) throws DOMException {
+		throw notSupported();
+	}
+
+	public DocumentFragment createDocumentFragment() {
+		throw notSupported();
+	}
+
+	public Text createTextNode(String data) {
+		throw notSupported();
+	}
+
+	public Comment createComment(String data) {
+		throw notSupported();
+	}
+
+	public CDATASection createCDATASection(String data) throws DOMException {
+		throw notSupported();
+	}
+
+	public ProcessingInstruction createProcessingInstruction(String target, String data) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr createAttribute(String name) throws DOMException {
+		throw notSupported();
+	}
+
+	public EntityReference createEntityReference(String name) throws DOMException {
+		throw notSupported();
+	}
+
+	public NodeList getElementsByTagName(String tagname) {
+		return CompactNodeList.elements(this.store, 0, null, tagname, false);
+	}
+
+	public Node importNode(Node importedNode, boolean deep) throws DOMException {
+		throw notSupported();
+	}
+
+	public Element createElementNS(String namespaceURI, String qualifiedName) throws DOMException {
+		throw notSupported();
+	}
+
+	public Attr createAttributeNS(String namespaceURI, String qualifiedName) throws DOMException {
+		throw notSupported();
+	}
+
+	public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+		return CompactNodeList.elements(this.store, 0, namespaceURI, localName, true);
+	}
+
+	public Element getElementById(String elementId) {
+		// there is no DTD, so no attribute is an ID
+		return null;
+	}
+
+	public String getInputEncoding() {
+		return null;
+	}
+
+	public String getXmlEncoding() {
+		return null;
+	}
+
+	public boolean getXmlStandalone() {
+		return false;
+	}
+
+	public void setXmlStandalone(boolean xmlStandalone) throws DOMException {
+		throw readOnly();
+	}
+
+	public String getXmlVersion() {
+		return "1.0";
+	}
+
+	public void setXmlVersion(String xmlVersion) throws DOMException {
+		throw readOnly();
+	}
+
+	public boolean getStrictErrorChecking() {
+		return true;
+	}
+
+	public void setStrictErrorChecking(boolean strictErrorChecking) {
+		// always strict
+	}
+
+	public String getDocumentURI() {
+		return null;
+	}
+
+	public void setDocumentURI(String documentURI) {
+		throw readOnly();
+	}
+
+	public Node adoptNode(Node source) throws DOMException {
+		throw readOnly();
+	}
+
+	public DOMConfiguration getDomConfig() {
+		return null;
+	}
+
+	public void normalizeDocument() {
+		// already normalized
+	}
+
+	public Node renameNode(Node n, String namespaceURI, String qualifiedName) throws DOMException {
+		throw readOnly();
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Read-only view of an element of a {@link CompactNodeStore}.
+ * 
+ * @version $Id$
+ */
+final class CompactElement extends CompactNode implements Element {
+
+	CompactElement(CompactNodeStore store, int index) {
+		super(store, index);
+	}
+
+	public String getNodeName() {
+		return getTagName();
+	}
+
+	public short getNodeType() {
+		return ELEMENT_NODE;
+	}
+
+	public NamedNodeMap getAttributes() {
+		return CompactNodeList.attributes(this.store, this.index);
+	}
+
+	public boolean hasAttributes() {
+		return this.store.endAttr(this.index) > this.store.firstAttr(this.index);
+	}
+
+	public String getNamespaceURI() {
+		return this.store.uri(this.index);
+	}
+
+	public String getLocalName() {
+		return this.store.localName(this.index);
+	}
+
+	public String getTextContent() {
+		StringBuffer text = new StringBuffer();
+		int last = this.store.lastDescendant(this.index);
+		for (int i = this.index + 1; i <= last; i++) {
+			if (this.store.kind(i) == CompactNodeStore.TEXT) {
+				text.append(this.store.name(i));
+			}
+		}
+		return text.toString();
+	}
+
+	public String lookupNamespaceURI(String prefix) {
+		String declaration = (prefix == null || prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix);
+		for (int element = this.index; element > 0; element = this.store.parent(element)) {
+			int attr = findAttr(element, declaration);
+			if (attr >= 0) {
+				String uri = this.store.attrValue(attr);
+				return (uri.length() == 0 ? null : uri);
+			}
+		}
+		return null;
+	}
+
+	public String lookupPrefix(String namespaceURI) {
+		if (namespaceURI == null) {
+			return null;
+		}
+		for (int element = this.index; element > 0; element = this.store.parent(element)) {
+			for (int attr = this.store.firstAttr(element); attr < this.store.endAttr(element); attr++) {
+				String name = this.store.attrName(attr);
+				if (name.startsWith("xmlns:") && namespaceURI.equals(this.store.attrValue(attr)) && 
+				    namespaceURI.equals(lookupNamespaceURI(name.substring(6)))) {
+					return name.substring(6);
+				}
+			}
+		}
+		return null;
+	}
+
+	public boolean isDefaultNamespace(String namespaceURI) {
+		String uri = lookupNamespaceURI(null);
+		return (uri == null ? namespaceURI == null : uri.equals(namespaceURI));
+	}
+
+	public String getTagName() {
+		return this.store.name(this.index);
+	}
+
+	public String getAttribute(String name) {
+		int attr = findAttr(this.index, name);
+		return (attr < 0 ? "" : this.store.attrValue(attr));
+	}
+
+	public void setAttribute(String name, String value) throws DOMException {
+		throw readOnly();
+	}
+
+	public void removeAttribute(String name) throws DOMException {
+		throw readOnly();
+	}
+
+	public Attr getAttributeNode(String name) {
+		int attr = findAttr(this.index, name);
+		return (attr < 0 ? null : this.store.attr(attr));
+	}
+
+	public Attr setAttributeNode(Attr newAttr) throws DOMException {
+		throw readOnly();
+	}
+
+	public Attr removeAttributeNode(Attr oldAttr) throws DOMException {
+		throw readOnly();
+	}
+
+	public NodeList getElementsByTagName(String name) {
+		return CompactNodeList.elements(this.store, this.index, null, name, false);
+	}
+
+	public String getAttributeNS(String namespaceURI, String localName) throws DOMException {
+		Attr attr = getAttributeNodeNS(namespaceURI, localName);
+		return (attr == null ? "" : attr.getValue());
+	}
+
+	public void setAttributeNS(String namespaceURI, String qualifiedName, String value) throws DOMException {
+		throw readOnly();
+	}
+
+	public void removeAttributeNS(String namespaceURI, String localName) throws DOMException {
+		throw readOnly();
+	}
+
+	public Attr getAttributeNodeNS(String namespaceURI, String localName) throws DOMException {
+		return (Attr) CompactNodeList.attributes(this.store, this.index).getNamedItemNS(namespaceURI, localName);
+	}
+
+	public Attr setAttributeNodeNS(Attr newAttr) throws DOMException {
+		throw readOnly();
+	}
+
+	public NodeList getElementsByTagNameNS(String namespaceURI, String localName) throws DOMException {
+		return CompactNodeList.elements(this.store, this.index, namespaceURI, localName, true);
+	}
+
+	public boolean hasAttribute(String name) {
+		return findAttr(this.index, name) >= 0;
+	}
+
+	public boolean hasAttributeNS(String namespaceURI, String localName) throws DOMException {
+		return getAttributeNodeNS(namespaceURI, localName) != null;
+	}
+
+	public TypeInfo getSchemaTypeInfo() {
+		return null;
+	}
+
+	public void setIdAttribute(String name, boolean isId) throws DOMException {
+		throw readOnly();
+	}
+
+	public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) throws DOMException {
+		throw readOnly();
+	}
+
+	public void setIdAttributeNode(Attr idAttr, boolean isId) throws DOMException {
+		throw readOnly();
+	}
+
+	Node namespaceContext() {
+		return this;
+	}
+
+	private int findAttr(int element, String name) {
+		for (int attr = this.store.firstAttr(element); attr < this.store.endAttr(element); attr++) {
+			if (name.equals(this.store.attrName(attr))) {
+				return attr;
+			}
+		}
+		return -1;
+	}
+}
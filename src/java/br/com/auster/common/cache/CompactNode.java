@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * Base of the read-only DOM views over a {@link CompactNodeStore}.
+ * 
+ * Navigation is implemented here for the nodes of the tree itself, the
+ * document, elements and texts, which are identified by their number in the
+ * store. Attributes override it.
+ * 
+ * Every method that would change the tree throws a <code>DOMException</code>
+ * with code <code>NO_MODIFICATION_ALLOWED_ERR</code>.
+ * 
+ * @version $Id$
+ */
+abstract class CompactNode implements Node {
+
+	final CompactNodeStore store;
+	final int index;
+
+	CompactNode(CompactNodeStore store, int index) {
+		this.store = store;
+		this.index = index;
+	}
+
+	/**
+	 * Returns the position of this node in document order. Attributes come
+	 * right after their element and before its children.
+	 */
+	double order() {
+		return this.index;
+	}
+
+	static DOMException readOnly() {
+		return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "Cached tables are read-only");
+	}
+
+	static DOMException notSupported() {
+		return new DOMException(DOMException.NOT_SUPPORTED_ERR, "Not supported by cached tables");
+	}
+
+	public String getNodeValue() {
+		return null;
+	}
+
+	public void setNodeValue(String nodeValue) {
+		throw readOnly();
+	}
+
+	public Node getParentNode() {
+		return this.store.node(this.store.parent(this.index));
+	}
+
+	public NodeList getChildNodes() {
+		return CompactNodeList.children(this.store, this.index);
+	}
+
+	public Node getFirstChild() {
+		return this.store.node(this.store.firstChild(this.index));
+	}
+
+	public Node getLastChild() {
+		return this.store.node(this.store.lastChild(this.index));
+	}
+
+	public Node getPreviousSibling() {
+		return this.store.node(this.store.previousSibling(this.index));
+	}
+
+	public Node getNextSibling() {
+		return this.store.node(this.store.nextSibling(this.index));
+	}
+
+	public NamedNodeMap getAttributes() {
+		return null;
+	}
+
+	public Document getOwnerDocument() {
+		return this.store.getDocument();
+	}
+
+	public Node insertBefore(Node newChild, Node refChild) {
+		throw readOnly();
+	}
+
+	public Node replaceChild(Node newChild, Node oldChild) {
+		throw readOnly();
+	}
+
+	public Node removeChild(Node oldChild) {
+		throw readOnly();
+	}
+
+	public Node appendChild(Node newChild) {
+		throw readOnly();
+	}
+
+	public boolean hasChildNodes() {
+		return getFirstChild() != null;
+	}
+
+	public Node cloneNode(boolean deep) {
+		throw notSupported();
+	}
+
+	public void normalize() {
+		// adjacent texts are merged when the tree is built
+	}
+
+	public boolean isSupported(String feature, String version) {
+		return false;
+	}
+
+	public String getNamespaceURI() {
+		return null;
+	}
+
+	public String getPrefix() {
+		String name = getNodeName();
+		int colon = name.indexOf(':');
+		return (getLocalName() == null || colon < 0 ? null : name.substring(0, colon));
+	}
+
+	public void setPrefix(String prefix) {
+		throw readOnly();
+	}
+
+	public String getLocalName() {
+		return null;
+	}
+
+	public boolean hasAttributes() {
+		return false;
+	}
+
+	public String getBaseURI() {
+		return null;
+	}
+
+	public short compareDocumentPosition(Node other) {
+		if (other == this) {
+			return 0;
+		}
+		if (!(other instanceof CompactNode) || ((CompactNode) other).store != this.store) {
+			short direction = (System.identityHashCode(this) < System.identityHashCode(other) 
+			                   ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING);
+			return (short) (DOCUMENT_POSITION_DISCONNECTED | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC | direction);
+		}
+		CompactNode node = (CompactNode) other;
+		if (isAncestorOf(node)) {
+			return (short) (DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING);
+		}
+		if (node.isAncestorOf(this)) {
+			return (short) (DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING);
+		}
+		return (node.order() > order() ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING);
+	}
+
+	public String getTextContent() {
+		return null;
+	}
+
+	public void setTextContent(String textContent) {
+		throw readOnly();
+	}
+
+	public boolean isSameNode(Node other) {
+		return other == this;
+	}
+
+	public String lookupPrefix(String namespaceURI) {
+		Node element = namespaceContext();
+		return (element == null ? null : element.lookupPrefix(namespaceURI));
+	}
+
+	public boolean isDefaultNamespace(String namespaceURI) {
+		Node element = namespaceContext();
+		return (element != null && element.isDefaultNamespace(namespaceURI));
+	}
+
+	public String lookupNamespaceURI(String prefix) {
+		Node element = namespaceContext();
+		return (element == null ? null : element.lookupNamespaceURI(prefix));
+	}
+
+	public boolean isEqualNode(Node other) {
+		if (other == this) {
+			return true;
+		}
+		if (other == null || other.getNodeType() != getNodeType() || 
+		    !equal(getNodeName(), other.getNodeName()) || !equal(getLocalName(), other.getLocalName()) || 
+		    !equal(getNamespaceURI(), other.getNamespaceURI()) || !equal(getPrefix(), other.getPrefix()) || 
+		    !equal(getNodeValue(), other.getNodeValue())) {
+			return false;
+		}
+		NamedNodeMap attributes = getAttributes();
+		NamedNodeMap otherAttributes = other.getAttributes();
+		if ((attributes == null) != (otherAttributes == null)) {
+			return false;
+		}
+		if (attributes != null) {
+			if (attributes.getLength() != otherAttributes.getLength()) {
+				return false;
+			}
+			for (int i = 0; i < attributes.getLength(); i++) {
+				Node attribute = attributes.item(i);
+				Node otherAttribute = (attribute.getLocalName() == null 
+				                       ? otherAttributes.getNamedItem(attribute.getNodeName())
+				                       : otherAttributes.getNamedItemNS(attribute.getNamespaceURI(), attribute.getLocalName()));
+				if (otherAttribute == null || !attribute.isEqualNode(otherAttribute)) {
+					return false;
+				}
+			}
+		}
+		NodeList children = getChildNodes();
+		NodeList otherChildren = other.getChildNodes();
+		if (children.getLength() != otherChildren.getLength()) {
+			return false;
+		}
+		for (int i = 0; i < children.getLength(); i++) {
+			if (!children.item(i).isEqualNode(otherChildren.item(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Object getFeature(String feature, String version) {
+		return null;
+	}
+
+	public Object setUserData(String key, Object data, UserDataHandler handler) {
+		throw notSupported();
+	}
+
+	public Object getUserData(String key) {
+		return null;
+	}
+
+	public String toString() {
+		return "[" + getNodeName() + ": " + getNodeValue() + "]";
+	}
+
+	/**
+	 * Returns the element whose namespace declarations apply to this node.
+	 */
+	Node namespaceContext() {
+		return getParentNode();
+	}
+
+	/**
+	 * Returns whether this node is an ancestor of the given one.
+	 */
+	boolean isAncestorOf(CompactNode node) {
+		// descendants are numbered right after their ancestors
+		int other = (node instanceof CompactAttr ? this.store.attrOwner(node.index) : node.index);
+		int start = (node instanceof CompactAttr ? this.index : this.index + 1);
+		return start <= other && other <= this.store.lastDescendant(this.index);
+	}
+
+	private static boolean equal(String a, String b) {
+		return (a == null ? b == null : a.equals(b));
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A list of nodes or of attributes of a {@link CompactNodeStore}, also used
+ * as the attribute map of its elements.
+ * 
+ * @version $Id$
+ */
+class CompactNodeList implements NodeList, NamedNodeMap {
+
+	private final CompactNodeStore store;
+	private final int[] items;
+	private final int length;
+	private final boolean attributes;
+
+	/**
+	 * @param items the nodes, or the attributes, in the list
+	 * @param length how many of the items are in the list
+	 * @param attributes whether the items are attributes
+	 */
+	CompactNodeList(CompactNodeStore store, int[] items, int length, boolean attributes) {
+		this.store = store;
+		this.items = items;
+		this.length = length;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Returns the children of a node.
+	 */
+	static CompactNodeList children(CompactNodeStore store, int node) {
+		int count = 0;
+		for (int child = store.firstChild(node); child >= 0; child = store.nextSibling(child)) {
+			count++;
+		}
+		int[] children = new int[count];
+		count = 0;
+		for (int child = store.firstChild(node); child >= 0; child = store.nextSibling(child)) {
+			children[count++] = child;
+		}
+		return new CompactNodeList(store, children, count, false);
+	}
+
+	/**
+	 * Returns the attributes of an element.
+	 */
+	static CompactNodeList attributes(CompactNodeStore store, int element) {
+		int first = store.firstAttr(element);
+		int[] attributes = new int[store.endAttr(element) - first];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = first + i;
+		}
+		return new CompactNodeList(store, attributes, attributes.length, true);
+	}
+
+	/**
+	 * Returns the elements below a node, in document order, matching the given
+	 * name, or the given namespace and local name. "*" matches any name or
+	 * namespace.
+	 */
+	static CompactNodeList elements(CompactNodeStore store, int node, String namespaceURI, String name, 
+	                                boolean namespaced) {
+		int last = store.lastDescendant(node);
+		int[] found = new int[16];
+		int count = 0;
+		for (int i = node + 1; i <= last; i++) {
+			if (store.kind(i) != CompactNodeStore.ELEMENT) {
+				continue;
+			}
+			boolean matches;
+			if (namespaced) {
+				String uri = store.uri(i);
+				matches = ("*".equals(namespaceURI) || (namespaceURI == null ? uri == null : namespaceURI.equals(uri))) &&
+				          ("*".equals(name) || name.equals(store.localName(i)));
+			} else {
+				matches = "*".equals(name) || name.equals(store.name(i));
+			}
+			if (matches) {
+				if (count == found.length) {
+					int[] larger = new int[count * 2];
+					System.arraycopy(found, 0, larger, 0, count);
+					found = larger;
+				}
+				found[count++] = i;
+			}
+		}
+		return new CompactNodeList(store, found, count, false);
+	}
+
+	public Node item(int index) {
+		if (index < 0 || index >= this.length) {
+			return null;
+		}
+		return (this.attributes ? this.store.attr(this.items[index]) : this.store.node(this.items[index]));
+	}
+
+	public int getLength() {
+		return this.length;
+	}
+
+	public Node getNamedItem(String name) {
+		for (int i = 0; i < this.length; i++) {
+			if (name.equals(this.store.attrName(this.items[i]))) {
+				return item(i);
+			}
+		}
+		return null;
+	}
+
+	public Node getNamedItemNS(String namespaceURI, String localName) {
+		for (int i = 0; i < this.length; i++) {
+			int attr = this.items[i];
+			String uri = this.store.attrUri(attr);
+			if ((namespaceURI == null ? uri == null : namespaceURI.equals(uri)) && 
+			    localName.equals(this.store.attrLocalName(attr))) {
+				return item(i);
+			}
+		}
+		return null;
+	}
+
+	public Node setNamedItem(Node arg) throws DOMException {
+		throw CompactNode.readOnly();
+	}
+
+	public Node removeNamedItem(String name) throws DOMException {
+		throw CompactNode.readOnly();
+	}
+
+	public Node setNamedItemNS(Node arg) throws DOMException {
+		throw CompactNode.readOnly();
+	}
+
+	public Node removeNamedItemNS(String namespaceURI, String localName) throws DOMException {
+		throw CompactNode.readOnly();
+	}
+}
@@ -0,0 +1,660 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+
+/**
+ * A compact, read-only XML tree, used by {@link DOMCache} for tables with
+ * <code>storage="compact"</code>.
+ * 
+ * Instead of one object per node, as a DOM does, the tree is kept in a few
+ * arrays of ints indexed by node number: its kind, its name, its parent, its
+ * first and last children and its siblings. Attributes are kept in another
+ * set of arrays, and all names, texts and attribute values are shared
+ * through a single pool of strings. This takes a fraction of the memory of
+ * a DOM built from the same document.
+ * 
+ * Callers see the tree through read-only DOM nodes, so the usual DOM and
+ * XPath code works on it unchanged. Any attempt to change the tree fails
+ * with a <code>DOMException</code>. A node is created the first time it is
+ * visited and is only weakly held by the tree: while any caller still holds
+ * it, the same object is returned for that node, so nodes can be compared
+ * by identity as in a DOM; once no caller holds it, it is garbage
+ * collected. This way a full XPath or XSL walk does not leave an object per
+ * node and attribute behind, which would take about as much memory as the
+ * DOM this class replaces.
+ * 
+ * Elements can also be found by the value of one of their attributes with
+ * {@link #lookup(String, String)}. Attributes given to the {@link Builder}
+ * are indexed while the tree is built, so these lookups take constant time;
+ * any other attribute is found by scanning the tree.
+ * 
+ * Only elements and text are kept: comments and processing instructions are
+ * dropped, and adjacent text is merged into a single node. Namespace
+ * declarations become <code>xmlns</code> attributes, as they would in a DOM.
+ * 
+ * Instances are immutable once built and can be shared by any number of
+ * threads.
+ * 
+ * @version $Id$
+ */
+public class CompactNodeStore implements MemoryFootprint {
+
+	static final byte DOCUMENT = 0;
+	static final byte ELEMENT = 1;
+	static final byte TEXT = 2;
+
+	static final String XMLNS_URI = "http://www.w3.org/2000/xmlns/";
+
+	// nodes; names hold the qualified name of elements and the text of texts
+	private byte[] kinds;
+	private int[] names;
+	private int[] uris;
+	private int[] locals;
+	private int[] parents;
+	private int[] firstChildren;
+	private int[] lastChildren;
+	private int[] nextSiblings;
+	private int[] previousSiblings;
+	// the attributes of node n are those from attrStarts[n] to attrStarts[n + 1]
+	private int[] attrStarts;
+	private int nodeCount;
+
+	// attributes
+	private int[] attrOwners;
+	private int[] attrNames;
+	private int[] attrUris;
+	private int[] attrLocals;
+	private int[] attrValues;
+	private int attrCount;
+
+	private String[] strings;
+	// attribute name -> (value -> int[] of elements)
+	private Map indexes;
+
+	// weak references to the DOM views, cleared once they are collected
+	private AtomicReferenceArray nodeViews;
+	private AtomicReferenceArray attrViews;
+	private final ReferenceQueue collected = new ReferenceQueue();
+
+	private CompactNodeStore() {
+		this.kinds = new byte[256];
+		this.names = new int[256];
+		this.uris = new int[256];
+		this.locals = new int[256];
+		this.parents = new int[256];
+		this.firstChildren = new int[256];
+		this.lastChildren = new int[256];
+		this.nextSiblings = new int[256];
+		this.previousSiblings = new int[256];
+		this.attrStarts = new int[256];
+		this.attrOwners = new int[256];
+		this.attrNames = new int[256];
+		this.attrUris = new int[256];
+		this.attrLocals = new int[256];
+		this.attrValues = new int[256];
+	}
+
+	/**
+	 * Returns the document node of this tree.
+	 */
+	public Document getDocument() {
+		return (Document) node(0);
+	}
+
+	/**
+	 * Returns the number of element and text nodes of this tree, including
+	 * the document itself.
+	 */
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * Returns the number of attributes of all elements of this tree.
+	 */
+	public int getAttributeCount() {
+		return this.attrCount;
+	}
+
+	/**
+	 * Returns the memory used by the node and attribute arrays, the string
+	 * pool and the indexes. The DOM views themselves are not counted, since
+	 * they are created on demand and only kept while callers hold them; only
+	 * the arrays that refer to them are.
+	 */
+	public long estimateBytes() {
+		long bytes = CacheTableStats.sizeOfArray(this.kinds.length, 1) + 
+		             9 * CacheTableStats.sizeOfArray(this.nodeCount, 4) + 
+		             5 * CacheTableStats.sizeOfArray(this.attrCount, 4) + 
+		             CacheTableStats.sizeOfArray(this.nodeCount, 4) + 
+		             CacheTableStats.sizeOfArray(this.attrCount, 4) + 
+		             CacheTableStats.sizeOfArray(this.strings.length, 4);
+		for (int i = 0; i < this.strings.length; i++) {
+			bytes += CacheTableStats.sizeOf(this.strings[i]);
+		}
+		for (Iterator it = this.indexes.values().iterator(); it.hasNext();) {
+			Map index = (Map) it.next();
+			for (Iterator values = index.values().iterator(); values.hasNext();) {
+				// a hash map entry plus the array of elements
+				bytes += 32 + CacheTableStats.sizeOfArray(((int[]) values.next()).length, 4);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns whether lookups by the given attribute use an index.
+	 */
+	public boolean isIndexed(String attribute) {
+		return this.indexes.containsKey(attribute);
+	}
+
+	/**
+	 * Returns the elements with the given value for the given attribute, in
+	 * document order. The attribute is matched by its qualified name.
+	 * 
+	 * @param attribute the name of the attribute
+	 * @param value the value searched
+	 * @return the elements found, possibly none
+	 */
+	public NodeList lookup(String attribute, String value) {
+		Map index = (Map) this.indexes.get(attribute);
+		if (index != null) {
+			int[] found = (int[]) index.get(value);
+			return (found == null ? new CompactNodeList(this, new int[0], 0, false) 
+			                      : new CompactNodeList(this, found, found.length, false));
+		}
+		int[] found = new int[8];
+		int count = 0;
+		for (int attr = 0; attr < this.attrCount; attr++) {
+			if (attribute.equals(this.strings[this.attrNames[attr]]) && 
+			    value.equals(this.strings[this.attrValues[attr]])) {
+				if (count == found.length) {
+					found = grow(found);
+				}
+				found[count++] = this.attrOwners[attr];
+			}
+		}
+		return new CompactNodeList(this, found, count, false);
+	}
+
+	/**
+	 * Returns the store a DOM node belongs to, or null if it is not a node of
+	 * a compact tree.
+	 */
+	public static CompactNodeStore storeOf(Node node) {
+		return (node instanceof CompactNode ? ((CompactNode) node).store : null);
+	}
+
+	// -------------------------------------
+	// Access used by the DOM views
+	// -------------------------------------
+
+	/**
+	 * Returns the view of a node, -1 meaning none.
+	 */
+	Node node(int index) {
+		if (index < 0) {
+			return null;
+		}
+		expungeViews();
+		for (;;) {
+			ViewRef ref = (ViewRef) this.nodeViews.get(index);
+			Node view = (ref == null ? null : (Node) ref.get());
+			if (view != null) {
+				return view;
+			}
+			switch (this.kinds[index]) {
+				case DOCUMENT: view = new CompactDocument(this); break;
+				case ELEMENT: view = new CompactElement(this, index); break;
+				default: view = new CompactText(this, index);
+			}
+			// the same view must be returned for the same node while it is held
+			if (this.nodeViews.compareAndSet(index, ref, new ViewRef(view, this.nodeViews, index, this.collected))) {
+				return view;
+			}
+		}
+	}
+
+	/**
+	 * Returns the view of an attribute.
+	 */
+	Attr attr(int index) {
+		expungeViews();
+		for (;;) {
+			ViewRef ref = (ViewRef) this.attrViews.get(index);
+			Attr view = (ref == null ? null : (Attr) ref.get());
+			if (view != null) {
+				return view;
+			}
+			view = new CompactAttr(this, index);
+			if (this.attrViews.compareAndSet(index, ref, new ViewRef(view, this.attrViews, index, this.collected))) {
+				return view;
+			}
+		}
+	}
+
+	/**
+	 * Clears the references to the views already collected, so the arrays
+	 * only refer to views still in use.
+	 */
+	private void expungeViews() {
+		ViewRef ref;
+		while ((ref = (ViewRef) this.collected.poll()) != null) {
+			ref.views.compareAndSet(ref.index, ref, null);
+		}
+	}
+
+	/**
+	 * A weak reference to the view of a node or attribute, which knows where
+	 * it is kept.
+	 */
+	private static final class ViewRef extends WeakReference {
+		final AtomicReferenceArray views;
+		final int index;
+
+		ViewRef(Object view, AtomicReferenceArray views, int index, ReferenceQueue queue) {
+			super(view, queue);
+			this.views = views;
+			this.index = index;
+		}
+	}
+
+	byte kind(int node) {
+		return this.kinds[node];
+	}
+
+	String name(int node) {
+		return this.strings[this.names[node]];
+	}
+
+	String uri(int node) {
+		return string(this.uris[node]);
+	}
+
+	String localName(int node) {
+		return string(this.locals[node]);
+	}
+
+	int parent(int node) {
+		return this.parents[node];
+	}
+
+	int firstChild(int node) {
+		return this.firstChildren[node];
+	}
+
+	int lastChild(int node) {
+		return this.lastChildren[node];
+	}
+
+	int nextSibling(int node) {
+		return this.nextSiblings[node];
+	}
+
+	int previousSibling(int node) {
+		return this.previousSiblings[node];
+	}
+
+	int firstAttr(int node) {
+		return this.attrStarts[node];
+	}
+
+	int endAttr(int node) {
+		return this.attrStarts[node + 1];
+	}
+
+	int attrOwner(int attr) {
+		return this.attrOwners[attr];
+	}
+
+	String attrName(int attr) {
+		return this.strings[this.attrNames[attr]];
+	}
+
+	String attrUri(int attr) {
+		return string(this.attrUris[attr]);
+	}
+
+	String attrLocalName(int attr) {
+		return string(this.attrLocals[attr]);
+	}
+
+	String attrValue(int attr) {
+		return this.strings[this.attrValues[attr]];
+	}
+
+	/**
+	 * Returns the last descendant of a node, or the node itself if it has no
+	 * children. Descendants of a node are numbered right after it, so they
+	 * are all the nodes from <code>node + 1</code> to this one.
+	 */
+	int lastDescendant(int node) {
+		int last = node;
+		while (this.lastChildren[last] >= 0) {
+			last = this.lastChildren[last];
+		}
+		return last;
+	}
+
+	private String string(int id) {
+		return (id < 0 ? null : this.strings[id]);
+	}
+
+	private static int[] grow(int[] array) {
+		int[] larger = new int[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	private static byte[] grow(byte[] array) {
+		byte[] larger = new byte[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	private static byte[] trim(byte[] array, int length) {
+		byte[] trimmed = new byte[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	private static int[] trim(int[] array, int length) {
+		int[] trimmed = new int[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	/**
+	 * Builds a compact tree from SAX events. The tree is available from
+	 * {@link #getStore()} once the document ends.
+	 */
+	public static class Builder implements ContentHandler {
+
+		private final CompactNodeStore store = new CompactNodeStore();
+		private final Set indexedAttributes = new HashSet();
+		private final Map pool = new HashMap();
+		private final List strings = new ArrayList();
+		private final List prefixMappings = new ArrayList();
+		private final StringBuilder text = new StringBuilder();
+		private int current = -1;
+		private boolean finished;
+
+		/**
+		 * @param indexedAttributes the names of the attributes to index, or null
+		 */
+		public Builder(String[] indexedAttributes) {
+			if (indexedAttributes != null) {
+				for (int i = 0; i < indexedAttributes.length; i++) {
+					this.indexedAttributes.add(indexedAttributes[i]);
+				}
+			}
+		}
+
+		/**
+		 * Returns the tree built.
+		 * 
+		 * @throws IllegalStateException if the document did not end yet
+		 */
+		public CompactNodeStore getStore() {
+			if (!this.finished) {
+				throw new IllegalStateException("The document was not completely read");
+			}
+			return this.store;
+		}
+
+		public void setDocumentLocator(Locator locator) {
+			// not needed
+		}
+
+		public void startDocument() {
+			ensureDocument();
+		}
+
+		public void endDocument() {
+			flushText();
+			finish();
+		}
+
+		public void startPrefixMapping(String prefix, String uri) {
+			this.prefixMappings.add(prefix);
+			this.prefixMappings.add(uri);
+		}
+
+		public void endPrefixMapping(String prefix) {
+			// declarations were already added to their element
+		}
+
+		public void startElement(String uri, String localName, String qName, Attributes atts) {
+			ensureDocument();
+			flushText();
+			int node = newNode(ELEMENT, this.current);
+			CompactNodeStore s = this.store;
+			boolean namespaced = (localName != null && localName.length() > 0);
+			s.names[node] = id(qName != null && qName.length() > 0 ? qName : localName);
+			s.uris[node] = (namespaced && uri.length() > 0 ? id(uri) : -1);
+			s.locals[node] = (namespaced ? id(localName) : -1);
+
+			for (int i = 0; i < this.prefixMappings.size(); i += 2) {
+				String prefix = (String) this.prefixMappings.get(i);
+				String value = (String) this.prefixMappings.get(i + 1);
+				if (prefix.length() == 0) {
+					addAttr(node, "xmlns", XMLNS_URI, "xmlns", value);
+				} else {
+					addAttr(node, "xmlns:" + prefix, XMLNS_URI, prefix, value);
+				}
+			}
+			this.prefixMappings.clear();
+			for (int i = 0; i < atts.getLength(); i++) {
+				String attrLocal = atts.getLocalName(i);
+				boolean attrNamespaced = (attrLocal != null && attrLocal.length() > 0);
+				String attrQName = atts.getQName(i);
+				String attrUri = atts.getURI(i);
+				addAttr(node, (attrQName != null && attrQName.length() > 0 ? attrQName : attrLocal),
+				        (attrNamespaced && attrUri.length() > 0 ? attrUri : null), 
+				        (attrNamespaced ? attrLocal : null), atts.getValue(i));
+			}
+			this.current = node;
+		}
+
+		public void endElement(String uri, String localName, String qName) {
+			flushText();
+			this.current = this.store.parents[this.current];
+		}
+
+		public void characters(char[] ch, int start, int length) {
+			this.text.append(ch, start, length);
+		}
+
+		public void ignorableWhitespace(char[] ch, int start, int length) {
+			this.text.append(ch, start, length);
+		}
+
+		public void processingInstruction(String target, String data) {
+			// not kept
+		}
+
+		public void skippedEntity(String name) {
+			// not kept
+		}
+
+		private void ensureDocument() {
+			if (this.store.nodeCount == 0) {
+				this.current = newNode(DOCUMENT, -1);
+				this.store.names[0] = id("#document");
+				this.store.uris[0] = -1;
+				this.store.locals[0] = -1;
+			}
+		}
+
+		private void flushText() {
+			if (this.text.length() > 0 && this.current > 0) {
+				int node = newNode(TEXT, this.current);
+				this.store.names[node] = id(this.text.toString());
+				this.store.uris[node] = -1;
+				this.store.locals[node] = -1;
+			}
+			this.text.setLength(0);
+		}
+
+		private int newNode(byte kind, int parent) {
+			CompactNodeStore s = this.store;
+			int node = s.nodeCount;
+			if (node + 1 >= s.kinds.length) {
+				s.kinds = grow(s.kinds);
+				s.names = grow(s.names);
+				s.uris = grow(s.uris);
+				s.locals = grow(s.locals);
+				s.parents = grow(s.parents);
+				s.firstChildren = grow(s.firstChildren);
+				s.lastChildren = grow(s.lastChildren);
+				s.nextSiblings = grow(s.nextSiblings);
+				s.previousSiblings = grow(s.previousSiblings);
+				s.attrStarts = grow(s.attrStarts);
+			}
+			s.nodeCount++;
+			s.kinds[node] = kind;
+			s.parents[node] = parent;
+			s.firstChildren[node] = -1;
+			s.lastChildren[node] = -1;
+			s.nextSiblings[node] = -1;
+			s.previousSiblings[node] = -1;
+			s.attrStarts[node] = s.attrCount;
+			if (parent >= 0) {
+				int previous = s.lastChildren[parent];
+				if (previous < 0) {
+					s.firstChildren[parent] = node;
+				} else {
+					s.nextSiblings[previous] = node;
+				}
+				s.previousSiblings[node] = previous;
+				s.lastChildren[parent] = node;
+			}
+			return node;
+		}
+
+		private void addAttr(int owner, String name, String uri, String localName, String value) {
+			CompactNodeStore s = this.store;
+			int attr = s.attrCount;
+			if (attr == s.attrOwners.length) {
+				s.attrOwners = grow(s.attrOwners);
+				s.attrNames = grow(s.attrNames);
+				s.attrUris = grow(s.attrUris);
+				s.attrLocals = grow(s.attrLocals);
+				s.attrValues = grow(s.attrValues);
+			}
+			s.attrCount++;
+			s.attrOwners[attr] = owner;
+			s.attrNames[attr] = id(name);
+			s.attrUris[attr] = (uri == null ? -1 : id(uri));
+			s.attrLocals[attr] = (localName == null ? -1 : id(localName));
+			s.attrValues[attr] = id(value);
+		}
+
+		private int id(String value) {
+			Integer id = (Integer) this.pool.get(value);
+			if (id == null) {
+				id = new Integer(this.strings.size());
+				this.pool.put(value, id);
+				this.strings.add(value);
+			}
+			return id.intValue();
+		}
+
+		private void finish() {
+			ensureDocument();
+			CompactNodeStore s = this.store;
+			int n = s.nodeCount;
+			s.kinds = trim(s.kinds, n);
+			s.names = trim(s.names, n);
+			s.uris = trim(s.uris, n);
+			s.locals = trim(s.locals, n);
+			s.parents = trim(s.parents, n);
+			s.firstChildren = trim(s.firstChildren, n);
+			s.lastChildren = trim(s.lastChildren, n);
+			s.nextSiblings = trim(s.nextSiblings, n);
+			s.previousSiblings = trim(s.previousSiblings, n);
+			s.attrStarts = trim(s.attrStarts, n + 1);
+			s.attrStarts[n] = s.attrCount;
+			s.attrOwners = trim(s.attrOwners, s.attrCount);
+			s.attrNames = trim(s.attrNames, s.attrCount);
+			s.attrUris = trim(s.attrUris, s.attrCount);
+			s.attrLocals = trim(s.attrLocals, s.attrCount);
+			s.attrValues = trim(s.attrValues, s.attrCount);
+			s.strings = (String[]) this.strings.toArray(new String[this.strings.size()]);
+			s.nodeViews = new AtomicReferenceArray(n);
+			s.attrViews = new AtomicReferenceArray(s.attrCount);
+			s.indexes = buildIndexes();
+			this.pool.clear();
+			this.strings.clear();
+			this.finished = true;
+		}
+
+		private Map buildIndexes() {
+			CompactNodeStore s = this.store;
+			Map indexes = new HashMap();
+			for (Iterator it = this.indexedAttributes.iterator(); it.hasNext();) {
+				String attribute = (String) it.next();
+				// elements of each value, with their count in the first position
+				Map index = new HashMap();
+				for (int attr = 0; attr < s.attrCount; attr++) {
+					if (!attribute.equals(s.strings[s.attrNames[attr]])) {
+						continue;
+					}
+					String value = s.strings[s.attrValues[attr]];
+					int[] found = (int[]) index.get(value);
+					if (found == null) {
+						found = new int[2];
+					} else if (found[0] + 1 == found.length) {
+						found = grow(found);
+					}
+					found[++found[0]] = s.attrOwners[attr];
+					index.put(value, found);
+				}
+				for (Iterator values = index.entrySet().iterator(); values.hasNext();) {
+					Map.Entry entry = (Map.Entry) values.next();
+					int[] found = (int[]) entry.getValue();
+					int[] trimmed = new int[found[0]];
+					System.arraycopy(found, 1, trimmed, 0, trimmed.length);
+					entry.setValue(trimmed);
+				}
+				indexes.put(attribute, index);
+			}
+			return indexes;
+		}
+	}
+}
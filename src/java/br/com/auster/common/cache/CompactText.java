@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Text;
+
+/**
+ * Read-only view of a text node of a {@link CompactNodeStore}.
+ * 
+ * @version $Id$
+ */
+final class CompactText extends CompactNode implements Text {
+
+	CompactText(CompactNodeStore store, int index) {
+		super(store, index);
+	}
+
+	public String getNodeName() {
+		return "#text";
+	}
+
+	public String getNodeValue() {
+		return getData();
+	}
+
+	public short getNodeType() {
+		return TEXT_NODE;
+	}
+
+	public String getPrefix() {
+		return null;
+	}
+
+	public String getTextContent() {
+		return getData();
+	}
+
+	public String getData() throws DOMException {
+		return this.store.name(this.index);
+	}
+
+	public void setData(String data) throws DOMException {
+		throw readOnly();
+	}
+
+	public int getLength() {
+		return getData().length();
+	}
+
+	public String substringData(int offset, int count) throws DOMException {
+		String data = getData();
+		if (offset < 0 || offset > data.length() || count < 0) {
+			throw new DOMException(DOMException.INDEX_SIZE_ERR, "Invalid offset or count");
+		}
+		return data.substring(offset, Math.min(data.length(), offset + count));
+	}
+
+	public void appendData(String arg) throws DOMException {
+		throw readOnly();
+	}
+
+	public void insertData(int offset, String arg) throws DOMException {
+		throw readOnly();
+	}
+
+	public void deleteData(int offset, int count) throws DOMException {
+		throw readOnly();
+	}
+
+	public void replaceData(int offset, int count, String arg) throws DOMException {
+		throw readOnly();
+	}
+
+	public Text splitText(int offset) throws DOMException {
+		throw readOnly();
+	}
+
+	public boolean isElementContentWhitespace() {
+		return false;
+	}
+
+	public String getWholeText() {
+		// adjacent texts were merged when the tree was built
+		return getData();
+	}
+
+	public Text replaceWholeText(String content) throws DOMException {
+		throw readOnly();
+	}
+
+	boolean isAncestorOf(CompactNode node) {
+		return false;
+	}
+}
@@ -18,8 +18,14 @@
 package br.com.auster.common.cache;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.Source;
@@ -28,7 +34,9 @@ import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.sax.SAXTransformerFactory;
 
 import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.XMLReader;
@@ -41,19 +49,57 @@ import br.com.auster.common.xml.sax.NIOInputSource;
 
 
 /**
+ * Caches XML documents built from data files by configurable XML readers.
+ * 
+ * Tables with <code>storage="compact"</code> are kept in a
+ * {@link CompactNodeStore} instead of a DOM, which takes a fraction of the
+ * memory and is seen by callers as a read-only DOM. Elements of these tables
+ * can be found in constant time by the attributes listed, separated by
+ * commas, in <code>index-attributes</code>, using
+ * {@link #lookup(String, String, String)}.
+ * 
+ * Tables are loaded in parallel, by at most <code>parallel-loads</code>
+ * threads (by default, one per processor). A table that fails to load is
+ * logged and does not stop the others. Configure returns when every table
+ * finished, or after <code>load-timeout</code> seconds if that attribute is
+ * set; tables still loading keep loading in the background, and
+ * {@link #awaitLoad(long)} and {@link #getLoadErrors()} can be used to
+ * follow them.
+ * 
+ * The load and lookup metrics of each table are available from
+ * {@link #getStats(String)}, and are also published as MBeans, see
+ * {@link CacheTableStats}. Only lookups made through
+ * {@link #lookup(String, String, String)} are counted; the cache can not see
+ * what callers do with the nodes returned by {@link #getTable(String)}.
+ * 
+ * Tables with a <code>reload-interval</code> attribute (in seconds) are
+ * reloaded by a {@link TableReloader} when their file changes. The new
+ * document replaces the old one only once it is complete, so callers of
+ * {@link #getTable(String)} never block nor see a partial document.
+ * 
  * @author Marcos Tengelmann
  * 04/11/2004
  * @version $Id: DOMCache.java 107 2005-05-18 19:08:46Z rbarone $
  */
 public class DOMCache implements ExternalTableManager {
 	
-	private static Map tablesMap = new HashMap();	
+	private static Map tablesMap = new ConcurrentHashMap();	
+	private static ConcurrentMap statsMap = new ConcurrentHashMap();
+	private static Map reloadersMap = new ConcurrentHashMap();
+	private static volatile TableLoadGroup loading;
 	private static Element config;	
 	private static final String XML_READER_ELEMENT = "xml-reader";
 	private static final String DATA_FILE_ATTR = "data-path";
 	private static final String TABLE_NAME_ATTR = "table-name";
 	private static final String TABLE_ELEMENT = "table";
 	private static final String CLASS_NAME_ATTR = "class-name";
+	private static final String RELOAD_INTERVAL_ATTR = "reload-interval";
+	private static final String STORAGE_ATTR = "storage";
+	private static final String STORAGE_DOM = "dom";
+	private static final String STORAGE_COMPACT = "compact";
+	private static final String INDEX_ATTRIBUTES_ATTR = "index-attributes";
+	private static final String PARALLEL_LOADS_ATTR = "parallel-loads";
+	private static final String LOAD_TIMEOUT_ATTR = "load-timeout";
 	
 	private static Logger log = Logger.getLogger(DOMCache.class);
 	
@@ -78,14 +124,125 @@ public class DOMCache implements ExternalTableManager {
 		
 		NodeList children = DOMUtils.getElements(manager,TABLE_ELEMENT);
 		int qtde = children.getLength();
+		TableLoadGroup group = new TableLoadGroup("DOMCache", qtde, 
+		                                          DOMUtils.getIntAttribute(manager,PARALLEL_LOADS_ATTR,false));
+		loading = group;
 		for (int i=0; i < qtde; i++) {
-			Element table = (Element) children.item(i);
-			String tableName = DOMUtils.getAttribute(table,TABLE_NAME_ATTR,true);
-			String dataFile  = DOMUtils.getAttribute(table,DATA_FILE_ATTR,true);
-			Element xmlReader = DOMUtils.getElement(table,XML_READER_ELEMENT,true);
-			put(tableName, transform(dataFile,xmlReader));
-			log.debug("DOMCache Transformation for table " + tableName + " is now complete.");
+			final Element table = (Element) children.item(i);
+			final String tableName = DOMUtils.getAttribute(table,TABLE_NAME_ATTR,true);
+			final String dataFile  = DOMUtils.getAttribute(table,DATA_FILE_ATTR,true);
+			final int reloadInterval = DOMUtils.getIntAttribute(table,RELOAD_INTERVAL_ATTR,false);
+			group.submit(tableName, new Callable() {
+				public Object call() throws Exception {
+					TableReloader previous = (TableReloader) reloadersMap.remove(tableName);
+					if (previous != null) {
+						previous.cancel();
+					}
+					try {
+						load(tableName, dataFile, table);
+						log.debug("DOMCache Transformation for table " + tableName + " is now complete.");
+					} catch (Exception e) {
+						statsFor(tableName).recordFailure(e);
+						throw e;
+					} finally {
+						if (reloadInterval > 0) {
+							schedule(tableName, dataFile, table, reloadInterval);
+						}
+					}
+					return tableName;
+				}
+			});
 		}
+		try {
+			if (!group.await(DOMUtils.getIntAttribute(manager,LOAD_TIMEOUT_ATTR,false) * 1000L)) {
+				log.warn("Tables still loading after the load timeout: " + group.getPending());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while waiting for tables " + group.getPending());
+		}
+	}
+	
+	/**
+	 * Waits for the tables of the last call to configure to finish loading.
+	 * 
+	 * @param timeout the maximum time to wait, in milliseconds, or 0 to wait
+	 *                as long as needed
+	 * @return true if every table finished loading, even if some failed
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public static boolean awaitLoad(long timeout) throws InterruptedException {
+		TableLoadGroup group = loading;
+		return (group == null || group.await(timeout));
+	}
+	
+	/**
+	 * Returns the errors of the tables that could not be loaded by the last
+	 * call to configure, by table name.
+	 */
+	public static Map getLoadErrors() {
+		TableLoadGroup group = loading;
+		return (group == null ? new HashMap() : group.getErrors());
+	}
+	
+	/**
+	 * Builds a table and swaps it in.
+	 */
+	private static void load(String tableName, String dataFile, Element tableConfig) throws Exception {
+		long start = System.currentTimeMillis();
+		Element xmlReader = DOMUtils.getElement(tableConfig,XML_READER_ELEMENT,true);
+		String storage = DOMUtils.getAttribute(tableConfig,STORAGE_ATTR,false);
+		Node table;
+		if (storage.equals(STORAGE_COMPACT)) {
+			String indexes = DOMUtils.getAttribute(tableConfig,INDEX_ATTRIBUTES_ATTR,false).trim();
+			table = transformCompact(dataFile, xmlReader, indexes.length() == 0 ? null : indexes.split("\\s*,\\s*"));
+		} else if (storage.length() == 0 || storage.equals(STORAGE_DOM)) {
+			table = transform(dataFile,xmlReader);
+		} else {
+			throw new IllegalArgumentException("storage attribute in table Element can be = {dom | compact}");
+		}
+		put(tableName, table);
+		CompactNodeStore store = CompactNodeStore.storeOf(table);
+		statsFor(tableName).recordLoad(countRecords(table), System.currentTimeMillis() - start, 
+		                               store != null ? (MemoryFootprint) store : new DOMFootprint(table));
+	}
+	
+	private static void schedule(final String tableName, final String dataFile, final Element tableConfig, 
+	                             int interval) {
+		TableReloader reloader = new TableReloader(tableName, new File(dataFile), statsFor(tableName), 
+			new TableReloader.Task() {
+				public void reload() throws Exception {
+					load(tableName, dataFile, tableConfig);
+				}
+			});
+		reloadersMap.put(tableName, reloader);
+		reloader.schedule(interval * 1000L);
+	}
+	
+	private static CacheTableStats statsFor(String tableName) {
+		CacheTableStats stats = new CacheTableStats(tableName);
+		CacheTableStats previous = (CacheTableStats) statsMap.putIfAbsent(tableName, stats);
+		if (previous != null) {
+			return previous;
+		}
+		stats.publish("DOMCache");
+		return stats;
+	}
+	
+	/**
+	 * Counts the elements right below the document element of a table.
+	 */
+	private static int countRecords(Node table) {
+		Node root = (table instanceof Document ? ((Document) table).getDocumentElement() : table);
+		int count = 0;
+		if (root != null) {
+			for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+				if (child.getNodeType() == Node.ELEMENT_NODE) {
+					count++;
+				}
+			}
+		}
+		return count;
 	}
 	
 	/**
@@ -94,26 +251,42 @@ public class DOMCache implements ExternalTableManager {
 	 * @param xmlReader
 	 * @return
 	 */
-	private static Node transform(String dataFile, Element xmlReaderConfig) {
+	private static Node transform(String dataFile, Element xmlReaderConfig) throws Exception {
 		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 		dbf.setNamespaceAware(true);				
 		NIOInputSource input = null;
+		XMLReader xmlReader = createReader(xmlReaderConfig);
+		input = new NIOInputSource(NIOUtils.openFileForRead(dataFile));					
+		Source source = new SAXSource(xmlReader, input);
+		DOMResult result = new DOMResult();
+		SAXTransformerFactory.newInstance().newTransformer().transform(source, result);			
+		return result.getNode();
+	}
+
+	/**
+	 * Parses the data file straight into a {@link CompactNodeStore}, without
+	 * building a DOM first.
+	 * 
+	 * @param dataFile
+	 * @param xmlReaderConfig
+	 * @param indexedAttributes the attributes to index, or null
+	 * @return the document node of the store
+	 */
+	private static Node transformCompact(String dataFile, Element xmlReaderConfig, String[] indexedAttributes) 
+			throws Exception {
+		XMLReader xmlReader = createReader(xmlReaderConfig);
+		CompactNodeStore.Builder builder = new CompactNodeStore.Builder(indexedAttributes);
+		xmlReader.setContentHandler(builder);
+		xmlReader.parse(new NIOInputSource(NIOUtils.openFileForRead(dataFile)));
+		return builder.getStore().getDocument();
+	}
+
+	private static XMLReader createReader(Element xmlReaderConfig) throws Exception {
 		String xmlReaderName = DOMUtils.getAttribute(xmlReaderConfig,CLASS_NAME_ATTR,true);
 		log.debug("Starting parser for DOMCache. UDD Class name is " + xmlReaderName);
-		File ff = new File(dataFile);
-		DOMResult result = null;
-		try {	
-			Class[] c = {Element.class};
-			Object[] o = {xmlReaderConfig};
-			XMLReader xmlReader = (XMLReader) Class.forName(xmlReaderName).getConstructor(c).newInstance(o);			
-			input = new NIOInputSource(NIOUtils.openFileForRead(dataFile));					
-			Source source = new SAXSource(xmlReader, input);
-			result = new DOMResult();
-			SAXTransformerFactory.newInstance().newTransformer().transform(source, result);			
-		} catch (Exception e) {
-			e.printStackTrace();
-		}		
-		return result.getNode();
+		Class[] c = {Element.class};
+		Object[] o = {xmlReaderConfig};
+		return (XMLReader) Class.forName(xmlReaderName).getConstructor(c).newInstance(o);			
 	}
 
 	/***
@@ -121,7 +294,7 @@ public class DOMCache implements ExternalTableManager {
 	 * @return
 	 */
 	public static String[] getTablesName() {
-		return (String[]) DOMCache.tablesMap.keySet().toArray();		
+		return (String[]) DOMCache.tablesMap.keySet().toArray(new String[0]);		
 	}
 	
 	/***
@@ -134,9 +307,76 @@ public class DOMCache implements ExternalTableManager {
 	}
 	
 	/**
+	 * Returns the elements of a table that have the given value for the given
+	 * attribute, in document order. Indexed attributes of compact tables are
+	 * found in constant time; any other attribute is searched by scanning the
+	 * table.
 	 * 
+	 * @param tableName the table to search
+	 * @param attribute the qualified name of the attribute
+	 * @param value the value searched
+	 * @return the elements found, possibly none
+	 * @throws IllegalArgumentException if the table does not exist
+	 */
+	public static NodeList lookup(String tableName, String attribute, String value) {
+		Node table = getTable(tableName);
+		if (table == null) {
+			throw new IllegalArgumentException("Table " + tableName + " not found in DOMCache");
+		}
+		CacheTableStats stats = getStats(tableName);
+		long start = (stats == null ? CacheTableStats.NOT_TIMED : stats.startLookup());
+		NodeList found = lookup(table, attribute, value);
+		if (stats != null) {
+			stats.endLookup(start, found.getLength() > 0);
+		}
+		return found;
+	}
+
+	private static NodeList lookup(Node table, String attribute, String value) {
+		CompactNodeStore store = CompactNodeStore.storeOf(table);
+		if (store != null) {
+			return store.lookup(attribute, value);
+		}
+		final List found = new ArrayList();
+		Document doc = (table.getNodeType() == Node.DOCUMENT_NODE ? (Document) table : table.getOwnerDocument());
+		NodeList elements = doc.getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			if (element.hasAttribute(attribute) && value.equals(element.getAttribute(attribute))) {
+				found.add(element);
+			}
+		}
+		return new NodeList() {
+			public Node item(int index) {
+				return (index < 0 || index >= found.size() ? null : (Node) found.get(index));
+			}
+			public int getLength() {
+				return found.size();
+			}
+		};
+	}
+
+	/**
+	 * Returns the load and lookup metrics of the given table, or null if it
+	 * was never configured.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public static CacheTableStats getStats(String name) {
+		return (CacheTableStats) statsMap.get(name);
+	}
+	
+	/**
+	 * Removes all tables and stops reloading them. Their metrics are kept,
+	 * so the MBeans that publish them stay valid if the tables are loaded
+	 * again.
 	 */
 	public static void clear() {
+		for (Iterator it = reloadersMap.values().iterator(); it.hasNext();) {
+			((TableReloader) it.next()).cancel();
+		}
+		reloadersMap.clear();
 		tablesMap.clear();
 	}
 	/**
@@ -147,4 +387,42 @@ public class DOMCache implements ExternalTableManager {
 	public static Object put(String tableName, Node tableContent) {
 		return tablesMap.put(tableName, tableContent);
 	}
+
+	/**
+	 * Estimates the memory used by a DOM tree by walking it. Only done when
+	 * the metrics of the table are read.
+	 */
+	private static final class DOMFootprint implements MemoryFootprint {
+		// approximate size of a node object of the usual DOM implementations
+		private static final int NODE_BYTES = 64;
+		
+		private final Node table;
+		
+		DOMFootprint(Node table) {
+			this.table = table;
+		}
+		
+		public long estimateBytes() {
+			return estimate(this.table);
+		}
+		
+		private static long estimate(Node node) {
+			long bytes = NODE_BYTES;
+			short type = node.getNodeType();
+			if (type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE || type == Node.COMMENT_NODE) {
+				bytes += CacheTableStats.sizeOf(node.getNodeValue());
+			}
+			// attribute children are not walked, some DOMs create them on demand
+			NamedNodeMap attributes = node.getAttributes();
+			if (attributes != null) {
+				for (int i = 0; i < attributes.getLength(); i++) {
+					bytes += NODE_BYTES + CacheTableStats.sizeOf(attributes.item(i).getNodeValue());
+				}
+			}
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+				bytes += estimate(child);
+			}
+			return bytes;
+		}
+	}
 }
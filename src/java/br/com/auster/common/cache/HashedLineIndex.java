@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An on-disk index from the hash of the keys of each line of a
+ * {@link MultiKeyCache} data file to the position of the line in the file.
+ * 
+ * The index is built by scanning the data file once, and is then memory
+ * mapped: only the file positions of the lines with a given hash are looked
+ * up, and the lines themselves are read from the data file when needed.
+ * This lets tables much larger than the heap be queried, at the cost of
+ * disk reads.
+ * 
+ * The index file layout (all numbers big endian) is:
+ * <pre>
+ *   int      magic number (0x4D4B4958, "MKIX")
+ *   int      format version
+ *   int      n, number of lines
+ *   int[n]   hash of the keys of each line, ascending
+ *   long[n]  position of each line in the data file
+ * </pre>
+ * Lines with the same hash are kept in the order they appear in the file.
+ * 
+ * Building the index needs 16 bytes of heap per line of the data file, which
+ * are released once it is written.
+ * 
+ * An index file is never changed once written: {@link #build(File, MultiKeyRecordFormat, File)}
+ * writes the new index aside and renames it over the old one, so instances
+ * still mapping the old file keep reading it safely. They must be reopened
+ * to see the new index.
+ * 
+ * Instances only use absolute reads, so they can be shared by any number of
+ * threads.
+ * 
+ * @version $Id$
+ */
+public class HashedLineIndex {
+
+	public static final int MAGIC = 0x4D4B4958;
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 12;
+
+	private final File dataFile;
+	private final File indexFile;
+	private final FileChannel data;
+	private final int size;
+	private final IntBuffer hashes;
+	private final LongBuffer offsets;
+
+	/**
+	 * Opens an index created by {@link #build(File, MultiKeyRecordFormat, File)}.
+	 * 
+	 * @param dataFile the data file the index was built from
+	 * @param indexFile the index file
+	 * @throws IOException if either file can not be read
+	 */
+	public HashedLineIndex(File dataFile, File indexFile) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("File " + indexFile + " is too short to be an index");
+			}
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("File " + indexFile + " is not an index or has an unsupported version");
+			}
+			this.size = header.getInt();
+			long mappedSize = HEADER_SIZE + this.size * 12L;
+			if (mappedSize > Integer.MAX_VALUE || mappedSize > channel.size()) {
+				throw new IOException("File " + indexFile + " has an invalid size");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, mappedSize);
+			this.hashes = view(buffer, HEADER_SIZE).asIntBuffer();
+			this.offsets = view(buffer, HEADER_SIZE + this.size * 4).asLongBuffer();
+		} finally {
+			// the mapping stays valid after the channel is closed
+			raf.close();
+		}
+		this.dataFile = dataFile;
+		this.indexFile = indexFile;
+		this.data = new RandomAccessFile(dataFile, "r").getChannel();
+	}
+
+	/**
+	 * Scans a data file and writes its index. Malformed lines are left out of
+	 * the index.
+	 * 
+	 * @param dataFile the data file
+	 * @param format the format of the lines
+	 * @param indexFile the index file to be written, replaced if it exists
+	 * @throws IOException if the data file can not be read or the index can
+	 *           not be written
+	 */
+	public static void build(File dataFile, MultiKeyRecordFormat format, File indexFile) throws IOException {
+		// hash in the upper half, line number in the lower, so sorting keeps
+		// lines with the same hash in file order
+		long[] entries = new long[1024];
+		long[] lineOffsets = new long[1024];
+		int count = 0;
+
+		String[] fields = new String[format.getKeyCount() + 1];
+		String[] keys = new String[format.getKeyCount()];
+		LineReader reader = new LineReader(new BufferedInputStream(new FileInputStream(dataFile), 65536));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!format.parse(line, fields)) {
+					continue;
+				}
+				System.arraycopy(fields, 0, keys, 0, keys.length);
+				if (count == entries.length) {
+					entries = grow(entries);
+					lineOffsets = grow(lineOffsets);
+				}
+				entries[count] = ((long) MultiKeyTable.hash(keys) << 32) | count;
+				lineOffsets[count] = reader.getLineOffset();
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		Arrays.sort(entries, 0, count);
+
+		// written aside and renamed, so a mapped index is never changed
+		File built = new File(indexFile.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(built), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(count);
+			for (int i = 0; i < count; i++) {
+				out.writeInt((int) (entries[i] >> 32));
+			}
+			for (int i = 0; i < count; i++) {
+				out.writeLong(lineOffsets[(int) entries[i]]);
+			}
+		} catch (IOException e) {
+			out.close();
+			built.delete();
+			throw e;
+		} finally {
+			out.close();
+		}
+		if (!built.renameTo(indexFile)) {
+			indexFile.delete();
+			if (!built.renameTo(indexFile)) {
+				built.delete();
+				throw new IOException("Could not replace index " + indexFile);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of lines in the index.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the position in the index of the first line with the given
+	 * hash, or of the first line with a greater hash if there is none.
+	 */
+	public int first(int hash) {
+		int low = 0;
+		int high = this.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.hashes.get(middle) < hash) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the hash of the line at the given position of the index.
+	 */
+	public int hashAt(int index) {
+		return this.hashes.get(index);
+	}
+
+	/**
+	 * Reads the line at the given position of the index from the data file.
+	 */
+	public String lineAt(int index) throws IOException {
+		long offset = this.offsets.get(index);
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		int length = 0;
+		while (true) {
+			int read = this.data.read(buffer, offset + buffer.position());
+			for (; length < buffer.position(); length++) {
+				if (buffer.get(length) == '\n') {
+					return decode(buffer, length);
+				}
+			}
+			if (read < 0) {
+				return decode(buffer, length);
+			}
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+	}
+
+	/**
+	 * Closes the data file. The index itself is released by the garbage
+	 * collector.
+	 */
+	public void close() throws IOException {
+		this.data.close();
+	}
+
+	/**
+	 * Returns the data file of this index.
+	 */
+	public File getDataFile() {
+		return this.dataFile;
+	}
+
+	/**
+	 * Returns the index file.
+	 */
+	public File getIndexFile() {
+		return this.indexFile;
+	}
+
+	private static String decode(ByteBuffer buffer, int length) {
+		if (length > 0 && buffer.get(length - 1) == '\r') {
+			length--;
+		}
+		// same charset FileReader uses when the table is fully loaded
+		return new String(buffer.array(), 0, length);
+	}
+
+	private static ByteBuffer view(ByteBuffer buffer, int position) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		return view.slice();
+	}
+
+	private static long[] grow(long[] array) {
+		long[] larger = new long[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	/**
+	 * Reads lines from a stream keeping track of where each one starts.
+	 * Lines end with "\n" or "\r\n".
+	 */
+	private static class LineReader {
+		private final InputStream in;
+		private byte[] line = new byte[256];
+		private long position;
+		private long lineOffset;
+
+		LineReader(InputStream in) {
+			this.in = in;
+		}
+
+		String readLine() throws IOException {
+			this.lineOffset = this.position;
+			int length = 0;
+			int b;
+			while ((b = this.in.read()) >= 0) {
+				this.position++;
+				if (b == '\n') {
+					break;
+				}
+				if (length == this.line.length) {
+					byte[] larger = new byte[length * 2];
+					System.arraycopy(this.line, 0, larger, 0, length);
+					this.line = larger;
+				}
+				this.line[length++] = (byte) b;
+			}
+			if (b < 0 && length == 0) {
+				return null;
+			}
+			if (length > 0 && this.line[length - 1] == '\r') {
+				length--;
+			}
+			return new String(this.line, 0, length);
+		}
+
+		long getLineOffset() {
+			return this.lineOffset;
+		}
+
+		void close() throws IOException {
+			this.in.close();
+		}
+	}
+}
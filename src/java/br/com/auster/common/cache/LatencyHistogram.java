@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds, from which percentiles can be
+ * estimated.
+ * 
+ * Durations are counted in buckets that split each power of two in four, so
+ * the value reported for a percentile is at most 25% away from the real one,
+ * whatever the scale, and the histogram has a fixed size. Recording is
+ * lock free and safe from any number of threads.
+ * 
+ * @version $Id$
+ */
+final class LatencyHistogram {
+
+	// values below 4 get a bucket each, then 4 buckets per power of two
+	private static final int BUCKETS = 4 * 62 + 4;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Counts a duration.
+	 */
+	void record(long nanos) {
+		this.counts.incrementAndGet(bucketOf(nanos < 0 ? 0 : nanos));
+	}
+
+	/**
+	 * Returns the duration below which the given fraction of the recorded
+	 * durations fall, or 0 if nothing was recorded.
+	 * 
+	 * @param fraction between 0 and 1, for instance 0.99 for the 99th percentile
+	 */
+	long percentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = this.counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Forgets all recorded durations.
+	 */
+	void clear() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+	}
+
+	static int bucketOf(long nanos) {
+		if (nanos < 4) {
+			return (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - 2)) & 3;
+		return 4 * (exponent - 1) + sub;
+	}
+
+	static long upperBound(int bucket) {
+		if (bucket < 4) {
+			return bucket;
+		}
+		int exponent = bucket / 4 + 1;
+		int sub = bucket % 4;
+		long lower = (4L + sub) << (exponent - 2);
+		return lower + (1L << (exponent - 2)) - 1;
+	}
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A read-only {@link MultiKeyCache} table served from a memory mapped file.
+ * 
+ * {@link #write(MultiKeyTable, File)} saves a table in a sorted binary form,
+ * and the constructor maps it back with <code>FileChannel.map()</code>.
+ * Opening a file takes milliseconds whatever its size, nothing but a cache
+ * of the values found is kept on the heap, and all the JVMs of a host share
+ * the same pages of the OS cache.
+ * 
+ * The file layout (all numbers big endian) is:
+ * <pre>
+ *   int         magic number (0x4D4B5442, "MKTB")
+ *   int         format version
+ *   int         fingerprint of the line format the table was read with
+ *   int         k, number of keys of each mapping
+ *   int         n, number of mappings
+ *   int         d, number of distinct keys
+ *   int         v, number of distinct values
+ *   int[d + 1]  where each distinct key starts in the key characters
+ *   char[]      the distinct keys, sorted
+ *   int[n * k]  the keys of each mapping, as indexes of distinct keys, sorted
+ *   int[n]      the value of each mapping, as an index of distinct values
+ *   int[v + 1]  where each distinct value starts in the value characters
+ *   char[]      the distinct values
+ * </pre>
+ * 
+ * A lookup binary searches each key among the distinct keys, and then the
+ * resulting tuple of indexes among the mappings. Keys are compared as by
+ * <code>String.compareTo()</code>, so the sort order of the distinct keys
+ * is also the order of their indexes.
+ * 
+ * Each section is mapped separately and can not exceed 2GB.
+ * 
+ * @version $Id$
+ */
+public class MappedMultiKeyTable implements MultiKeyLookup {
+
+	public static final int MAGIC = 0x4D4B5442;
+	public static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 28;
+
+	private final File file;
+	private final int formatFingerprint;
+	private final int keyCount;
+	private final int size;
+	private final int distinctKeys;
+	private final IntBuffer keyStarts;
+	private final CharBuffer keyChars;
+	private final IntBuffer tuples;
+	private final IntBuffer valueIds;
+	private final IntBuffer valueStarts;
+	private final CharBuffer valueChars;
+	// values already decoded; racy but safe, since strings are immutable
+	private final String[] values;
+	private BloomFilter filter;
+
+	/**
+	 * Maps a file created by {@link #write(MultiKeyTable, File)}.
+	 * 
+	 * @param file the file to map
+	 * @throws IOException if the file can not be read or was not written by this class
+	 */
+	public MappedMultiKeyTable(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("File " + file + " is too short to be a table");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("File " + file + " is not a table");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("File " + file + " has unsupported version " + version);
+			}
+			this.formatFingerprint = header.getInt();
+			this.keyCount = header.getInt();
+			this.size = header.getInt();
+			this.distinctKeys = header.getInt();
+			int keyTotal = this.distinctKeys;
+			int valueTotal = header.getInt();
+
+			long position = HEADER_SIZE;
+			this.keyStarts = map(channel, position, (keyTotal + 1) * 4L).asIntBuffer();
+			position += (keyTotal + 1) * 4L;
+			this.keyChars = map(channel, position, this.keyStarts.get(keyTotal) * 2L).asCharBuffer();
+			position += this.keyStarts.get(keyTotal) * 2L;
+			this.tuples = map(channel, position, (long) this.size * this.keyCount * 4L).asIntBuffer();
+			position += (long) this.size * this.keyCount * 4L;
+			this.valueIds = map(channel, position, this.size * 4L).asIntBuffer();
+			position += this.size * 4L;
+			this.valueStarts = map(channel, position, (valueTotal + 1) * 4L).asIntBuffer();
+			position += (valueTotal + 1) * 4L;
+			this.valueChars = map(channel, position, this.valueStarts.get(valueTotal) * 2L).asCharBuffer();
+			this.values = new String[valueTotal];
+		} finally {
+			// the mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Saves a table to a file that can later be opened with
+	 * {@link #MappedMultiKeyTable(File)}. Any existing file is overwritten.
+	 * The fingerprint of the line format saved is 0.
+	 * 
+	 * @param table the table to save
+	 * @param file the file to be written
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(MultiKeyTable table, File file) throws IOException {
+		write(table, file, 0);
+	}
+
+	/**
+	 * Saves a table to a file that can later be opened with
+	 * {@link #MappedMultiKeyTable(File)}, along with the fingerprint of the
+	 * format of the lines it was read from. Any existing file is overwritten.
+	 * 
+	 * @param table the table to save
+	 * @param file the file to be written
+	 * @param formatFingerprint as returned by {@link MultiKeyRecordFormat#getFingerprint()}
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(MultiKeyTable table, File file, int formatFingerprint) throws IOException {
+		int keyCount = table.getKeyCount();
+		int size = table.size();
+
+		// distinct keys, sorted, and distinct values, in any order
+		Map keyIds = new HashMap();
+		Map valueIds = new HashMap();
+		int[] slots = new int[size];
+		int n = 0;
+		for (int slot = 0; slot < table.getCapacity(); slot++) {
+			if (table.valueAt(slot) == null) {
+				continue;
+			}
+			slots[n++] = slot;
+			for (int k = 0; k < keyCount; k++) {
+				keyIds.put(table.keyAt(slot, k), null);
+			}
+			if (!valueIds.containsKey(table.valueAt(slot))) {
+				valueIds.put(table.valueAt(slot), new Integer(valueIds.size()));
+			}
+		}
+		String[] keys = (String[]) keyIds.keySet().toArray(new String[keyIds.size()]);
+		Arrays.sort(keys);
+		for (int i = 0; i < keys.length; i++) {
+			keyIds.put(keys[i], new Integer(i));
+		}
+		String[] values = new String[valueIds.size()];
+		for (Iterator it = valueIds.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			values[((Integer) entry.getValue()).intValue()] = (String) entry.getKey();
+		}
+
+		int[] tuples = new int[size * keyCount];
+		int[] entryValues = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int k = 0; k < keyCount; k++) {
+				tuples[i * keyCount + k] = ((Integer) keyIds.get(table.keyAt(slots[i], k))).intValue();
+			}
+			entryValues[i] = ((Integer) valueIds.get(table.valueAt(slots[i]))).intValue();
+		}
+		int[] order = sortTuples(tuples, keyCount, size);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(formatFingerprint);
+			out.writeInt(keyCount);
+			out.writeInt(size);
+			out.writeInt(keys.length);
+			out.writeInt(values.length);
+			writeStrings(out, keys);
+			for (int i = 0; i < size; i++) {
+				for (int k = 0; k < keyCount; k++) {
+					out.writeInt(tuples[order[i] * keyCount + k]);
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				out.writeInt(entryValues[order[i]]);
+			}
+			writeStrings(out, values);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @see MultiKeyLookup#getKeyCount()
+	 */
+	public int getKeyCount() {
+		return this.keyCount;
+	}
+
+	/**
+	 * @see MultiKeyLookup#size()
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the fingerprint of the line format saved with the table.
+	 * 
+	 * @see MultiKeyRecordFormat#getFingerprint()
+	 */
+	public int getFormatFingerprint() {
+		return this.formatFingerprint;
+	}
+
+	/**
+	 * Returns the file this table was loaded from.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Returns the size of the file plus that of the values already decoded.
+	 * The file is mapped outside the heap, and only the pages read are
+	 * actually in memory.
+	 */
+	public long estimateBytes() {
+		long bytes = this.file.length() + CacheTableStats.sizeOfArray(this.values.length, 4) + 
+		             (this.filter == null ? 0 : this.filter.estimateBytes());
+		for (int i = 0; i < this.values.length; i++) {
+			String value = this.values[i];
+			if (value != null) {
+				bytes += CacheTableStats.sizeOf(value);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Builds the filter from the keys in the file, which takes one pass over
+	 * the keys but does not decode them to strings.
+	 * 
+	 * @see MultiKeyLookup#createFilter(double)
+	 */
+	public BloomFilter createFilter(double falsePositiveRate) {
+		// the hash of each distinct key, as MultiKeyTable computes it
+		int[] keyHashes = new int[this.distinctKeys];
+		for (int id = 0; id < this.distinctKeys; id++) {
+			int hash = 0;
+			for (int i = this.keyStarts.get(id), end = this.keyStarts.get(id + 1); i < end; i++) {
+				hash = 31 * hash + this.keyChars.get(i);
+			}
+			keyHashes[id] = MultiKeyTable.spread(hash);
+		}
+		BloomFilter filter = new BloomFilter(this.size, falsePositiveRate);
+		for (int entry = 0; entry < this.size; entry++) {
+			int hash = 1;
+			for (int k = 0, base = entry * this.keyCount; k < this.keyCount; k++) {
+				hash = 31 * hash + keyHashes[this.tuples.get(base + k)];
+			}
+			filter.add(hash);
+		}
+		this.filter = filter;
+		return filter;
+	}
+
+	public String getTrimmed(String key1) {
+		checkKeyCount(1);
+		if (rejected(key1, null, null, null, null)) {
+			return null;
+		}
+		return find(keyId(key1), 0, 0, 0, 0);
+	}
+
+	public String getTrimmed(String key1, String key2) {
+		checkKeyCount(2);
+		if (rejected(key1, key2, null, null, null)) {
+			return null;
+		}
+		return find(keyId(key1), keyId(key2), 0, 0, 0);
+	}
+
+	public String getTrimmed(String key1, String key2, String key3) {
+		checkKeyCount(3);
+		if (rejected(key1, key2, key3, null, null)) {
+			return null;
+		}
+		return find(keyId(key1), keyId(key2), keyId(key3), 0, 0);
+	}
+
+	public String getTrimmed(String key1, String key2, String key3, String key4) {
+		checkKeyCount(4);
+		if (rejected(key1, key2, key3, key4, null)) {
+			return null;
+		}
+		return find(keyId(key1), keyId(key2), keyId(key3), keyId(key4), 0);
+	}
+
+	public String getTrimmed(String key1, String key2, String key3, String key4, String key5) {
+		checkKeyCount(5);
+		if (rejected(key1, key2, key3, key4, key5)) {
+			return null;
+		}
+		return find(keyId(key1), keyId(key2), keyId(key3), keyId(key4), keyId(key5));
+	}
+
+	/**
+	 * Returns whether the filter, if any, rejects the trimmed keys. Only the
+	 * first {@link #getKeyCount()} keys are used.
+	 */
+	private boolean rejected(String key1, String key2, String key3, String key4, String key5) {
+		if (this.filter == null) {
+			return false;
+		}
+		int hash = MultiKeyTable.combine(1, key1);
+		if (this.keyCount > 1) {
+			hash = MultiKeyTable.combine(hash, key2);
+		}
+		if (this.keyCount > 2) {
+			hash = MultiKeyTable.combine(hash, key3);
+		}
+		if (this.keyCount > 3) {
+			hash = MultiKeyTable.combine(hash, key4);
+		}
+		if (this.keyCount > 4) {
+			hash = MultiKeyTable.combine(hash, key5);
+		}
+		return !this.filter.mightContain(hash);
+	}
+
+	/**
+	 * Returns the value of the mapping with the given key indexes, or null if
+	 * there is none or any of the keys was not found.
+	 */
+	private String find(int id1, int id2, int id3, int id4, int id5) {
+		if (id1 < 0 || id2 < 0 || id3 < 0 || id4 < 0 || id5 < 0) {
+			return null;
+		}
+		int low = 0;
+		int high = this.size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int cmp = compareTuple(middle, id1, id2, id3, id4, id5);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return value(this.valueIds.get(middle));
+			}
+		}
+		return null;
+	}
+
+	private int compareTuple(int entry, int id1, int id2, int id3, int id4, int id5) {
+		int base = entry * this.keyCount;
+		for (int k = 0; k < this.keyCount; k++) {
+			int id = (k == 0 ? id1 : k == 1 ? id2 : k == 2 ? id3 : k == 3 ? id4 : id5);
+			int stored = this.tuples.get(base + k);
+			if (stored != id) {
+				return (stored < id ? -1 : 1);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the index of the trimmed key among the distinct keys, or -1 if
+	 * it is not one of them.
+	 */
+	private int keyId(String key) {
+		int start = MultiKeyTable.trimStart(key);
+		int end = MultiKeyTable.trimEnd(key, start);
+		int low = 0;
+		int high = this.distinctKeys - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int cmp = compareKey(middle, key, start, end);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares a distinct key with a region of a string, as
+	 * <code>String.compareTo()</code> would.
+	 */
+	private int compareKey(int id, String key, int start, int end) {
+		int from = this.keyStarts.get(id);
+		int to = this.keyStarts.get(id + 1);
+		int length = Math.min(to - from, end - start);
+		for (int i = 0; i < length; i++) {
+			char stored = this.keyChars.get(from + i);
+			char c = key.charAt(start + i);
+			if (stored != c) {
+				return stored - c;
+			}
+		}
+		return (to - from) - (end - start);
+	}
+
+	private String value(int id) {
+		String value = this.values[id];
+		if (value == null) {
+			int from = this.valueStarts.get(id);
+			int to = this.valueStarts.get(id + 1);
+			char[] chars = new char[to - from];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = this.valueChars.get(from + i);
+			}
+			value = new String(chars);
+			this.values[id] = value;
+		}
+		return value;
+	}
+
+	private void checkKeyCount(int count) {
+		if (count != this.keyCount) {
+			throw new IllegalArgumentException("Expected " + this.keyCount + " keys but got " + count);
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE || position + size > channel.size()) {
+			throw new IOException("Invalid section of " + size + " bytes at " + position);
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+		int start = 0;
+		out.writeInt(start);
+		for (int i = 0; i < strings.length; i++) {
+			start += strings[i].length();
+			out.writeInt(start);
+		}
+		for (int i = 0; i < strings.length; i++) {
+			out.writeChars(strings[i]);
+		}
+	}
+
+	/**
+	 * Returns the order of the tuples, with a bottom-up merge sort.
+	 */
+	private static int[] sortTuples(int[] tuples, int keyCount, int size) {
+		int[] order = new int[size];
+		int[] buffer = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		for (int width = 1; width < size; width *= 2) {
+			for (int low = 0; low < size; low += 2 * width) {
+				int middle = Math.min(low + width, size);
+				int high = Math.min(low + 2 * width, size);
+				int left = low;
+				int right = middle;
+				for (int i = low; i < high; i++) {
+					if (left < middle && (right >= high || compare(tuples, keyCount, order[left], order[right]) <= 0)) {
+						buffer[i] = order[left++];
+					} else {
+						buffer[i] = order[right++];
+					}
+				}
+			}
+			int[] swap = order;
+			order = buffer;
+			buffer = swap;
+		}
+		return order;
+	}
+
+	private static int compare(int[] tuples, int keyCount, int a, int b) {
+		for (int k = 0; k < keyCount; k++) {
+			int x = tuples[a * keyCount + k];
+			int y = tuples[b * keyCount + k];
+			if (x != y) {
+				return (x < y ? -1 : 1);
+			}
+		}
+		return 0;
+	}
+}
@@ -17,16 +17,15 @@
  */
 package br.com.auster.common.cache;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.collections.keyvalue.MultiKey;
-import org.apache.commons.collections.map.HashedMap;
-import org.apache.commons.collections.map.MultiKeyMap;
+import org.apache.log4j.Logger;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -41,9 +40,19 @@ import br.com.auster.common.xml.DOMUtils;
  * 
  * This Class requires some XML configuration as follow (Note that table element can appear many times):
  * 
+ * <manager
+ *		parallel-loads="4"								===>Optional. Tables loaded at once, defaults to the number of processors
+ *		load-timeout="300">								===>Optional. Seconds configure waits for the tables, 0 (the default) waits for all
+ *		<table .../>
+ * </manager>
+ * 
  * <table> 			
  * 		table-name="table-name"    						===>This is the name of the table
- *		data-path="conf/tables/CNL.txt">				===>This is the Flat File with data to be cached. 
+ *		data-path="conf/tables/CNL.txt"				===>This is the Flat File with data to be cached. 
+ *		load-threads="4"								===>Optional. Threads used to parse the file, defaults to the number of processors
+ *		reload-interval="60"							===>Optional. Seconds between checks for changes in the file, 0 (the default) disables reloading
+ *		index-path="conf/tables/CNL.idx"				===>Optional. Binary index of the file, see below
+ *		bloom-fpp="0.01">								===>Optional. False positive rate of a Bloom filter of the keys, see below
  *		<items											===>Defines the keys and the value
  *			type="index" 		===>Identifies if the file is separated or not. Can be "index" | "slice"
  *			separator=";">		===>If type="index", then this is the separator, otherwise it will be ignored
@@ -52,76 +61,181 @@ import br.com.auster.common.xml.DOMUtils;
  *			<key   name="stateCode"    index="4" />  key number N.....
  *		</items>
  * </table>	
+ * 
+ * The separator is taken literally, not as a regular expression. Fields of
+ * "slice" tables are trimmed, since they are usually padded.
+ * 
+ * See {@link MultiKeyTableLoader} for how the files are loaded.
+ * 
+ * Callers that look tables up often should use {@link #table(String)} to get
+ * a {@link Table} handle once, and then call its <code>get</code> methods.
+ * 
+ * Tables with an index path are served from a {@link MappedMultiKeyTable}
+ * instead of being kept on the heap. The index is built from the data file
+ * the first time, and rebuilt whenever the data file is newer or the items
+ * element changed; otherwise it is just memory mapped, which takes
+ * milliseconds.
+ * 
+ * Tables with a Bloom filter answer most lookups of absent keys without
+ * searching the table, at the cost of about 1.2 bytes per entry for a 1%
+ * false positive rate. They are worth it when many lookups miss, above all
+ * for tables served from an index file. The number of lookups rejected by
+ * the filter is reported in the table metrics.
+ * 
+ * Tables are loaded in parallel. A table that fails to load does not stop
+ * the others: once every table finished, or the load timeout expired,
+ * configure throws an exception naming the failed tables. Tables still
+ * loading after the timeout keep loading in the background; use
+ * {@link #awaitLoad(long)} and {@link #getLoadErrors()} to follow them.
+ * 
+ * The load and lookup metrics of each table are available from
+ * {@link #getStats(String)}, and are also published as MBeans, see
+ * {@link CacheTableStats}. Lookups that find nothing, and so return an empty
+ * string, are counted as misses.
+ * 
+ * Tables with a reload interval are reloaded by a {@link TableReloader} when
+ * their file changes. The new contents are swapped in once fully loaded, so
+ * lookups, including those through handles taken before the reload, never
+ * block nor see a partially loaded table. A table whose file could not be
+ * loaded is watched as well, and becomes available once its file is fixed.
  * @author Marcos Tengelmann
  * 07/11/2004
  * @version $Id: MultiKeyCache.java 91 2005-04-07 21:13:55Z framos $
  */
 public class MultiKeyCache implements ExternalTableManager {
 	
-	private class Item {
-		private Integer index;
-		private Integer start;
-		private Integer size;
+	/**
+	 * A handle to one of the tables of the cache, as returned by
+	 * {@link MultiKeyCache#table(String)}. 
+	 * 
+	 * Code that looks the same table up many times should keep a handle
+	 * instead of calling the <code>get</code> methods of the cache, which
+	 * find the table by its name on every call. Lookups through a handle do
+	 * not create any objects.
+	 */
+	public static final class Table {
+		private final String name;
+		private final CacheTableStats stats;
+		private volatile MultiKeyLookup table;
+		
+		Table(String name) {
+			this.name = name;
+			this.stats = new CacheTableStats(name);
+		}
 		
 		/**
-		 * @return Returns the index.
+		 * Loads the table and swaps it in.
 		 */
-		protected Integer getIndex() {
-			return index;
+		void load(MultiKeyTableLoader loader, String dataFile, String indexPath, double filterRate) 
+				throws Exception {
+			long start = System.currentTimeMillis();
+			MultiKeyLookup loaded;
+			if (indexPath.length() > 0) {
+				loaded = loadIndexed(loader, dataFile, new File(indexPath));
+			} else {
+				loaded = loader.load(dataFile);
+			}
+			BloomFilter filter = (filterRate > 0 ? loaded.createFilter(filterRate) : null);
+			table = loaded;
+			stats.recordLoad(loaded.size(), System.currentTimeMillis() - start, loaded);
+			stats.recordFilter(filter);
 		}
+		
 		/**
-		 * @param index The index to set.
+		 * @return Returns the name of the table.
 		 */
-		protected void setIndex(Integer index) {
-			this.index = index;
+		public String getName() {
+			return name;
 		}
+		
 		/**
-		 * @return Returns the size.
+		 * @return Returns the number of keys of the table.
 		 */
-		protected Integer getSize() {
-			return size;
+		public int getKeyCount() {
+			return table.getKeyCount();
 		}
+		
 		/**
-		 * @param size The size to set.
+		 * @return Returns the number of entries of the table.
 		 */
-		protected void setSize(Integer size) {
-			this.size = size;
+		public int size() {
+			return table.size();
 		}
+		
 		/**
-		 * @return Returns the start.
+		 * @return Returns the load and lookup metrics of the table.
 		 */
-		protected Integer getStart() {
-			return start;
+		public CacheTableStats getStats() {
+			return stats;
 		}
+		
 		/**
-		 * @param start The start to set.
+		 * Returns the value mapped to the key, ignoring its leading and trailing
+		 * whitespace, or an empty string if there is none. As always with this
+		 * class, an empty string is also returned if the table does not have
+		 * exactly that number of keys.
 		 */
-		protected void setStart(Integer start) {
-			this.start = start;
+		public String get(String key) {
+			long start = stats.startLookup();
+			MultiKeyLookup current = table;
+			return valueOf(start, current.getKeyCount() == 1 ? current.getTrimmed(key) : null);
+		}
+		public String get(String key1, String key2) {
+			long start = stats.startLookup();
+			MultiKeyLookup current = table;
+			return valueOf(start, current.getKeyCount() == 2 ? current.getTrimmed(key1,key2) : null);
+		}
+		public String get(String key1, String key2, String key3) {
+			long start = stats.startLookup();
+			MultiKeyLookup current = table;
+			return valueOf(start, current.getKeyCount() == 3 ? current.getTrimmed(key1,key2,key3) : null);
+		}
+		public String get(String key1, String key2, String key3, String key4) {
+			long start = stats.startLookup();
+			MultiKeyLookup current = table;
+			return valueOf(start, current.getKeyCount() == 4 ? current.getTrimmed(key1,key2,key3,key4) : null);
+		}
+		public String get(String key1, String key2, String key3, String key4, String key5) {
+			long start = stats.startLookup();
+			MultiKeyLookup current = table;
+			return valueOf(start, current.getKeyCount() == 5 ? current.getTrimmed(key1,key2,key3,key4,key5) : null);
+		}
+		
+		private String valueOf(long start, String resultCache) {
+			stats.endLookup(start, resultCache != null);
+			return (resultCache==null ? "":resultCache);
 		}
 	}
+	
 	private static final String TABLE_ELEMENT = "table";
 	private static final String DATA_FILE_ATTR = "data-path";
 	private static final String TABLE_NAME_ATTR = "table-name";
+	private static final String LOAD_THREADS_ATTR = "load-threads";
 	private static final String ITEMS_ELEMENT = "items";
 	private static final String KEY_ELEMENT = "key";
 	private static final String NAME_ATTR = "name";
 	private static final String TYPE_ATTR = "type";
-	private static final String TYPE_INDEX = "index";
-	private static final String TYPE_SLICE = "slice";
+	private static final String TYPE_INDEX = MultiKeyRecordFormat.TYPE_INDEX;
+	private static final String TYPE_SLICE = MultiKeyRecordFormat.TYPE_SLICE;
 	private static final String SEPARATOR_ATTR = "separator";
 	private static final String INDEX_ATTR = "index";
 	private static final String SIZE_ATTR = "size";
 	private static final String START_ATTR = "start";
 	private static final String VALUE_ELEMENT = "value";	
+	private static final int MAX_KEYS = 5;
+
+	private static final String RELOAD_INTERVAL_ATTR = "reload-interval";
+	private static final String INDEX_PATH_ATTR = "index-path";
+	private static final String BLOOM_FPP_ATTR = "bloom-fpp";
+	private static final String PARALLEL_LOADS_ATTR = "parallel-loads";
+	private static final String LOAD_TIMEOUT_ATTR = "load-timeout";
 
 	private static Element config;
-	private static Map tableKeyMap = new HashMap();
-	private static Map tablesMap = new HashMap();
-	private static Map tableValueMap = new HashMap();
+	private static ConcurrentMap tablesMap = new ConcurrentHashMap();
+	private static Map reloadersMap = new ConcurrentHashMap();
+	private static volatile TableLoadGroup loading;
 	
-	private String separator;
-	private String type;
+	private static Logger log = Logger.getLogger(MultiKeyCache.class);
 
 	/**
 	 * 
@@ -145,167 +259,238 @@ public class MultiKeyCache implements ExternalTableManager {
 		
 		NodeList children = DOMUtils.getElements(manager,TABLE_ELEMENT);
 		int qtde = children.getLength();
+		// the whole configuration is checked before any table starts loading
+		Callable[] tasks = new Callable[qtde];
+		String[] names = new String[qtde];
 		for (int i=0; i < qtde; i++) {
-			Map lkMap = new LinkedHashMap();
 			Element table = (Element) children.item(i);
-			String tableName = DOMUtils.getAttribute(table,TABLE_NAME_ATTR,true);
-			String dataFile  = DOMUtils.getAttribute(table,DATA_FILE_ATTR,true);			
+			final String tableName = DOMUtils.getAttribute(table,TABLE_NAME_ATTR,true);
+			final String dataFile  = DOMUtils.getAttribute(table,DATA_FILE_ATTR,true);			
+			int threads = DOMUtils.getIntAttribute(table,LOAD_THREADS_ATTR,false);
 			
-			//Handle items Element
-			Element items = DOMUtils.getElement(table,ITEMS_ELEMENT,true);
-			type = DOMUtils.getAttribute(items,TYPE_ATTR,true);
-			if (type.equals(TYPE_INDEX)) {
-				separator = DOMUtils.getAttribute(items,SEPARATOR_ATTR,true);
-			} else if (!type.equals(TYPE_SLICE)) {
-				throw new Exception("type attribute in items Element can be = {index | slice}");
-			}
-			//Handle key elements inside items Element.
-			NodeList itemsChildren = DOMUtils.getElements(items,KEY_ELEMENT);
-			int itemCount = itemsChildren.getLength();
-			for (int j=0; j < itemCount; j++) {
-				Element keyElement = (Element) itemsChildren.item(j);
-				String name = DOMUtils.getAttribute(keyElement,NAME_ATTR,true);
-				Integer index = null;
-				Integer start = null;
-				Integer size = null;
-				if (this.type.equals(TYPE_INDEX)) {
-					 index = Integer.valueOf(DOMUtils.getAttribute(keyElement,INDEX_ATTR,true));
-				} else {
-					start = Integer.valueOf(DOMUtils.getAttribute(keyElement,START_ATTR,true));
-					size = Integer.valueOf(DOMUtils.getAttribute(keyElement,SIZE_ATTR,true));
+			final int reloadInterval = DOMUtils.getIntAttribute(table,RELOAD_INTERVAL_ATTR,false);
+			final String indexPath = DOMUtils.getAttribute(table,INDEX_PATH_ATTR,false);
+			final double filterRate = getFilterRate(table);
+			
+			MultiKeyRecordFormat format = createFormat(DOMUtils.getElement(table,ITEMS_ELEMENT,true));
+			final MultiKeyTableLoader loader = (threads > 0 ? new MultiKeyTableLoader(format, threads) 
+			                                                : new MultiKeyTableLoader(format));
+			names[i] = tableName;
+			tasks[i] = new Callable() {
+				public Object call() throws Exception {
+					TableReloader previous = (TableReloader) reloadersMap.remove(tableName);
+					if (previous != null) {
+						previous.cancel();
+					}
+					// handles already given out for this table keep working
+					Table handle = (Table) tablesMap.get(tableName);
+					if (handle == null) {
+						handle = new Table(tableName);
+					}
+					try {
+						load(handle, loader, dataFile, indexPath, filterRate);
+					} catch (Exception e) {
+						handle.getStats().recordFailure(e);
+						throw e;
+					} finally {
+						if (reloadInterval > 0) {
+							schedule(handle, loader, dataFile, indexPath, filterRate, reloadInterval);
+						}
+					}
+					return handle;
 				}
-				Item keyObj = new Item();
-				keyObj.setIndex(index);
-				keyObj.setSize(size);
-				keyObj.setStart(start);
-				lkMap.put(name,keyObj);				
+			};
+		}
+		
+		TableLoadGroup group = new TableLoadGroup("MultiKeyCache", qtde, 
+		                                          DOMUtils.getIntAttribute(manager,PARALLEL_LOADS_ATTR,false));
+		loading = group;
+		for (int i=0; i < qtde; i++) {
+			group.submit(names[i], tasks[i]);
+		}
+		if (!group.await(DOMUtils.getIntAttribute(manager,LOAD_TIMEOUT_ATTR,false) * 1000L)) {
+			log.warn("Tables still loading after the load timeout: " + group.getPending());
+		}
+		Map errors = group.getErrors();
+		if (!errors.isEmpty()) {
+			Exception e = new Exception("Could not load tables " + errors.keySet());
+			e.initCause((Throwable) errors.values().iterator().next());
+			throw e;
+		}
+	}
+	
+	/**
+	 * Waits for the tables of the last call to configure to finish loading.
+	 * 
+	 * @param timeout the maximum time to wait, in milliseconds, or 0 to wait
+	 *                as long as needed
+	 * @return true if every table finished loading, even if some failed
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	public static boolean awaitLoad(long timeout) throws InterruptedException {
+		TableLoadGroup group = loading;
+		return (group == null || group.await(timeout));
+	}
+	
+	/**
+	 * Returns the errors of the tables that could not be loaded by the last
+	 * call to configure, by table name.
+	 */
+	public static Map getLoadErrors() {
+		TableLoadGroup group = loading;
+		return (group == null ? new HashMap() : group.getErrors());
+	}
+	
+	/**
+	 * Loads a table and makes it available, publishing its metrics the first
+	 * time it loads.
+	 */
+	private static void load(Table handle, MultiKeyTableLoader loader, String dataFile, 
+	                         String indexPath, double filterRate) throws Exception {
+		handle.load(loader, dataFile, indexPath, filterRate);
+		if (tablesMap.putIfAbsent(handle.getName(), handle) == null) {
+			handle.getStats().publish("MultiKeyCache");
+		}
+	}
+	
+	private static void schedule(final Table handle, final MultiKeyTableLoader loader, 
+	                             final String dataFile, final String indexPath, 
+	                             final double filterRate, int interval) {
+		TableReloader reloader = new TableReloader(handle.getName(), new File(dataFile), handle.getStats(), 
+			new TableReloader.Task() {
+				public void reload() throws Exception {
+					load(handle, loader, dataFile, indexPath, filterRate);
+				}
+			});
+		reloadersMap.put(handle.getName(), reloader);
+		reloader.schedule(interval * 1000L);
+	}
+	
+	/**
+	 * Returns the false positive rate of the Bloom filter of a table, or 0 if
+	 * it should not have one.
+	 */
+	private static double getFilterRate(Element table) {
+		String rate = DOMUtils.getAttribute(table,BLOOM_FPP_ATTR,false).trim();
+		if (rate.length() == 0) {
+			return 0;
+		}
+		double value = Double.parseDouble(rate);
+		if (!(value > 0 && value < 1)) {
+			throw new IllegalArgumentException(BLOOM_FPP_ATTR + " must be between 0 and 1: " + rate);
+		}
+		return value;
+	}
+	
+	/**
+	 * Maps the index file of a table, building it from the data file first if
+	 * it does not exist or is older than the data file.
+	 */
+	static MultiKeyLookup loadIndexed(MultiKeyTableLoader loader, String dataFile, File index) 
+			throws Exception {
+		final int fingerprint = loader.getFormat().getFingerprint();
+		if (index.exists() && index.lastModified() >= new File(dataFile).lastModified()) {
+			try {
+				MappedMultiKeyTable mapped = new MappedMultiKeyTable(index);
+				if (mapped.getFormatFingerprint() == fingerprint) {
+					return mapped;
+				}
+				log.info("Index " + index + " was built with another format of the items. Rebuilding it.");
+			} catch (IOException e) {
+				log.info("Index " + index + " can not be used (" + e.getMessage() + "). Rebuilding it.");
 			}
-			//Handle Value Element in items Elemnt
-			Element value = DOMUtils.getElement(items,VALUE_ELEMENT,true);
-			String valueName = DOMUtils.getAttribute(value,NAME_ATTR,true);
-			Integer valueIndex=null;
-			Integer valueStart=null;
-			Integer valueSize=null;
-			if (this.type.equals(TYPE_INDEX)) {
-				valueIndex = Integer.valueOf(DOMUtils.getAttribute(value,INDEX_ATTR,true));
-			} else {
-				valueStart = Integer.valueOf(DOMUtils.getAttribute(value,START_ATTR,true));
-				valueSize = Integer.valueOf(DOMUtils.getAttribute(value,SIZE_ATTR,true));
+		}
+		// written aside and renamed, so a mapped index is never changed
+		File built = new File(index.getPath() + ".tmp");
+		MappedMultiKeyTable.write(loader.load(dataFile), built, fingerprint);
+		if (!built.renameTo(index)) {
+			index.delete();
+			if (!built.renameTo(index)) {
+				throw new IOException("Could not replace index " + index);
 			}
-			Item valueObj = new Item();
-			valueObj.setIndex(valueIndex);
-			valueObj.setSize(valueSize);
-			valueObj.setStart(valueStart);			
-			tableValueMap.put(tableName,valueObj);
-			
-			tableKeyMap.put(tableName,lkMap);
-			
-			tablesMap.put(tableName,transform(tableName,dataFile));
 		}
+		return new MappedMultiKeyTable(index);
 	}
 	
-	private MultiKeyMap transform(String tableName,String dataFile) throws Exception {
-		MultiKeyMap mkp = MultiKeyMap.decorate(new HashedMap(50000, (float) 0.9));
-		Map lkMap = (LinkedHashMap) tableKeyMap.get(tableName);
-		int keyCount = lkMap.size();
-		if (keyCount > 5) {
-			throw new Exception("Cannot have more than 5 keys");
+	/**
+	 * Reads the format of the lines of a table from its items element. Also
+	 * used by {@link BoundedMultiKeyCache}, which shares the configuration
+	 * of this class.
+	 */
+	static MultiKeyRecordFormat createFormat(Element items) throws Exception {
+		String type = DOMUtils.getAttribute(items,TYPE_ATTR,true);
+		boolean index = type.equals(TYPE_INDEX);
+		if (!index && !type.equals(TYPE_SLICE)) {
+			throw new Exception("type attribute in items Element can be = {index | slice}");
 		}
-		
-		BufferedReader br = new BufferedReader(new FileReader(dataFile));
-		
-		String record;			
-		
-		while ( (record = br.readLine()) != null ) {
-			//TODO Implementar separao por start/size
-			if (this.type.equals(TYPE_INDEX)) {
-				String[] result = record.split(separator);
-				for (int i = 0; i < result.length;i++) {
-					Item valueObj = (Item) tableValueMap.get(tableName);
-					String value = result[valueObj.getIndex().intValue()-1];
-					
-					Iterator itr = lkMap.values().iterator();
-					String keys[] = new String[2];
-					int index = 0;
-					while (itr.hasNext()) {
-						Item keyObj = (Item)itr.next();
-						keys[index++] = result[keyObj.getIndex().intValue()-1];
-					}
-					switch (keyCount) {
-						case 1: {put1(mkp, keys,value);break;}
-						case 2: {put2(mkp, keys,value);break;}
-						case 3: {put3(mkp, keys,value);break;}
-						case 4: {put4(mkp, keys,value);break;}
-						case 5: {put5(mkp, keys,value);break;}
-						}
-					;
-				}
+		//Handle key elements inside items Element.
+		NodeList itemsChildren = DOMUtils.getElements(items,KEY_ELEMENT);
+		int keyCount = itemsChildren.getLength();
+		if (keyCount > MAX_KEYS) {
+			throw new Exception("Cannot have more than " + MAX_KEYS + " keys");
+		}
+		int[] keyPositions = new int[keyCount];
+		int[] keySizes = new int[keyCount];
+		for (int j=0; j < keyCount; j++) {
+			Element keyElement = (Element) itemsChildren.item(j);
+			DOMUtils.getAttribute(keyElement,NAME_ATTR,true);
+			if (index) {
+				keyPositions[j] = Integer.parseInt(DOMUtils.getAttribute(keyElement,INDEX_ATTR,true));
+			} else {
+				keyPositions[j] = Integer.parseInt(DOMUtils.getAttribute(keyElement,START_ATTR,true));
+				keySizes[j] = Integer.parseInt(DOMUtils.getAttribute(keyElement,SIZE_ATTR,true));
 			}
 		}
-		return mkp;
+		//Handle Value Element in items Elemnt
+		Element value = DOMUtils.getElement(items,VALUE_ELEMENT,true);
+		DOMUtils.getAttribute(value,NAME_ATTR,true);
+		if (index) {
+			String separator = DOMUtils.getAttribute(items,SEPARATOR_ATTR,true);
+			int valueIndex = Integer.parseInt(DOMUtils.getAttribute(value,INDEX_ATTR,true));
+			return new MultiKeyRecordFormat(separator, keyPositions, valueIndex);
+		}
+		int valueStart = Integer.parseInt(DOMUtils.getAttribute(value,START_ATTR,true));
+		int valueSize = Integer.parseInt(DOMUtils.getAttribute(value,SIZE_ATTR,true));
+		return new MultiKeyRecordFormat(keyPositions, keySizes, valueStart, valueSize);
 	}
 	
-	private void put1(MultiKeyMap mkp, String[] keys, String value) {
-		MultiKey mk = new MultiKey(new Object[] {keys[0]} );
-		mkp.put(mk,value);
+	/**
+	 * Returns a handle to the given table.
+	 * 
+	 * @param tableName the name of the table
+	 * @throws IllegalArgumentException if there is no such table
+	 */
+	public static Table table(String tableName) {
+		Table table = (Table) tablesMap.get(tableName);
+		if (table == null) {
+			throw new IllegalArgumentException("Unknown table " + tableName);
+		}
+		return table;
 	}
-	private void put2(MultiKeyMap mkp, String[] keys, String value) {
-		mkp.put(keys[0],keys[1],value);
-	}	
-	private void put3(MultiKeyMap mkp,String[] keys, String value) {
-		mkp.put(keys[0],keys[1],keys[2],value);
-	}	
-	private void put4(MultiKeyMap mkp,String[] keys, String value) {
-		mkp.put(keys[0],keys[1],keys[2],keys[3],value);
-	}	
-	private void put5(MultiKeyMap mkp,String[] keys, String value) {
-		mkp.put(keys[0],keys[1],keys[2],keys[3],keys[4],value);
+	
+	/**
+	 * Returns the load and lookup metrics of the given table.
+	 * 
+	 * @param tableName the name of the table
+	 * @throws IllegalArgumentException if there is no such table
+	 */
+	public static CacheTableStats getStats(String tableName) {
+		return table(tableName).getStats();
 	}
 	
 	public String get(String tableName, String key) {
-		key=key.trim();
-		String resultCache=null;
-		MultiKeyMap mkp = (MultiKeyMap) tablesMap.get(tableName);
-		MultiKey mk = new MultiKey( new Object[] {key});
-		resultCache = (String) mkp.get(mk);
-		return (resultCache==null ? "":resultCache);
+		return table(tableName).get(key);
 	}
 	public String get(String tableName, String key1, String key2) {
-		key1=key1.trim();
-		key2=key2.trim();		
-		String resultCache=null;
-		MultiKeyMap mkp = (MultiKeyMap) tablesMap.get(tableName);
-		resultCache = (String) mkp.get(key1,key2);
-		return (resultCache==null ? "":resultCache);
+		return table(tableName).get(key1,key2);
 	}
 	public String get(String tableName, String key1, String key2, String key3) {		
-		key1=key1.trim();
-		key2=key2.trim();
-		key3=key3.trim();
-		String resultCache=null;
-		MultiKeyMap mkp = (MultiKeyMap) tablesMap.get(tableName);
-		resultCache = (String) mkp.get(key1,key2,key3);
-		return (resultCache==null ? "":resultCache);
+		return table(tableName).get(key1,key2,key3);
 	}
 	public String get(String tableName, String key1, String key2, String key3, String key4) {
-		key1=key1.trim();
-		key2=key2.trim();
-		key3=key3.trim();
-		key4=key4.trim();
-		String resultCache=null;
-		MultiKeyMap mkp = (MultiKeyMap) tablesMap.get(tableName);
-		resultCache = (String) mkp.get(key1,key2,key3,key4);
-		return (resultCache==null ? "":resultCache);
+		return table(tableName).get(key1,key2,key3,key4);
 	}
 	public String get(String tableName, String key1, String key2, String key3, String key4,String key5) {
-		key1=key1.trim();
-		key2=key2.trim();
-		key3=key3.trim();
-		key4=key4.trim();
-		key5=key5.trim();
-		String resultCache=null;
-		MultiKeyMap mkp = (MultiKeyMap) tablesMap.get(tableName);
-		resultCache = (String) mkp.get(key1,key2,key3,key4,key5);
-		return (resultCache==null ? "":resultCache);
+		return table(tableName).get(key1,key2,key3,key4,key5);
 	}	
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+/**
+ * Read access to a table of {@link MultiKeyCache}, wherever it is stored.
+ * 
+ * The <code>getTrimmed</code> methods look keys up ignoring their leading
+ * and trailing whitespace, as if they were trimmed with
+ * <code>String.trim()</code>, and return null when they are not found. They
+ * throw an <code>IllegalArgumentException</code> if the table does not have
+ * exactly the number of keys given.
+ * 
+ * Implementations must be safe for concurrent reads.
+ * 
+ * @version $Id$
+ */
+public interface MultiKeyLookup extends MemoryFootprint {
+
+	/**
+	 * Returns how many keys each mapping has.
+	 */
+	public int getKeyCount();
+
+	/**
+	 * Returns the number of mappings in the table.
+	 */
+	public int size();
+
+	/**
+	 * Builds a {@link BloomFilter} of the keys of the table, which the
+	 * <code>getTrimmed</code> methods then check before searching the table.
+	 * Must be called before the table is shared between threads.
+	 * 
+	 * @param falsePositiveRate the fraction of absent keys the filter may let through
+	 * @return the filter, so its statistics can be followed
+	 */
+	public BloomFilter createFilter(double falsePositiveRate);
+
+	public String getTrimmed(String key1);
+
+	public String getTrimmed(String key1, String key2);
+
+	public String getTrimmed(String key1, String key2, String key3);
+
+	public String getTrimmed(String key1, String key2, String key3, String key4);
+
+	public String getTrimmed(String key1, String key2, String key3, String key4, String key5);
+}
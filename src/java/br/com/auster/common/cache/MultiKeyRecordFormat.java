@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+/**
+ * Describes how the keys and the value of a {@link MultiKeyCache} table are
+ * found in each line of its data file.
+ * 
+ * In <code>index</code> mode the line is split on a separator, which is taken
+ * literally (it is not a regular expression), and each column is a 1-based
+ * field number. Only the fields up to the highest referenced one are looked
+ * at, and no array of fields is built.
+ * 
+ * In <code>slice</code> mode each column is a fixed width field, given by its
+ * 1-based start position and its size. Since such fields are usually padded,
+ * they are trimmed. A last field cut short by the end of the line is accepted.
+ * 
+ * Instances are immutable and can be shared by the threads that parse a file.
+ * 
+ * @version $Id$
+ */
+public class MultiKeyRecordFormat {
+
+	public static final String TYPE_INDEX = "index";
+	public static final String TYPE_SLICE = "slice";
+
+	private final String type;
+	private final String separator;
+	// one entry per column: the keys in order, then the value
+	private final int[] positions;
+	private final int[] sizes;
+	private final int highestPosition;
+
+	/**
+	 * Creates a format for lines split by a separator.
+	 * 
+	 * @param separator the literal field separator
+	 * @param keyIndexes the 1-based field number of each key
+	 * @param valueIndex the 1-based field number of the value
+	 */
+	public MultiKeyRecordFormat(String separator, int[] keyIndexes, int valueIndex) {
+		if (separator == null || separator.length() == 0) {
+			throw new IllegalArgumentException("An empty separator is not allowed");
+		}
+		this.type = TYPE_INDEX;
+		this.separator = separator;
+		this.positions = columns(keyIndexes, valueIndex);
+		this.sizes = null;
+		int highest = 0;
+		for (int i = 0; i < this.positions.length; i++) {
+			if (this.positions[i] < 1) {
+				throw new IllegalArgumentException("Field indexes start at 1: " + this.positions[i]);
+			}
+			highest = Math.max(highest, this.positions[i]);
+		}
+		this.highestPosition = highest;
+	}
+
+	/**
+	 * Creates a format for fixed width lines.
+	 * 
+	 * @param keyStarts the 1-based start position of each key
+	 * @param keySizes the size of each key
+	 * @param valueStart the 1-based start position of the value
+	 * @param valueSize the size of the value
+	 */
+	public MultiKeyRecordFormat(int[] keyStarts, int[] keySizes, int valueStart, int valueSize) {
+		if (keyStarts.length != keySizes.length) {
+			throw new IllegalArgumentException("Each key needs both a start and a size");
+		}
+		this.type = TYPE_SLICE;
+		this.separator = null;
+		this.positions = columns(keyStarts, valueStart);
+		this.sizes = columns(keySizes, valueSize);
+		for (int i = 0; i < this.positions.length; i++) {
+			if (this.positions[i] < 1 || this.sizes[i] < 1) {
+				throw new IllegalArgumentException("Invalid slice: start=" + this.positions[i] + 
+				                                   ", size=" + this.sizes[i]);
+			}
+		}
+		this.highestPosition = 0;
+	}
+
+	/**
+	 * Returns either {@link #TYPE_INDEX} or {@link #TYPE_SLICE}.
+	 */
+	public String getType() {
+		return this.type;
+	}
+
+	/**
+	 * Returns how many keys each line has.
+	 */
+	public int getKeyCount() {
+		return this.positions.length - 1;
+	}
+
+	/**
+	 * Returns a hash of everything that decides which keys and value are read
+	 * from a line: the type, the separator and the columns. It is saved with
+	 * the indexes built from the data file, so an index built with another
+	 * format is detected and rebuilt.
+	 * 
+	 * The hash only depends on the format, never on the JVM that computes it.
+	 */
+	public int getFingerprint() {
+		int hash = this.type.hashCode();
+		hash = 31 * hash + (this.separator == null ? 0 : this.separator.hashCode());
+		for (int i = 0; i < this.positions.length; i++) {
+			hash = 31 * hash + this.positions[i];
+			hash = 31 * hash + (this.sizes == null ? 0 : this.sizes[i]);
+		}
+		return hash;
+	}
+
+	/**
+	 * Extracts the keys and the value of a line. 
+	 * 
+	 * @param record the line
+	 * @param fields receives the keys, in order, followed by the value. Must
+	 *          have room for {@link #getKeyCount()} + 1 strings.
+	 * @return false if the line does not have all the fields, in which case
+	 *         the contents of <code>fields</code> are undefined.
+	 */
+	public boolean parse(String record, String[] fields) {
+		if (this.separator == null) {
+			return parseSlices(record, fields);
+		}
+		return parseFields(record, fields);
+	}
+
+	private boolean parseFields(String record, String[] fields) {
+		int start = 0;
+		int length = record.length();
+		for (int field = 1; field <= this.highestPosition; field++) {
+			if (start > length) {
+				return false;
+			}
+			int end = record.indexOf(this.separator, start);
+			if (end < 0) {
+				end = length;
+			}
+			for (int i = 0; i < this.positions.length; i++) {
+				if (this.positions[i] == field) {
+					fields[i] = record.substring(start, end);
+				}
+			}
+			start = end + this.separator.length();
+		}
+		return true;
+	}
+
+	private boolean parseSlices(String record, String[] fields) {
+		int length = record.length();
+		for (int i = 0; i < this.positions.length; i++) {
+			int start = this.positions[i] - 1;
+			if (start >= length) {
+				return false;
+			}
+			int end = Math.min(length, start + this.sizes[i]);
+			fields[i] = record.substring(start, end).trim();
+		}
+		return true;
+	}
+
+	private static int[] columns(int[] keys, int value) {
+		int[] result = new int[keys.length + 1];
+		System.arraycopy(keys, 0, result, 0, keys.length);
+		result[keys.length] = value;
+		return result;
+	}
+}
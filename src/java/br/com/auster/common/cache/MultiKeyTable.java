@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+/**
+ * A hash table from a fixed number of string keys to a string value, used
+ * by {@link MultiKeyCache} to hold its tables.
+ * 
+ * The table is stored in a few flat arrays with open addressing, instead of
+ * one entry object and one key object per mapping: for a table with
+ * <i>k</i> keys, each mapping costs <i>k</i> + 1 references and an
+ * <code>int</code> with its hash.
+ * 
+ * Adding a mapping for keys already in the table replaces its value. Null
+ * keys or values are not allowed.
+ * 
+ * This class is not synchronized. Tables are filled by a single thread and
+ * can then be read by any number of threads, as long as they are published
+ * safely (for instance, through a synchronized or volatile reference).
+ * 
+ * @version $Id$
+ */
+public class MultiKeyTable implements MultiKeyLookup {
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final int keyCount;
+	private String[] keys;
+	private String[] values;
+	private int[] hashes;
+	private int size;
+	private int threshold;
+	private long stringBytes;
+	private BloomFilter filter;
+
+	/**
+	 * Creates an empty table.
+	 * 
+	 * @param keyCount how many keys each mapping has
+	 * @param expectedSize how many mappings are expected
+	 */
+	public MultiKeyTable(int keyCount, int expectedSize) {
+		if (keyCount < 1) {
+			throw new IllegalArgumentException("A table needs at least one key");
+		}
+		this.keyCount = keyCount;
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	/**
+	 * Returns how many keys each mapping has.
+	 */
+	public int getKeyCount() {
+		return this.keyCount;
+	}
+
+	/**
+	 * Returns the number of mappings in this table.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Maps the given keys to the value.
+	 * 
+	 * @param keys exactly {@link #getKeyCount()} keys
+	 * @param value the value
+	 * @return the value previously mapped to the keys, or null
+	 */
+	public String put(String[] keys, String value) {
+		checkKeys(keys);
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not allowed");
+		}
+		int hash = hash(keys);
+		int slot = find(keys, hash);
+		if (this.values[slot] != null) {
+			String previous = this.values[slot];
+			this.values[slot] = value;
+			return previous;
+		}
+		if (this.size >= this.threshold) {
+			rehash();
+			slot = find(keys, hash);
+		}
+		System.arraycopy(keys, 0, this.keys, slot * this.keyCount, this.keyCount);
+		this.values[slot] = value;
+		this.hashes[slot] = hash;
+		this.size++;
+		if (this.filter != null) {
+			this.filter.add(hash);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value mapped to the given keys, or null if there is none.
+	 * 
+	 * @param keys exactly {@link #getKeyCount()} keys
+	 */
+	public String get(String[] keys) {
+		checkKeys(keys);
+		int hash = hash(keys);
+		if (this.filter != null && !this.filter.mightContain(hash)) {
+			return null;
+		}
+		return this.values[find(keys, hash)];
+	}
+
+	/**
+	 * Returns the value mapped to the trimmed key, or null if there is none.
+	 * Unlike {@link #get(String[])}, this method and its overloads for up to
+	 * five keys do not create any objects: the keys are hashed and compared
+	 * without their leading and trailing whitespace, as if they were trimmed
+	 * with <code>String.trim()</code>.
+	 * 
+	 * @throws IllegalArgumentException if the table does not have exactly that
+	 *           number of keys
+	 */
+	public String getTrimmed(String key1) {
+		checkKeyCount(1);
+		int hash = combine(1, key1);
+		return findTrimmed(hash, key1, null, null, null, null);
+	}
+
+	/**
+	 * @see #getTrimmed(String)
+	 */
+	public String getTrimmed(String key1, String key2) {
+		checkKeyCount(2);
+		int hash = combine(combine(1, key1), key2);
+		return findTrimmed(hash, key1, key2, null, null, null);
+	}
+
+	/**
+	 * @see #getTrimmed(String)
+	 */
+	public String getTrimmed(String key1, String key2, String key3) {
+		checkKeyCount(3);
+		int hash = combine(combine(combine(1, key1), key2), key3);
+		return findTrimmed(hash, key1, key2, key3, null, null);
+	}
+
+	/**
+	 * @see #getTrimmed(String)
+	 */
+	public String getTrimmed(String key1, String key2, String key3, String key4) {
+		checkKeyCount(4);
+		int hash = combine(combine(combine(combine(1, key1), key2), key3), key4);
+		return findTrimmed(hash, key1, key2, key3, key4, null);
+	}
+
+	/**
+	 * @see #getTrimmed(String)
+	 */
+	public String getTrimmed(String key1, String key2, String key3, String key4, String key5) {
+		checkKeyCount(5);
+		int hash = combine(combine(combine(combine(combine(1, key1), key2), key3), key4), key5);
+		return findTrimmed(hash, key1, key2, key3, key4, key5);
+	}
+
+	/**
+	 * Returns the memory used by the arrays of the table plus that of the
+	 * strings reported through {@link #addStringBytes(long)}. The table can
+	 * not tell by itself which of its strings are shared.
+	 */
+	public long estimateBytes() {
+		return CacheTableStats.sizeOfArray(this.keys.length, 4) + 
+		       CacheTableStats.sizeOfArray(this.values.length, 4) + 
+		       CacheTableStats.sizeOfArray(this.hashes.length, 4) + this.stringBytes + 
+		       (this.filter == null ? 0 : this.filter.estimateBytes());
+	}
+
+	/**
+	 * Builds a filter of the keys in the table, used from then on to answer
+	 * lookups of absent keys without probing the table. Keys added later are
+	 * added to the filter too. As with {@link #put(String[], String)}, it
+	 * must be called before the table is shared.
+	 */
+	public BloomFilter createFilter(double falsePositiveRate) {
+		BloomFilter filter = new BloomFilter(this.size, falsePositiveRate);
+		for (int slot = 0; slot < this.values.length; slot++) {
+			if (this.values[slot] != null) {
+				filter.add(this.hashes[slot]);
+			}
+		}
+		this.filter = filter;
+		return filter;
+	}
+
+	/**
+	 * Counts strings created only to be held by this table in
+	 * {@link #estimateBytes()}.
+	 */
+	void addStringBytes(long bytes) {
+		this.stringBytes += bytes;
+	}
+
+	/**
+	 * Returns the number of slots of the table, some of which may be empty.
+	 * Used with {@link #valueAt(int)} and {@link #keyAt(int, int)} to go
+	 * through the mappings.
+	 */
+	int getCapacity() {
+		return this.values.length;
+	}
+
+	/**
+	 * Returns the value in the given slot, or null if it is empty.
+	 */
+	String valueAt(int slot) {
+		return this.values[slot];
+	}
+
+	/**
+	 * Returns a key of the mapping in the given slot.
+	 */
+	String keyAt(int slot, int key) {
+		return this.keys[slot * this.keyCount + key];
+	}
+
+	/**
+	 * Combines the hash codes of the keys. Each one is scrambled first, since
+	 * String hash codes are themselves built as <code>31 * hash + c</code>
+	 * and a plain combination would give the same result for many tuples of
+	 * similar keys.
+	 */
+	protected static int hash(String[] keys) {
+		int hash = 1;
+		for (int i = 0; i < keys.length; i++) {
+			hash = 31 * hash + spread(keys[i].hashCode());
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the slot holding the given keys, or the empty slot where they
+	 * should be added.
+	 */
+	private int find(String[] keys, int hash) {
+		int mask = this.values.length - 1;
+		int slot = spread(hash) & mask;
+		while (this.values[slot] != null) {
+			if (this.hashes[slot] == hash && sameKeys(slot, keys)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Same as {@link #find(String[], int)}, for trimmed keys, but returns the
+	 * value found or null. Only the first {@link #getKeyCount()} keys are used.
+	 */
+	private String findTrimmed(int hash, String key1, String key2, String key3, String key4, String key5) {
+		if (this.filter != null && !this.filter.mightContain(hash)) {
+			return null;
+		}
+		int mask = this.values.length - 1;
+		int slot = spread(hash) & mask;
+		while (this.values[slot] != null) {
+			if (this.hashes[slot] == hash && sameTrimmedKeys(slot, key1, key2, key3, key4, key5)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return this.values[slot];
+	}
+
+	private boolean sameTrimmedKeys(int slot, String key1, String key2, String key3, String key4, String key5) {
+		int base = slot * this.keyCount;
+		switch (this.keyCount) {
+			case 5: if (!trimmedEquals(this.keys[base + 4], key5)) { return false; }
+			case 4: if (!trimmedEquals(this.keys[base + 3], key4)) { return false; }
+			case 3: if (!trimmedEquals(this.keys[base + 2], key3)) { return false; }
+			case 2: if (!trimmedEquals(this.keys[base + 1], key2)) { return false; }
+			default: return trimmedEquals(this.keys[base], key1);
+		}
+	}
+
+	/**
+	 * Adds the hash of a trimmed key to a combined hash, exactly as
+	 * {@link #hash(String[])} would with <code>key.trim()</code>.
+	 */
+	static int combine(int hash, String key) {
+		int start = trimStart(key);
+		int end = trimEnd(key, start);
+		int keyHash = 0;
+		for (int i = start; i < end; i++) {
+			keyHash = 31 * keyHash + key.charAt(i);
+		}
+		return 31 * hash + spread(keyHash);
+	}
+
+	/**
+	 * Returns whether <code>key.trim().equals(stored)</code>.
+	 */
+	private static boolean trimmedEquals(String stored, String key) {
+		int start = trimStart(key);
+		int length = trimEnd(key, start) - start;
+		return stored.length() == length && stored.regionMatches(0, key, start, length);
+	}
+
+	static int trimStart(String key) {
+		int start = 0;
+		while (start < key.length() && key.charAt(start) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	static int trimEnd(String key, int start) {
+		int end = key.length();
+		while (end > start && key.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	private boolean sameKeys(int slot, String[] keys) {
+		int base = slot * this.keyCount;
+		for (int i = 0; i < this.keyCount; i++) {
+			if (!this.keys[base + i].equals(keys[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		String[] oldKeys = this.keys;
+		String[] oldValues = this.values;
+		int[] oldHashes = this.hashes;
+		allocate(oldValues.length * 2);
+		int mask = this.values.length - 1;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = spread(oldHashes[i]) & mask;
+				while (this.values[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				System.arraycopy(oldKeys, i * this.keyCount, this.keys, slot * this.keyCount, this.keyCount);
+				this.values[slot] = oldValues[i];
+				this.hashes[slot] = oldHashes[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new String[capacity * this.keyCount];
+		this.values = new String[capacity];
+		this.hashes = new int[capacity];
+		this.threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private void checkKeys(String[] keys) {
+		checkKeyCount(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == null) {
+				throw new IllegalArgumentException("Null keys are not allowed");
+			}
+		}
+	}
+
+	private void checkKeyCount(int count) {
+		if (count != this.keyCount) {
+			throw new IllegalArgumentException("Expected " + this.keyCount + " keys but got " + count);
+		}
+	}
+
+	/**
+	 * Scrambles a hash so every bit of it affects the lower bits, which are
+	 * the only ones used to pick a slot. String hashes fall in dense runs of
+	 * numbers, and linear probing degrades badly on them.
+	 */
+	static int spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads the data file of a {@link MultiKeyCache} table into a
+ * {@link MultiKeyTable}.
+ * 
+ * The calling thread reads the file in batches of lines, and the batches are
+ * parsed by a pool of threads. The parsed batches are then added to the
+ * table by the calling thread in the same order they were read, so when the
+ * same keys appear in more than one line the last line wins, as it would if
+ * the file was loaded sequentially. At most two batches per thread are kept
+ * in memory at any time.
+ * 
+ * Key and value strings are copied out of the lines they were read from, so
+ * the lines can be collected, and repeated strings are shared through a
+ * pool per column. Each pool is limited to {@link #POOL_LIMIT} strings, so
+ * columns with mostly unique values, which would gain nothing from it, can
+ * not make it grow unbounded.
+ * 
+ * Lines that do not have all the configured fields are logged and skipped.
+ * 
+ * @version $Id$
+ */
+public class MultiKeyTableLoader {
+
+	public static final int BATCH_SIZE = 4096;
+	public static final int POOL_LIMIT = 65536;
+
+	private static Logger log = Logger.getLogger(MultiKeyTableLoader.class);
+
+	private final MultiKeyRecordFormat format;
+	private final int threads;
+
+	/**
+	 * Creates a loader that parses the file with as many threads as there are
+	 * processors available.
+	 * 
+	 * @param format the format of the lines
+	 */
+	public MultiKeyTableLoader(MultiKeyRecordFormat format) {
+		this(format, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a loader that parses the file with the given number of threads.
+	 * If it is 1, lines are parsed by the calling thread itself.
+	 * 
+	 * @param format the format of the lines
+	 * @param threads the number of threads that parse lines
+	 */
+	public MultiKeyTableLoader(MultiKeyRecordFormat format, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+		}
+		this.format = format;
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the format of the lines read by this loader.
+	 */
+	public MultiKeyRecordFormat getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * Reads the given file into a new table.
+	 * 
+	 * @param dataFile the path of the file
+	 * @return the table
+	 * @throws IOException if the file can not be read
+	 */
+	public MultiKeyTable load(String dataFile) throws IOException {
+		ExecutorService pool = null;
+		if (this.threads > 1) {
+			pool = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "MultiKeyTableLoader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		BufferedReader reader = new BufferedReader(new FileReader(dataFile));
+		try {
+			Merger merger = new Merger(dataFile);
+			LinkedList pending = new LinkedList();
+			int lineNumber = 1;
+			String[] lines;
+			while ((lines = readBatch(reader)) != null) {
+				ParseTask task = new ParseTask(lines, lineNumber);
+				lineNumber += lines.length;
+				if (pool == null) {
+					merger.merge(task.call());
+					continue;
+				}
+				pending.addLast(pool.submit(task));
+				if (pending.size() >= this.threads * 2) {
+					merger.merge(waitFor((Future) pending.removeFirst()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				merger.merge(waitFor((Future) pending.removeFirst()));
+			}
+			return merger.table;
+		} finally {
+			reader.close();
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private static String[] readBatch(BufferedReader reader) throws IOException {
+		List lines = new ArrayList(BATCH_SIZE);
+		String line;
+		while (lines.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		return (lines.isEmpty() ? null : (String[]) lines.toArray(new String[lines.size()]));
+	}
+
+	private static ParsedBatch waitFor(Future future) throws IOException {
+		try {
+			return (ParsedBatch) future.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			IOException ioe = new IOException("Interrupted while loading table");
+			ioe.initCause(ie);
+			throw ioe;
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			throw (Error) ee.getCause();
+		}
+	}
+
+	/**
+	 * The fields of a batch of lines, in the order expected by
+	 * {@link MultiKeyRecordFormat#parse(String, String[])}, one line after
+	 * the other. Malformed lines have all their fields set to null.
+	 */
+	private static class ParsedBatch {
+		final String[] fields;
+		final String[] lines;
+		final int firstLine;
+
+		ParsedBatch(String[] fields, String[] lines, int firstLine) {
+			this.fields = fields;
+			this.lines = lines;
+			this.firstLine = firstLine;
+		}
+	}
+
+	private class ParseTask implements Callable {
+		private final String[] lines;
+		private final int firstLine;
+
+		ParseTask(String[] lines, int firstLine) {
+			this.lines = lines;
+			this.firstLine = firstLine;
+		}
+
+		public Object call() {
+			int columns = format.getKeyCount() + 1;
+			String[] fields = new String[this.lines.length * columns];
+			String[] record = new String[columns];
+			for (int i = 0; i < this.lines.length; i++) {
+				if (format.parse(this.lines[i], record)) {
+					System.arraycopy(record, 0, fields, i * columns, columns);
+				}
+			}
+			return new ParsedBatch(fields, this.lines, this.firstLine);
+		}
+	}
+
+	/**
+	 * Adds parsed batches to the table. Only used by the loading thread.
+	 */
+	private class Merger {
+		final MultiKeyTable table;
+		final String dataFile;
+		final Map[] pools;
+		final String[] keys;
+
+		Merger(String dataFile) {
+			int keyCount = format.getKeyCount();
+			this.table = new MultiKeyTable(keyCount, BATCH_SIZE);
+			this.dataFile = dataFile;
+			this.pools = new Map[keyCount + 1];
+			for (int i = 0; i < this.pools.length; i++) {
+				this.pools[i] = new HashMap();
+			}
+			this.keys = new String[keyCount];
+		}
+
+		void merge(Object parsed) {
+			ParsedBatch batch = (ParsedBatch) parsed;
+			int columns = this.pools.length;
+			for (int line = 0; line < batch.lines.length; line++) {
+				int base = line * columns;
+				if (batch.fields[base] == null) {
+					log.warn("Skipping malformed line " + (batch.firstLine + line) + " of " + 
+					         this.dataFile + ": " + batch.lines[line]);
+					continue;
+				}
+				for (int i = 0; i < this.keys.length; i++) {
+					this.keys[i] = share(i, batch.fields[base + i]);
+				}
+				this.table.put(this.keys, share(this.keys.length, batch.fields[base + this.keys.length]));
+			}
+		}
+
+		/**
+		 * Returns a copy of the string not backed by the line it was cut from,
+		 * shared with the previous occurrences of the same string in the column
+		 * while the column pool is not full.
+		 */
+		private String share(int column, String value) {
+			Map pool = this.pools[column];
+			String shared = (String) pool.get(value);
+			if (shared == null) {
+				shared = new String(value);
+				this.table.addStringBytes(CacheTableStats.sizeOf(shared));
+				if (pool.size() < POOL_LIMIT) {
+					pool.put(shared, shared);
+				}
+			}
+			return shared;
+		}
+	}
+}
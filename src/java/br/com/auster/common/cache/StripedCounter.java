@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for values incremented by many threads at once, as in lookups.
+ * 
+ * Each thread updates one of several cells, picked by its id, and each cell
+ * sits in its own cache line, so threads on different cores do not fight
+ * over the same memory. Reading the count sums the cells.
+ * 
+ * @version $Id$
+ */
+final class StripedCounter {
+
+	private static final int STRIPES = 16;
+	// longs between cells, so each one gets a 128 byte line to itself
+	private static final int PADDING = 16;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	/**
+	 * Adds one to the cell of the current thread and returns its new value.
+	 * The value is not the total count, but it does go through every number,
+	 * so it can be used to sample one in every n increments.
+	 */
+	long increment() {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		return this.cells.incrementAndGet(stripe * PADDING);
+	}
+
+	long get() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += this.cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	void clear() {
+		for (int i = 0; i < STRIPES; i++) {
+			this.cells.set(i * PADDING, 0);
+		}
+	}
+}
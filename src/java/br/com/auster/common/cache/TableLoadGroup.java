@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads the tables of a cache manager in parallel.
+ * 
+ * Each table is loaded by its own task on a pool with a bounded number of
+ * daemon threads, so a configuration with many tables starts as fast as the
+ * disks and cores allow. A failure only affects the table that raised it: it
+ * is kept in {@link #getErrors()} and the other tables load normally.
+ * 
+ * Threads are released as soon as the queue is empty. Tables still loading
+ * when {@link #await(long)} times out keep loading in the background, and
+ * may be waited for again later.
+ * 
+ * @version $Id$
+ */
+final class TableLoadGroup {
+
+	private static Logger log = Logger.getLogger(TableLoadGroup.class);
+
+	private final String name;
+	private final int tableCount;
+	private final ExecutorService executor;
+	private final CountDownLatch done;
+	private final List tables = Collections.synchronizedList(new ArrayList());
+	private final Map errors = Collections.synchronizedMap(new LinkedHashMap());
+	private final Map finished = Collections.synchronizedMap(new LinkedHashMap());
+
+	/**
+	 * Creates a group for the given number of tables.
+	 * 
+	 * @param name the name of the cache manager, used to name the threads
+	 * @param tableCount how many tables will be submitted
+	 * @param threads the maximum number of tables loaded at once, or 0 to use
+	 *                the number of available processors
+	 */
+	TableLoadGroup(final String name, int tableCount, int threads) {
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.max(1, Math.min(threads, tableCount));
+		this.name = name;
+		this.tableCount = tableCount;
+		this.done = new CountDownLatch(tableCount);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, 
+			new LinkedBlockingQueue(), 
+			new ThreadFactory() {
+				private int count = 0;
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Thread(r, name + "-loader-" + (++count));
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		if (tableCount == 0) {
+			this.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Starts loading a table. Must be called exactly once for each of the
+	 * tables this group was created for.
+	 * 
+	 * @param tableName the name of the table
+	 * @param task loads the table; whatever it throws is kept as the table error
+	 */
+	void submit(final String tableName, final Callable task) {
+		this.tables.add(tableName);
+		this.executor.execute(new Runnable() {
+			public void run() {
+				long start = System.currentTimeMillis();
+				try {
+					task.call();
+					log.debug(name + " table " + tableName + " loaded in " + 
+					          (System.currentTimeMillis() - start) + "ms");
+				} catch (Throwable t) {
+					log.error(name + " could not load table " + tableName, t);
+					errors.put(tableName, t);
+				} finally {
+					finished.put(tableName, tableName);
+					done.countDown();
+				}
+			}
+		});
+		if (this.tables.size() == this.tableCount) {
+			// nothing else will be submitted, let the threads end with the work
+			this.executor.shutdown();
+		}
+	}
+
+	/**
+	 * Waits until every table is loaded or failed.
+	 * 
+	 * @param timeout the maximum time to wait, in milliseconds, or 0 to wait
+	 *                as long as needed
+	 * @return true if every table finished, false if the time ran out
+	 * @throws InterruptedException if the calling thread is interrupted
+	 */
+	boolean await(long timeout) throws InterruptedException {
+		if (timeout <= 0) {
+			this.done.await();
+			return true;
+		}
+		return this.done.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns true once every table is loaded or failed.
+	 */
+	boolean isDone() {
+		return this.done.getCount() == 0;
+	}
+
+	/**
+	 * Returns the errors of the tables that failed so far, by table name, in
+	 * the order they failed.
+	 */
+	Map getErrors() {
+		synchronized (this.errors) {
+			return new LinkedHashMap(this.errors);
+		}
+	}
+
+	/**
+	 * Returns the names of the tables still loading or waiting to load.
+	 */
+	List getPending() {
+		List pending = new ArrayList();
+		synchronized (this.tables) {
+			for (Iterator it = this.tables.iterator(); it.hasNext();) {
+				Object tableName = it.next();
+				if (!this.finished.containsKey(tableName)) {
+					pending.add(tableName);
+				}
+			}
+		}
+		return pending;
+	}
+}
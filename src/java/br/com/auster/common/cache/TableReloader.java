@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2004 Auster Solutions do Brasil LTDA. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, 
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR 
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, 
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; 
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE 
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ * 
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the data file of a cached table and reloads the table when the
+ * file changes.
+ * 
+ * The file is checked periodically by a single daemon thread shared by all
+ * reloaders. When its modification time or length differ from those seen at
+ * the last reload, and then stay the same for one more check, the table is
+ * rebuilt by the {@link Task}. Waiting for the file to settle keeps a file
+ * still being copied or transferred from being loaded half written. The task
+ * is expected to swap the new contents in only once they are complete, so
+ * lookups never wait for a reload nor see a partial table.
+ * 
+ * The modification time and length are recorded as seen before the reload,
+ * whether it succeeds or not. A file changed while the table was being read
+ * is reloaded again, and a file that could not be read is only tried again
+ * once it changes. If the reload fails, the table keeps its previous
+ * contents and the failure is recorded in the table statistics.
+ * 
+ * @version $Id$
+ */
+public class TableReloader implements Runnable {
+
+	/**
+	 * Rebuilds a table from its data file.
+	 */
+	public interface Task {
+		public void reload() throws Exception;
+	}
+
+	private static Logger log = Logger.getLogger(TableReloader.class);
+
+	private static ScheduledExecutorService scheduler;
+
+	private final String tableName;
+	private final File dataFile;
+	private final CacheTableStats stats;
+	private final Task task;
+	private long lastModified;
+	private long lastLength;
+	// the change seen by the previous check, not reloaded yet
+	private long pendingModified;
+	private long pendingLength;
+	private ScheduledFuture future;
+
+	/**
+	 * Creates a reloader for a table that was just loaded from the given file.
+	 * 
+	 * @param tableName the name of the table, for logging
+	 * @param dataFile the file to watch
+	 * @param stats where failures are recorded
+	 * @param task rebuilds the table
+	 */
+	public TableReloader(String tableName, File dataFile, CacheTableStats stats, Task task) {
+		this.tableName = tableName;
+		this.dataFile = dataFile;
+		this.stats = stats;
+		this.task = task;
+		this.lastModified = dataFile.lastModified();
+		this.lastLength = dataFile.length();
+	}
+
+	/**
+	 * Starts checking the file every <code>intervalMillis</code>.
+	 */
+	public synchronized void schedule(long intervalMillis) {
+		cancel();
+		this.future = getScheduler().scheduleWithFixedDelay(this, intervalMillis, intervalMillis, 
+		                                                    TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops checking the file. A reload already running is not interrupted.
+	 */
+	public synchronized void cancel() {
+		if (this.future != null) {
+			this.future.cancel(false);
+			this.future = null;
+		}
+	}
+
+	/**
+	 * Reloads the table if its file changed, and did not change since the
+	 * previous check.
+	 */
+	public void run() {
+		long modified = this.dataFile.lastModified();
+		long length = this.dataFile.length();
+		if (modified == 0 || (modified == this.lastModified && length == this.lastLength)) {
+			// missing or unchanged
+			this.pendingModified = 0;
+			return;
+		}
+		if (modified != this.pendingModified || length != this.pendingLength) {
+			// may still be being written: waits for the next check
+			log.debug("Data file " + this.dataFile + " of table " + this.tableName + 
+			          " changed; waiting for it to settle");
+			this.pendingModified = modified;
+			this.pendingLength = length;
+			return;
+		}
+		log.info("Reloading table " + this.tableName + " from " + this.dataFile);
+		this.lastModified = modified;
+		this.lastLength = length;
+		this.pendingModified = 0;
+		try {
+			this.task.reload();
+		} catch (Throwable t) {
+			log.error("Could not reload table " + this.tableName + " from " + this.dataFile, t);
+			this.stats.recordFailure(t);
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "TableReloader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p><b>Title:</b> ConcurrentRangeMap</p>
+ * <p><b>Description:</b> A RangeMap that can be read by many threads without locking</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Readers always work on an immutable {@link FrozenRangeMap} snapshot, held in
+ * a volatile field. {@link #get(long)}, {@link #iterator()} and
+ * {@link #getOverlappingRanges()} never lock and never see a half updated
+ * map.
+ *
+ * Writers are serialized. Each call to {@link #add(long, long, Object)},
+ * {@link #addAll(long, long, List)}, {@link #removeRange(long)} or
+ * {@link #clear()} changes a private working {@link RangeMap}, and
+ * {@link #publish()} freezes that working map and swaps the new snapshot in
+ * with a single write.
+ *
+ * Publishing copies the whole map, so when auto publishing is enabled every
+ * write costs O(n). To reload a table, create the map with auto publishing
+ * disabled, do all the writes and call {@link #publish()} once, or build a
+ * {@link RangeMap} elsewhere and hand it to {@link #replace(RangeMap)}.
+ *
+ * @version $Id$
+ */
+public class ConcurrentRangeMap implements RangeLookup {
+  // -------------------------------------
+  // Attributes
+  // -------------------------------------
+
+  private volatile FrozenRangeMap current;
+
+  // guarded by this
+  private RangeMap working;
+  private final boolean autoPublish;
+
+  // -------------------------------------
+  // Constructors
+  // -------------------------------------
+  /**
+   * Creates an empty map that publishes every write as soon as it is done.
+   */
+  public ConcurrentRangeMap() {
+    this(new RangeMap(), true);
+  }
+
+  /**
+   * Creates an empty map.
+   *
+   * @param autoPublish if true, every write is published as soon as it is done.
+   *          Otherwise writes are only seen by readers after {@link #publish()}.
+   */
+  public ConcurrentRangeMap(boolean autoPublish) {
+    this(new RangeMap(), autoPublish);
+  }
+
+  /**
+   * Creates a map with the ranges of <code>initial</code> already published.
+   * The given map becomes the working map and must not be used by the
+   * caller afterwards.
+   *
+   * @param initial the map with the initial ranges
+   * @param autoPublish see {@link #ConcurrentRangeMap(boolean)}
+   */
+  public ConcurrentRangeMap(RangeMap initial, boolean autoPublish) {
+    this.working = initial;
+    this.autoPublish = autoPublish;
+    this.current = initial.freeze();
+  }
+
+  // -------------------------------------
+  // Read methods (lock free)
+  // -------------------------------------
+  /**
+   * @see RangeLookup#get(long)
+   */
+  public List get(long key) {
+    return this.current.get(key);
+  }
+
+  /**
+   * @see RangeLookup#getFirst(long)
+   */
+  public Object getFirst(long key) {
+    return this.current.getFirst(key);
+  }
+
+  /**
+   * @see RangeLookup#getSize()
+   */
+  public int getSize() {
+    return this.current.getSize();
+  }
+
+  /**
+   * Returns an iterator over the currently published ranges. The iterator
+   * is not affected by later writes.
+   *
+   * @see RangeLookup#iterator()
+   */
+  public Iterator iterator() {
+    return this.current.iterator();
+  }
+
+  /**
+   * Returns an unmodifiable set with the overlapping ranges of the currently
+   * published map.
+   *
+   * @return
+   */
+  public Set getOverlappingRanges() {
+    return this.current.getOverlappingRanges();
+  }
+
+  /**
+   * Returns the currently published snapshot. Callers that need several
+   * reads to agree with each other should do them all on the same snapshot.
+   *
+   * @return the current immutable snapshot
+   */
+  public FrozenRangeMap getSnapshot() {
+    return this.current;
+  }
+
+  // -------------------------------------
+  // Write methods
+  // -------------------------------------
+  /**
+   * Adds a range to the working map. See {@link RangeMap#add(long, long, Object)}.
+   *
+   * @return true if any overlap occured between the new range and the previously existing ranges
+   */
+  public synchronized boolean add(long from, long to, Object value) {
+    boolean overlap = this.working.add(from, to, value);
+    publishIfAuto();
+    return overlap;
+  }
+
+  /**
+   * Adds a range to the working map. See {@link RangeMap#addAll(long, long, List)}.
+   *
+   * @return true if any overlap occured between the new range and the previously existing ranges
+   */
+  public synchronized boolean addAll(long from, long to, List values) {
+    boolean overlap = this.working.addAll(from, to, values);
+    publishIfAuto();
+    return overlap;
+  }
+
+  /**
+   * Removes the range containing the given key from the working map.
+   * See {@link RangeMap#removeRange(long)}.
+   *
+   * @return the list of elements previously associated with that range
+   */
+  public synchronized List removeRange(long key) {
+    List values = this.working.removeRange(key);
+    if (values != null) {
+      publishIfAuto();
+    }
+    return values;
+  }
+
+  /**
+   * Clears the working map.
+   */
+  public synchronized void clear() {
+    this.working.clear();
+    publishIfAuto();
+  }
+
+  /**
+   * Makes all writes done so far visible to readers.
+   */
+  public synchronized void publish() {
+    this.current = this.working.freeze();
+  }
+
+  /**
+   * Replaces the working map with <code>map</code> and publishes it. Pending
+   * writes to the previous working map are discarded. The given map must not
+   * be used by the caller afterwards.
+   *
+   * @param map the new contents of this map
+   */
+  public synchronized void replace(RangeMap map) {
+    this.working = map;
+    publish();
+  }
+
+  private void publishIfAuto() {
+    if (this.autoPublish) {
+      publish();
+    }
+  }
+
+}
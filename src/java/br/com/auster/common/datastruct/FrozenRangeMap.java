@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p><b>Title:</b> FrozenRangeMap</p>
+ * <p><b>Description:</b> An immutable, read-optimized snapshot of a RangeMap</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Maps built once and then only queried do not need the red black tree of
+ * {@link RangeMap}. This class packs the (already disjoint) ranges of a map
+ * into two sorted <code>long</code> arrays, one for the range starts and one
+ * for the range ends, and a parallel array of value lists. Equal value lists
+ * are stored only once, so tables where many ranges share the same values
+ * use even less heap.
+ *
+ * {@link #get(long)} is a binary search over the starts array, written so the
+ * loop body has no data dependent branch other than the loop condition.
+ *
+ * Instances are immutable and as so can be shared by any number of threads
+ * without synchronization. The value lists returned are unmodifiable.
+ *
+ * @version $Id$
+ */
+public class FrozenRangeMap implements RangeLookup {
+  // -------------------------------------
+  // Attributes
+  // -------------------------------------
+
+  protected final long[] from;
+  protected final long[] to;
+  protected final List[] values;
+  protected final int size;
+
+  private final Set overlappingRanges;
+
+  // -------------------------------------
+  // Constructors
+  // -------------------------------------
+  /**
+   * Creates a snapshot of the given map. Later changes to the map are not
+   * reflected in the snapshot.
+   *
+   * @param map the map to copy ranges and values from
+   */
+  public FrozenRangeMap(RangeMap map) {
+    this((RangeLookup) map);
+    this.overlappingRanges.addAll(copyOverlaps(map.getOverlappingRanges()));
+  }
+
+  /**
+   * Creates a snapshot of the ranges returned by the given lookup. The
+   * lookup iterator must return disjoint ranges in ascending order, as
+   * every {@link RangeLookup} implementation does.
+   *
+   * @param lookup the lookup to copy ranges and values from
+   */
+  public FrozenRangeMap(RangeLookup lookup) {
+    this.size = lookup.getSize();
+    this.from = new long[this.size];
+    this.to = new long[this.size];
+    this.values = new List[this.size];
+    this.overlappingRanges = newRangeSet();
+
+    Map shared = new HashMap();
+    int i = 0;
+    for (Iterator it = lookup.iterator(); it.hasNext(); i++) {
+      RangeEntry entry = (RangeEntry) it.next();
+      this.from[i] = entry.getFrom();
+      this.to[i] = entry.getTo();
+      this.values[i] = share(shared, entry.getValues());
+    }
+  }
+
+  // -------------------------------------
+  // Public methods
+  // -------------------------------------
+  /**
+   * @see RangeLookup#get(long)
+   */
+  public List get(long key) {
+    int index = indexOf(key);
+    return (index < 0 ? null : this.values[index]);
+  }
+
+  /**
+   * @see RangeLookup#getFirst(long)
+   */
+  public Object getFirst(long key) {
+    int index = indexOf(key);
+    return (index < 0 || this.values[index].isEmpty() ? null : this.values[index].get(0));
+  }
+
+  /**
+   * @see RangeLookup#getSize()
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Returns an iterator to this map. Each call to <code>next()</code> returns
+   * a new {@link RangeEntry} holding the range and its unmodifiable value list;
+   * changing the entry does not change this map.
+   *
+   * @return Iterator
+   */
+  public Iterator iterator() {
+    return new Iterator() {
+      private int next = 0;
+
+      public boolean hasNext() {
+        return this.next < size;
+      }
+
+      public Object next() {
+        if (this.next >= size)
+          throw new NoSuchElementException();
+        int i = this.next++;
+        return new RangeEntry(from[i], to[i], values[i]);
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("FrozenRangeMap is read-only");
+      }
+    };
+  }
+
+  /**
+   * Returns an unmodifiable set with the ranges that were overlapping in the
+   * source map when this snapshot was taken.
+   *
+   * @return
+   */
+  public Set getOverlappingRanges() {
+    return Collections.unmodifiableSet(this.overlappingRanges);
+  }
+
+  // -------------------------------------
+  // Private / Protected methods
+  // -------------------------------------
+  /**
+   * Returns the index of the range containing the key, or -1 if no range
+   * contains it.
+   *
+   * The search keeps the candidate interval as (base, n) and always halves n,
+   * so the number of iterations depends only on the map size.
+   *
+   * @param key
+   * @return
+   */
+  protected int indexOf(long key) {
+    int n = this.size;
+    if (n == 0) {
+      return -1;
+    }
+    int base = 0;
+    while (n > 1) {
+      int half = n >>> 1;
+      base = (this.from[base + half] <= key) ? base + half : base;
+      n -= half;
+    }
+    return (this.from[base] <= key && key < this.to[base]) ? base : -1;
+  }
+
+  /**
+   * Returns an unmodifiable copy of the list, reusing a previous copy if an
+   * equal list was already seen.
+   */
+  private static List share(Map shared, List values) {
+    List copy = (List) shared.get(values);
+    if (copy == null) {
+      copy = Collections.unmodifiableList(new ArrayList(values));
+      shared.put(copy, copy);
+    }
+    return copy;
+  }
+
+  /**
+   * Copies the overlapping entries of a RangeMap, since the original
+   * entries are the live nodes of the map.
+   */
+  private static Set copyOverlaps(Set overlaps) {
+    Set copy = newRangeSet();
+    for (Iterator it = overlaps.iterator(); it.hasNext();) {
+      RangeEntry entry = (RangeEntry) it.next();
+      copy.add(new RangeEntry(entry.getFrom(), entry.getTo(),
+          Collections.unmodifiableList(new ArrayList(entry.getValues()))));
+    }
+    return copy;
+  }
+
+  private static Set newRangeSet() {
+    return new TreeSet(new Comparator() {
+      public int compare(Object o1, Object o2) {
+        RangeEntry entry1 = (RangeEntry) o1;
+        RangeEntry entry2 = (RangeEntry) o2;
+        return (entry1.getFrom() < entry2.getFrom()) ? -1 :
+               (entry1.getFrom() > entry2.getFrom()) ? 1 : 0;
+      }
+    });
+  }
+
+}
@@ -21,7 +21,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,8 +45,10 @@ import java.util.TreeSet;
  * {@link IntRangeNode} for a full description of a range.
  *
  * <p>
- * The list of ranges is backed by a LinkedList and the range nodes are always
- * sorted in ascending order according to it's "from" value.
+ * The list of ranges is backed by an ArrayList and the range nodes are always
+ * sorted in ascending order according to it's "from" value. Since the nodes
+ * never overlap each other, they are also sorted by their "to" value, and
+ * both limits are found with a binary search.
  *
  * <p>
  * After a series of {@link #add(int, int, Object)} calls, you may use the
@@ -88,13 +89,7 @@ public class IntRangeList {
   /**
    * Ordered list of range nodes.
    */
-  protected LinkedList<IntRangeNode> nodes = new LinkedList<IntRangeNode>();
-
-  /**
-   * Internal control variables to aid in node searching.
-   */
-  private int smallestFrom, highestFrom, length;
-
+  protected ArrayList<IntRangeNode> nodes = new ArrayList<IntRangeNode>();
 
   /**
    * Default constructor - just creates a new instance.
@@ -148,8 +143,7 @@ public class IntRangeList {
    *         <code>null</code>.
    */
   public List<IntRangeNode> getSortedOverlaps(Comparator<IntRangeNode> comparator) {
-	LinkedList<IntRangeNode> set = new LinkedList<IntRangeNode>();
-    set.addAll(this.overlaps);
+    List<IntRangeNode> set = new ArrayList<IntRangeNode>(this.overlaps);
     Collections.sort(set, comparator);
     return set;
   }
@@ -180,48 +174,22 @@ public class IntRangeList {
                                          "]: 'to' must be greater or equals 'from'.");
     }
 
-    if (this.nodes.size() == 0) {
-      // first entry
-      IntRangeNode n = new IntRangeNode(from, to, value);
-      this.nodes.add(n);
-      this.smallestFrom = from;
-      this.highestFrom = from;
-      this.length = from;
-      return;
-    }
+    // the nodes are disjoint and sorted, so the ones overlapping the new range
+    // are the contiguous block [first, end)
+    int first = findFirstEndingAtOrAfter(from);
+    int end = findFirstStartingAfter(to);
 
-    int indexFrom = findGreaterThanOrEquals(from);
-    IntRangeNode nFrom = indexFrom == -1 ? null : (IntRangeNode) this.nodes.get(indexFrom);
-    int indexTo = from == to ? indexFrom : findGreaterThanOrEquals(to);
-
-    if (indexFrom != 0) {
-      // in order to find overlaps, we need to look at the previous node
-      IntRangeNode prevNode;
-      if (indexFrom < 0) {
-        prevNode = (IntRangeNode) this.nodes.getLast();
-      } else {
-        prevNode = (IntRangeNode) this.nodes.get(indexFrom - 1);
-      }
-      if (prevNode.to >= from) {
-        indexFrom = indexFrom < 0 ? this.nodes.size() - 1 : indexFrom - 1;
-        nFrom = prevNode;
-      }
-    }
-
-    // RICARDO - nao sei porque antes tinha o teste: nFrom.isOverlappingControl. Isso nao
-    // funciona pois fora o range novo a ser considerado um overlapp (problema), mesmo
-    // que nao seja, mas soh porque o nFrom eh de controle!!
-    //if (indexFrom != indexTo || (nFrom != null && (nFrom.isOverlappingControl || nFrom.from == from))) {
-    if (indexFrom != indexTo || (nFrom != null && nFrom.from == from)) {
+    if (first < end) {
 
       // overlaps
-      int lastIndex = indexTo < 0 ? this.nodes.size() - 1 : (indexFrom == indexTo ? indexTo : indexTo - 1);
+      IntRangeNode firstNode = this.nodes.get(first);
+      IntRangeNode lastNode = this.nodes.get(end - 1);
       // create node for this range
       IntRangeNode newNode = new IntRangeNode(from, to, value);
       // Handle overlapping nodes
-      IntRangeNode n = null, controlNode = null;
-      for (int i = indexFrom; i <= lastIndex; i++) {
-        n = this.nodes.remove(indexFrom);
+      IntRangeNode controlNode = null;
+      for (int i = first; i < end; i++) {
+        IntRangeNode n = this.nodes.get(i);
         if (n.isOverlappingControl) {
           controlNode = n;
         } else {
@@ -235,35 +203,23 @@ public class IntRangeList {
       // add this node to overlaps (last to be added)
       this.overlaps.add(newNode);
       // create 'fake' overlaped node to check further entries
-      int newFrom = from < nFrom.from ? from : nFrom.from;
-      int newTo = n != null && n.to > to ? n.to : to;
-      if (controlNode != null) {
-        n = controlNode;
-        n.from = newFrom;
-        n.to = newTo;
+      int newFrom = from < firstNode.from ? from : firstNode.from;
+      int newTo = lastNode.to > to ? lastNode.to : to;
+      if (controlNode == null) {
+        controlNode = new IntRangeNode(newFrom, newTo);
+        controlNode.isOverlappingControl = true;
       } else {
-        n = new IntRangeNode(newFrom, newTo);
+        controlNode.from = newFrom;
+        controlNode.to = newTo;
       }
-      n.isOverlappingControl = true;
-      this.nodes.add(indexFrom, n);
+      // replaces the whole block with the control node, shifting the tail only once
+      this.nodes.set(first, controlNode);
+      this.nodes.subList(first + 1, end).clear();
 
     } else {
 
       // doesn't overlap
-      nFrom = new IntRangeNode(from, to);
-      if (indexFrom < 0) {
-        this.nodes.add(nFrom);
-      } else {
-        this.nodes.add(indexFrom, nFrom);
-      }
-      nFrom.value = value;
-      if (from < this.smallestFrom) {
-        this.smallestFrom = from;
-        this.length = this.highestFrom - this.smallestFrom;
-      } else if (from > this.highestFrom) {
-        this.highestFrom = from;
-        this.length = this.highestFrom - this.smallestFrom;
-      }
+      this.nodes.add(first, new IntRangeNode(from, to, value));
 
     }
   }
@@ -283,33 +239,51 @@ public class IntRangeList {
    *         than or equal to the position, or -1 if none was found.
    */
   protected int findGreaterThanOrEquals(int position) {
-    if (position <= this.smallestFrom) {
-      return 0;
-    } else if (position >= this.highestFrom) {
-      return -1;
+    int low = 0, high = this.nodes.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.nodes.get(mid).from < position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
     }
-    double guess = ((0d + position - this.smallestFrom) / this.length) * this.nodes.size();
-    int guessedIndex = (int) guess;
-    IntRangeNode guessedNode = (IntRangeNode) this.nodes.get(guessedIndex);
-    int result = guessedIndex;
-    if (position < guessedNode.from) {
-      for (int i = guessedIndex - 1; i >= 0; i--) {
-        IntRangeNode n = (IntRangeNode) this.nodes.get(i);
-        if (position > n.from) {
-          result = i + 1;
-          break;
-        }
+    return low == this.nodes.size() ? -1 : low;
+  }
+
+  /**
+   * Returns the index of the first range node which "from" is greater than
+   * the specified position, or the list size if there is no such node.
+   */
+  private int findFirstStartingAfter(int position) {
+    int low = 0, high = this.nodes.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.nodes.get(mid).from <= position) {
+        low = mid + 1;
+      } else {
+        high = mid;
       }
-    } else {
-      for (int i = guessedIndex + 1; i < this.nodes.size(); i++) {
-        IntRangeNode n = (IntRangeNode) this.nodes.get(i);
-        if (position < n.from) {
-          result = i;
-          break;
-        }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first range node which "to" is greater than or
+   * equal to the specified position, or the list size if there is no such
+   * node. Since nodes never overlap, their "to" values are sorted too.
+   */
+  private int findFirstEndingAtOrAfter(int position) {
+    int low = 0, high = this.nodes.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (this.nodes.get(mid).to < position) {
+        low = mid + 1;
+      } else {
+        high = mid;
       }
     }
-    return result;
+    return low;
   }
 
   /**
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p><b>Title:</b> IntervalTree</p>
+ * <p><b>Description:</b> Maps possibly overlapping ranges of longs to values, without splitting them</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * {@link RangeMap} splits overlapping ranges so each key falls in exactly one
+ * range, which makes the number of ranges grow quickly when many of them
+ * overlap. This class keeps every range exactly as it was added instead:
+ * adding [ 10, 20 ) => "A" and [ 15, 25 ) => "B" stores two intervals, and a
+ * query for key 17 finds both.
+ *
+ * Internally this is a red black tree ordered by the interval starts, where
+ * each node also records the highest end found in its subtree. Queries use
+ * it to skip whole subtrees that end before the searched key, so both
+ * {@link #get(long)} and {@link #getOverlapping(long, long)} run in
+ * O(log n + k), k being the number of intervals found. Memory and insert
+ * cost are linear in the number of intervals added, whatever the overlap.
+ *
+ * As in RangeMap, ranges include their start and exclude their end. Results
+ * are sorted by interval start; intervals with the same start are returned
+ * in the order they were added.
+ *
+ * This class is not synchronized and as so, does not support concurrent calls.
+ *
+ * @version $Id$
+ */
+public class IntervalTree {
+  // -------------------------------------
+  // Attributes
+  // -------------------------------------
+
+  private static final boolean RED   = false;
+  private static final boolean BLACK = true;
+
+  private transient int modCount = 0;
+  private Node root;
+  private int size = 0;
+
+  // -------------------------------------
+  // Inner classes
+  // -------------------------------------
+  /**
+   * An interval stored in the tree.
+   */
+  public static class Interval {
+    protected final long from;
+    protected final long to;
+    protected final Object value;
+
+    public Interval(long from, long to, Object value) {
+      this.from = from;
+      this.to = to;
+      this.value = value;
+    }
+
+    /**
+     * @return Returns the interval start (inclusive).
+     */
+    public long getFrom() {
+      return this.from;
+    }
+
+    /**
+     * @return Returns the interval end (exclusive).
+     */
+    public long getTo() {
+      return this.to;
+    }
+
+    /**
+     * @return Returns the value associated to the interval.
+     */
+    public Object getValue() {
+      return this.value;
+    }
+
+    public String toString() {
+      return "[ " + this.from + ", " + this.to + ") => " + this.value;
+    }
+  }
+
+  private static final class Node extends Interval {
+    long maxTo;
+    Node left;
+    Node right;
+    Node parent;
+    boolean color = BLACK;
+
+    Node(long from, long to, Object value, Node parent) {
+      super(from, to, value);
+      this.maxTo = to;
+      this.parent = parent;
+    }
+  }
+
+  // -------------------------------------
+  // Constructors
+  // -------------------------------------
+  /**
+   * Default constructor
+   */
+  public IntervalTree() {
+    // does nothing
+  }
+
+  // -------------------------------------
+  // Public methods
+  // -------------------------------------
+  /**
+   * Adds the interval [ "from", "to") associated to "value". Nothing already
+   * in the tree is changed, even if the new interval overlaps others.
+   *
+   * @param from  interval starting value (inclusive)
+   * @param to    interval ending   value (exclusive)
+   * @param value the value associated to the interval
+   *
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public void add(long from, long to, Object value) {
+    if (to <= from) {
+      throw new InvalidRangeException(
+          "Trying to add an invalid range to the IntervalTree(): [ "+from+", "+to+")");
+    }
+    this.modCount++;
+    this.size++;
+    if (this.root == null) {
+      this.root = new Node(from, to, value, null);
+      return;
+    }
+
+    Node parent = this.root;
+    while (true) {
+      // keeps the highest end of every subtree on the way down up to date
+      if (parent.maxTo < to) {
+        parent.maxTo = to;
+      }
+      Node next = (from < parent.from) ? parent.left : parent.right;
+      if (next == null) {
+        break;
+      }
+      parent = next;
+    }
+    Node node = new Node(from, to, value, parent);
+    if (from < parent.from) {
+      parent.left = node;
+    } else {
+      parent.right = node;
+    }
+    fixAfterInsertion(node);
+  }
+
+  /**
+   * Returns the values of all intervals that contain the given key, or
+   * null if no interval contains it.
+   *
+   * @param key
+   * @return a new list with the values found, or null
+   */
+  public List get(long key) {
+    List result = new ArrayList();
+    collectCovering(this.root, key, true, result);
+    return (result.isEmpty() ? null : result);
+  }
+
+  /**
+   * Returns all intervals that contain the given key.
+   *
+   * @param key
+   * @return a list of {@link Interval} objects, empty if no interval contains the key
+   */
+  public List getCovering(long key) {
+    List result = new ArrayList();
+    collectCovering(this.root, key, false, result);
+    return result;
+  }
+
+  /**
+   * Returns all intervals that have at least one key in common with the
+   * interval [ "from", "to").
+   *
+   * @param from interval starting value (inclusive)
+   * @param to   interval ending   value (exclusive)
+   * @return a list of {@link Interval} objects, empty if no interval overlaps the given one
+   *
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public List getOverlapping(long from, long to) {
+    if (to <= from) {
+      throw new InvalidRangeException(
+          "Trying to search an invalid range in the IntervalTree(): [ "+from+", "+to+")");
+    }
+    List result = new ArrayList();
+    collectOverlapping(this.root, from, to, result);
+    return result;
+  }
+
+  /**
+   * Returns the number of intervals added to this tree.
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Removes all intervals from this tree.
+   */
+  public void clear() {
+    this.modCount++;
+    this.size = 0;
+    this.root = null;
+  }
+
+  /**
+   * Returns an iterator over all {@link Interval} objects of this tree, in
+   * ascending order of their starts. The iterator does not support
+   * <code>remove()</code>.
+   *
+   * @return Iterator
+   */
+  public Iterator iterator() {
+    return new Iterator() {
+      private final int expectedModCount = modCount;
+      private Node next = first();
+
+      public boolean hasNext() {
+        return this.next != null;
+      }
+
+      public Object next() {
+        if (this.next == null)
+          throw new NoSuchElementException();
+        if (modCount != this.expectedModCount)
+          throw new ConcurrentModificationException();
+        Node current = this.next;
+        this.next = successor(current);
+        return current;
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("IntervalTree does not support removal");
+      }
+    };
+  }
+
+  // -------------------------------------
+  // Private / Protected methods
+  // -------------------------------------
+
+  private static void collectCovering(Node node, long key, boolean values, List result) {
+    // subtrees where every interval ends before or at the key are skipped
+    while (node != null && node.maxTo > key) {
+      collectCovering(node.left, key, values, result);
+      if (node.from > key) {
+        // this node and the right subtree all start after the key
+        return;
+      }
+      if (key < node.to) {
+        result.add(values ? node.value : node);
+      }
+      node = node.right;
+    }
+  }
+
+  private static void collectOverlapping(Node node, long from, long to, List result) {
+    while (node != null && node.maxTo > from) {
+      collectOverlapping(node.left, from, to, result);
+      if (node.from >= to) {
+        return;
+      }
+      if (node.to > from) {
+        result.add(node);
+      }
+      node = node.right;
+    }
+  }
+
+  private Node first() {
+    Node node = this.root;
+    if (node != null) {
+      while (node.left != null) {
+        node = node.left;
+      }
+    }
+    return node;
+  }
+
+  private static Node successor(Node current) {
+    if (current.right != null) {
+      Node node = current.right;
+      while (node.left != null)
+        node = node.left;
+      return node;
+    }
+    Node node = current.parent;
+    Node child = current;
+    while (node != null && child == node.right) {
+      child = node;
+      node = node.parent;
+    }
+    return node;
+  }
+
+  /**
+   * Recomputes the highest end of the subtree rooted at the given node,
+   * based on its children.
+   */
+  private static void updateMaxTo(Node node) {
+    long max = node.to;
+    if (node.left != null && node.left.maxTo > max) {
+      max = node.left.maxTo;
+    }
+    if (node.right != null && node.right.maxTo > max) {
+      max = node.right.maxTo;
+    }
+    node.maxTo = max;
+  }
+
+  private static boolean colorOf(Node node) {
+    return (node == null ? BLACK : node.color);
+  }
+
+  private static Node parentOf(Node node) {
+    return (node == null ? null : node.parent);
+  }
+
+  private static void setColor(Node node, boolean color) {
+    if (node != null)
+      node.color = color;
+  }
+
+  private static Node leftOf(Node node) {
+    return (node == null) ? null : node.left;
+  }
+
+  private static Node rightOf(Node node) {
+    return (node == null) ? null : node.right;
+  }
+
+  private void fixAfterInsertion(Node node) {
+    node.color = RED;
+    while (node != null && node != this.root && node.parent.color == RED) {
+      if (parentOf(node) == leftOf(parentOf(parentOf(node)))) {
+        Node uncle = rightOf(parentOf(parentOf(node)));
+        if (colorOf(uncle) == RED) {
+          setColor(parentOf(node), BLACK);
+          setColor(uncle, BLACK);
+          setColor(parentOf(parentOf(node)), RED);
+          node = parentOf(parentOf(node));
+        } else {
+          if (node == rightOf(parentOf(node))) {
+            node = parentOf(node);
+            rotateLeft(node);
+          }
+          setColor(parentOf(node), BLACK);
+          setColor(parentOf(parentOf(node)), RED);
+          if (parentOf(parentOf(node)) != null)
+            rotateRight(parentOf(parentOf(node)));
+        }
+      } else {
+        Node uncle = leftOf(parentOf(parentOf(node)));
+        if (colorOf(uncle) == RED) {
+          setColor(parentOf(node), BLACK);
+          setColor(uncle, BLACK);
+          setColor(parentOf(parentOf(node)), RED);
+          node = parentOf(parentOf(node));
+        } else {
+          if (node == leftOf(parentOf(node))) {
+            node = parentOf(node);
+            rotateRight(node);
+          }
+          setColor(parentOf(node), BLACK);
+          setColor(parentOf(parentOf(node)), RED);
+          if (parentOf(parentOf(node)) != null)
+            rotateLeft(parentOf(parentOf(node)));
+        }
+      }
+    }
+    this.root.color = BLACK;
+  }
+
+  private void rotateLeft(Node node) {
+    Node r = node.right;
+    node.right = r.left;
+    if (r.left != null)
+      r.left.parent = node;
+    r.parent = node.parent;
+    if (node.parent == null)
+      this.root = r;
+    else if (node.parent.left == node)
+      node.parent.left = r;
+    else
+      node.parent.right = r;
+    r.left = node;
+    node.parent = r;
+    updateMaxTo(node);
+    updateMaxTo(r);
+  }
+
+  private void rotateRight(Node node) {
+    Node l = node.left;
+    node.left = l.right;
+    if (l.right != null)
+      l.right.parent = node;
+    l.parent = node.parent;
+    if (node.parent == null)
+      this.root = l;
+    else if (node.parent.right == node)
+      node.parent.right = l;
+    else
+      node.parent.left = l;
+    l.right = node;
+    node.parent = l;
+    updateMaxTo(node);
+    updateMaxTo(l);
+  }
+
+}
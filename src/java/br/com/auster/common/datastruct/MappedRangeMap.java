@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p><b>Title:</b> MappedRangeMap</p>
+ * <p><b>Description:</b> A read-only range lookup served from a memory mapped file</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * {@link #write(RangeLookup, File)} saves the ranges of any map to a binary
+ * file, and the constructor maps that file back with
+ * <code>FileChannel.map()</code>. The range limits are never copied to the
+ * heap: lookups read them straight from the mapping, so opening a file is
+ * almost instant, the data stays out of the garbage collector's way and all
+ * the JVMs of a host share the same pages of the OS cache.
+ *
+ * The file layout (all numbers big endian) is:
+ * <pre>
+ *   int      magic number (0x524D4150, "RMAP")
+ *   int      format version
+ *   int      n, number of ranges
+ *   int      number of distinct value lists
+ *   long[n]  range starts, ascending
+ *   long[n]  range ends
+ *   int[n]   index of the value list of each range
+ *   ...      the distinct value lists, written with ObjectOutputStream
+ * </pre>
+ *
+ * Only the distinct value lists are loaded to the heap, which is usually
+ * a small fraction of the map. The values must be serializable.
+ *
+ * A single mapping can not exceed 2GB, which limits a file to about 100
+ * million ranges.
+ *
+ * A file is never changed once written: {@link #write(RangeLookup, File)}
+ * writes the new contents to a temporary file in the same directory and
+ * renames it over the old one, so the threads and JVMs that have the old
+ * file mapped keep reading it safely. They see the new contents only after
+ * opening the file again.
+ *
+ * Instances are read-only and only use absolute reads on the mapping, so
+ * they can be shared by any number of threads without synchronization. The
+ * value lists returned are unmodifiable.
+ *
+ * @version $Id$
+ */
+public class MappedRangeMap implements RangeLookup {
+  // -------------------------------------
+  // Attributes
+  // -------------------------------------
+
+  public static final int MAGIC = 0x524D4150;
+  public static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 16;
+  // bytes used by each range in the mapped part of the file
+  private static final int RANGE_SIZE = 8 + 8 + 4;
+
+  private final File file;
+  private final int size;
+  private final LongBuffer from;
+  private final LongBuffer to;
+  private final IntBuffer slots;
+  private final List[] dictionary;
+
+  // -------------------------------------
+  // Constructors
+  // -------------------------------------
+  /**
+   * Maps a file created by {@link #write(RangeLookup, File)}.
+   *
+   * @param file the file to map
+   * @throws IOException if the file can not be read or was not written by this class
+   */
+  public MappedRangeMap(File file) throws IOException {
+    this.file = file;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining()) {
+        if (channel.read(header) < 0) {
+          throw new IOException("File " + file + " is too short to be a range map");
+        }
+      }
+      header.flip();
+      if (header.getInt() != MAGIC) {
+        throw new IOException("File " + file + " is not a range map");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("File " + file + " has unsupported version " + version);
+      }
+      this.size = header.getInt();
+      int dictionarySize = header.getInt();
+
+      long mappedSize = HEADER_SIZE + (long) this.size * RANGE_SIZE;
+      if (mappedSize > Integer.MAX_VALUE) {
+        throw new IOException("File " + file + " has too many ranges to be mapped: " + this.size);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, mappedSize);
+      this.from = view(buffer, HEADER_SIZE).asLongBuffer();
+      this.to = view(buffer, HEADER_SIZE + this.size * 8).asLongBuffer();
+      this.slots = view(buffer, HEADER_SIZE + this.size * 16).asIntBuffer();
+
+      channel.position(mappedSize);
+      this.dictionary = readDictionary(channel, dictionarySize);
+    } finally {
+      // the mapping stays valid after the channel is closed
+      raf.close();
+    }
+  }
+
+  // -------------------------------------
+  // Public methods
+  // -------------------------------------
+  /**
+   * Saves the ranges of the given map to a file that can later be opened
+   * with {@link #MappedRangeMap(File)}. Any existing file is replaced, not
+   * rewritten, so maps already open on it are not affected.
+   *
+   * @param map the map to save
+   * @param file the file to be written
+   * @throws IOException if the file can not be written or a value is not serializable
+   */
+  public static void write(RangeLookup map, File file) throws IOException {
+    int size = map.getSize();
+    long[] from = new long[size];
+    long[] to = new long[size];
+    int[] slots = new int[size];
+    List dictionary = new ArrayList();
+    Map indexes = new HashMap();
+
+    int i = 0;
+    for (Iterator it = map.iterator(); it.hasNext(); i++) {
+      RangeEntry entry = (RangeEntry) it.next();
+      from[i] = entry.getFrom();
+      to[i] = entry.getTo();
+      List values = new ArrayList(entry.getValues());
+      Integer index = (Integer) indexes.get(values);
+      if (index == null) {
+        index = new Integer(dictionary.size());
+        indexes.put(values, index);
+        dictionary.add(values);
+      }
+      slots[i] = index.intValue();
+    }
+
+    // written aside and renamed, so a mapped file is never changed
+    File written = File.createTempFile("rangemap", ".tmp", file.getAbsoluteFile().getParentFile());
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(written)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(size);
+      out.writeInt(dictionary.size());
+      for (i = 0; i < size; i++) {
+        out.writeLong(from[i]);
+      }
+      for (i = 0; i < size; i++) {
+        out.writeLong(to[i]);
+      }
+      for (i = 0; i < size; i++) {
+        out.writeInt(slots[i]);
+      }
+      ObjectOutputStream objects = new ObjectOutputStream(out);
+      for (Iterator it = dictionary.iterator(); it.hasNext();) {
+        objects.writeObject(it.next());
+      }
+      objects.flush();
+    } catch (IOException e) {
+      out.close();
+      written.delete();
+      throw e;
+    } finally {
+      out.close();
+    }
+    if (!written.renameTo(file)) {
+      file.delete();
+      if (!written.renameTo(file)) {
+        written.delete();
+        throw new IOException("Could not replace " + file);
+      }
+    }
+  }
+
+  /**
+   * @see RangeLookup#get(long)
+   */
+  public List get(long key) {
+    int index = indexOf(key);
+    return (index < 0 ? null : this.dictionary[this.slots.get(index)]);
+  }
+
+  /**
+   * @see RangeLookup#getFirst(long)
+   */
+  public Object getFirst(long key) {
+    List values = get(key);
+    return (values == null || values.isEmpty() ? null : values.get(0));
+  }
+
+  /**
+   * @see RangeLookup#getSize()
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Returns an iterator to this map. Each call to <code>next()</code> returns
+   * a new {@link RangeEntry} holding the range and its unmodifiable value list.
+   *
+   * @return Iterator
+   */
+  public Iterator iterator() {
+    return new Iterator() {
+      private int next = 0;
+
+      public boolean hasNext() {
+        return this.next < size;
+      }
+
+      public Object next() {
+        if (this.next >= size)
+          throw new NoSuchElementException();
+        int i = this.next++;
+        return new RangeEntry(from.get(i), to.get(i), dictionary[slots.get(i)]);
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("MappedRangeMap is read-only");
+      }
+    };
+  }
+
+  /**
+   * Returns the file this map was loaded from.
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  // -------------------------------------
+  // Private / Protected methods
+  // -------------------------------------
+  /**
+   * Returns the index of the range containing the key, or -1 if no range
+   * contains it. Same search as {@link FrozenRangeMap#indexOf(long)}.
+   */
+  protected int indexOf(long key) {
+    int n = this.size;
+    if (n == 0) {
+      return -1;
+    }
+    int base = 0;
+    while (n > 1) {
+      int half = n >>> 1;
+      base = (this.from.get(base + half) <= key) ? base + half : base;
+      n -= half;
+    }
+    return (this.from.get(base) <= key && key < this.to.get(base)) ? base : -1;
+  }
+
+  private static ByteBuffer view(ByteBuffer buffer, int position) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    return view.slice();
+  }
+
+  private List[] readDictionary(FileChannel channel, int count) throws IOException {
+    List[] result = new List[count];
+    ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    try {
+      for (int i = 0; i < count; i++) {
+        result[i] = Collections.unmodifiableList((List) in.readObject());
+      }
+    } catch (ClassNotFoundException cnfe) {
+      IOException ioe = new IOException("Could not read the values of file " + this.file);
+      ioe.initCause(cnfe);
+      throw ioe;
+    }
+    return result;
+  }
+
+}
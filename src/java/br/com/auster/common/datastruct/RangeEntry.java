@@ -17,7 +17,7 @@
  */
 package br.com.auster.common.datastruct;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
@@ -26,6 +26,18 @@ import java.util.List;
  * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
  * <p><b>Company:</b> Auster Solutions</p>
  *
+ * Most ranges hold a single value, so entries created without a list of
+ * values keep them in a compact form: a single value is stored inline and
+ * only when a second one arrives an array is allocated. In this mode
+ * {@link #getValues()} returns a live view over the values, and
+ * {@link #getFirstValue()} and {@link #getValueCount()} read them without
+ * allocating anything. The view is created once, on the first call to
+ * {@link #getValues()}, and the same instance is returned from then on.
+ *
+ * Entries created with, or given, a list of values through
+ * {@link #RangeEntry(long, long, List)} or {@link #setValues(List)} use that
+ * list as is.
+ *
  * @author etirelli
  * @version $Id: RangeEntry.java 168 2005-05-06 21:42:38Z etirelli $
  */
@@ -33,13 +45,21 @@ public class RangeEntry {
   protected long from;
   protected long to;
   protected List values;
+
+  // compact storage, used while values is null: the value itself if count
+  // is 1, or an array with the values if count is greater than 1
+  private Object data;
+  private int count;
+  // the live view returned by getValues() for compact entries
+  private List view;
   
   public RangeEntry() {
-    this(Long.MIN_VALUE, Long.MAX_VALUE, (List) new ArrayList());
+    this(Long.MIN_VALUE, Long.MAX_VALUE);
   }
   
   public RangeEntry(long from, long to) {
-    this(from, to, (List) new ArrayList());
+    this.from  = from;
+    this.to    = to;
   }
   
   public RangeEntry(long from, long to, List values) {
@@ -77,10 +97,19 @@ public class RangeEntry {
   }
 
   /**
+   * Returns the values of this entry. For compact entries this is a live
+   * view: changes to it change the entry and vice versa.
+   * 
    * @return Returns the value.
    */
   public List getValues() {
-    return values;
+    if (values != null) {
+      return values;
+    }
+    if (view == null) {
+      view = new ValueList();
+    }
+    return view;
   }
 
   /**
@@ -88,6 +117,25 @@ public class RangeEntry {
    */
   public void setValues(List values) {
     this.values = values;
+    this.data = null;
+    this.count = 0;
+  }
+  
+  /**
+   * Returns the number of values of this entry.
+   */
+  public int getValueCount() {
+    return (values != null ? values.size() : count);
+  }
+
+  /**
+   * Returns the first value of this entry, or null if it has no values.
+   */
+  public Object getFirstValue() {
+    if (values != null) {
+      return (values.isEmpty() ? null : values.get(0));
+    }
+    return (count == 0 ? null : valueAt(0));
   }
   
   /**
@@ -95,7 +143,36 @@ public class RangeEntry {
    * @param value
    */
   public void addValue(Object value) {
-    this.values.add(value);
+    if (values != null) {
+      this.values.add(value);
+    } else {
+      insertValue(count, value);
+    }
+  }
+
+  /**
+   * Adds all the given values to the values list. The list may be a view
+   * of this same entry.
+   * 
+   * @param values
+   */
+  public void addValues(List values) {
+    if (this.values != null) {
+      this.values.addAll(values);
+      return;
+    }
+    Object[] added = values.toArray();
+    if (added.length == 0) {
+      return;
+    }
+    if (count == 0 && added.length == 1) {
+      data = added[0];
+      count = 1;
+      return;
+    }
+    ensureCapacity(count + added.length);
+    System.arraycopy(added, 0, (Object[]) data, count, added.length);
+    count += added.length;
   }
   
   /**
@@ -103,11 +180,114 @@ public class RangeEntry {
    * @param value
    */
   public void removeValue(Object value) {
-    this.values.remove(value);
+    if (values != null) {
+      this.values.remove(value);
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      Object current = valueAt(i);
+      if (value == null ? current == null : value.equals(current)) {
+        removeValueAt(i);
+        return;
+      }
+    }
   }
   
   public String toString() {
     return "[ "+this.getFrom()+", "+this.getTo()+" ) => "+this.getValues().toString();
   }
 
+  private Object valueAt(int index) {
+    return (count == 1 ? data : ((Object[]) data)[index]);
+  }
+
+  private void insertValue(int index, Object value) {
+    if (count == 0) {
+      data = value;
+    } else {
+      ensureCapacity(count + 1);
+      Object[] array = (Object[]) data;
+      System.arraycopy(array, index, array, index + 1, count - index);
+      array[index] = value;
+    }
+    count++;
+  }
+
+  private Object removeValueAt(int index) {
+    Object removed = valueAt(index);
+    if (count == 1) {
+      data = null;
+    } else if (count == 2) {
+      // back to a single inline value
+      data = ((Object[]) data)[1 - index];
+    } else {
+      Object[] array = (Object[]) data;
+      System.arraycopy(array, index + 1, array, index, count - index - 1);
+      array[count - 1] = null;
+    }
+    count--;
+    return removed;
+  }
+
+  /**
+   * Makes sure the compact storage is an array with room for the given
+   * number of values. Only called when more than one value will be stored.
+   */
+  private void ensureCapacity(int capacity) {
+    if (count > 1 && ((Object[]) data).length >= capacity) {
+      return;
+    }
+    int length = (count > 1 ? ((Object[]) data).length : 0);
+    Object[] array = new Object[Math.max(capacity, length + (length >> 1))];
+    if (count == 1) {
+      array[0] = data;
+    } else if (count > 1) {
+      System.arraycopy((Object[]) data, 0, array, 0, count);
+    }
+    data = array;
+  }
+
+  /**
+   * Live list view over the compact storage.
+   */
+  private class ValueList extends AbstractList {
+    public Object get(int index) {
+      checkIndex(index, count);
+      return valueAt(index);
+    }
+
+    public int size() {
+      return count;
+    }
+
+    public Object set(int index, Object value) {
+      checkIndex(index, count);
+      Object previous = valueAt(index);
+      if (count == 1) {
+        data = value;
+      } else {
+        ((Object[]) data)[index] = value;
+      }
+      return previous;
+    }
+
+    public void add(int index, Object value) {
+      checkIndex(index, count + 1);
+      modCount++;
+      insertValue(index, value);
+    }
+
+    public Object remove(int index) {
+      checkIndex(index, count);
+      modCount++;
+      return removeValueAt(index);
+    }
+
+    private void checkIndex(int index, int limit) {
+      if (index < 0 || index >= limit) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+      }
+    }
+  }
+
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p><b>Title:</b> RangeLookup</p>
+ * <p><b>Description:</b> The read side of a map from ranges of longs to lists of objects</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Implemented by {@link RangeMap} and by its read-only variants, so code that
+ * only looks ranges up does not need to care how the ranges are stored.
+ *
+ * @version $Id$
+ */
+public interface RangeLookup {
+
+  /**
+   * Returns the list of values associated to the range in which the
+   * key is included or null in case there is no range with the given
+   * key.
+   *
+   * @param key
+   * @return a list with values or null if the range does not exist
+   */
+  public List get(long key);
+
+  /**
+   * Returns the first value associated to the range in which the key is
+   * included, or null in case there is no range with the given key or the
+   * range has no values.
+   *
+   * @param key
+   * @return the first value of the range or null
+   */
+  public Object getFirst(long key);
+
+  /**
+   * Returns the number of ranges in this lookup.
+   *
+   * @return the current size or 0 for an empty lookup
+   */
+  public int getSize();
+
+  /**
+   * Returns an iterator of {@link RangeEntry} objects, in ascending order
+   * of the ranges.
+   *
+   * @return Iterator
+   */
+  public Iterator iterator();
+
+}
@@ -17,6 +17,7 @@
  */
 package br.com.auster.common.datastruct;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
@@ -54,12 +55,15 @@ import java.util.TreeSet;
  * @author etirelli
  * @version $Id: RangeMap.java 304 2005-11-01 18:31:11Z etirelli $
  */
-public class RangeMap {
+public class RangeMap implements RangeLookup {
   // -------------------------------------
   // Attributes  
   // -------------------------------------
 	
   public static final int UNLIMITED_RECURSIONS = Integer.MAX_VALUE;
+
+  // how many successor steps getAll() takes before searching again from the root
+  private static final int CURSOR_STEPS = 8;
   
   
   private transient int modCount = 0;
@@ -177,7 +181,7 @@ public class RangeMap {
    * <P>And you add the range [ 15, 25 ) => "B", the result will be:</P>
    * 
    * [ 10, 15 ) => "A"
-   * [ 15, 20 ) => "A", "B"
+   * [ 15, 20 ) => "B", "A"
    * [ 20, 25 ) => "B"
    * 
    * An exception will be raised if someone tries to add a range with end 
@@ -252,6 +256,114 @@ public class RangeMap {
     RangeNode node = getNode(key);
     return (node == null ? null : node.getEntry().getValues());
   }
+
+  /**
+   * Returns the first value associated to the range in which the key is
+   * included, or null in case there is no range with the given key or the
+   * range has no values. Unlike {@link #get(long)}, this method never
+   * allocates any object.
+   * 
+   * @param key
+   * @return the first value of the range or null
+   */
+  public Object getFirst(long key) {
+    RangeNode node = getNode(key);
+    return (node == null ? null : node.getEntry().getFirstValue());
+  }
+
+  /**
+   * Looks up a batch of keys at once. The keys should be sorted in ascending
+   * order: the search then walks the tree only once, moving from each range
+   * to the next one instead of restarting from the root for every key. 
+   * Unsorted keys still give the right result, but lose this benefit.
+   * 
+   * @param sortedKeys the keys to look up
+   * @return an array with, for each key, the list of values of the range 
+   *         that contains it or null if there is no such range
+   */
+  public List[] getAll(long[] sortedKeys) {
+    List[] result = new List[sortedKeys.length];
+    RangeNode node = null;
+    for (int i = 0; i < sortedKeys.length; i++) {
+      long key = sortedKeys[i];
+      if (i == 0 || key < sortedKeys[i-1]) {
+        node = ceilingNode(key);
+      } else {
+        // neighbouring keys usually fall in the same or in a close range
+        int steps = 0;
+        while (node != null && node.getTo() <= key && steps < CURSOR_STEPS) {
+          node = successor(node);
+          steps++;
+        }
+        if (node != null && node.getTo() <= key) {
+          node = ceilingNode(key);
+        }
+      }
+      if (node == null) {
+        // no range ends after this key, and so after any of the next ones 
+        break;
+      }
+      if (node.getFrom() <= key) {
+        result[i] = node.getEntry().getValues();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns, in ascending order, all the ranges that have at least one key 
+   * in common with the interval [ "from", "to"). The entries returned are the 
+   * ones of this map, as returned by {@link #iterator()}.
+   * 
+   * @param from interval starting value (inclusive)
+   * @param to   interval ending   value (exclusive)
+   * @return a list of {@link RangeEntry} objects, empty if no range intersects the interval
+   * 
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public List entriesIntersecting(long from, long to) {
+    if (to <= from) {
+      throw new InvalidRangeException(
+          "Trying to search an invalid range in the RangeMap(): [ "+from+", "+to+")");
+    }
+    List result = new ArrayList();
+    for (RangeNode node = ceilingNode(from); node != null && node.getFrom() < to; node = successor(node)) {
+      result.add(node.getEntry());
+    }
+    return result;
+  }
+
+  /**
+   * Returns a new map with the ranges of this map that intersect the interval 
+   * [ "from", "to"), cut to fit in the interval. For example, if this map has 
+   * [ 10, 30 ) => "A", <code>subMap(20, 40)</code> returns a map with
+   * [ 20, 30 ) => "A". The value lists are copied, so changing the returned map
+   * does not change this one.
+   * 
+   * @param from interval starting value (inclusive)
+   * @param to   interval ending   value (exclusive)
+   * @return the new map
+   * 
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public RangeMap subMap(long from, long to) {
+    List entries = entriesIntersecting(from, to);
+    int count = entries.size();
+    long[] froms = new long[count];
+    long[] tos = new long[count];
+    List[] values = new List[count];
+    boolean[] overlapping = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      RangeEntry entry = (RangeEntry) entries.get(i);
+      froms[i] = Math.max(from, entry.getFrom());
+      tos[i] = Math.min(to, entry.getTo());
+      values[i] = entry.getValues();
+      overlapping[i] = this.overlappingRanges.contains(entry);
+    }
+    RangeMap result = new RangeMap(this.maxRecursions, this.exaustedException);
+    result.buildFromSorted(froms, tos, values, overlapping, count);
+    return result;
+  }
   
   /**
    * Removes the range containing the given key.
@@ -306,6 +418,36 @@ public class RangeMap {
   public Set getOverlappingRanges() {
 	  return Collections.unmodifiableSet(this.overlappingRanges);
   }
+
+  /**
+   * Returns an immutable snapshot of this map, backed by sorted arrays
+   * instead of the red black tree. Use it for maps that are built once and
+   * then only queried. See {@link FrozenRangeMap}.
+   * 
+   * @return a read-only copy of the current ranges and values
+   */
+  public FrozenRangeMap freeze() {
+	  return new FrozenRangeMap(this);
+  }
+
+  /**
+   * Creates a new map with all the ranges returned by the given iterator,
+   * which may be unsorted and overlapping. The ranges are loaded with a
+   * {@link RangeMapBuilder}, which is much faster than calling
+   * {@link #addAll(long, long, List)} for each range, and is not subject to
+   * the recursion limit.
+   * 
+   * @param entries an iterator of {@link RangeEntry} objects
+   * @return the new map
+   */
+  public static RangeMap bulkLoad(Iterator entries) {
+	  RangeMapBuilder builder = new RangeMapBuilder();
+	  while (entries.hasNext()) {
+		  RangeEntry entry = (RangeEntry) entries.next();
+		  builder.addAll(entry.getFrom(), entry.getTo(), entry.getValues());
+	  }
+	  return builder.build();
+  }
   
   // -------------------------------------
   // Private / Protected methods
@@ -335,7 +477,7 @@ public class RangeMap {
       root = new RangeNode(from, to);
       pointer = root;
       if (isAddAll) {
-        pointer.getValues().addAll((List) value);
+        pointer.getEntry().addValues((List) value);
       } else {
         pointer.addValue(value);
       }
@@ -347,7 +489,7 @@ public class RangeMap {
           // add elements to it and fix ranges if needed 
           fixRanges(from, to, value, isAddAll, pointer, _recursion);
           if (isAddAll) {
-            pointer.getValues().addAll((List) value);
+            pointer.getEntry().addValues((List) value);
           } else {
             pointer.addValue(value);
           }
@@ -365,7 +507,7 @@ public class RangeMap {
             pointer.setLeft(new RangeNode(from, to, pointer));
             pointer = pointer.getLeft();
             if (isAddAll) {
-              pointer.getValues().addAll((List) value);
+              pointer.getEntry().addValues((List) value);
             } else {
               pointer.addValue(value);
             }
@@ -381,7 +523,7 @@ public class RangeMap {
             pointer.setRight(new RangeNode(from, to, pointer));
             pointer = pointer.getRight();
             if (isAddAll) {
-              pointer.getValues().addAll((List) value);
+              pointer.getEntry().addValues((List) value);
             } else {
               pointer.addValue(value);
             }
@@ -395,6 +537,55 @@ public class RangeMap {
     return pointer.getEntry();
   }
 
+  /**
+   * Replaces the contents of this map with the given disjoint ranges, which
+   * must be sorted in ascending order. The tree is built balanced in linear
+   * time, with all nodes black except the ones on the deepest level, which
+   * might not be complete. The values are copied to the compact storage
+   * of each entry.
+   * 
+   * @param from the range starts
+   * @param to the range ends
+   * @param values the value list of each range
+   * @param overlapping which ranges must be reported as overlapping, or null 
+   * @param count how many ranges to load from the arrays
+   */
+  void buildFromSorted(long[] from, long[] to, List[] values, boolean[] overlapping, int count) {
+    clear();
+    if (count == 0) {
+      return;
+    }
+    // the level with red nodes: the deepest one, if it is not complete
+    int redLevel = 0;
+    for (int m = count - 1; m >= 0; m = m / 2 - 1) {
+      redLevel++;
+    }
+    this.root = buildFromSorted(0, 0, count - 1, redLevel, from, to, values, overlapping);
+    this.size = count;
+  }
+
+  private RangeNode buildFromSorted(int level, int lo, int hi, int redLevel, 
+                                    long[] from, long[] to, List[] values, boolean[] overlapping) {
+    int mid = (lo + hi) >>> 1;
+    RangeNode node = new RangeNode(from[mid], to[mid]);
+    node.getEntry().addValues(values[mid]);
+    if (level == redLevel) {
+      node.setColor(RangeNode.RED);
+    }
+    if (lo < mid) {
+      node.left = buildFromSorted(level + 1, lo, mid - 1, redLevel, from, to, values, overlapping);
+      node.left.parent = node;
+    }
+    if (mid < hi) {
+      node.right = buildFromSorted(level + 1, mid + 1, hi, redLevel, from, to, values, overlapping);
+      node.right.parent = node;
+    }
+    if (overlapping != null && overlapping[mid]) {
+      this.overlappingRanges.add(node.getEntry());
+    }
+    return node;
+  }
+
   /**
    * Returns the color of the given node, returning BLACK in 
    * case the node is null.
@@ -622,7 +813,7 @@ public class RangeMap {
         } else if (newFrom != newTo) {
           addAll(newFrom, newTo, pred.getValues());
         }
-        node.getValues().addAll(pred.getValues());
+        node.getEntry().addValues(pred.getValues());
         this.rangeAddOverlap = true;
         this.overlappingRanges.add(node.getEntry());
       } else {
@@ -659,6 +850,28 @@ public class RangeMap {
     return ((previous != null) && (previous.getTo() > key)) ? previous : null;
   }
 
+  /**
+   * Returns the first range that ends after the given key, which is the 
+   * range containing the key if there is one, or null if all ranges end 
+   * before or at the key. 
+   * 
+   * @param key
+   * @return
+   */
+  private RangeNode ceilingNode(long key) {
+    RangeNode node = root;
+    RangeNode found = null;
+    while (node != null) {
+      if (key < node.getTo()) {
+        found = node;
+        node = node.left;
+      } else {
+        node = node.right;
+      }
+    }
+    return found;
+  }
+
   protected void incrementSize() {
     this.size++;
     this.modCount++;
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2004-2005 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * <p><b>Title:</b> RangeMapBuilder</p>
+ * <p><b>Description:</b> Builds a RangeMap from an unsorted batch of ranges in one pass</p>
+ * <p><b>Copyright:</b> Copyright (c) 2004-2005</p>
+ * <p><b>Company:</b> Auster Solutions</p>
+ *
+ * Loading a large table with repeated calls to
+ * {@link RangeMap#add(long, long, Object)} walks the tree once per range, and
+ * every overlap goes through the recursive splitting code, which is subject to
+ * the map recursion limit.
+ *
+ * This class only collects the (from, to, value) triples. {@link #build()}
+ * then sorts them, resolves all overlaps with a single sweep over the range
+ * limits and hands the resulting disjoint ranges to the map, which builds a
+ * balanced tree directly. There is no recursion limit involved.
+ *
+ * The result has the same ranges as adding the triples one by one: every
+ * range limit becomes a split point and each resulting range holds the values
+ * of all the triples covering it, in the same order. A triple that starts
+ * strictly inside a range covered by earlier triples puts its values before
+ * theirs, up to the next limit of an earlier triple; everywhere else its values
+ * go after those of the earlier triples. A range is reported as
+ * overlapping ({@link RangeMap#getOverlappingRanges()}) when it is covered
+ * by more than one triple.
+ *
+ * This class is not synchronized.
+ *
+ * @version $Id$
+ */
+public class RangeMapBuilder {
+  // -------------------------------------
+  // Attributes
+  // -------------------------------------
+
+  private long[] from;
+  private long[] to;
+  private Object[] values;
+  private boolean[] isList;
+  private int count = 0;
+
+  // -------------------------------------
+  // Constructors
+  // -------------------------------------
+  /**
+   * Default constructor
+   */
+  public RangeMapBuilder() {
+    this(1024);
+  }
+
+  /**
+   * Creates a builder sized for the expected number of ranges.
+   *
+   * @param expectedRanges how many ranges are expected to be added
+   */
+  public RangeMapBuilder(int expectedRanges) {
+    int capacity = Math.max(16, expectedRanges);
+    this.from = new long[capacity];
+    this.to = new long[capacity];
+    this.values = new Object[capacity];
+    this.isList = new boolean[capacity];
+  }
+
+  // -------------------------------------
+  // Public methods
+  // -------------------------------------
+  /**
+   * Adds a mapping from range [ "from", "to") to "value". Ranges may be added
+   * in any order and may overlap.
+   *
+   * @param from  range starting value (inclusive)
+   * @param to    range ending   value (exclusive)
+   * @param value the value to add associated to the range
+   * @return this builder
+   *
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public RangeMapBuilder add(long from, long to, Object value) {
+    append(from, to, value, false);
+    return this;
+  }
+
+  /**
+   * The same as method {@link #add(long, long, Object)} but adding a list of
+   * values instead of a single value.
+   *
+   * @param from the range starting value (inclusive)
+   * @param to   the range final value (exclusive)
+   * @param values a list of values to be assigned to the range
+   * @return this builder
+   *
+   * @exception InvalidRangeException in case "to" is lesser or equal to "from" parameter
+   */
+  public RangeMapBuilder addAll(long from, long to, List values) {
+    append(from, to, values, true);
+    return this;
+  }
+
+  /**
+   * Returns how many ranges were added to this builder so far.
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Builds a new {@link RangeMap} with all the ranges added so far.
+   *
+   * @return the new map
+   */
+  public RangeMap build() {
+    RangeMap map = new RangeMap();
+    build(map);
+    return map;
+  }
+
+  /**
+   * Replaces the contents of <code>map</code> with all the ranges added so
+   * far. Use it to build maps created with non default settings.
+   *
+   * @param map the map to be loaded
+   */
+  public void build(RangeMap map) {
+    int[] byFrom = sortedIndexes(this.from);
+    int[] byTo = sortedIndexes(this.to);
+    long[] firstUntil = firstUntil();
+
+    // the disjoint ranges produced by the sweep
+    int capacity = Math.max(16, this.count * 2);
+    long[] outFrom = new long[capacity];
+    long[] outTo = new long[capacity];
+    List[] outValues = new List[capacity];
+    boolean[] outOverlap = new boolean[capacity];
+    int outCount = 0;
+
+    // the ranges covering the current position, sorted by insertion order
+    int[] active = new int[16];
+    int activeCount = 0;
+
+    int i = 0, j = 0;
+    long position = 0;
+    while (j < this.count) {
+      long point = this.to[byTo[j]];
+      if (i < this.count && this.from[byFrom[i]] < point) {
+        point = this.from[byFrom[i]];
+      }
+
+      if (activeCount > 0) {
+        if (outCount == outFrom.length) {
+          int newLength = outCount * 2;
+          outFrom = grow(outFrom, newLength);
+          outTo = grow(outTo, newLength);
+          outValues = (List[]) grow(outValues, new List[newLength]);
+          outOverlap = grow(outOverlap, newLength);
+        }
+        outFrom[outCount] = position;
+        outTo[outCount] = point;
+        outValues[outCount] = valuesOf(active, activeCount, firstUntil, position);
+        outOverlap[outCount] = activeCount > 1;
+        outCount++;
+      }
+
+      // ranges ending here leave the active set before the ones starting here join it
+      while (j < this.count && this.to[byTo[j]] == point) {
+        int index = indexOf(active, activeCount, byTo[j++]);
+        System.arraycopy(active, index + 1, active, index, activeCount - index - 1);
+        activeCount--;
+      }
+      while (i < this.count && this.from[byFrom[i]] == point) {
+        if (activeCount == active.length) {
+          active = grow(active, activeCount * 2);
+        }
+        int index = -(indexOf(active, activeCount, byFrom[i]) + 1);
+        System.arraycopy(active, index, active, index + 1, activeCount - index);
+        active[index] = byFrom[i++];
+        activeCount++;
+      }
+      position = point;
+    }
+
+    map.buildFromSorted(outFrom, outTo, outValues, outOverlap, outCount);
+  }
+
+  /**
+   * Discards all the ranges added so far.
+   */
+  public void clear() {
+    for (int i = 0; i < this.count; i++) {
+      this.values[i] = null;
+    }
+    this.count = 0;
+  }
+
+  // -------------------------------------
+  // Private / Protected methods
+  // -------------------------------------
+
+  private void append(long from, long to, Object value, boolean isList) {
+    if (to <= from) {
+      throw new InvalidRangeException(
+          "Trying to add an invalid range to the RangeMapBuilder(): [ "+from+", "+to+")");
+    }
+    if (this.count == this.from.length) {
+      int newLength = this.count * 2;
+      this.from = grow(this.from, newLength);
+      this.to = grow(this.to, newLength);
+      this.values = grow(this.values, new Object[newLength]);
+      this.isList = grow(this.isList, newLength);
+    }
+    this.from[this.count] = from;
+    this.to[this.count] = to;
+    this.values[this.count] = value;
+    this.isList[this.count] = isList;
+    this.count++;
+  }
+
+  /**
+   * Finds, for each triple, where its values stop going before those of the
+   * earlier triples, replaying what {@link RangeMap#add(long, long, Object)}
+   * does: a range starting strictly inside an existing range takes the values
+   * of that range after its own, and the values of the new range are added
+   * after the existing ones everywhere else.
+   *
+   * @return for each triple, the end of the part where its values go first,
+   *         or its start if there is none
+   */
+  private long[] firstUntil() {
+    long[] result = new long[this.count];
+    // the limits of the triples seen so far, and the union of their ranges
+    TreeSet limits = new TreeSet();
+    TreeMap covered = new TreeMap();
+    for (int i = 0; i < this.count; i++) {
+      Long from = new Long(this.from[i]);
+      result[i] = this.from[i];
+      if (!limits.contains(from)) {
+        SortedMap before = covered.headMap(from);
+        if (!before.isEmpty() && ((Long) before.get(before.lastKey())).longValue() > this.from[i]) {
+          long next = ((Long) limits.tailSet(from).first()).longValue();
+          result[i] = Math.min(next, this.to[i]);
+        }
+      }
+      limits.add(from);
+      limits.add(new Long(this.to[i]));
+      cover(covered, this.from[i], this.to[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Adds a range to a union of disjoint ranges, kept as a map from the start
+   * to the end of each.
+   */
+  private static void cover(TreeMap covered, long from, long to) {
+    Long start = new Long(from);
+    long end = to;
+    SortedMap before = covered.headMap(start);
+    if (!before.isEmpty()) {
+      Long last = (Long) before.lastKey();
+      long lastEnd = ((Long) before.get(last)).longValue();
+      if (lastEnd >= from) {
+        start = last;
+        end = Math.max(end, lastEnd);
+      }
+    }
+    for (Iterator it = covered.tailMap(start).entrySet().iterator(); it.hasNext();) {
+      Map.Entry entry = (Map.Entry) it.next();
+      if (((Long) entry.getKey()).longValue() > end) {
+        break;
+      }
+      end = Math.max(end, ((Long) entry.getValue()).longValue());
+      it.remove();
+    }
+    covered.put(start, new Long(end));
+  }
+
+  /**
+   * Creates the value list of the range starting at <code>position</code>,
+   * covered by the given triples: first the values of the triples that go
+   * first there, the latest one first, then the others in insertion order.
+   */
+  private List valuesOf(int[] active, int activeCount, long[] firstUntil, long position) {
+    List result = new ArrayList(activeCount);
+    for (int k = activeCount - 1; k >= 0; k--) {
+      if (firstUntil[active[k]] > position) {
+        addValues(result, active[k]);
+      }
+    }
+    for (int k = 0; k < activeCount; k++) {
+      if (firstUntil[active[k]] <= position) {
+        addValues(result, active[k]);
+      }
+    }
+    return result;
+  }
+
+  private void addValues(List result, int index) {
+    if (this.isList[index]) {
+      result.addAll((List) this.values[index]);
+    } else {
+      result.add(this.values[index]);
+    }
+  }
+
+  /**
+   * Returns the indexes of the added ranges sorted by <code>keys</code>.
+   * The sort is a stable bottom up merge sort, so ranges with the same key
+   * keep their insertion order.
+   */
+  private int[] sortedIndexes(long[] keys) {
+    int[] src = new int[this.count];
+    int[] dst = new int[this.count];
+    for (int i = 0; i < this.count; i++) {
+      src[i] = i;
+    }
+    for (int width = 1; width < this.count; width *= 2) {
+      for (int lo = 0; lo < this.count; lo += 2 * width) {
+        int mid = Math.min(lo + width, this.count);
+        int hi = Math.min(lo + 2 * width, this.count);
+        int a = lo, b = mid, k = lo;
+        while (a < mid && b < hi) {
+          dst[k++] = (keys[src[b]] < keys[src[a]]) ? src[b++] : src[a++];
+        }
+        while (a < mid) {
+          dst[k++] = src[a++];
+        }
+        while (b < hi) {
+          dst[k++] = src[b++];
+        }
+      }
+      int[] swap = src;
+      src = dst;
+      dst = swap;
+    }
+    return src;
+  }
+
+  /**
+   * Binary search on the first <code>length</code> positions of a sorted array,
+   * with the same return convention as <code>Arrays.binarySearch</code>.
+   */
+  private static int indexOf(int[] array, int length, int key) {
+    int lo = 0, hi = length - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (array[mid] < key) {
+        lo = mid + 1;
+      } else if (array[mid] > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  private static long[] grow(long[] array, int newLength) {
+    long[] result = new long[newLength];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static int[] grow(int[] array, int newLength) {
+    int[] result = new int[newLength];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static boolean[] grow(boolean[] array, int newLength) {
+    boolean[] result = new boolean[newLength];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static Object[] grow(Object[] array, Object[] result) {
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+}
@@ -43,6 +43,7 @@ public class MessagesBundle extends ListResourceBundle {
      // ConnectionPoolManager.java
      {"closingOpenedServerConns", "Closing all opened Server connections..."},
      {"problemClosingConnection", "Problems closing the connection {0}"},
+     {"checkoutTimeout", "No connection to the server {0} was released in {1} ms."},
 
      // SQLConnectionManager.java
      {"couldntFindStat", "Could not find the prepared statement named \"{0}\"."},
@@ -44,6 +44,7 @@ public class MessagesBundle_pt_BR extends ListResourceBundle {
   	 // ConnectionPoolManager.java
   	 {"closingOpenedServerConns", "Fechando todas as conexes abertas do servidor..."},
   	 {"problemClosingConnection", "Problemas ao fechar a conexo {0}"},
+  	 {"checkoutTimeout", "Nenhuma conexo com o servidor {0} foi liberada em {1} ms."},
 
   	 // SQLConnectionManager.java
   	 {"couldntFindStat", "No foi possvel encontrar a seguinte consulta: {0}."},
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by {@link SQLConnectionManager#executeBatch(String, java.util.Iterator, int)}
+ * when a batch fails after others were already committed. Those batches are
+ * not rolled back, so this exception tells the caller how far the rows got:
+ * {@link #getCommittedCounts()} has the update counts of each committed batch
+ * and {@link #getCommittedRows()} the number of rows they held, which is also
+ * the index of the first row not stored. {@link #getUpdateCounts()} has the
+ * same counts in a single array, as a {@link BatchUpdateException} would.
+ * <p>
+ * The error of the failed batch is both the cause and the next exception of
+ * this one.
+ * 
+ * @version $Id$
+ */
+public class BatchExecutionException extends BatchUpdateException {
+
+	private static final long serialVersionUID = -3164580926751304187L;
+
+	private final List committedCounts;
+	private final int committedRows;
+
+	/**
+	 * @param committedCounts
+	 *            the <code>int[]</code> update counts of each committed batch.
+	 * @param committedRows
+	 *            the number of rows of the committed batches.
+	 * @param cause
+	 *            the error of the batch that failed.
+	 */
+	public BatchExecutionException(List committedCounts, int committedRows,
+			SQLException cause) {
+		super("Batch failed after " + committedRows + " rows were committed: "
+				+ cause.getMessage(), cause.getSQLState(), cause.getErrorCode(),
+				flatten(committedCounts));
+		this.committedCounts = Collections.unmodifiableList(committedCounts);
+		this.committedRows = committedRows;
+		this.initCause(cause);
+		this.setNextException(cause);
+	}
+
+	/**
+	 * @return the <code>int[]</code> update counts of each batch committed
+	 *         before the failure, in the order they were run.
+	 */
+	public List getCommittedCounts() {
+		return this.committedCounts;
+	}
+
+	/**
+	 * @return the number of rows committed before the failure.
+	 */
+	public int getCommittedRows() {
+		return this.committedRows;
+	}
+
+	private static int[] flatten(List counts) {
+		int length = 0;
+		for (int i = 0; i < counts.size(); i++) {
+			length += ((int[]) counts.get(i)).length;
+		}
+		int[] all = new int[length];
+		int pos = 0;
+		for (int i = 0; i < counts.size(); i++) {
+			int[] batch = (int[]) counts.get(i);
+			System.arraycopy(batch, 0, all, pos, batch.length);
+			pos += batch.length;
+		}
+		return all;
+	}
+}
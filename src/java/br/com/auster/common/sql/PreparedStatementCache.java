@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.dbcp.DelegatingConnection;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps the prepared statements of each physical connection of a DBCP pool,
+ * so a named statement run many times is parsed and planned by the database
+ * only once per connection.
+ * <p>
+ * Statements are cached by their query text, up to a maximum number per
+ * connection. When a connection is full, the least recently used statement
+ * is closed to make room for the new one.
+ * <p>
+ * The connections handed out by DBCP are wrappers that close every statement
+ * created through them when they are given back to the pool. Because of that
+ * the statements are prepared straight on the physical connection, found
+ * with {@link DelegatingConnection#getInnermostDelegate()}.
+ * <p>
+ * DBCP only gives access to the physical connection when the pool allows it,
+ * which is not its default, and this class does not change that setting. Use
+ * {@link #isCacheable(Connection)} to check a pool before relying on the
+ * cache. Connections that do not come from DBCP, or whose physical connection
+ * is not accessible, are not cached:
+ * {@link #prepare(Connection, SQLStatement, Object[])} simply prepares a new
+ * statement and {@link #release(Connection, SQLStatement, PreparedStatement,
+ * boolean)} closes it. These statements are counted as bypassed, not as
+ * misses, so they do not lower the hit ratio. If the pool was configured with a statement pool (the
+ * <code>KeyedObjectPoolFactory</code> of its
+ * <code>PoolableConnectionFactory</code>), closing the statement gives it back
+ * to that pool, so statements are still reused. This is the recommended
+ * setup, as it keeps the statements within the lifecycle DBCP manages.
+ * <p>
+ * A statement is removed from the cache while in use and put back when
+ * released, so it is never shared by two callers.
+ * 
+ * @version $Id$
+ */
+public class PreparedStatementCache {
+
+	private static final Logger log = Logger
+			.getLogger(PreparedStatementCache.class);
+
+	private final int maxStatements;
+
+	// the statements of each physical connection, by query text
+	private final Map connections = new IdentityHashMap();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong bypassed = new AtomicLong();
+
+	// whether it was already logged that the physical connections are not
+	// accessible
+	private volatile boolean warned;
+
+	/**
+	 * Creates a cache that keeps up to <code>maxStatements</code> statements
+	 * for each physical connection.
+	 * 
+	 * @param maxStatements
+	 *            the maximum number of statements kept per connection.
+	 * @throws IllegalArgumentException
+	 *             if <code>maxStatements</code> is not positive.
+	 */
+	public PreparedStatementCache(int maxStatements) {
+		if (maxStatements <= 0) {
+			throw new IllegalArgumentException(
+					"The statement cache size must be positive: "
+							+ maxStatements);
+		}
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * Returns a prepared statement for <code>statement</code>, with its
+	 * parameters set, reusing one prepared before on the same physical
+	 * connection when possible. The statement returned must be given back
+	 * with
+	 * {@link #release(Connection, SQLStatement, PreparedStatement, boolean)}.
+	 * 
+	 * @param con
+	 *            the connection checked out from the pool.
+	 * @param statement
+	 *            the statement to be prepared.
+	 * @param params
+	 *            the parameters to be set. Null if no parameters.
+	 * @return a prepared statement ready to be run.
+	 * @throws IllegalArgumentException
+	 *             if some of the <code>params</code> are not compatible with
+	 *             the statement.
+	 */
+	public PreparedStatement prepare(Connection con, SQLStatement statement,
+			Object[] params) throws SQLException {
+		final Connection physical = physicalConnection(con);
+		if (physical == null) {
+			this.bypassed.incrementAndGet();
+			return statement.prepareStatement(con, params);
+		}
+
+		final String query = statement.getStatementText();
+		final StatementLRU lru = this.statementsOf(physical);
+		PreparedStatement ps;
+		synchronized (lru) {
+			ps = (PreparedStatement) lru.remove(query);
+		}
+		if (ps == null) {
+			this.misses.incrementAndGet();
+			ps = physical.prepareStatement(query);
+		} else {
+			this.hits.incrementAndGet();
+		}
+		try {
+			statement.setParameters(ps, params);
+		} catch (RuntimeException e) {
+			close(ps);
+			throw e;
+		} catch (SQLException e) {
+			close(ps);
+			throw e;
+		}
+		return ps;
+	}
+
+	/**
+	 * Gives back a statement returned by
+	 * {@link #prepare(Connection, SQLStatement, Object[])}. It must be called
+	 * before the connection is closed.
+	 * 
+	 * @param con
+	 *            the same connection used to prepare the statement.
+	 * @param statement
+	 *            the same statement given to <code>prepare()</code>.
+	 * @param ps
+	 *            the statement to be released. May be null.
+	 * @param reusable
+	 *            false if the statement failed and should be closed instead of
+	 *            being cached.
+	 */
+	public void release(Connection con, SQLStatement statement,
+			PreparedStatement ps, boolean reusable) throws SQLException {
+		if (ps == null) {
+			return;
+		}
+		final Connection physical = physicalConnection(con);
+		if (physical == null || !reusable) {
+			ps.close();
+			return;
+		}
+		try {
+			ps.clearParameters();
+		} catch (SQLException e) {
+			close(ps);
+			throw e;
+		}
+		final String query = statement.getStatementText();
+		final StatementLRU lru = this.statementsOf(physical);
+		final PreparedStatement previous;
+		synchronized (lru) {
+			previous = (PreparedStatement) lru.put(query, ps);
+		}
+		if (previous != null && previous != ps) {
+			close(previous);
+		}
+	}
+
+	/**
+	 * Tells whether the statements prepared on <code>con</code> can be
+	 * cached, that is, whether it is a DBCP connection whose physical
+	 * connection is accessible. The connections of a pool are either all
+	 * cacheable or none is, so checking one of them is enough.
+	 * 
+	 * @param con
+	 *            a connection checked out from the pool.
+	 * @return true if the statements of <code>con</code> can be cached.
+	 */
+	public boolean isCacheable(Connection con) throws SQLException {
+		return physicalConnection(con) != null;
+	}
+
+	/**
+	 * Closes all cached statements.
+	 */
+	public void clear() {
+		final StatementLRU[] all;
+		synchronized (this.connections) {
+			all = (StatementLRU[]) this.connections.values().toArray(
+					new StatementLRU[this.connections.size()]);
+			this.connections.clear();
+		}
+		for (int i = 0; i < all.length; i++) {
+			all[i].closeAll();
+		}
+	}
+
+	/**
+	 * @return the maximum number of statements kept for each connection.
+	 */
+	public int getMaxStatements() {
+		return this.maxStatements;
+	}
+
+	/**
+	 * @return the number of statements currently cached, for all connections.
+	 */
+	public int getCachedStatements() {
+		int count = 0;
+		synchronized (this.connections) {
+			for (Iterator it = this.connections.values().iterator(); it
+					.hasNext();) {
+				StatementLRU lru = (StatementLRU) it.next();
+				synchronized (lru) {
+					count += lru.size();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of statements reused from the cache.
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of statements that had to be prepared.
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of statements prepared and closed without the cache,
+	 *         because their connection is not cacheable.
+	 * @see #isCacheable(Connection)
+	 */
+	public long getBypassed() {
+		return this.bypassed.get();
+	}
+
+	/**
+	 * @return the number of statements closed to make room for others.
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * @return the fraction of the statements that were reused from the cache,
+	 *         or 0 if no statement was prepared through it yet. Bypassed
+	 *         statements are not counted.
+	 */
+	public double getHitRatio() {
+		final long h = this.hits.get();
+		final long total = h + this.misses.get();
+		return (total == 0 ? 0 : (double) h / total);
+	}
+
+	public String toString() {
+		return "PreparedStatementCache[hits=" + this.getHits() + ", misses="
+				+ this.getMisses() + ", evictions=" + this.getEvictions()
+				+ ", bypassed=" + this.getBypassed() + ", cached=" + this.getCachedStatements() + "]";
+	}
+
+	/**
+	 * Returns the physical connection behind a pooled one, or null if it is
+	 * not a DBCP connection or DBCP does not allow access to it.
+	 */
+	protected Connection physicalConnection(Connection con)
+			throws SQLException {
+		if (!(con instanceof DelegatingConnection)) {
+			return null;
+		}
+		final Connection physical = ((DelegatingConnection) con)
+				.getInnermostDelegate();
+		if (physical == null && !this.warned) {
+			this.warned = true;
+			log.warn("The pool does not allow access to its underlying "
+					+ "connections: prepared statements will not be cached.");
+		}
+		return (physical == null || physical.isClosed() ? null : physical);
+	}
+
+	private StatementLRU statementsOf(Connection physical) throws SQLException {
+		StatementLRU lru;
+		StatementLRU[] closed = null;
+		synchronized (this.connections) {
+			lru = (StatementLRU) this.connections.get(physical);
+			if (lru == null) {
+				// a new physical connection: the pool may have discarded
+				// others since the last one was seen
+				closed = this.removeClosed();
+				lru = new StatementLRU();
+				this.connections.put(physical, lru);
+			}
+		}
+		if (closed != null) {
+			for (int i = 0; i < closed.length; i++) {
+				closed[i].closeAll();
+			}
+		}
+		return lru;
+	}
+
+	private StatementLRU[] removeClosed() {
+		final StatementLRU[] closed = new StatementLRU[this.connections.size()];
+		int count = 0;
+		for (Iterator it = this.connections.entrySet().iterator(); it
+				.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			boolean isClosed;
+			try {
+				isClosed = ((Connection) entry.getKey()).isClosed();
+			} catch (SQLException e) {
+				isClosed = true;
+			}
+			if (isClosed) {
+				closed[count++] = (StatementLRU) entry.getValue();
+				it.remove();
+			}
+		}
+		final StatementLRU[] result = new StatementLRU[count];
+		System.arraycopy(closed, 0, result, 0, count);
+		return result;
+	}
+
+	private static void close(PreparedStatement ps) {
+		try {
+			ps.close();
+		} catch (SQLException e) {
+			log.debug("Could not close a cached statement", e);
+		}
+	}
+
+	/**
+	 * The statements of one physical connection, in access order.
+	 */
+	private final class StatementLRU extends LinkedHashMap {
+
+		private static final long serialVersionUID = 1L;
+
+		StatementLRU() {
+			super(16, 0.75f, true);
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			if (this.size() <= maxStatements) {
+				return false;
+			}
+			evictions.incrementAndGet();
+			close((PreparedStatement) eldest.getValue());
+			return true;
+		}
+
+		synchronized void closeAll() {
+			for (Iterator it = this.values().iterator(); it.hasNext();) {
+				close((PreparedStatement) it.next());
+			}
+			this.clear();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import br.com.auster.common.xml.DOMUtils;
+import br.com.auster.common.xml.TypedRowReader;
+
+/**
+ * An immutable copy of the records of a result set, as the text values
+ * <code>DOMUtils</code> puts in the record attributes. It can be turned
+ * into the same nodes or SAX events as
+ * {@link DOMUtils#resultSet2NodeSet(ResultSet, Node)} and
+ * {@link DOMUtils#resultSet2ContentHandler(ResultSet, ContentHandler, Attributes)}
+ * any number of times, by any number of threads.
+ * 
+ * @version $Id$
+ */
+public final class RecordSet {
+
+	private final String[] columnNames;
+	// the text of each column of each row, null if absent
+	private final String[][] values;
+
+	private RecordSet(String[] columnNames, String[][] values) {
+		this.columnNames = columnNames;
+		this.values = values;
+	}
+
+	/**
+	 * Reads all the rows of a result set.
+	 * 
+	 * @param rs
+	 *            the result set.
+	 * @return a record set with the rows read.
+	 */
+	public static RecordSet read(ResultSet rs) throws SQLException {
+		final TypedRowReader reader = new TypedRowReader(rs);
+		final int columnCount = reader.getColumnCount();
+		final String[] names = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			names[i] = reader.getColumnName(i);
+		}
+		final List rows = new ArrayList();
+		while (reader.next()) {
+			String[] row = new String[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				if (names[i] != null && !reader.isNull(i)) {
+					row[i] = reader.getText(i);
+				}
+			}
+			rows.add(row);
+		}
+		return new RecordSet(names, (String[][]) rows
+				.toArray(new String[rows.size()][]));
+	}
+
+	/**
+	 * @return the number of records.
+	 */
+	public int getRowCount() {
+		return this.values.length;
+	}
+
+	/**
+	 * Appends the records to <code>root</code>.
+	 * 
+	 * @param root
+	 *            the root of the node set. If <code>null</code>, a new one
+	 *            will be created.
+	 * @return the same <code>root</code> if it is not <code>null</code>.
+	 *         Otherwise a new one.
+	 * @see DOMUtils#resultSet2NodeSet(ResultSet, Node)
+	 */
+	public Node toNodeSet(Node root) throws ParserConfigurationException {
+		final Document document;
+		if (root == null) {
+			document = DocumentBuilderFactory.newInstance()
+					.newDocumentBuilder().newDocument();
+			root = document.createElement(DOMUtils.RESULT_TAG);
+		} else {
+			document = root.getOwnerDocument();
+		}
+		for (int r = 0; r < this.values.length; r++) {
+			final String[] row = this.values[r];
+			final Element element = document
+					.createElement(DOMUtils.RECORD_TAG);
+			root.appendChild(element);
+			for (int i = 0; i < row.length; i++) {
+				if (row[i] != null) {
+					element.setAttribute(this.columnNames[i], row[i]);
+				}
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Sends the records as SAX events.
+	 * 
+	 * @param handler
+	 *            the content handler that will receive the events.
+	 * @param rootAtts
+	 *            the root element attributes. If null, no attributes will be
+	 *            set.
+	 * @see DOMUtils#resultSet2ContentHandler(ResultSet, ContentHandler,
+	 *      Attributes)
+	 */
+	public void toContentHandler(ContentHandler handler, Attributes rootAtts)
+			throws SAXException {
+		final AttributesImpl atts = new AttributesImpl();
+		handler.startElement("", DOMUtils.RESULT_TAG, DOMUtils.RESULT_TAG,
+				(rootAtts == null) ? atts : rootAtts);
+		for (int r = 0; r < this.values.length; r++) {
+			final String[] row = this.values[r];
+			for (int i = 0; i < row.length; i++) {
+				if (row[i] != null) {
+					atts.addAttribute("", this.columnNames[i],
+							this.columnNames[i], "CDATA", row[i]);
+				}
+			}
+			handler.startElement("", DOMUtils.RECORD_TAG, DOMUtils.RECORD_TAG,
+					atts);
+			handler.endElement("", DOMUtils.RECORD_TAG, DOMUtils.RECORD_TAG);
+			atts.clear();
+		}
+		handler.endElement("", DOMUtils.RESULT_TAG, DOMUtils.RESULT_TAG);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of a query one at a time, as they are read from the
+ * database, so results of any size can be processed in constant memory.
+ * 
+ * @see SQLConnectionManager#queryRows(String, Object[], RowHandler)
+ * @version $Id$
+ */
+public interface RowHandler {
+
+	/**
+	 * Called once, before the first row, with the names of the columns
+	 * returned by the query.
+	 * 
+	 * @param columnNames
+	 *            the column labels, in the order they appear in each row.
+	 */
+	public void startRows(String[] columnNames) throws SQLException;
+
+	/**
+	 * Called for each row of the result.
+	 * <p>
+	 * The same array is reused for all rows: its values are only valid until
+	 * this method returns, so they must be copied if they are to be kept.
+	 * 
+	 * @param row
+	 *            the values of the row, as returned by
+	 *            <code>ResultSet.getObject()</code>.
+	 * @return true to receive the next row, false to stop reading the result.
+	 */
+	public boolean handleRow(Object[] row) throws SQLException;
+}
@@ -10,9 +10,18 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.Context;
 import javax.naming.InitialContext;
@@ -52,6 +61,59 @@ public class SQLConnectionManager {
 	 */
 	public static final String CFG_RESOURCE_ATTR = "config-resource";
 
+	/**
+	 * {@value} - the maximum number of prepared statements cached for each
+	 * pooled connection. Zero, the default, disables the cache.
+	 * <p>
+	 * The preferred way to reuse prepared statements is the statement pool of
+	 * DBCP itself, configured by the <code>KeyedObjectPoolFactory</code>
+	 * argument of the <code>PoolableConnectionFactory</code> in the pool
+	 * configuration resource. This cache is only used with pools that allow
+	 * access to their underlying connections (see
+	 * <code>PoolingDriver.setAccessToUnderlyingConnectionAllowed()</code>),
+	 * which DBCP does not allow by default. For other pools the cache is
+	 * disabled when the configuration is loaded, with a warning, and the
+	 * statements are closed after each use, which gives them back to the DBCP
+	 * statement pool, if there is one.
+	 * 
+	 * @see PreparedStatementCache
+	 */
+	public static final String STMT_CACHE_SIZE_ATTR = "statement-cache-size";
+
+	/**
+	 * {@value} - the number of rows sent to the database at once by
+	 * {@link #executeBatch(String, Iterator)}.
+	 */
+	public static final String BATCH_SIZE_ATTR = "batch-size";
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * {@value} - the number of rows fetched from the database at once by the
+	 * <code>queryRows()</code> methods.
+	 */
+	public static final String FETCH_SIZE_ATTR = "fetch-size";
+
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/**
+	 * {@value} - the number of threads that run the asynchronous queries of a
+	 * pool. It should not be greater than the maximum number of active
+	 * connections of the pool.
+	 */
+	public static final String ASYNC_THREADS_ATTR = "async-threads";
+
+	/**
+	 * The default number of threads for asynchronous queries, the same as
+	 * DBCP's default maximum of active connections.
+	 */
+	public static final int DEFAULT_ASYNC_THREADS = 8;
+
+	// The kinds of results kept by the statement result caches
+	private static final String RECORDS = "records";
+	private static final String LIST = "list";
+	private static final String FIELD = "field:";
+
 	// The static attributes
 	protected static final Map managerByPool = new Hashtable();
 	protected static final Map globalStatements = new Hashtable();
@@ -62,6 +124,11 @@ public class SQLConnectionManager {
 	protected DataSource ds;
 	private final String poolName, url;
 	protected final Map statements;
+	protected PreparedStatementCache statementCache;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int fetchSize = DEFAULT_FETCH_SIZE;
+	private int asyncThreads;
+	private ThreadPoolExecutor asyncExecutor;
 
 	/**
 	 * This method is used to intialize Apache's DBCP SQL Connection Pool.
@@ -72,6 +139,15 @@ public class SQLConnectionManager {
 		Logger log = Logger.getLogger(SQLConnectionManager.class);
 		log.debug("Loading SQL Connection Manager configuration.");
 
+		// closes the statements cached by the previous configuration and
+		// stops its asynchronous query threads
+		for (Iterator it = managerByPool.values().iterator(); it.hasNext();) {
+			SQLConnectionManager manager = (SQLConnectionManager) it.next();
+			if (manager.statementCache != null) {
+				manager.statementCache.clear();
+			}
+			manager.shutdownAsync();
+		}
 		managerByPool.clear();
 		globalStatements.clear();
 
@@ -94,17 +170,53 @@ public class SQLConnectionManager {
 				url += name;
 			}
 
+			final int cacheSize = DOMUtils.getIntAttribute(dbElt,
+					STMT_CACHE_SIZE_ATTR, false);
 			final Map stmts = SQLStatement.parseStatements(dbElt);
 			SQLConnectionManager manager = new SQLConnectionManager(name, url,
-					stmts);
+					stmts, cacheSize);
 
-			// test the configuration
-			manager.getConnection().close();
+			final int batchSize = DOMUtils.getIntAttribute(dbElt,
+					BATCH_SIZE_ATTR, false);
+			if (batchSize > 0) {
+				manager.setBatchSize(batchSize);
+			}
+			if (dbElt.hasAttribute(FETCH_SIZE_ATTR)) {
+				manager.setFetchSize(DOMUtils.getIntAttribute(dbElt,
+						FETCH_SIZE_ATTR, true));
+			}
+			manager.asyncThreads = DOMUtils.getIntAttribute(dbElt,
+					ASYNC_THREADS_ATTR, false);
+
+			manager.testConfiguration();
 
 			managerByPool.put(name, manager);
 		}
 	}
 
+	/**
+	 * Tests the configuration by checking out a connection, and disables the
+	 * statement cache if the pool does not allow its statements to be cached.
+	 * 
+	 * @throws SQLException
+	 *             if a connection could not be checked out.
+	 * @see PreparedStatementCache#isCacheable(Connection)
+	 */
+	protected void testConfiguration() throws SQLException {
+		final Connection con = getConnection();
+		try {
+			if (this.statementCache != null
+					&& !this.statementCache.isCacheable(con)) {
+				log.warn("The pool " + this.poolName
+						+ " does not allow access to its underlying "
+						+ "connections: the statement cache is disabled.");
+				this.statementCache = null;
+			}
+		} finally {
+			con.close();
+		}
+	}
+
 	/**
 	 * Creates a <code>SQLConnectionManager</code> for a given pool name. This
 	 * name is the JNDI name that contains a DataSource for this pool.
@@ -114,9 +226,31 @@ public class SQLConnectionManager {
 	 */
 	protected SQLConnectionManager(String poolName, String url, Map statements)
 			throws NamingException {
+		this(poolName, url, statements, 0);
+	}
+
+	/**
+	 * Creates a <code>SQLConnectionManager</code> for a given pool name,
+	 * caching up to <code>statementCacheSize</code> prepared statements for
+	 * each connection of the pool.
+	 * 
+	 * @param poolName
+	 *            the JNDI name for the connection pool.
+	 * @param statementCacheSize
+	 *            the maximum number of statements cached per connection. Zero
+	 *            disables the cache.
+	 * @see PreparedStatementCache
+	 */
+	protected SQLConnectionManager(String poolName, String url,
+			Map statements, int statementCacheSize) throws NamingException {
 		this.poolName = poolName;
 		this.statements = statements;
 		this.url = url;
+		if (statementCacheSize > 0) {
+			this.statementCache = new PreparedStatementCache(statementCacheSize);
+		} else {
+			this.statementCache = null;
+		}
 		try {
 			// Try to use JNDI, for J2EE compatibility
 			Context ctx = new InitialContext();
@@ -203,16 +337,26 @@ public class SQLConnectionManager {
 	public final Node queryDOM(String statementName, Node root, Object[] args)
 			throws SQLException, ParserConfigurationException {
 		SQLStatement ss = this.getStatement(statementName);
+		if (ss.getResultCache() != null) {
+			return this.queryRecords(ss, args).toNodeSet(root);
+		}
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, args);
-			return DOMUtils.resultSet2NodeSet(stmt.executeQuery(), root);
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			final Node result = DOMUtils.resultSet2NodeSet(rs, root);
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
 		}
 	}
 
@@ -239,17 +383,26 @@ public class SQLConnectionManager {
 	public final void querySAX(String statementName, ContentHandler handler,
 			Attributes atts, Object[] args) throws SQLException, SAXException {
 		SQLStatement ss = this.getStatement(statementName);
+		if (ss.getResultCache() != null) {
+			this.queryRecords(ss, args).toContentHandler(handler, atts);
+			return;
+		}
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, args);
-			DOMUtils.resultSet2ContentHandler(stmt.executeQuery(), handler,
-					atts);
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			DOMUtils.resultSet2ContentHandler(rs, handler, atts);
+			done = true;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
 		}
 	}
 
@@ -262,26 +415,38 @@ public class SQLConnectionManager {
 	 *            are defined in the statements XML file).
 	 * @param args
 	 *            the arguments to be set in the prepared statement.
-	 * @return a list of lists, representing a matrix of the results.
+	 * @return a list of lists, representing a matrix of the results. If the
+	 *         statement results are cached, the lists can not be modified.
 	 * @throws SQLException
 	 *             if an error ocurred while talking to the SQL server.
 	 * @throws IllegalArgumentException
 	 *             if the statement does not exist, or some of the parameters
 	 *             are wrong.
+	 * @see SQLStatement#getResultCache()
 	 */
 	public final List queryList(String statementName, Object[] args)
 			throws SQLException {
 		SQLStatement ss = this.getStatement(statementName);
+		if (ss.getResultCache() != null) {
+			return this.queryCachedList(ss, args);
+		}
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, args);
-			return resultSet2List(stmt.executeQuery());
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			final List result = resultSet2List(rs);
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
 		}
 	}
 
@@ -295,26 +460,38 @@ public class SQLConnectionManager {
 	 *            the name of the field to be returned.
 	 * @param args
 	 *            the arguments to be set in the prepared statement.
-	 * @return the values for the field <code>fieldName</code>.
+	 * @return the values for the field <code>fieldName</code>. If the
+	 *         statement results are cached, the list can not be modified.
 	 * @throws SQLException
 	 *             if an error ocurred while talking to the SQL server.
 	 * @throws IllegalArgumentException
 	 *             if the statement does not exist, or some of the parameters
 	 *             are wrong.
+	 * @see SQLStatement#getResultCache()
 	 */
 	public final List queryField(String statementName, String fieldName,
 			Object[] args) throws SQLException {
 		SQLStatement ss = this.getStatement(statementName);
+		if (ss.getResultCache() != null) {
+			return this.queryCachedField(ss, fieldName, args);
+		}
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, args);
-			return resultSet2List(stmt.executeQuery(), fieldName);
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			final List result = resultSet2List(rs, fieldName);
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
 		}
 	}
 
@@ -328,26 +505,98 @@ public class SQLConnectionManager {
 	 *            the position of the column to be returned.
 	 * @param args
 	 *            the arguments to be set in the prepared statement.
-	 * @return the values for the i-th column.
+	 * @return the values for the i-th column. If the statement results are
+	 *         cached, the list can not be modified.
 	 * @throws SQLException
 	 *             if an error ocurred while talking to the SQL server.
 	 * @throws IllegalArgumentException
 	 *             if the statement does not exist, or some of the parameters
 	 *             are wrong.
+	 * @see SQLStatement#getResultCache()
 	 */
 	public final List queryField(String statementName, int i, Object[] args)
 			throws SQLException {
 		SQLStatement ss = this.getStatement(statementName);
+		if (ss.getResultCache() != null) {
+			return this.queryCachedField(ss, i, args);
+		}
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, args);
-			return resultSet2List(stmt.executeQuery(), i);
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			final List result = resultSet2List(rs, i);
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
+		}
+	}
+
+	/**
+	 * Runs the query named 'statementName', using the parameters passed as
+	 * <code>args</code>, and sends each row of the result to
+	 * <code>handler</code> as it is read.
+	 * <p>
+	 * Unlike the other query methods, the result is never held in memory: rows
+	 * are fetched {@link #getFetchSize()} at a time and the same array is
+	 * reused for all of them, so results of any size can be exported in
+	 * constant memory. The query runs with auto commit disabled, since some
+	 * drivers, like PostgreSQL's, only read the result through a cursor
+	 * inside a transaction.
+	 * 
+	 * @param statementName
+	 *            the name of the SQLStatement to be used for this query (they
+	 *            are defined in the statements XML file).
+	 * @param args
+	 *            the arguments to be set in the prepared statement.
+	 * @param handler
+	 *            the handler that will receive the rows.
+	 * @return the number of rows sent to the handler.
+	 * @throws SQLException
+	 *             if an error ocurred while talking to the SQL server, or
+	 *             thrown by the handler.
+	 * @throws IllegalArgumentException
+	 *             if the statement does not exist, or some of the parameters
+	 *             are wrong.
+	 */
+	public final int queryRows(String statementName, Object[] args,
+			RowHandler handler) throws SQLException {
+		SQLStatement ss = this.getStatement(statementName);
+		final Connection con = getConnection();
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
+		boolean autoCommit = true;
+		int previousFetchSize = 0;
+		try {
+			autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			stmt = this.prepareStatement(con, ss, args);
+			previousFetchSize = stmt.getFetchSize();
+			stmt.setFetchSize(this.fetchSize);
+			rs = stmt.executeQuery();
+			final int count = streamRows(rs, handler);
+			done = true;
+			return count;
+		} finally {
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done,
+						previousFetchSize);
+			} finally {
+				try {
+					endTransaction(con, done, autoCommit);
+				} finally {
+					con.close();
+				}
+			}
 		}
 	}
 
@@ -371,14 +620,23 @@ public class SQLConnectionManager {
 		SQLStatement ss = this.getStatement(statementName);
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, params);
-			return stmt.execute();
+			stmt = this.prepareStatement(con, ss, params);
+			final boolean result = stmt.execute();
+			if (result) {
+				rs = stmt.getResultSet();
+			}
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
-				stmt.close();
-			if (con != null)
-				con.close();
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
 		}
 	}
 
@@ -402,14 +660,400 @@ public class SQLConnectionManager {
 		SQLStatement ss = this.getStatement(statementName);
 		final Connection con = getConnection();
 		PreparedStatement stmt = null;
+		boolean done = false;
 		try {
-			stmt = ss.prepareStatement(con, params);
-			return stmt.executeUpdate();
+			stmt = this.prepareStatement(con, ss, params);
+			final int result = stmt.executeUpdate();
+			done = true;
+			return result;
 		} finally {
-			if (stmt != null)
+			try {
+				this.releaseStatement(con, ss, stmt, null, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
+		}
+	}
+
+	/**
+	 * Runs the statement named 'statementName' once for each row returned by
+	 * <code>rows</code>, sending them to the database in batches of
+	 * {@link #getBatchSize()} rows.
+	 * 
+	 * @see #executeBatch(String, Iterator, int)
+	 */
+	public final List executeBatch(String statementName, Iterator rows)
+			throws SQLException {
+		return this.executeBatch(statementName, rows, this.batchSize);
+	}
+
+	/**
+	 * Runs the statement named 'statementName' once for each row returned by
+	 * <code>rows</code>, sending them to the database in batches of
+	 * <code>batchSize</code> rows.
+	 * <p>
+	 * All rows are run on a single connection, with auto commit disabled.
+	 * Each batch is committed as soon as it is run, so if a batch fails only
+	 * its rows are rolled back; the batches run before it stay committed.
+	 * 
+	 * @param statementName
+	 *            the statement name defined in the XML configuration.
+	 * @param rows
+	 *            an iterator over <code>Object[]</code>, each one holding the
+	 *            parameters of one row, in the same order of the statement
+	 *            parameters.
+	 * @param batchSize
+	 *            the maximum number of rows sent to the database at once.
+	 * @return a list with the <code>int[]</code> update counts returned by
+	 *         each batch, in the order they were run.
+	 * @throws BatchExecutionException
+	 *             if a batch failed after others were committed. It holds
+	 *             the update counts and the number of rows of the committed
+	 *             batches; the failed batch was rolled back.
+	 * @throws SQLException
+	 *             if an error ocurred while talking to the SQL server before
+	 *             any batch was committed. The batch being run was rolled
+	 *             back.
+	 * @throws IllegalArgumentException
+	 *             if the statement does not exist, some of the parameters are
+	 *             wrong or <code>batchSize</code> is not positive.
+	 */
+	public final List executeBatch(String statementName, Iterator rows,
+			int batchSize) throws SQLException {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Invalid batch size: "
+					+ batchSize);
+		}
+		SQLStatement ss = this.getStatement(statementName);
+		final List counts = new ArrayList();
+		if (!rows.hasNext()) {
+			return counts;
+		}
+
+		final Connection con = getConnection();
+		PreparedStatement stmt = null;
+		boolean done = false;
+		boolean autoCommit = true;
+		int committed = 0;
+		try {
+			autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			stmt = this.prepareStatement(con, ss, (Object[]) rows.next());
+			stmt.addBatch();
+			int pending = 1;
+			while (true) {
+				if (pending == batchSize || !rows.hasNext()) {
+					int[] batch = stmt.executeBatch();
+					con.commit();
+					counts.add(batch);
+					committed += pending;
+					pending = 0;
+					if (!rows.hasNext()) {
+						break;
+					}
+				}
+				ss.addBatch(stmt, (Object[]) rows.next());
+				pending++;
+			}
+			done = true;
+			return counts;
+		} catch (SQLException e) {
+			if (counts.isEmpty()) {
+				throw e;
+			}
+			// the batches already committed stay in the database
+			throw new BatchExecutionException(counts, committed, e);
+		} finally {
+			try {
+				if (!done) {
+					rollback(con);
+				}
+				this.releaseStatement(con, ss, stmt, null, done);
+			} finally {
+				try {
+					con.setAutoCommit(autoCommit);
+				} finally {
+					con.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows sent to the database at once by
+	 *         {@link #executeBatch(String, Iterator)}.
+	 */
+	public final int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * @param batchSize
+	 *            the number of rows sent to the database at once by
+	 *            {@link #executeBatch(String, Iterator)}.
+	 */
+	public final void setBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Invalid batch size: "
+					+ batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return the number of rows fetched from the database at once by the
+	 *         <code>queryRows()</code> methods.
+	 */
+	public final int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * @param fetchSize
+	 *            the number of rows fetched from the database at once by the
+	 *            <code>queryRows()</code> methods. Zero leaves it to the
+	 *            driver. The value is given to the driver as is, so special
+	 *            values like MySQL's <code>Integer.MIN_VALUE</code>, which
+	 *            makes it stream the rows, can also be used.
+	 */
+	public final void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+	/**
+	 * Drops the results kept for the statement named 'statementName', if its
+	 * results are cached.
+	 * 
+	 * @param statementName
+	 *            the statement name defined in the XML configuration.
+	 * @throws IllegalArgumentException
+	 *             if the statement does not exist.
+	 * @see SQLStatement#getResultCache()
+	 */
+	public final void invalidateResults(String statementName) {
+		final StatementResultCache cache = this.getStatement(statementName)
+				.getResultCache();
+		if (cache != null) {
+			cache.invalidate();
+		}
+	}
+
+	/**
+	 * Returns the records of a statement with cached results, running it only
+	 * if they are not in the cache.
+	 */
+	private RecordSet queryRecords(SQLStatement ss, Object[] args)
+			throws SQLException {
+		final StatementResultCache cache = ss.getResultCache();
+		RecordSet records = (RecordSet) cache.get(this.poolName, RECORDS, args);
+		if (records != null) {
+			return records;
+		}
+		final long generation = cache.getGeneration();
+		final Connection con = getConnection();
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
+		try {
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			records = RecordSet.read(rs);
+			done = true;
+		} finally {
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
+		}
+		cache.put(this.poolName, RECORDS, args, records, generation);
+		return records;
+	}
+
+	/**
+	 * Returns the rows of a statement with cached results as unmodifiable
+	 * lists, running it only if they are not in the cache.
+	 */
+	private List queryCachedList(SQLStatement ss, Object[] args)
+			throws SQLException {
+		final StatementResultCache cache = ss.getResultCache();
+		List rows = (List) cache.get(this.poolName, LIST, args);
+		if (rows != null) {
+			return rows;
+		}
+		final long generation = cache.getGeneration();
+		final Connection con = getConnection();
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
+		try {
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			rows = resultSet2List(rs);
+			done = true;
+		} finally {
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
+		}
+		for (ListIterator it = rows.listIterator(); it.hasNext();) {
+			it.set(Collections.unmodifiableList((List) it.next()));
+		}
+		rows = Collections.unmodifiableList(rows);
+		cache.put(this.poolName, LIST, args, rows, generation);
+		return rows;
+	}
+
+	/**
+	 * Returns the values of the field 'fieldName' of a statement with cached
+	 * results as an unmodifiable list, running it only if they are not in the
+	 * cache.
+	 */
+	private List queryCachedField(SQLStatement ss, String fieldName,
+			Object[] args) throws SQLException {
+		final StatementResultCache cache = ss.getResultCache();
+		final String kind = FIELD + fieldName;
+		List values = (List) cache.get(this.poolName, kind, args);
+		if (values != null) {
+			return values;
+		}
+		final long generation = cache.getGeneration();
+		final Connection con = getConnection();
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean done = false;
+		try {
+			stmt = this.prepareStatement(con, ss, args);
+			rs = stmt.executeQuery();
+			values = resultSet2List(rs, fieldName);
+			done = true;
+		} finally {
+			try {
+				this.releaseStatement(con, ss, stmt, rs, done);
+			} finally {
+				if (con != null)
+					con.close();
+			}
+		}
+		values = Collections.unmodifiableList(values);
+		cache.put(this.poolName, kind, args, values, generation);
+		return values;
+	}
+
+	/**
+	 * Returns the values of the i-th column of the rows kept by
+	 * {@link #queryCachedList(SQLStatement, Object[])}.
+	 */
+	private List queryCachedField(SQLStatement ss, int i, Object[] args)
+			throws SQLException {
+		final List rows = this.queryCachedList(ss, args);
+		final List values = new ArrayList(rows.size());
+		for (Iterator it = rows.iterator(); it.hasNext();) {
+			List row = (List) it.next();
+			if (i < 1 || i > row.size()) {
+				throw new SQLException("Invalid column index: " + i);
+			}
+			values.add(row.get(i - 1));
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * Returns the prepared statement cache used by the methods that run named
+	 * statements, with its hit ratio and other counters.
+	 * 
+	 * @return the statement cache, or null if it is disabled for this pool,
+	 *         either by its configuration or because the pool does not allow
+	 *         its statements to be cached.
+	 */
+	public final PreparedStatementCache getStatementCache() {
+		return this.statementCache;
+	}
+
+	/**
+	 * Prepares the statement <code>ss</code>, through the statement cache if
+	 * it is enabled. It must be given back with
+	 * {@link #releaseStatement(Connection, SQLStatement, PreparedStatement, ResultSet, boolean)}.
+	 */
+	private PreparedStatement prepareStatement(Connection con,
+			SQLStatement ss, Object[] args) throws SQLException {
+		return this.statementCache != null ? this.statementCache.prepare(con,
+				ss, args) : ss.prepareStatement(con, args);
+	}
+
+	/**
+	 * Ends the transaction opened to read a result with a cursor, and gives
+	 * back the auto commit mode the connection had before.
+	 */
+	private void endTransaction(Connection con, boolean commit,
+			boolean autoCommit) throws SQLException {
+		try {
+			if (commit) {
+				con.commit();
+			} else {
+				rollback(con);
+			}
+		} finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Rolls back the current transaction of <code>con</code>, only logging
+	 * the errors so they do not hide the one that caused the rollback.
+	 */
+	private void rollback(Connection con) {
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			log.error("Could not roll back the transaction", e);
+		}
+	}
+
+	/**
+	 * Closes the result set and gives the statement back to the cache, or
+	 * closes it if the cache is disabled or the statement failed.
+	 */
+	private void releaseStatement(Connection con, SQLStatement ss,
+			PreparedStatement stmt, ResultSet rs, boolean reusable)
+			throws SQLException {
+		try {
+			if (rs != null)
+				rs.close();
+		} finally {
+			if (this.statementCache != null)
+				this.statementCache.release(con, ss, stmt, reusable);
+			else if (stmt != null)
 				stmt.close();
-			if (con != null)
-				con.close();
+		}
+	}
+
+	/**
+	 * Same as
+	 * {@link #releaseStatement(Connection, SQLStatement, PreparedStatement, ResultSet, boolean)},
+	 * but gives the statement back to the cache with the fetch size it had
+	 * before, so the next queries that use it do not inherit the one set for
+	 * this query (like MySQL's streaming mode). If it cannot be restored the
+	 * statement is closed instead.
+	 */
+	private void releaseStatement(Connection con, SQLStatement ss,
+			PreparedStatement stmt, ResultSet rs, boolean reusable,
+			int fetchSize) throws SQLException {
+		boolean restored = false;
+		try {
+			if (rs != null)
+				rs.close();
+			if (reusable && this.statementCache != null) {
+				stmt.setFetchSize(fetchSize);
+				restored = true;
+			}
+		} finally {
+			this.releaseStatement(con, ss, stmt, null, restored);
 		}
 	}
 
@@ -435,6 +1079,195 @@ public class SQLConnectionManager {
 		return statement;
 	}
 
+	/** ******************************************************** */
+	/* METHODS TO RUN PRE-DEFINED STATEMENTS ASYNCHRONOUSLY */
+	/** ******************************************************** */
+
+	/**
+	 * Runs <code>task</code> in one of the threads reserved for the
+	 * asynchronous queries of this pool.
+	 * <p>
+	 * At most {@link #getAsyncThreads()} tasks run at the same time; the
+	 * others wait in a queue. The threads are daemons, created the first time
+	 * a task is submitted.
+	 * 
+	 * @param task
+	 *            the task to be run.
+	 * @return a future with the value returned by the task.
+	 */
+	public final Future submit(Callable task) {
+		return this.getAsyncExecutor().submit(task);
+	}
+
+	/**
+	 * Runs {@link #queryList(String, Object[])} asynchronously.
+	 * 
+	 * @return a future with the list of lists returned by the query.
+	 * @see #submit(Callable)
+	 * @see #getAll(List)
+	 */
+	public final Future queryListAsync(final String statementName,
+			final Object[] args) {
+		// fails fast if the statement does not exist
+		this.getStatement(statementName);
+		return this.submit(new Callable() {
+			public Object call() throws Exception {
+				return queryList(statementName, args);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #queryDOM(String, Node, Object[])} asynchronously, creating
+	 * a new root node for the result.
+	 * 
+	 * @return a future with the root node of the result.
+	 * @see #submit(Callable)
+	 * @see #getAll(List)
+	 */
+	public final Future queryDOMAsync(final String statementName,
+			final Object[] args) {
+		this.getStatement(statementName);
+		return this.submit(new Callable() {
+			public Object call() throws Exception {
+				return queryDOM(statementName, null, args);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #executeUpdate(String, Object[])} asynchronously.
+	 * 
+	 * @return a future with the number of rows affected, as an
+	 *         <code>Integer</code>.
+	 * @see #submit(Callable)
+	 * @see #getAll(List)
+	 */
+	public final Future executeUpdateAsync(final String statementName,
+			final Object[] params) {
+		this.getStatement(statementName);
+		return this.submit(new Callable() {
+			public Object call() throws Exception {
+				return new Integer(executeUpdate(statementName, params));
+			}
+		});
+	}
+
+	/**
+	 * Runs several queries at the same time and waits for all of them.
+	 * 
+	 * @param statementNames
+	 *            the names of the statements to be run.
+	 * @param args
+	 *            the arguments of each statement, in the same order. May be
+	 *            null if no statement has arguments.
+	 * @return a list with the results of
+	 *         {@link #queryList(String, Object[])} for each statement, in the
+	 *         same order of <code>statementNames</code>.
+	 * @throws SQLException
+	 *             the first error thrown by the queries, after all of them
+	 *             finished.
+	 * @throws IllegalArgumentException
+	 *             if some statement does not exist, or some of the parameters
+	 *             are wrong.
+	 */
+	public final List queryListAll(String[] statementNames, Object[][] args)
+			throws SQLException {
+		final List futures = new ArrayList(statementNames.length);
+		for (int i = 0; i < statementNames.length; i++) {
+			futures.add(this.queryListAsync(statementNames[i],
+					args == null ? null : args[i]));
+		}
+		return getAll(futures);
+	}
+
+	/**
+	 * Waits for all the futures of the list and returns their values.
+	 * 
+	 * @param futures
+	 *            a list of <code>Future</code>, as returned by the
+	 *            asynchronous methods.
+	 * @return a list with the value of each future, in the same order.
+	 * @throws SQLException
+	 *             the first error thrown by the tasks, after all of them
+	 *             finished. Errors that are not <code>SQLException</code> or
+	 *             <code>RuntimeException</code> are wrapped in one.
+	 */
+	public static final List getAll(List futures) throws SQLException {
+		final List results = new ArrayList(futures.size());
+		Throwable error = null;
+		for (Iterator it = futures.iterator(); it.hasNext();) {
+			Future future = (Future) it.next();
+			try {
+				results.add(future.get());
+			} catch (ExecutionException e) {
+				results.add(null);
+				if (error == null) {
+					error = e.getCause();
+				}
+			} catch (InterruptedException e) {
+				// stops waiting, cancelling whatever did not start yet
+				for (Iterator pending = futures.iterator(); pending.hasNext();) {
+					((Future) pending.next()).cancel(false);
+				}
+				Thread.currentThread().interrupt();
+				SQLException sqle = new SQLException(
+						"Interrupted while waiting for the queries");
+				sqle.initCause(e);
+				throw sqle;
+			}
+		}
+		if (error instanceof SQLException) {
+			throw (SQLException) error;
+		} else if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		} else if (error != null) {
+			SQLException sqle = new SQLException(error.toString());
+			sqle.initCause(error);
+			throw sqle;
+		}
+		return results;
+	}
+
+	/**
+	 * Stops the threads of the asynchronous queries, after the tasks already
+	 * submitted finish. New tasks will start new threads.
+	 */
+	public final synchronized void shutdownAsync() {
+		if (this.asyncExecutor != null) {
+			this.asyncExecutor.shutdown();
+			this.asyncExecutor = null;
+		}
+	}
+
+	/**
+	 * @return the number of threads that run the asynchronous queries.
+	 */
+	public final int getAsyncThreads() {
+		return this.asyncThreads > 0 ? this.asyncThreads
+				: DEFAULT_ASYNC_THREADS;
+	}
+
+	private synchronized ThreadPoolExecutor getAsyncExecutor() {
+		if (this.asyncExecutor == null) {
+			final int threads = this.getAsyncThreads();
+			final String name = this.poolName;
+			this.asyncExecutor = new ThreadPoolExecutor(threads, threads, 0L,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue(),
+					new ThreadFactory() {
+						private int count = 0;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r, name + "-query-"
+									+ (++count));
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return this.asyncExecutor;
+	}
+
 	/** ********************************************************* */
 	/* METHODS TO GET SQL RESULTS FROM A GIVEN SQL STRING QUERY */
 	/** ********************************************************* */
@@ -585,6 +1418,49 @@ public class SQLConnectionManager {
 		}
 	}
 
+	/**
+	 * Runs the query and sends each row of the result to <code>handler</code>
+	 * as it is read, in constant memory.
+	 * 
+	 * @param query
+	 *            the query to be executed.
+	 * @param handler
+	 *            the handler that will receive the rows.
+	 * @return the number of rows sent to the handler.
+	 * @exception SQLException
+	 *                if an error ocurred while talking to the SQL server, or
+	 *                thrown by the handler.
+	 * @see #queryRows(String, Object[], RowHandler)
+	 */
+	public final int queryRows(String query, RowHandler handler)
+			throws SQLException {
+		final Connection con = getConnection();
+		Statement stmt = null;
+		boolean done = false;
+		boolean autoCommit = true;
+		try {
+			autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			stmt.setFetchSize(this.fetchSize);
+			final int count = streamRows(stmt.executeQuery(query), handler);
+			done = true;
+			return count;
+		} finally {
+			try {
+				if (stmt != null)
+					stmt.close();
+			} finally {
+				try {
+					endTransaction(con, done, autoCommit);
+				} finally {
+					con.close();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Executes a SQL command.
 	 * 
@@ -623,6 +1499,40 @@ public class SQLConnectionManager {
 		}
 	}
 
+	/**
+	 * Sends each row of the result set to the handler, reusing the same array
+	 * for all of them.
+	 * 
+	 * @param rs
+	 *            the result set.
+	 * @param handler
+	 *            the handler that will receive the rows.
+	 * @return the number of rows sent to the handler.
+	 */
+	public static final int streamRows(ResultSet rs, RowHandler handler)
+			throws SQLException {
+		final ResultSetMetaData metaData = rs.getMetaData();
+		final int columns = metaData.getColumnCount();
+		final String[] names = new String[columns];
+		for (int i = 0; i < columns; i++) {
+			names[i] = metaData.getColumnLabel(i + 1);
+		}
+		handler.startRows(names);
+
+		final Object[] row = new Object[columns];
+		int count = 0;
+		while (rs.next()) {
+			for (int i = 0; i < columns; i++) {
+				row[i] = rs.getObject(i + 1);
+			}
+			count++;
+			if (!handler.handleRow(row)) {
+				break;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Creates a list of results, where each result will be a list, containing
 	 * the result object for each column returned.
@@ -40,6 +40,10 @@ public class SQLStatement {
 	protected static final String INDEX_ATT = "index";
 	protected static final String TYPE_ATT = "type";
 	protected static final String FORMAT_ATT = "format";
+	// Optional result cache, for read-only statements
+	public static final String CACHE_TTL_ATT = "cache-ttl";
+	public static final String CACHE_MAX_ENTRIES_ATT = "cache-max-entries";
+	public static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
 
 	// Static attributes
 	protected static final Map statementsByFile = Collections
@@ -49,6 +53,7 @@ public class SQLStatement {
 	protected final String query, name;
 	protected TIntObjectHashMap params;
 	protected boolean generateFile;
+	protected StatementResultCache resultCache;
 
 	private final I18n i18n = I18n.getInstance(SQLStatement.class);
 	protected final Logger log = Logger.getLogger(this.getClass());
@@ -63,6 +68,14 @@ public class SQLStatement {
 				.getBooleanAttribute(element, "generateFile", false));
 
 		this.params = this.getStatementParams(element);
+
+		final int ttl = DOMUtils.getIntAttribute(element, CACHE_TTL_ATT, false);
+		if (ttl > 0) {
+			int maxEntries = DOMUtils.getIntAttribute(element,
+					CACHE_MAX_ENTRIES_ATT, false);
+			this.resultCache = new StatementResultCache(this.name, ttl,
+					maxEntries > 0 ? maxEntries : DEFAULT_CACHE_MAX_ENTRIES);
+		}
 	}
 
 	protected SQLStatement(String name, String query, TIntObjectHashMap params) {
@@ -176,7 +189,25 @@ public class SQLStatement {
 	public final PreparedStatement prepareStatement(Connection connection,
 			Object[] psParams) throws SQLException, IllegalArgumentException {
 		PreparedStatement ps = connection.prepareStatement(this.query);
+		this.setParameters(ps, psParams);
+		return ps;
+	}
 
+	/**
+	 * Sets the parameters of a statement previously prepared for this
+	 * statement's query, so it can be run again with other values.
+	 * 
+	 * @param ps
+	 *            a prepared statement created for this statement's query.
+	 * @param psParams
+	 *            the parameters to be used as the statement parameters. Null if
+	 *            no parameters.
+	 * @exception IllegalArgumentException
+	 *                if some of the <code>params</code> are not compatible
+	 *                with this statement.
+	 */
+	public final void setParameters(PreparedStatement ps, Object[] psParams)
+			throws SQLException, IllegalArgumentException {
 		// checks if the parameters are enough for this statement
 		if ((psParams == null && this.params.size() > 0)
 				|| (psParams != null && (psParams.length != this.params.size()))) {
@@ -191,7 +222,26 @@ public class SQLStatement {
 						.setParam(ps, i, psParams[i - 1]);
 			}
 		}
-		return ps;
+	}
+
+	/**
+	 * Sets the parameters of a statement previously prepared for this
+	 * statement's query and adds them to its batch of commands.
+	 * 
+	 * @param ps
+	 *            a prepared statement created for this statement's query.
+	 * @param psParams
+	 *            the parameters of the row to be added. Null if no
+	 *            parameters.
+	 * @exception IllegalArgumentException
+	 *                if some of the <code>params</code> are not compatible
+	 *                with this statement.
+	 * @see PreparedStatement#addBatch()
+	 */
+	public final void addBatch(PreparedStatement ps, Object[] psParams)
+			throws SQLException, IllegalArgumentException {
+		this.setParameters(ps, psParams);
+		ps.addBatch();
 	}
 
 	/**
@@ -407,6 +457,27 @@ public class SQLStatement {
 		return generateFile;
 	}
 
+	/**
+	 * Returns the cache of the results of this statement, configured with the
+	 * {@value #CACHE_TTL_ATT} attribute.
+	 * 
+	 * @return the result cache, or null if the results are not cached.
+	 */
+	public StatementResultCache getResultCache() {
+		return this.resultCache;
+	}
+
+	/**
+	 * Sets the cache of the results of this statement. It must only be used
+	 * for read-only statements.
+	 * 
+	 * @param resultCache
+	 *            the result cache, or null to not cache the results.
+	 */
+	public void setResultCache(StatementResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
 	/**
 	 * Set a value of <code>generateFile</code>.
 	 * 
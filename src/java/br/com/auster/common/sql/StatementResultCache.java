@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the results of a read-only statement in memory for some time, so
+ * the same query, with the same arguments, is not run again while the
+ * result is fresh.
+ * <p>
+ * It is enabled per statement, in the statements XML, with the
+ * {@value SQLStatement#CACHE_TTL_ATT} attribute, in seconds, and optionally
+ * {@value SQLStatement#CACHE_MAX_ENTRIES_ATT}:
+ * 
+ * <pre>
+ *   &lt;sql:statement name=&quot;states&quot; cache-ttl=&quot;3600&quot; cache-max-entries=&quot;50&quot;&gt;
+ * </pre>
+ * 
+ * Results are cached by pool, kind of result and arguments. When the cache is
+ * full, the least recently used result is dropped. The values kept must be
+ * immutable, since they are shared by all callers. The arguments are kept in
+ * the keys: dates are copied, but other arguments must not be changed after
+ * they are given to the cache.
+ * <p>
+ * A query that was running while the cache was invalidated may have read the
+ * data before it changed, so its result must not be kept. Callers take the
+ * {@link #getGeneration() generation} of the cache before running the query
+ * and give it back to {@link #put(String, String, Object[], Object, long)},
+ * which drops results from before the last invalidation.
+ * 
+ * @version $Id$
+ */
+public class StatementResultCache {
+
+	private final String statementName;
+	private final long ttl;
+	private final int maxEntries;
+	private final Map entries;
+	// incremented by each invalidation, guarded by the entries
+	private long generation;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache for the statement <code>statementName</code>.
+	 * 
+	 * @param statementName
+	 *            the name of the statement, only used in messages.
+	 * @param ttlSeconds
+	 *            how long a result is kept, in seconds.
+	 * @param maxEntries
+	 *            the maximum number of results kept.
+	 * @throws IllegalArgumentException
+	 *             if <code>ttlSeconds</code> or <code>maxEntries</code> are
+	 *             not positive.
+	 */
+	public StatementResultCache(String statementName, long ttlSeconds,
+			final int maxEntries) {
+		if (ttlSeconds <= 0 || maxEntries <= 0) {
+			throw new IllegalArgumentException(
+					"Invalid result cache configuration for statement "
+							+ statementName + ": ttl=" + ttlSeconds
+							+ ", max entries=" + maxEntries);
+		}
+		this.statementName = statementName;
+		this.ttl = ttlSeconds * 1000;
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				if (this.size() <= maxEntries) {
+					return false;
+				}
+				evictions.incrementAndGet();
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the result kept for the given key, or null if there is none or
+	 * it expired.
+	 * 
+	 * @param pool
+	 *            the name of the pool the statement runs on.
+	 * @param kind
+	 *            the kind of result, since the same statement may be kept
+	 *            both as a list and as records.
+	 * @param args
+	 *            the arguments of the statement. May be null.
+	 */
+	public Object get(String pool, String kind, Object[] args) {
+		final Key key = new Key(pool, kind, args);
+		final long now = this.currentTimeMillis();
+		synchronized (this.entries) {
+			Entry entry = (Entry) this.entries.get(key);
+			if (entry != null) {
+				if (entry.expires > now) {
+					this.hits.incrementAndGet();
+					return entry.value;
+				}
+				this.entries.remove(key);
+			}
+		}
+		this.misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Returns the current generation of the cache, which must be taken before
+	 * running the query whose result will be kept.
+	 * 
+	 * @see #put(String, String, Object[], Object, long)
+	 */
+	public long getGeneration() {
+		synchronized (this.entries) {
+			return this.generation;
+		}
+	}
+
+	/**
+	 * Keeps a result for the given key, unless the cache was invalidated
+	 * since <code>generation</code> was taken.
+	 * 
+	 * @param generation
+	 *            the generation of the cache taken before the query was run.
+	 * @return true if the result was kept.
+	 * @see #get(String, String, Object[])
+	 * @see #getGeneration()
+	 */
+	public boolean put(String pool, String kind, Object[] args, Object value,
+			long generation) {
+		final Key key = new Key(pool, kind, args);
+		final Entry entry = new Entry(value, this.currentTimeMillis()
+				+ this.ttl);
+		synchronized (this.entries) {
+			if (generation != this.generation) {
+				return false;
+			}
+			this.entries.put(key, entry);
+			return true;
+		}
+	}
+
+	/**
+	 * Drops all the results kept, and those of the queries still running.
+	 */
+	public void invalidate() {
+		synchronized (this.entries) {
+			this.generation++;
+			this.entries.clear();
+		}
+	}
+
+	/**
+	 * @return the name of the statement this cache belongs to.
+	 */
+	public String getStatementName() {
+		return this.statementName;
+	}
+
+	/**
+	 * @return how long a result is kept, in seconds.
+	 */
+	public long getTtl() {
+		return this.ttl / 1000;
+	}
+
+	/**
+	 * @return the maximum number of results kept.
+	 */
+	public int getMaxEntries() {
+		return this.maxEntries;
+	}
+
+	/**
+	 * @return the number of results kept, including expired ones not yet
+	 *         dropped.
+	 */
+	public int getSize() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * @return the number of queries answered from the cache.
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of queries that had to be run.
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return the number of results dropped to make room for others.
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * @return the fraction of the queries answered from the cache, or 0 if
+	 *         no query was run yet.
+	 */
+	public double getHitRatio() {
+		final long h = this.hits.get();
+		final long total = h + this.misses.get();
+		return (total == 0 ? 0 : (double) h / total);
+	}
+
+	/**
+	 * Returns the current time, in milliseconds, used to expire the results.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	public String toString() {
+		return "StatementResultCache[" + this.statementName + ", hits="
+				+ this.getHits() + ", misses=" + this.getMisses()
+				+ ", evictions=" + this.getEvictions() + ", size="
+				+ this.getSize() + "]";
+	}
+
+	private static final class Entry {
+		final Object value;
+		final long expires;
+
+		Entry(Object value, long expires) {
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+
+	private static final class Key {
+		private final String pool;
+		private final String kind;
+		private final Object[] args;
+		private final int hash;
+
+		Key(String pool, String kind, Object[] args) {
+			this.pool = pool;
+			this.kind = kind;
+			this.args = copy(args);
+			this.hash = (pool.hashCode() * 31 + kind.hashCode()) * 31
+					+ Arrays.hashCode(this.args);
+		}
+
+		public int hashCode() {
+			return this.hash;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return this.hash == other.hash && this.pool.equals(other.pool)
+					&& this.kind.equals(other.kind)
+					&& Arrays.equals(this.args, other.args);
+		}
+
+		/**
+		 * Copies the arguments, and the dates among them, so the key does not
+		 * change if the caller changes them.
+		 */
+		private static Object[] copy(Object[] args) {
+			if (args == null) {
+				return new Object[0];
+			}
+			final Object[] copy = new Object[args.length];
+			for (int i = 0; i < args.length; i++) {
+				copy[i] = (args[i] instanceof Date ? ((Date) args[i]).clone()
+						: args[i]);
+			}
+			return copy;
+		}
+	}
+}
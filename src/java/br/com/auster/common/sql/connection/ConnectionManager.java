@@ -107,6 +107,7 @@ public class ConnectionManager {
 
 	/** Creates a new instance of ConnectionManager */
 	public ConnectionManager(Element config, ConnectionFactory conFactory) {
+		this.conFactory = conFactory;
 		this.initialize(config);
 	}
 
@@ -116,6 +117,8 @@ public class ConnectionManager {
 	public synchronized void reload(Element config) {
 		log.info(i18n.getString("reloadConnPoolConf"));
 		shutdown();
+		// the servers are read again from the new configuration
+		servers.clear();
 		initialize(config);
 		log.info(i18n.getString("done"));
 	}
@@ -1,13 +1,15 @@
 package br.com.auster.common.sql.connection;
 
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
-import br.com.auster.common.util.SyncQueue;
 import br.com.auster.common.xml.DOMUtils;
 
 /**
@@ -20,17 +22,62 @@ import br.com.auster.common.xml.DOMUtils;
  * returned. To give a connection back to the list of opened
  * connections, the <code>giveConnection(connection)</code> method
  * must be called.
+ * <p>
+ * The idle connections of each server are kept in a lock-free stack, so
+ * taking and giving connections back does not contend on a lock. Besides the
+ * attributes of {@link ConnectionManager}, the pool element accepts:
+ * <ul>
+ * <li><code>max-connections</code>: the maximum number of connections to
+ * each server checked out at the same time. Threads asking for more wait,
+ * in the order they asked. Defaults to 0, no limit.</li>
+ * <li><code>checkout-timeout</code>: how long, in milliseconds, to wait for
+ * a connection when the limit was reached. After that the next server is
+ * tried. Defaults to 0, wait as long as needed.</li>
+ * <li><code>min-idle-connections</code>: how many idle connections to keep
+ * open to each server. Defaults to 0.</li>
+ * <li><code>max-idle-connections</code>: how many idle connections to each
+ * server can be kept. Connections given back beyond it are closed. Defaults to
+ * 8, and is never less than <code>min-idle-connections</code> nor more than
+ * <code>max-connections</code>.</li>
+ * <li><code>max-idle-time</code>: how long, in milliseconds, a connection
+ * may stay idle before being closed, while there are more than
+ * <code>min-idle-connections</code>. Defaults to 0, never.</li>
+ * <li><code>validation-interval</code>: how often, in milliseconds, a
+ * background thread tests the idle connections, one at a time while the
+ * others remain available, closes the expired ones and opens the missing ones. Defaults to 30 seconds. If 0, there is no
+ * background thread and connections are tested when checked out.</li>
+ * </ul>
  */
 public class ConnectionPoolManager extends ConnectionManager {
 
-    protected final Map connectionMap = new Hashtable();
-    
+    // The pool configuration parameters
+    protected static final String MAX_CONNECTIONS_ATTR = "max-connections";
+    protected static final String CHECKOUT_TIMEOUT_ATTR = "checkout-timeout";
+    protected static final String MIN_IDLE_ATTR = "min-idle-connections";
+    protected static final String MAX_IDLE_ATTR = "max-idle-connections";
+    protected static final String MAX_IDLE_TIME_ATTR = "max-idle-time";
+    protected static final String VALIDATION_INTERVAL_ATTR = "validation-interval";
+
+    protected static final int DEFAULT_MAX_IDLE = 8;
+    protected static final int DEFAULT_VALIDATION_INTERVAL = 30000;
+
+    // the connections of each server, as ServerPool objects
+    protected final Map connectionMap = new ConcurrentHashMap();
+
+    // the pool each checked out connection came from
+    private final Map checkedOut = new ConcurrentHashMap();
+
+    protected int maxConnections, minIdle, maxIdle;
+    protected long checkoutTimeout, maxIdleTime, validationInterval;
+
+    private ScheduledThreadPoolExecutor validator;
+
     /**
      * Creates a lot of connection managers, each one using its own configuration.
      * @throws Exception if some error occurs (like instantiating,
      * checking configuration, etc) while initializing the managers.
      */
-    public static synchronized void initMultiManagers(Element config) 
+    public static synchronized void initMultiManagers(Element config)
         throws Exception
     {
         if (!managerHash.isEmpty()) {
@@ -40,17 +87,81 @@ public class ConnectionPoolManager extends ConnectionManager {
         for (int i = 0; i < poolList.getLength(); i++) {
             Element poolConfig = (Element) poolList.item(i);
             String poolName = DOMUtils.getAttribute(poolConfig, NAME_ATTR, true);
-            
-            Element conFactoryConf = DOMUtils.getElement(poolConfig, 
+
+            Element conFactoryConf = DOMUtils.getElement(poolConfig,
                                                          CON_FACTORY_ELEMENT,
                                                          true);
             ConnectionFactory conFactory = (ConnectionFactory) DOMUtils.getInstance(conFactoryConf);
-            managerHash.put(poolName, new ConnectionManager(poolConfig, conFactory));
+            managerHash.put(poolName, new ConnectionPoolManager(poolConfig, conFactory));
         }
     }
 
     public ConnectionPoolManager(Element config, ConnectionFactory conFactory) {
         super(config, conFactory);
+        this.initPool(config);
+    }
+
+    /**
+     * Reloads the configuration of the Connection Pool Manager. The
+     * connections checked out before are closed when given back.
+     */
+    public synchronized void reload(Element config) {
+        super.reload(config);
+        this.initPool(config);
+    }
+
+    /**
+     * Reads the pool sizing parameters and starts the validation thread.
+     */
+    protected synchronized void initPool(Element config) {
+        this.maxConnections = Math.max(0, DOMUtils.getIntAttribute(config, MAX_CONNECTIONS_ATTR, false));
+        this.minIdle = Math.max(0, DOMUtils.getIntAttribute(config, MIN_IDLE_ATTR, false));
+        if (this.maxConnections > 0 && this.minIdle > this.maxConnections) {
+            this.minIdle = this.maxConnections;
+        }
+        if (config.hasAttribute(MAX_IDLE_ATTR)) {
+            this.maxIdle = DOMUtils.getIntAttribute(config, MAX_IDLE_ATTR, true);
+        } else {
+            this.maxIdle = DEFAULT_MAX_IDLE;
+        }
+        if (this.maxConnections > 0 && this.maxIdle > this.maxConnections) {
+            this.maxIdle = this.maxConnections;
+        }
+        if (this.maxIdle < this.minIdle) {
+            this.maxIdle = this.minIdle;
+        }
+        this.checkoutTimeout = Math.max(0, DOMUtils.getIntAttribute(config, CHECKOUT_TIMEOUT_ATTR, false));
+        this.maxIdleTime = Math.max(0, DOMUtils.getIntAttribute(config, MAX_IDLE_TIME_ATTR, false));
+        if (config.hasAttribute(VALIDATION_INTERVAL_ATTR)) {
+            this.validationInterval = Math.max(0, DOMUtils.getIntAttribute(config, VALIDATION_INTERVAL_ATTR, true));
+        } else {
+            this.validationInterval = DEFAULT_VALIDATION_INTERVAL;
+        }
+
+        // the validation thread only visits the pools that exist, so one still
+        // running after a shutdown does not create them again
+        for (Iterator it = this.servers.iterator(); it.hasNext();) {
+            this.poolFor((Server) it.next());
+        }
+        if (this.validationInterval > 0) {
+            final String name = "ConnectionPoolValidator-" + config.getAttribute(NAME_ATTR);
+            this.validator = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.validator.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        validate();
+                    } catch (Throwable t) {
+                        log.error("Could not validate the idle connections", t);
+                    }
+                }
+            }, 0, this.validationInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -59,71 +170,212 @@ public class ConnectionPoolManager extends ConnectionManager {
      * is an opened one in the list.
      * @param server the server which we want to connect to.
      * @return an opened connection to the server.
-     * @exception Exception if can not open a connection to this server.
+     * @exception Exception if can not open a connection to this server,
+     * or no connection was released within the checkout timeout.
      */
-    protected Connection tryToConnect(Server server) 
+    protected Connection tryToConnect(Server server)
         throws Exception
     {
-        Connection connection = null;
-        
-        // Tries to find an opened connection before trying to create another one
-        if (this.connectionMap.containsKey(server)) {
-            while ((connection = (Connection) ((SyncQueue) this.connectionMap.get(server)).get()) != null) {
-                if (connection.test()) {
+        final ServerPool pool = this.poolFor(server);
+        if (!pool.checkout(this.checkoutTimeout)) {
+            throw new Exception(i18n.getString("checkoutTimeout", server, new Long(this.checkoutTimeout)));
+        }
+        boolean done = false;
+        try {
+            Connection connection;
+            // Tries to find an opened connection before trying to create another one.
+            // They are tested by the validation thread, if there is one.
+            while ((connection = pool.pop()) != null) {
+                if (this.validationInterval > 0 || connection.test()) {
                     log.debug("Getting an OPENED connection: " + connection);
-                    return connection;
-                } else {
-                    log.debug("The connection " + connection + " can not be used: Test failed.");
+                    break;
                 }
+                log.debug("The connection " + connection + " can not be used: Test failed.");
+                this.disconnect(connection);
+            }
+            if (connection == null) {
+                connection = conFactory.createConnection(server, soTimeout, conTimeout);
+                log.debug("Getting a NEW connection: " + connection);
+            }
+            this.checkedOut.put(connection, pool);
+            done = true;
+            return connection;
+        } finally {
+            if (!done) {
+                pool.checkin();
             }
         }
-        
-        connection = conFactory.createConnection(server, soTimeout, conTimeout);
-        
-        log.debug("Getting a NEW connection: " + connection);
-        return connection;
     }
-    
+
     /**
-     * Just put the connection on the list of opened connections
+     * Just put the connection on the list of opened connections. If the
+     * list already has <code>max-idle-connections</code> connections, it is
+     * closed instead.
      * @param connection the connection
      */
     public void giveConnection(Connection connection) {
         if (connection != null) {
-            log.debug("Putting the connection " + connection + " in the opened connection list.");
-            Server server = connection.getServer();
-            SyncQueue queue = (SyncQueue) this.connectionMap.get(server);
-            if (queue == null) {
-                // If we don't have an entry to this server in the hash map, we create an queue for it
-                queue = new SyncQueue();
-                this.connectionMap.put(server, queue);
+            final ServerPool owner = (ServerPool) this.checkedOut.remove(connection);
+            // a connection not checked out from this manager is only kept
+            final ServerPool pool = (owner != null ? owner : this.poolFor(connection.getServer()));
+            if (pool.push(connection, System.currentTimeMillis())) {
+                log.debug("Putting the connection " + connection + " in the opened connection list.");
+            } else {
+                this.disconnect(connection);
+            }
+            // only now, so the thread waiting for it finds the connection
+            if (owner != null) {
+                owner.checkin();
             }
-            queue.put(connection);
         }
     }
-    
+
+    /**
+     * Closes a connection that can not be used anymore, instead of giving it
+     * back to the list of opened connections.
+     * @param connection the connection
+     */
+    public void discardConnection(Connection connection) {
+        if (connection != null) {
+            ServerPool pool = (ServerPool) this.checkedOut.remove(connection);
+            if (pool != null) {
+                pool.checkin();
+            }
+            this.disconnect(connection);
+        }
+    }
+
     /**
      * Closes all the opened connections with the SMS servers
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
         log.warn(i18n.getString("closingOpenedServerConns"));
+        if (this.validator != null) {
+            this.validator.shutdownNow();
+            this.validator = null;
+        }
         Iterator it = this.connectionMap.values().iterator();
         // for all servers in the map
         while (it.hasNext()) {
-            SyncQueue queue = (SyncQueue) it.next();
+            ServerPool pool = (ServerPool) it.next();
+            pool.close();
             // for every connection to each server
-            while (!queue.isEmpty()) {
-                Connection connection = (Connection) queue.get();
+            for (Iterator nodes = pool.drain().iterator(); nodes.hasNext();) {
+                this.disconnect(((ServerPool.Node) nodes.next()).connection);
+            }
+        }
+        this.connectionMap.clear();
+        log.warn(i18n.getString("done"));
+    }
+
+    /**
+     * Tests the idle connections, closing the ones that failed and the ones
+     * idle for more than <code>max-idle-time</code>, and opens new ones
+     * until each server has <code>min-idle-connections</code>. Run by the
+     * validation thread.
+     * <p>
+     * Only the connections idle when the sweep starts are visited. Each one
+     * stays in the stack while tested, so the others can still be checked
+     * out. Servers without a pool, as after a shutdown, are skipped.
+     */
+    protected void validate() {
+        final Server[] current;
+        synchronized (this) {
+            current = (Server[]) this.servers.toArray(new Server[this.servers.size()]);
+        }
+        for (int i = 0; i < current.length; i++) {
+            final ServerPool pool = (ServerPool) this.connectionMap.get(current[i]);
+            if (pool == null) {
+                continue;
+            }
+            final long now = System.currentTimeMillis();
+            // from the least to the most recently used
+            for (Iterator it = pool.idleNodes().iterator(); it.hasNext() && !pool.isClosed();) {
+                ServerPool.Node node = (ServerPool.Node) it.next();
+                boolean expired = this.maxIdleTime > 0 && now - node.idleSince > this.maxIdleTime;
+                if (expired && pool.getIdleCount() > this.minIdle) {
+                    if (pool.evict(node)) {
+                        log.debug("Closing the idle connection " + node.connection);
+                        this.disconnect(node.connection);
+                    }
+                } else if (pool.claim(node)) {
+                    if (!node.connection.test()) {
+                        log.debug("The connection " + node.connection + " can not be used: Test failed.");
+                        pool.discard(node);
+                        this.disconnect(node.connection);
+                    } else if (!pool.release(node) && !pool.push(node.connection, node.idleSince)) {
+                        // checked out while tested, and there is no room for it anymore
+                        this.disconnect(node.connection);
+                    }
+                }
+            }
+            if (pool.getRemovedCount() > pool.getMaxIdle()) {
+                for (Iterator it = pool.compact().iterator(); it.hasNext();) {
+                    this.disconnect((Connection) it.next());
+                }
+            }
+
+            // opens the missing idle connections, within the pool limit
+            while (!pool.isClosed() && pool.getIdleCount() < this.minIdle
+                   && (this.maxConnections <= 0
+                       || pool.getIdleCount() + pool.getActiveCount() < this.maxConnections)
+                   && pool.tryCheckout()) {
                 try {
-                    if (connection != null) {
-                        log.debug("Closing connection " + connection);
-                        connection.disconnect();
+                    Connection connection = conFactory.createConnection(pool.getServer(), soTimeout, conTimeout);
+                    if (pool.push(connection, System.currentTimeMillis())) {
+                        log.debug("Opening an idle connection: " + connection);
+                    } else {
+                        this.disconnect(connection);
+                        break;
                     }
                 } catch (Exception e) {
-                    log.error(i18n.getString("problemClosingConnection", connection), e);
+                    log.error(i18n.getString("errorConnecting", pool.getServer()), e);
+                    break;
+                } finally {
+                    pool.checkin();
                 }
             }
         }
-        log.warn(i18n.getString("done"));
+    }
+
+    /**
+     * @return the number of idle connections, to all servers.
+     */
+    public int getIdleConnections() {
+        int count = 0;
+        for (Iterator it = this.connectionMap.values().iterator(); it.hasNext();) {
+            count += ((ServerPool) it.next()).getIdleCount();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of connections checked out, to all servers.
+     */
+    public int getActiveConnections() {
+        return this.checkedOut.size();
+    }
+
+    private ServerPool poolFor(Server server) {
+        ServerPool pool = (ServerPool) this.connectionMap.get(server);
+        if (pool == null) {
+            synchronized (this.connectionMap) {
+                pool = (ServerPool) this.connectionMap.get(server);
+                if (pool == null) {
+                    pool = new ServerPool(server, this.maxConnections, this.maxIdle);
+                    this.connectionMap.put(server, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    private void disconnect(Connection connection) {
+        try {
+            log.debug("Closing connection " + connection);
+            connection.disconnect();
+        } catch (Exception e) {
+            log.error(i18n.getString("problemClosingConnection", connection), e);
+        }
     }
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql.connection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The connections of a {@link ConnectionPoolManager} to one server.
+ * <p>
+ * Idle connections are kept in a lock-free stack (a Treiber stack), so giving
+ * and taking them never blocks. The most recently used connection is always
+ * taken first, which lets the others age and be evicted when the pool has
+ * more connections than it needs.
+ * <p>
+ * The number of connections checked out is limited by a fair semaphore:
+ * when the limit is reached, threads wait for a connection in the order they
+ * asked for it. The number of idle connections is limited too, whatever the
+ * limit of checked out ones.
+ * <p>
+ * The validation thread tests the idle connections while they are still in
+ * the stack, claiming one at a time, so all the others remain available. A
+ * connection taken by a checkout while being tested is skipped by it and
+ * given back by the validation thread. Connections closed by the validation
+ * thread are only marked, and unlinked when they reach the top of the stack
+ * or by {@link #compact()}.
+ */
+final class ServerPool {
+
+    // the states of an idle connection
+    static final int IDLE = 0;
+    static final int TESTING = 1;
+    static final int TAKEN = 2;
+    static final int DETACHED = 3;
+
+    private static final AtomicIntegerFieldUpdater STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "state");
+
+    /**
+     * An idle connection in the stack. Nodes are never reused and their
+     * <code>next</code> field never changes once they are in the stack, so the
+     * stack is not subject to the ABA problem and can be walked by the
+     * validation thread while other threads change it.
+     */
+    static final class Node {
+        final Connection connection;
+        final long idleSince;
+        Node next;
+        volatile int state = IDLE;
+
+        Node(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final Server server;
+    private final int maxConnections;
+    private final int maxIdle;
+    // null if the number of connections is not limited
+    private final Semaphore permits;
+
+    private final AtomicReference head = new AtomicReference();
+    private final AtomicInteger idle = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    // closed connections still linked in the stack
+    private final AtomicInteger removed = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param server the server of the connections.
+     * @param maxConnections the maximum number of connections checked out at
+     *        the same time, or 0 for no limit.
+     * @param maxIdle the maximum number of idle connections.
+     */
+    ServerPool(Server server, int maxConnections, int maxIdle) {
+        this.server = server;
+        this.maxConnections = maxConnections;
+        this.maxIdle = maxIdle;
+        this.permits = (maxConnections > 0 ? new Semaphore(maxConnections, true) : null);
+    }
+
+    /**
+     * Reserves a connection, waiting if the limit was reached.
+     * 
+     * @param timeout the maximum time to wait, in milliseconds, or 0 to wait
+     *        as long as needed.
+     * @return false if the time elapsed before a connection was released.
+     */
+    boolean checkout(long timeout) throws InterruptedException {
+        if (this.permits != null) {
+            if (timeout <= 0) {
+                this.permits.acquire();
+            } else if (!this.permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        }
+        this.active.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Reserves a connection only if the limit was not reached.
+     * 
+     * @return false if all the connections are checked out.
+     */
+    boolean tryCheckout() {
+        if (this.permits != null && !this.permits.tryAcquire()) {
+            return false;
+        }
+        this.active.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Releases a connection reserved by {@link #checkout(long)} or
+     * {@link #tryCheckout()}.
+     */
+    void checkin() {
+        this.active.decrementAndGet();
+        if (this.permits != null) {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Puts an idle connection on the top of the stack, if there is room for
+     * it.
+     * 
+     * @return false if the stack already has the maximum number of idle
+     *         connections, or the pool was closed. The connection is not kept
+     *         and must be closed.
+     */
+    boolean push(Connection connection, long idleSince) {
+        if (this.closed) {
+            return false;
+        }
+        if (this.idle.incrementAndGet() > this.maxIdle) {
+            this.idle.decrementAndGet();
+            return false;
+        }
+        final Node node = new Node(connection, idleSince);
+        Node top;
+        do {
+            top = (Node) this.head.get();
+            node.next = top;
+        } while (!this.head.compareAndSet(top, node));
+        // closed meanwhile: either the closing drain or this thread takes it
+        if (this.closed && STATE.compareAndSet(node, IDLE, TAKEN)) {
+            this.idle.decrementAndGet();
+            this.removed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the most recently used idle connection.
+     * 
+     * @return the connection, or null if there is no idle connection.
+     */
+    Connection pop() {
+        for (;;) {
+            final Node top = (Node) this.head.get();
+            if (top == null) {
+                return null;
+            }
+            if (this.head.compareAndSet(top, top.next) && this.take(top)) {
+                return top.connection;
+            }
+        }
+    }
+
+    /**
+     * Takes all the idle connections at once.
+     * 
+     * @return the nodes taken, from the least to the most recently used.
+     */
+    List drain() {
+        Node node = (Node) this.head.getAndSet(null);
+        final List nodes = new ArrayList();
+        for (; node != null; node = node.next) {
+            if (this.take(node)) {
+                nodes.add(node);
+            }
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+
+    /**
+     * Unlinks the closed connections from the stack. The idle connections are
+     * taken and put back right away, so checkouts may find the stack empty
+     * for a moment.
+     * 
+     * @return the connections that did not fit back, which must be closed.
+     */
+    List compact() {
+        final List rejected = new ArrayList();
+        for (Iterator it = this.drain().iterator(); it.hasNext();) {
+            final Node node = (Node) it.next();
+            if (!this.push(node.connection, node.idleSince)) {
+                rejected.add(node.connection);
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Walks the stack without changing it.
+     * 
+     * @return the nodes idle now, from the least to the most recently used.
+     */
+    List idleNodes() {
+        final List nodes = new ArrayList();
+        for (Node node = (Node) this.head.get(); node != null; node = node.next) {
+            if (node.state == IDLE) {
+                nodes.add(node);
+            }
+        }
+        Collections.reverse(nodes);
+        return nodes;
+    }
+
+    /**
+     * Claims an idle connection to test it, leaving it in the stack.
+     * 
+     * @return false if it was taken meanwhile.
+     */
+    boolean claim(Node node) {
+        return STATE.compareAndSet(node, IDLE, TESTING);
+    }
+
+    /**
+     * Makes a connection claimed by {@link #claim(Node)} available again.
+     * 
+     * @return false if it was taken out of the stack while tested. The
+     *         caller owns it and must push it again or close it.
+     */
+    boolean release(Node node) {
+        return STATE.compareAndSet(node, TESTING, IDLE);
+    }
+
+    /**
+     * Removes a connection claimed by {@link #claim(Node)}, which the caller
+     * must close.
+     */
+    void discard(Node node) {
+        if (STATE.compareAndSet(node, TESTING, TAKEN)) {
+            this.idle.decrementAndGet();
+            this.removed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes an idle connection without claiming it first.
+     * 
+     * @return false if it was taken meanwhile. Otherwise the caller must close
+     *         it.
+     */
+    boolean evict(Node node) {
+        if (STATE.compareAndSet(node, IDLE, TAKEN)) {
+            this.idle.decrementAndGet();
+            this.removed.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes a node just unlinked from the stack.
+     * 
+     * @return true if the caller owns its connection.
+     */
+    private boolean take(Node node) {
+        for (;;) {
+            switch (node.state) {
+            case IDLE:
+                if (STATE.compareAndSet(node, IDLE, TAKEN)) {
+                    this.idle.decrementAndGet();
+                    return true;
+                }
+                break;
+            case TESTING:
+                // the validation thread owns it from now on
+                if (STATE.compareAndSet(node, TESTING, DETACHED)) {
+                    this.idle.decrementAndGet();
+                    return false;
+                }
+                break;
+            default:
+                // closed by the validation thread
+                this.removed.decrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    Server getServer() {
+        return this.server;
+    }
+
+    /**
+     * @return the maximum number of connections checked out at the same time,
+     *         or 0 if there is no limit.
+     */
+    int getMaxConnections() {
+        return this.maxConnections;
+    }
+
+    int getMaxIdle() {
+        return this.maxIdle;
+    }
+
+    int getIdleCount() {
+        return this.idle.get();
+    }
+
+    int getActiveCount() {
+        return this.active.get();
+    }
+
+    /**
+     * @return the number of closed connections still linked in the stack.
+     */
+    int getRemovedCount() {
+        return this.removed.get();
+    }
+
+    boolean isClosed() {
+        return this.closed;
+    }
+
+    void close() {
+        this.closed = true;
+    }
+}
@@ -23,7 +23,6 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.security.GeneralSecurityException;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -562,29 +561,20 @@ public final class DOMUtils {
            document = root.getOwnerDocument();
        }
 
-       // Tries to discover the name of each column
-       final ResultSetMetaData metaData = rs.getMetaData();
-       final int columnCount = metaData.getColumnCount();
-       final String[] columnName = new String[columnCount];
-       
-       // Initialize columnName array with all the column names,
-       // trimming it if its value is not null
-       for (int i = 0; i < columnCount; i++) {
-           columnName[i] = metaData.getColumnName(i+1);
-           if (columnName[i] != null)
-               columnName[i] = columnName[i].trim();
-       }
+       // Reads each column with its typed getter, and the trimmed column names
+       final TypedRowReader reader = new TypedRowReader(rs);
+       final int columnCount = reader.getColumnCount();
 
        // Puts each line in the result
-       while (rs.next()) {
+       while (reader.next()) {
            Element element = document.createElement(RECORD_TAG);
            root.appendChild(element);
            
            // For each field, creates a entry with the column name and its value
            for (int i = 0; i < columnCount; i++) {
-               Object rsObject = rs.getObject(i+1);
-               if (columnName[i] != null && rsObject != null)
-                   element.setAttribute(columnName[i], rsObject.toString().trim());
+               String columnName = reader.getColumnName(i);
+               if (columnName != null && !reader.isNull(i))
+                   element.setAttribute(columnName, reader.getText(i));
            }
        }
        
@@ -624,29 +614,21 @@ public final class DOMUtils {
    public static final void resultSet2ContentHandler(ResultSet rs, ContentHandler handler, Attributes rootAtts) 
        throws SQLException, SAXException
    {
-       // Tries to discover the name of each column
-       final ResultSetMetaData metaData = rs.getMetaData();
-       final int columnCount = metaData.getColumnCount();
-       final String[] columnName = new String[columnCount];
+       // Reads each column with its typed getter, and the trimmed column names
+       final TypedRowReader reader = new TypedRowReader(rs);
+       final int columnCount = reader.getColumnCount();
        final AttributesImpl atts = new AttributesImpl();
 
-       // Initialize columnName array with all the column names,
-       // trimming it if its value is not null
-       for (int i = 0; i < columnCount; i++) {
-           columnName[i] = metaData.getColumnName(i+1);
-           if (columnName[i] != null)
-               columnName[i] = columnName[i].trim();
-       }
-
        handler.startElement("", RESULT_TAG, RESULT_TAG, (rootAtts == null) ? atts : rootAtts);
 
        // Puts each line in the result
-       while (rs.next()) {
-           // For each field, creates a entry with the column name and its value
+       while (reader.next()) {
+           // For each field, creates a entry with the column name and its value,
+           // which is only converted to text here
            for (int i = 0; i < columnCount; i++) {
-               Object rsObject = rs.getObject(i+1);
-               if (columnName[i] != null && rsObject != null)
-                   atts.addAttribute("", columnName[i], columnName[i], "CDATA", rsObject.toString().trim());
+               String columnName = reader.getColumnName(i);
+               if (columnName != null && !reader.isNull(i))
+                   atts.addAttribute("", columnName, columnName, "CDATA", reader.getText(i));
            }
            handler.startElement("", RECORD_TAG, RECORD_TAG, atts);
            handler.endElement("", RECORD_TAG, RECORD_TAG);
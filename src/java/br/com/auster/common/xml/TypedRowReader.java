@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.xml;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Reads the rows of a result set column by column, using the getter that
+ * matches each column type instead of <code>getObject()</code>.
+ * <p>
+ * The column types are read from the <code>ResultSetMetaData</code> once,
+ * when the reader is created. Integer and floating point columns are then
+ * read with <code>getLong()</code>, <code>getDouble()</code> and
+ * <code>getFloat()</code> into primitive arrays reused for every row, so
+ * they are not boxed. Their text is only built when asked for with
+ * {@link #getText(int)}, and is kept while the column repeats the same
+ * value.
+ * <p>
+ * The text returned is the same as <code>getObject(i).toString().trim()</code>
+ * for the JDBC standard mappings, and is what
+ * {@link DOMUtils#resultSet2NodeSet(ResultSet, org.w3c.dom.Node)} puts in the
+ * record attributes. Columns of other types, like <code>DECIMAL</code> or
+ * <code>DATE</code>, and unsigned <code>BIGINT</code> columns, whose values
+ * may not fit in a long, are read with <code>getObject()</code> as before.
+ * <p>
+ * Instances are not thread safe.
+ * 
+ * @version $Id$
+ */
+public final class TypedRowReader {
+
+	private static final int OBJECT = 0;
+	private static final int LONG = 1;
+	private static final int DOUBLE = 2;
+	private static final int FLOAT = 3;
+	private static final int STRING = 4;
+	private static final int TIMESTAMP = 5;
+
+	private final ResultSet rs;
+	private final int columnCount;
+	private final String[] names;
+	private final int[] kinds;
+
+	// the values of the current row
+	private final long[] longs;
+	private final double[] doubles;
+	private final Object[] objects;
+	private final boolean[] nulls;
+
+	// the text of each column, built on demand
+	private final String[] texts;
+
+	/**
+	 * Creates a reader for <code>rs</code>, reading its metadata.
+	 * 
+	 * @param rs
+	 *            the result set to be read.
+	 */
+	public TypedRowReader(ResultSet rs) throws SQLException {
+		this.rs = rs;
+		final ResultSetMetaData metaData = rs.getMetaData();
+		this.columnCount = metaData.getColumnCount();
+		this.names = new String[this.columnCount];
+		this.kinds = new int[this.columnCount];
+		for (int i = 0; i < this.columnCount; i++) {
+			String name = metaData.getColumnName(i + 1);
+			this.names[i] = (name == null ? null : name.trim());
+			this.kinds[i] = kindOf(metaData, i + 1);
+		}
+		this.longs = new long[this.columnCount];
+		this.doubles = new double[this.columnCount];
+		this.objects = new Object[this.columnCount];
+		this.nulls = new boolean[this.columnCount];
+		this.texts = new String[this.columnCount];
+	}
+
+	/**
+	 * Moves to the next row of the result set and reads all its columns.
+	 * 
+	 * @return false if there are no more rows.
+	 */
+	public boolean next() throws SQLException {
+		if (!this.rs.next()) {
+			return false;
+		}
+		for (int i = 0; i < this.columnCount; i++) {
+			final int column = i + 1;
+			switch (this.kinds[i]) {
+			case LONG: {
+				final long value = this.rs.getLong(column);
+				final boolean isNull = this.rs.wasNull();
+				if (isNull || this.nulls[i] || value != this.longs[i]) {
+					this.texts[i] = null;
+				}
+				this.longs[i] = value;
+				this.nulls[i] = isNull;
+				break;
+			}
+			case DOUBLE:
+			case FLOAT: {
+				final double value = (this.kinds[i] == FLOAT ? this.rs
+						.getFloat(column) : this.rs.getDouble(column));
+				final boolean isNull = this.rs.wasNull();
+				if (isNull
+						|| this.nulls[i]
+						|| Double.doubleToLongBits(value) != Double
+								.doubleToLongBits(this.doubles[i])) {
+					this.texts[i] = null;
+				}
+				this.doubles[i] = value;
+				this.nulls[i] = isNull;
+				break;
+			}
+			case STRING:
+				this.objects[i] = this.rs.getString(column);
+				this.nulls[i] = (this.objects[i] == null);
+				this.texts[i] = null;
+				break;
+			case TIMESTAMP:
+				this.objects[i] = this.rs.getTimestamp(column);
+				this.nulls[i] = (this.objects[i] == null);
+				this.texts[i] = null;
+				break;
+			default:
+				this.objects[i] = this.rs.getObject(column);
+				this.nulls[i] = (this.objects[i] == null);
+				this.texts[i] = null;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of columns of the result set.
+	 */
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+
+	/**
+	 * Returns the trimmed name of a column, as given by
+	 * <code>ResultSetMetaData.getColumnName()</code>.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 */
+	public String getColumnName(int i) {
+		return this.names[i];
+	}
+
+	/**
+	 * Tells if a column of the current row is SQL NULL.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 */
+	public boolean isNull(int i) {
+		return this.nulls[i];
+	}
+
+	/**
+	 * Returns the value of a numeric column of the current row as a long.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 * @return the value, or 0 if it is NULL.
+	 */
+	public long getLong(int i) {
+		switch (this.kinds[i]) {
+		case LONG:
+			return this.longs[i];
+		case DOUBLE:
+		case FLOAT:
+			return (long) this.doubles[i];
+		default:
+			return (this.objects[i] instanceof Number ? ((Number) this.objects[i])
+					.longValue()
+					: 0);
+		}
+	}
+
+	/**
+	 * Returns the value of a numeric column of the current row as a double.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 * @return the value, or 0 if it is NULL.
+	 */
+	public double getDouble(int i) {
+		switch (this.kinds[i]) {
+		case LONG:
+			return this.longs[i];
+		case DOUBLE:
+		case FLOAT:
+			return this.doubles[i];
+		default:
+			return (this.objects[i] instanceof Number ? ((Number) this.objects[i])
+					.doubleValue()
+					: 0);
+		}
+	}
+
+	/**
+	 * Returns the value of a column of the current row as an object, boxing
+	 * it if needed. Integer columns are returned as <code>Long</code>,
+	 * <code>FLOAT</code> and <code>DOUBLE</code> columns as
+	 * <code>Double</code> and <code>REAL</code> columns as <code>Float</code>.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 * @return the value, or null if it is NULL.
+	 */
+	public Object getObject(int i) {
+		if (this.nulls[i]) {
+			return null;
+		}
+		switch (this.kinds[i]) {
+		case LONG:
+			return new Long(this.longs[i]);
+		case DOUBLE:
+			return new Double(this.doubles[i]);
+		case FLOAT:
+			return new Float((float) this.doubles[i]);
+		default:
+			return this.objects[i];
+		}
+	}
+
+	/**
+	 * Returns the trimmed text of a column of the current row.
+	 * 
+	 * @param i
+	 *            the column index, starting at 0.
+	 * @return the text, or null if the column is NULL.
+	 */
+	public String getText(int i) {
+		if (this.nulls[i]) {
+			return null;
+		}
+		String text = this.texts[i];
+		if (text == null) {
+			switch (this.kinds[i]) {
+			case LONG:
+				text = Long.toString(this.longs[i]);
+				break;
+			case DOUBLE:
+				text = Double.toString(this.doubles[i]);
+				break;
+			case FLOAT:
+				text = Float.toString((float) this.doubles[i]);
+				break;
+			default:
+				text = this.objects[i].toString().trim();
+			}
+			this.texts[i] = text;
+		}
+		return text;
+	}
+
+	private static int kindOf(ResultSetMetaData metaData, int column)
+			throws SQLException {
+		switch (metaData.getColumnType(column)) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+			return LONG;
+		case Types.BIGINT:
+			// unsigned values above Long.MAX_VALUE only fit in a BigInteger
+			return (metaData.isSigned(column) ? LONG : OBJECT);
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return DOUBLE;
+		case Types.REAL:
+			return FLOAT;
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+			return STRING;
+		case Types.TIMESTAMP:
+			return TIMESTAMP;
+		default:
+			return OBJECT;
+		}
+	}
+}
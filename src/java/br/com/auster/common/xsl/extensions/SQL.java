@@ -47,7 +47,8 @@ public final class SQL {
     }
 
     /**
-     * First checks if we already have the result (using an internal cache). If not runs the query.
+     * First checks if we already have the result (using the statement result cache,
+     * when configured with the <code>cache-ttl</code> attribute). If not runs the query.
      * @see #query(String,String,String)
      */
     public static final Node query(String poolName, String statementName) 
@@ -56,6 +57,20 @@ public final class SQL {
         return query(poolName, statementName, null);
     }
 
+    /**
+     * Drops the results cached for the statement named 'statementName' of the pool
+     * named 'poolName', so the next query runs it again. Does nothing if the statement
+     * results are not cached.
+     * @param poolName the pool name.
+     * @param statementName the statement name to be read from the query file.
+     * @see br.com.auster.common.sql.SQLStatement#getResultCache()
+     */
+    public static final void invalidate(String poolName, String statementName) 
+        throws NamingException
+    {
+        SQLConnectionManager.getInstance(poolName).invalidateResults(statementName);
+    }
+
     /**
      * Gets a connection from the pool named 'poolName', runs a update/insert/delete 
      * using the statement named 'statementName' (read from a configuration file), 
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestBloomFilter extends TestCase {
+
+	private File file;
+
+	protected void setUp() throws Exception {
+		this.file = File.createTempFile("bloom", ".bin");
+		this.file.deleteOnExit();
+	}
+
+	protected void tearDown() {
+		this.file.delete();
+	}
+
+	public void testAddedKeysAreAccepted() {
+		double[] rates = { 0.1, 0.01, 0.001 };
+		for (int r = 0; r < rates.length; r++) {
+			BloomFilter filter = new BloomFilter(50000, rates[r]);
+			Random random = new Random(r);
+			int[] hashes = new int[50000];
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = random.nextInt();
+				filter.add(hashes[i]);
+			}
+			for (int i = 0; i < hashes.length; i++) {
+				assertTrue("rate " + rates[r] + ", key " + i, filter.mightContain(hashes[i]));
+			}
+			assertEquals(0, filter.getRejections());
+		}
+	}
+
+	public void testFalsePositiveRate() {
+		double[] rates = { 0.1, 0.01, 0.001 };
+		for (int r = 0; r < rates.length; r++) {
+			BloomFilter filter = new BloomFilter(100000, rates[r]);
+			assertEquals(rates[r], filter.getFalsePositiveRate(), 0);
+			// even hashes are added, odd ones are the absent keys
+			Random random = new Random(r);
+			for (int i = 0; i < 100000; i++) {
+				filter.add(random.nextInt() & ~1);
+			}
+			int tested = 1000000;
+			int accepted = 0;
+			for (int i = 0; i < tested; i++) {
+				if (filter.mightContain(random.nextInt() | 1)) {
+					accepted++;
+				}
+			}
+			double measured = (double) accepted / tested;
+			assertTrue("rate " + rates[r] + " measured " + measured, measured <= rates[r] * 1.5);
+			assertTrue("rate " + rates[r] + " measured " + measured, measured >= rates[r] / 4);
+			assertEquals(tested - accepted, filter.getRejections());
+
+			filter.clearRejections();
+			assertEquals(0, filter.getRejections());
+		}
+	}
+
+	public void testInvalidRates() {
+		double[] rates = { 0, 1, -0.5, Double.NaN };
+		for (int i = 0; i < rates.length; i++) {
+			try {
+				new BloomFilter(10, rates[i]);
+				fail("Rate " + rates[i] + " should not be accepted");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testTablesHashKeysAlike() throws Exception {
+		MultiKeyTable table = new MultiKeyTable(3, 0);
+		Random random = new Random(7);
+		String[][] keys = new String[5000][];
+		for (int i = 0; i < keys.length; i++) {
+			// repeated parts, so keys share their ids in the mapped table
+			keys[i] = new String[] { "k" + random.nextInt(100), String.valueOf(i), "x" + (i % 7) };
+			table.put(keys[i], "v" + i);
+		}
+		MappedMultiKeyTable.write(table, this.file);
+		MappedMultiKeyTable mapped = new MappedMultiKeyTable(this.file);
+
+		BloomFilter heapFilter = table.createFilter(0.01);
+		BloomFilter mappedFilter = mapped.createFilter(0.01);
+		assertEquals(heapFilter.getBitCount(), mappedFilter.getBitCount());
+		for (int i = 0; i < keys.length; i++) {
+			int hash = MultiKeyTable.combine(MultiKeyTable.combine(MultiKeyTable.combine(1, keys[i][0]), keys[i][1]), keys[i][2]);
+			assertTrue("key " + i, heapFilter.mightContain(hash));
+			assertTrue("key " + i, mappedFilter.mightContain(hash));
+			assertEquals("v" + i, mapped.getTrimmed(" " + keys[i][0], keys[i][1], keys[i][2] + " "));
+		}
+		// both filters hold the same hashes, so they answer alike for any key
+		for (int i = 0; i < 100000; i++) {
+			int hash = random.nextInt();
+			assertEquals("hash " + hash, heapFilter.mightContain(hash), mappedFilter.mightContain(hash));
+		}
+		assertNull(mapped.getTrimmed("k1", "-1", "x1"));
+	}
+}
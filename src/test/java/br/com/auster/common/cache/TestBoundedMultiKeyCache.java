@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+/**
+ * @version $Id$
+ */
+public class TestBoundedMultiKeyCache extends TestCase {
+
+	private File dataFile;
+	private File indexFile;
+	private BoundedMultiKeyCache.Table table;
+
+	protected void setUp() throws Exception {
+		this.dataFile = File.createTempFile("bounded", ".txt");
+		this.dataFile.deleteOnExit();
+		this.indexFile = File.createTempFile("bounded", ".idx");
+		this.indexFile.deleteOnExit();
+		// "Aa" and "BB" have the same hash code
+		write("Aa;x;1\nBB;x;2\nc;x;3\nd;x;4\nc;y;5\nAa;x;6\nAaAa;x;7\n");
+	}
+
+	protected void tearDown() throws Exception {
+		if (this.table != null) {
+			this.table.close();
+		}
+		BoundedMultiKeyCache.clear();
+		this.dataFile.delete();
+		this.indexFile.delete();
+	}
+
+	public void testLookups() throws IOException {
+		open(100);
+		assertEquals("6", this.table.get(new String[] { "Aa", "x" }));
+		assertEquals("2", this.table.get(new String[] { " BB ", "x" }));
+		assertEquals("3", this.table.get(new String[] { "c", "x" }));
+		assertEquals("5", this.table.get(new String[] { "c", "y" }));
+		assertEquals("", this.table.get(new String[] { "Aa", "y" }));
+		// wrong number of keys
+		assertEquals("", this.table.get(new String[] { "Aa" }));
+		assertEquals(5, this.table.getEntryCount());
+		assertEquals(0, this.table.getHits());
+		assertEquals(5, this.table.getMisses());
+	}
+
+	public void testMissesAreCached() throws IOException {
+		open(100);
+		// same hash as a line in the file, so the first lookup reads it
+		String[] missing = { "BBBB", "x" };
+		assertEquals(MultiKeyTable.hash(new String[] { "AaAa", "x" }), MultiKeyTable.hash(missing));
+		assertEquals("", this.table.get(missing));
+		assertEquals("", this.table.get(new String[] { "Aa", "y" }));
+		assertEquals(2, this.table.getEntryCount());
+		assertEquals(0, this.table.getHits());
+		assertEquals(2, this.table.getMisses());
+
+		// answered from memory, even with the data file closed
+		this.table.close();
+		assertEquals("", this.table.get(missing));
+		assertEquals("", this.table.get(new String[] { "Aa", "y" }));
+		assertEquals(2, this.table.getHits());
+		assertEquals(2, this.table.getMisses());
+		// while keys not seen yet still go to the file
+		try {
+			this.table.get(new String[] { "AaAa", "x" });
+			fail("The data file should be closed");
+		} catch (IOException e) {
+			// expected
+		}
+		this.table = null;
+	}
+
+	public void testEviction() throws IOException {
+		open(3);
+		assertEquals(3, this.table.getMaxEntries());
+		assertEquals("6", this.table.get(new String[] { "Aa", "x" }));
+		assertEquals("2", this.table.get(new String[] { "BB", "x" }));
+		assertEquals("3", this.table.get(new String[] { "c", "x" }));
+		// used again, so BB is now the least recently used
+		assertEquals("6", this.table.get(new String[] { "Aa", "x" }));
+		assertEquals("4", this.table.get(new String[] { "d", "x" }));
+		assertEquals(3, this.table.getEntryCount());
+		assertEquals(1, this.table.getEvictions());
+		assertEquals(1, this.table.getHits());
+		assertEquals(4, this.table.getMisses());
+
+		assertEquals("6", this.table.get(new String[] { "Aa", "x" }));
+		assertEquals(2, this.table.getHits());
+		assertEquals("2", this.table.get(new String[] { "BB", "x" }));
+		assertEquals(5, this.table.getMisses());
+		assertEquals(2, this.table.getEvictions());
+		assertEquals(3, this.table.getEntryCount());
+
+		// misses take room too
+		assertEquals("", this.table.get(new String[] { "e", "x" }));
+		assertEquals("", this.table.get(new String[] { "f", "x" }));
+		assertEquals(4, this.table.getEvictions());
+		assertEquals(3, this.table.getEntryCount());
+	}
+
+	public void testReconfigure() throws Exception {
+		BoundedMultiKeyCache cache = new BoundedMultiKeyCache(config(this.indexFile.getPath()));
+		assertEquals("6", cache.get("bounded", "Aa", "x"));
+		HashedLineIndex old = new HashedLineIndex(this.dataFile, this.indexFile);
+		int hash = MultiKeyTable.hash(new String[] { "c", "x" });
+		int first = old.first(hash);
+
+		// a smaller file, indexed over the old index
+		write("c;x;new\n");
+		cache.configure(config(this.indexFile.getPath()));
+		assertEquals("new", cache.get("bounded", "c", "x"));
+		assertEquals("", cache.get("bounded", "Aa", "x"));
+		assertEquals(1, BoundedMultiKeyCache.table("bounded").getStats().getSize());
+		assertFalse(new File(this.indexFile.getPath() + ".tmp").exists());
+
+		// the old index is still readable where it was mapped
+		assertEquals(7, old.size());
+		assertEquals(first, old.first(hash));
+		assertEquals(hash, old.hashAt(first));
+		old.close();
+	}
+
+	public void testTemporaryIndexesAreDeleted() throws Exception {
+		BoundedMultiKeyCache cache = new BoundedMultiKeyCache(config(""));
+		File first = BoundedMultiKeyCache.table("bounded").getIndexFile();
+		assertTrue(first.exists());
+		assertEquals("3", cache.get("bounded", "c", "x"));
+
+		cache.configure(config(""));
+		File second = BoundedMultiKeyCache.table("bounded").getIndexFile();
+		assertFalse(first.equals(second));
+		assertFalse(first.exists());
+		assertTrue(second.exists());
+		assertEquals("3", cache.get("bounded", "c", "x"));
+
+		BoundedMultiKeyCache.clear();
+		assertFalse(second.exists());
+	}
+
+	private Element config(String indexPath) throws Exception {
+		String xml = "<manager><table table-name=\"bounded\" data-path=\"" + this.dataFile.getPath() + "\"" + 
+		             (indexPath.length() > 0 ? " hash-index-path=\"" + indexPath + "\"" : "") + ">" + 
+		             "<items type=\"index\" separator=\";\">" + 
+		             "<key name=\"k1\" index=\"1\"/><key name=\"k2\" index=\"2\"/><value name=\"v\" index=\"3\"/>" + 
+		             "</items></table></manager>";
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+		                             .parse(new InputSource(new StringReader(xml))).getDocumentElement();
+	}
+
+	private void write(String content) throws IOException {
+		OutputStream out = new FileOutputStream(this.dataFile);
+		out.write(content.getBytes());
+		out.close();
+	}
+
+	private void open(int maxEntries) throws IOException {
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 3);
+		HashedLineIndex.build(this.dataFile, format, this.indexFile);
+		HashedLineIndex index = new HashedLineIndex(this.dataFile, this.indexFile);
+		this.table = new BoundedMultiKeyCache.Table("test", format, index, maxEntries, 
+		                                            new CacheTableStats("test"), false);
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * @version $Id$
+ */
+public class TestCompactNodeStore extends TestCase {
+
+	private static final String XML = 
+		"<?xml version=\"1.0\"?>\n" + 
+		"<root xmlns=\"urn:default\" xmlns:p=\"urn:p\" version=\"1\">\n" + 
+		"  <item id=\"a\" p:kind=\"x\">first &amp; one</item>\n" + 
+		"  <item id=\"b\">second<sub id=\"c\" kind=\"y\"/>tail</item>\n" + 
+		"  <p:item id=\"a\" kind=\"y\"><![CDATA[third]]> text</p:item>\n" + 
+		"  <empty xmlns=\"\"/>\n" + 
+		"</root>";
+
+	private CompactNodeStore store;
+	private Document dom;
+
+	protected void setUp() throws Exception {
+		SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+		saxFactory.setNamespaceAware(true);
+		XMLReader reader = saxFactory.newSAXParser().getXMLReader();
+		CompactNodeStore.Builder builder = new CompactNodeStore.Builder(new String[] { "id" });
+		reader.setContentHandler(builder);
+		reader.parse(new InputSource(new StringReader(XML)));
+		this.store = builder.getStore();
+
+		DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+		domFactory.setNamespaceAware(true);
+		domFactory.setCoalescing(true);
+		this.dom = domFactory.newDocumentBuilder().parse(new InputSource(new StringReader(XML)));
+	}
+
+	public void testSameTreeAsDOM() {
+		Document doc = this.store.getDocument();
+		assertSame(this.store, CompactNodeStore.storeOf(doc));
+		assertEquals(Node.DOCUMENT_NODE, doc.getNodeType());
+		assertNull(doc.getParentNode());
+		assertEquals(1, doc.getChildNodes().getLength());
+		assertSame(doc.getDocumentElement(), doc.getFirstChild());
+		assertSame(doc, doc.getDocumentElement().getParentNode());
+		assertSame(doc, doc.getDocumentElement().getOwnerDocument());
+		compare(this.dom.getDocumentElement(), doc.getDocumentElement());
+	}
+
+	public void testNamespaces() {
+		Element root = this.store.getDocument().getDocumentElement();
+		assertEquals("urn:default", root.lookupNamespaceURI(null));
+		assertEquals("urn:p", root.lookupNamespaceURI("p"));
+		Node empty = this.store.getDocument().getElementsByTagName("empty").item(0);
+		assertNull(empty.getNamespaceURI());
+		assertNull(empty.lookupNamespaceURI(null));
+		assertEquals("urn:p", empty.lookupNamespaceURI("p"));
+		assertEquals(2, root.getElementsByTagNameNS("urn:default", "item").getLength());
+		assertEquals(1, root.getElementsByTagNameNS("urn:p", "item").getLength());
+		assertEquals(3, root.getElementsByTagNameNS("*", "item").getLength());
+	}
+
+	public void testIndexedLookup() {
+		assertTrue(this.store.isIndexed("id"));
+		NodeList found = this.store.lookup("id", "a");
+		assertEquals(2, found.getLength());
+		assertEquals("item", found.item(0).getNodeName());
+		assertEquals("p:item", found.item(1).getNodeName());
+		assertEquals("x", ((Element) found.item(0)).getAttributeNS("urn:p", "kind"));
+		assertEquals("c", ((Element) this.store.lookup("id", "c").item(0)).getAttribute("id"));
+		assertEquals(0, this.store.lookup("id", "z").getLength());
+		// the lookup returns the same nodes as a walk
+		assertSame(this.store.getDocument().getElementsByTagName("sub").item(0), 
+		           this.store.lookup("id", "c").item(0));
+	}
+
+	public void testScannedLookup() {
+		assertFalse(this.store.isIndexed("kind"));
+		NodeList found = this.store.lookup("kind", "y");
+		assertEquals(2, found.getLength());
+		assertEquals("sub", found.item(0).getNodeName());
+		assertEquals("p:item", found.item(1).getNodeName());
+		// matched by qualified name
+		assertEquals(1, this.store.lookup("p:kind", "x").getLength());
+		assertEquals(0, this.store.lookup("kind", "x").getLength());
+	}
+
+	public void testDocumentOrder() {
+		NodeList items = this.store.getDocument().getElementsByTagName("*");
+		for (int i = 1; i < items.getLength(); i++) {
+			Node before = items.item(i - 1);
+			Node after = items.item(i);
+			assertTrue((before.compareDocumentPosition(after) & Node.DOCUMENT_POSITION_FOLLOWING) != 0);
+			assertTrue((after.compareDocumentPosition(before) & Node.DOCUMENT_POSITION_PRECEDING) != 0);
+		}
+	}
+
+	public void testViewsAreReusedWhileHeld() {
+		Element root = this.store.getDocument().getDocumentElement();
+		Node first = root.getFirstChild().getNextSibling();
+		Attr id = ((Element) first).getAttributeNode("id");
+		assertSame(first, root.getFirstChild().getNextSibling());
+		assertSame(id, ((Element) first).getAttributeNode("id"));
+		assertTrue(first.isSameNode(this.store.lookup("id", "a").item(0)));
+		assertSame(first, id.getOwnerElement());
+	}
+
+	public void testReadOnly() {
+		Element root = this.store.getDocument().getDocumentElement();
+		try {
+			root.setAttribute("id", "z");
+			fail("Elements should not be changed");
+		} catch (DOMException e) {
+			// expected
+		}
+		try {
+			root.removeChild(root.getFirstChild());
+			fail("Children should not be removed");
+		} catch (DOMException e) {
+			// expected
+		}
+		try {
+			root.getFirstChild().setNodeValue("z");
+			fail("Text should not be changed");
+		} catch (DOMException e) {
+			// expected
+		}
+	}
+
+	private void compare(Node expected, Node actual) {
+		String where = expected.getNodeName();
+		assertEquals(where, expected.getNodeType(), actual.getNodeType());
+		assertEquals(where, expected.getNodeName(), actual.getNodeName());
+		assertEquals(where, expected.getNamespaceURI(), actual.getNamespaceURI());
+		assertEquals(where, expected.getLocalName(), actual.getLocalName());
+		assertEquals(where, expected.getNodeValue(), actual.getNodeValue());
+		assertEquals(where, expected.getTextContent(), actual.getTextContent());
+
+		if (expected.getNodeType() == Node.ELEMENT_NODE) {
+			NamedNodeMap expectedAttrs = expected.getAttributes();
+			NamedNodeMap actualAttrs = actual.getAttributes();
+			assertEquals(where, expectedAttrs.getLength(), actualAttrs.getLength());
+			for (int i = 0; i < expectedAttrs.getLength(); i++) {
+				Attr attr = (Attr) expectedAttrs.item(i);
+				Attr other = ((Element) actual).getAttributeNode(attr.getName());
+				assertNotNull(where + "@" + attr.getName(), other);
+				assertEquals(where, attr.getValue(), other.getValue());
+				assertEquals(where, attr.getNamespaceURI(), other.getNamespaceURI());
+				assertEquals(where, attr.getLocalName(), other.getLocalName());
+				assertSame(actual, other.getOwnerElement());
+				if (attr.getLocalName() != null) {
+					assertEquals(where, attr.getValue(), 
+					             ((Element) actual).getAttributeNS(attr.getNamespaceURI(), attr.getLocalName()));
+				}
+			}
+			assertEquals(where, expected.lookupNamespaceURI(null), actual.lookupNamespaceURI(null));
+			assertEquals(where, expected.lookupNamespaceURI("p"), actual.lookupNamespaceURI("p"));
+		}
+
+		NodeList expectedChildren = expected.getChildNodes();
+		NodeList actualChildren = actual.getChildNodes();
+		assertEquals(where, expectedChildren.getLength(), actualChildren.getLength());
+		Node previous = null;
+		for (int i = 0; i < expectedChildren.getLength(); i++) {
+			Node child = actualChildren.item(i);
+			assertSame(where, actual, child.getParentNode());
+			assertSame(where, previous, child.getPreviousSibling());
+			if (previous != null) {
+				assertSame(where, child, previous.getNextSibling());
+			}
+			compare(expectedChildren.item(i), child);
+			previous = child;
+		}
+		assertSame(where, previous, actual.getLastChild());
+	}
+}
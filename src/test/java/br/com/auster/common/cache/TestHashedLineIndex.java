@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestHashedLineIndex extends TestCase {
+
+	private File dataFile;
+	private File indexFile;
+
+	protected void setUp() throws Exception {
+		this.dataFile = File.createTempFile("lines", ".txt");
+		this.dataFile.deleteOnExit();
+		this.indexFile = File.createTempFile("lines", ".idx");
+		this.indexFile.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		this.dataFile.delete();
+		this.indexFile.delete();
+	}
+
+	public void testBuildAndLookup() throws IOException {
+		StringBuffer longValue = new StringBuffer();
+		for (int i = 0; i < 1000; i++) {
+			longValue.append((char) ('a' + i % 26));
+		}
+		// CRLF, a malformed line, a line longer than the read buffer and
+		// no newline at the end
+		write("k1;one\r\nk2;two\nmalformed\nk3;" + longValue + "\nk1;uno");
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 1 }, 2);
+		HashedLineIndex.build(this.dataFile, format, this.indexFile);
+		HashedLineIndex index = new HashedLineIndex(this.dataFile, this.indexFile);
+		try {
+			assertEquals(4, index.size());
+			assertSame(this.dataFile, index.getDataFile());
+			for (int i = 1; i < index.size(); i++) {
+				assertTrue(index.hashAt(i - 1) <= index.hashAt(i));
+			}
+
+			int hash = MultiKeyTable.hash(new String[] { "k1" });
+			int first = index.first(hash);
+			assertEquals(hash, index.hashAt(first));
+			assertEquals(hash, index.hashAt(first + 1));
+			// in file order
+			assertEquals("k1;one", index.lineAt(first));
+			assertEquals("k1;uno", index.lineAt(first + 1));
+			assertTrue(first + 2 == index.size() || index.hashAt(first + 2) != hash);
+
+			int i = index.first(MultiKeyTable.hash(new String[] { "k3" }));
+			assertEquals("k3;" + longValue, index.lineAt(i));
+			i = index.first(MultiKeyTable.hash(new String[] { "k2" }));
+			assertEquals("k2;two", index.lineAt(i));
+
+			int missing = MultiKeyTable.hash(new String[] { "k4" });
+			i = index.first(missing);
+			assertTrue(i == index.size() || index.hashAt(i) > missing);
+		} finally {
+			index.close();
+		}
+	}
+
+	public void testCollisions() throws IOException {
+		// "Aa" and "BB" have the same hash code, and so do their concatenations
+		write("Aa;1\nBB;2\nAaBB;3\nBBAa;4\nAaAa;5\nBB;6\n");
+		assertEquals(MultiKeyTable.hash(new String[] { "Aa" }), MultiKeyTable.hash(new String[] { "BB" }));
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 1 }, 2);
+		HashedLineIndex.build(this.dataFile, format, this.indexFile);
+		HashedLineIndex index = new HashedLineIndex(this.dataFile, this.indexFile);
+		try {
+			assertEquals(6, index.size());
+			int hash = MultiKeyTable.hash(new String[] { "Aa" });
+			int first = index.first(hash);
+			assertEquals("Aa;1", index.lineAt(first));
+			assertEquals("BB;2", index.lineAt(first + 1));
+			assertEquals("BB;6", index.lineAt(first + 2));
+			assertTrue(first + 3 == index.size() || index.hashAt(first + 3) != hash);
+
+			hash = MultiKeyTable.hash(new String[] { "AaBB" });
+			first = index.first(hash);
+			assertEquals("AaBB;3", index.lineAt(first));
+			assertEquals("BBAa;4", index.lineAt(first + 1));
+			assertEquals("AaAa;5", index.lineAt(first + 2));
+		} finally {
+			index.close();
+		}
+	}
+
+	public void testInvalidIndex() throws IOException {
+		write("k1;one\n");
+		OutputStream out = new FileOutputStream(this.indexFile);
+		out.write(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 });
+		out.close();
+		try {
+			new HashedLineIndex(this.dataFile, this.indexFile);
+			fail("Index should have been rejected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private void write(String content) throws IOException {
+		OutputStream out = new FileOutputStream(this.dataFile);
+		out.write(content.getBytes());
+		out.close();
+	}
+}
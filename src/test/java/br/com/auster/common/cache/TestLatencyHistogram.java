@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestLatencyHistogram extends TestCase {
+
+	public void testBucketBounds() {
+		for (long n = 0; n < 100000; n++) {
+			checkBucket(n);
+		}
+		// around each bucket boundary, up to the largest duration
+		for (int exponent = 2; exponent < 63; exponent++) {
+			for (long sub = 4; sub < 8; sub++) {
+				long lower = sub << (exponent - 2);
+				checkBucket(lower - 1);
+				checkBucket(lower);
+				checkBucket(lower + 1);
+			}
+		}
+		Random random = new Random(17);
+		for (int i = 0; i < 100000; i++) {
+			checkBucket((random.nextLong() >>> 1) >>> random.nextInt(63));
+		}
+		checkBucket(Long.MAX_VALUE);
+	}
+
+	public void testBucketsAreOrdered() {
+		int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+		for (int bucket = 0; bucket <= last; bucket++) {
+			long upper = LatencyHistogram.upperBound(bucket);
+			assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+			if (bucket < last) {
+				assertEquals(bucket + 1, LatencyHistogram.bucketOf(upper + 1));
+			}
+		}
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(last));
+	}
+
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(0.5));
+		for (int n = 1; n <= 10000; n++) {
+			histogram.record(n);
+		}
+		double[] fractions = { 0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1 };
+		for (int i = 0; i < fractions.length; i++) {
+			long expected = (long) Math.ceil(fractions[i] * 10000);
+			long actual = histogram.percentile(fractions[i]);
+			assertTrue(fractions[i] + ": " + actual, actual >= expected);
+			assertTrue(fractions[i] + ": " + actual, actual <= expected * 1.25);
+		}
+		histogram.clear();
+		assertEquals(0, histogram.percentile(0.99));
+	}
+
+	public void testSkewedPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		// 90% fast, 9% slow and 1% very slow
+		for (int i = 0; i < 900; i++) {
+			histogram.record(1000);
+		}
+		for (int i = 0; i < 90; i++) {
+			histogram.record(50000);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(2000000);
+		}
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(1000)), histogram.percentile(0.5));
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(1000)), histogram.percentile(0.9));
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(50000)), histogram.percentile(0.95));
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(50000)), histogram.percentile(0.99));
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(2000000)), histogram.percentile(0.999));
+	}
+
+	public void testNegativeDurations() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.percentile(1));
+	}
+
+	private static void checkBucket(long n) {
+		long upper = LatencyHistogram.upperBound(LatencyHistogram.bucketOf(n));
+		assertTrue(n + " above " + upper, upper >= n);
+		assertTrue(n + " far from " + upper, upper - n <= n / 4);
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestMappedMultiKeyTable extends TestCase {
+
+	private File file;
+	private File dataFile;
+
+	protected void setUp() throws Exception {
+		this.file = File.createTempFile("mapped", ".idx");
+		this.file.deleteOnExit();
+		this.dataFile = File.createTempFile("mapped", ".txt");
+		this.dataFile.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		this.file.delete();
+		this.dataFile.delete();
+		new File(this.file.getPath() + ".tmp").delete();
+	}
+
+	public void testRoundTrip() throws IOException {
+		for (int k = 1; k <= 5; k++) {
+			MultiKeyTable table = table(k, 500);
+			MappedMultiKeyTable.write(table, this.file, 42 + k);
+			MappedMultiKeyTable mapped = new MappedMultiKeyTable(this.file);
+			assertEquals(k, mapped.getKeyCount());
+			assertEquals(table.size(), mapped.size());
+			assertEquals(42 + k, mapped.getFormatFingerprint());
+			for (int i = 0; i < 500; i++) {
+				String[] keys = keys(k, i);
+				assertEquals(table.get(keys), get(mapped, keys));
+			}
+			// absent keys, including a key that exists in another position
+			assertNull(get(mapped, keys(k, 500)));
+			if (k > 1) {
+				String[] keys = keys(k, 1);
+				String first = keys[0];
+				keys[0] = keys[1];
+				keys[1] = first;
+				assertNull(get(mapped, keys));
+			}
+		}
+	}
+
+	public void testEmptyTable() throws IOException {
+		MappedMultiKeyTable.write(new MultiKeyTable(2, 0), this.file);
+		MappedMultiKeyTable mapped = new MappedMultiKeyTable(this.file);
+		assertEquals(0, mapped.size());
+		assertEquals(0, mapped.getFormatFingerprint());
+		assertNull(mapped.getTrimmed("a", "b"));
+	}
+
+	public void testGetTrimmed() throws IOException {
+		MultiKeyTable[] tables = new MultiKeyTable[5];
+		for (int k = 1; k <= 5; k++) {
+			tables[k - 1] = new MultiKeyTable(k, 0);
+			String[] keys = new String[k];
+			for (int i = 0; i < k; i++) {
+				keys[i] = "k" + i;
+			}
+			tables[k - 1].put(keys, "value" + k);
+		}
+		MappedMultiKeyTable[] mapped = new MappedMultiKeyTable[5];
+		for (int k = 0; k < 5; k++) {
+			File file = File.createTempFile("mapped" + k, ".idx");
+			file.deleteOnExit();
+			MappedMultiKeyTable.write(tables[k], file);
+			mapped[k] = new MappedMultiKeyTable(file);
+		}
+		assertEquals("value1", mapped[0].getTrimmed(" k0\t"));
+		assertEquals("value2", mapped[1].getTrimmed("k0", "  k1"));
+		assertEquals("value3", mapped[2].getTrimmed("k0 ", "k1", "k2\n"));
+		assertEquals("value4", mapped[3].getTrimmed("k0", "k1", " k2 ", "k3"));
+		assertEquals("value5", mapped[4].getTrimmed("k0", "k1", "k2", "k3", "  k4  "));
+		assertNull(mapped[1].getTrimmed("k1", "k0"));
+		assertNull(mapped[0].getTrimmed("k 0"));
+		assertNull(mapped[0].getTrimmed(""));
+		for (int k = 0; k < 5; k++) {
+			mapped[k].getFile().delete();
+		}
+	}
+
+	public void testInvalidFile() throws IOException {
+		write(this.file, "not a table, but long enough to have a header");
+		try {
+			new MappedMultiKeyTable(this.file);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		write(this.file, "short");
+		try {
+			new MappedMultiKeyTable(this.file);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testFilterHashes() throws IOException {
+		for (int k = 1; k <= 5; k++) {
+			MultiKeyTable table = table(k, 1000);
+			MappedMultiKeyTable.write(table, this.file);
+			MappedMultiKeyTable mapped = new MappedMultiKeyTable(this.file);
+			BloomFilter expected = table.createFilter(0.01);
+			BloomFilter actual = mapped.createFilter(0.01);
+			assertEquals(expected.getBitCount(), actual.getBitCount());
+			assertEquals(expected.getHashCount(), actual.getHashCount());
+
+			// the same hashes were added, so both filters answer the same
+			for (int i = 0; i < 1000; i++) {
+				int hash = MultiKeyTable.hash(keys(k, i));
+				assertTrue(actual.mightContain(hash));
+			}
+			Random random = new Random(k);
+			for (int i = 0; i < 10000; i++) {
+				int hash = random.nextInt();
+				assertEquals(expected.mightContain(hash), actual.mightContain(hash));
+			}
+		}
+	}
+
+	public void testCombine() {
+		String[] keys = { "a", " bc ", "def" };
+		int hash = 1;
+		for (int i = 0; i < keys.length; i++) {
+			hash = MultiKeyTable.combine(hash, keys[i]);
+		}
+		assertEquals(MultiKeyTable.hash(new String[] { "a", "bc", "def" }), hash);
+	}
+
+	public void testLoadIndexed() throws Exception {
+		MultiKeyTableLoader loader = new MultiKeyTableLoader(new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 3));
+		write(this.dataFile, "a;x;1\nb;y;2\n");
+		assertTrue(this.file.delete());
+
+		// built when missing
+		MultiKeyLookup lookup = MultiKeyCache.loadIndexed(loader, this.dataFile.getPath(), this.file);
+		assertEquals("2", lookup.getTrimmed("b", "y"));
+		assertTrue(this.file.exists());
+		assertEquals(loader.getFormat().getFingerprint(), ((MappedMultiKeyTable) lookup).getFormatFingerprint());
+
+		// reused when newer than the data file and built with the same format
+		long modified = this.dataFile.lastModified();
+		assertTrue(this.file.setLastModified(modified + 10000));
+		write(this.dataFile, "a;x;1\nb;y;3\n");
+		assertTrue(this.dataFile.setLastModified(modified));
+		lookup = MultiKeyCache.loadIndexed(loader, this.dataFile.getPath(), this.file);
+		assertEquals("2", lookup.getTrimmed("b", "y"));
+
+		// rebuilt when the data file is newer
+		assertTrue(this.dataFile.setLastModified(modified + 20000));
+		lookup = MultiKeyCache.loadIndexed(loader, this.dataFile.getPath(), this.file);
+		assertEquals("3", lookup.getTrimmed("b", "y"));
+
+		// rebuilt when the format changed
+		assertTrue(this.file.setLastModified(modified + 30000));
+		MultiKeyTableLoader other = new MultiKeyTableLoader(new MultiKeyRecordFormat(";", new int[] { 2, 1 }, 3));
+		lookup = MultiKeyCache.loadIndexed(other, this.dataFile.getPath(), this.file);
+		assertEquals("3", lookup.getTrimmed("y", "b"));
+		assertNull(lookup.getTrimmed("b", "y"));
+
+		// rebuilt when it is not an index
+		write(this.file, "garbage");
+		assertTrue(this.file.setLastModified(modified + 40000));
+		lookup = MultiKeyCache.loadIndexed(loader, this.dataFile.getPath(), this.file);
+		assertEquals("3", lookup.getTrimmed("b", "y"));
+		assertFalse(new File(this.file.getPath() + ".tmp").exists());
+	}
+
+	private static MultiKeyTable table(int keyCount, int size) {
+		MultiKeyTable table = new MultiKeyTable(keyCount, size);
+		for (int i = 0; i < size; i++) {
+			// values shared by several keys
+			table.put(keys(keyCount, i), "v" + (i % 7));
+		}
+		return table;
+	}
+
+	private static String[] keys(int keyCount, int i) {
+		String[] keys = new String[keyCount];
+		for (int k = 0; k < keyCount; k++) {
+			keys[k] = "k" + k + "-" + (i * (k + 1));
+		}
+		return keys;
+	}
+
+	private static String get(MultiKeyLookup lookup, String[] keys) {
+		switch (keys.length) {
+			case 1: return lookup.getTrimmed(keys[0]);
+			case 2: return lookup.getTrimmed(keys[0], keys[1]);
+			case 3: return lookup.getTrimmed(keys[0], keys[1], keys[2]);
+			case 4: return lookup.getTrimmed(keys[0], keys[1], keys[2], keys[3]);
+			default: return lookup.getTrimmed(keys[0], keys[1], keys[2], keys[3], keys[4]);
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+/**
+ * @version $Id$
+ */
+public class TestMultiKeyCache extends TestCase {
+
+	private File dataFile;
+
+	protected void setUp() throws Exception {
+		this.dataFile = File.createTempFile("multikey", ".txt");
+		this.dataFile.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		this.dataFile.delete();
+	}
+
+	public void testFailedTableIsLoadedOnceFixed() throws Exception {
+		assertTrue(this.dataFile.delete());
+		MultiKeyCache cache = new MultiKeyCache();
+		try {
+			cache.configure(config("fixed", 1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+		try {
+			MultiKeyCache.table("fixed");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		write("a;x;1\nb;y;2\n");
+		long deadline = System.currentTimeMillis() + 10000;
+		while (true) {
+			try {
+				assertEquals("2", MultiKeyCache.table("fixed").get("b", "y"));
+				break;
+			} catch (IllegalArgumentException e) {
+				if (System.currentTimeMillis() > deadline) {
+					fail("table not loaded after its file was fixed");
+				}
+				Thread.sleep(100);
+			}
+		}
+		// stop the reloader
+		write("a;x;1\n");
+		cache.configure(config("fixed", 0));
+		assertEquals("", MultiKeyCache.table("fixed").get("b", "y"));
+	}
+
+	public void testFailedTableWithoutReloadInterval() throws Exception {
+		assertTrue(this.dataFile.delete());
+		MultiKeyCache cache = new MultiKeyCache();
+		try {
+			cache.configure(config("unwatched", 0));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+		assertTrue(MultiKeyCache.getLoadErrors().containsKey("unwatched"));
+		try {
+			MultiKeyCache.table("unwatched");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private Element config(String name, int reloadInterval) throws Exception {
+		String xml = "<manager><table table-name=\"" + name + "\" data-path=\"" + this.dataFile.getPath() + "\"" + 
+		             " reload-interval=\"" + reloadInterval + "\">" + 
+		             "<items type=\"index\" separator=\";\">" + 
+		             "<key name=\"k1\" index=\"1\"/><key name=\"k2\" index=\"2\"/><value name=\"v\" index=\"3\"/>" + 
+		             "</items></table></manager>";
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+		                             .parse(new InputSource(new StringReader(xml))).getDocumentElement();
+	}
+
+	private void write(String content) throws IOException {
+		OutputStream out = new FileOutputStream(this.dataFile);
+		out.write(content.getBytes());
+		out.close();
+	}
+}
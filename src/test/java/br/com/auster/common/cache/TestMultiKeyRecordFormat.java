@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestMultiKeyRecordFormat extends TestCase {
+
+	public void testIndexFields() {
+		// keys in fields 3 and 1, value in field 2
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 3, 1 }, 2);
+		assertEquals(MultiKeyRecordFormat.TYPE_INDEX, format.getType());
+		assertEquals(2, format.getKeyCount());
+		String[] fields = new String[3];
+		assertTrue(format.parse("a;b;c;d", fields));
+		assertEquals("c", fields[0]);
+		assertEquals("a", fields[1]);
+		assertEquals("b", fields[2]);
+
+		// fields may be empty, and are not trimmed
+		assertTrue(format.parse(" a ;;c", fields));
+		assertEquals("c", fields[0]);
+		assertEquals(" a ", fields[1]);
+		assertEquals("", fields[2]);
+
+		// missing fields
+		assertFalse(format.parse("a;b", fields));
+		assertFalse(format.parse("", fields));
+	}
+
+	public void testIndexSeparatorIsLiteral() {
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(".", new int[] { 1 }, 2);
+		String[] fields = new String[2];
+		assertTrue(format.parse("x.y.z", fields));
+		assertEquals("x", fields[0]);
+		assertEquals("y", fields[1]);
+
+		format = new MultiKeyRecordFormat("||", new int[] { 2 }, 1);
+		assertTrue(format.parse("v1||k1||rest", fields));
+		assertEquals("k1", fields[0]);
+		assertEquals("v1", fields[1]);
+		assertFalse(format.parse("v1|k1", fields));
+	}
+
+	public void testSlices() {
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(new int[] { 1, 4 }, new int[] { 3, 2 }, 6, 5);
+		assertEquals(MultiKeyRecordFormat.TYPE_SLICE, format.getType());
+		assertEquals(2, format.getKeyCount());
+		String[] fields = new String[3];
+		assertTrue(format.parse("AB 7 VALUE", fields));
+		assertEquals("AB", fields[0]);
+		assertEquals("7", fields[1]);
+		assertEquals("VALUE", fields[2]);
+
+		// a last field cut short is accepted
+		assertTrue(format.parse("ABC12VA", fields));
+		assertEquals("ABC", fields[0]);
+		assertEquals("12", fields[1]);
+		assertEquals("VA", fields[2]);
+
+		// a field starting past the end of the line is not
+		assertFalse(format.parse("ABC12", fields));
+	}
+
+	public void testInvalidFormats() {
+		try {
+			new MultiKeyRecordFormat("", new int[] { 1 }, 2);
+			fail("empty separator");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MultiKeyRecordFormat(";", new int[] { 0 }, 2);
+			fail("field 0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MultiKeyRecordFormat(new int[] { 1 }, new int[] { 1, 2 }, 3, 1);
+			fail("keys without size");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MultiKeyRecordFormat(new int[] { 1 }, new int[] { 0 }, 3, 1);
+			fail("empty slice");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testFingerprint() {
+		int fingerprint = new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 3).getFingerprint();
+		assertEquals(fingerprint, new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 3).getFingerprint());
+		assertFalse(fingerprint == new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 4).getFingerprint());
+		assertFalse(fingerprint == new MultiKeyRecordFormat(";", new int[] { 2, 1 }, 3).getFingerprint());
+		assertFalse(fingerprint == new MultiKeyRecordFormat(",", new int[] { 1, 2 }, 3).getFingerprint());
+		assertFalse(fingerprint == new MultiKeyRecordFormat(new int[] { 1, 2 }, new int[] { 1, 1 }, 3, 1).getFingerprint());
+	}
+}
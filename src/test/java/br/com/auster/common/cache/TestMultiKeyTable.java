@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestMultiKeyTable extends TestCase {
+
+	public void testPutAndGet() {
+		MultiKeyTable table = new MultiKeyTable(2, 0);
+		assertEquals(2, table.getKeyCount());
+		assertNull(table.put(new String[] { "a", "b" }, "1"));
+		assertNull(table.put(new String[] { "b", "a" }, "2"));
+		assertEquals(2, table.size());
+		assertEquals("1", table.get(new String[] { "a", "b" }));
+		assertEquals("2", table.get(new String[] { "b", "a" }));
+		assertNull(table.get(new String[] { "a", "a" }));
+
+		// same keys replace the value
+		assertEquals("1", table.put(new String[] { "a", "b" }, "3"));
+		assertEquals(2, table.size());
+		assertEquals("3", table.get(new String[] { "a", "b" }));
+	}
+
+	public void testGrowth() {
+		MultiKeyTable table = new MultiKeyTable(1, 1);
+		for (int i = 0; i < 10000; i++) {
+			table.put(new String[] { String.valueOf(i) }, "v" + i);
+		}
+		assertEquals(10000, table.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("v" + i, table.get(new String[] { String.valueOf(i) }));
+			assertEquals("v" + i, table.getTrimmed(String.valueOf(i)));
+		}
+		assertNull(table.getTrimmed("10000"));
+	}
+
+	public void testGetTrimmed() {
+		MultiKeyTable[] tables = new MultiKeyTable[5];
+		for (int k = 1; k <= 5; k++) {
+			tables[k - 1] = new MultiKeyTable(k, 0);
+			String[] keys = new String[k];
+			for (int i = 0; i < k; i++) {
+				keys[i] = "k" + i;
+			}
+			tables[k - 1].put(keys, "value" + k);
+		}
+		assertEquals("value1", tables[0].getTrimmed(" k0\t"));
+		assertEquals("value2", tables[1].getTrimmed("k0", "  k1"));
+		assertEquals("value3", tables[2].getTrimmed("k0 ", "k1", "k2\n"));
+		assertEquals("value4", tables[3].getTrimmed("k0", "k1", " k2 ", "k3"));
+		assertEquals("value5", tables[4].getTrimmed("k0", "k1", "k2", "k3", "  k4  "));
+		assertNull(tables[1].getTrimmed("k1", "k0"));
+		assertNull(tables[0].getTrimmed("k 0"));
+		assertNull(tables[0].getTrimmed(""));
+	}
+
+	public void testInvalidKeys() {
+		MultiKeyTable table = new MultiKeyTable(2, 0);
+		try {
+			table.put(new String[] { "a" }, "1");
+			fail("one key in a table of two");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			table.put(new String[] { "a", null }, "1");
+			fail("null key");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			table.put(new String[] { "a", "b" }, null);
+			fail("null value");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			table.getTrimmed("a");
+			fail("one key in a table of two");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestMultiKeyTableLoader extends TestCase {
+
+	private File file;
+
+	protected void setUp() throws Exception {
+		this.file = File.createTempFile("mktable", ".txt");
+		this.file.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		this.file.delete();
+	}
+
+	public void testLastLineWins() throws IOException {
+		// more than one batch, so batches parsed by different threads are merged
+		int lines = MultiKeyTableLoader.BATCH_SIZE * 3 + 17;
+		PrintWriter out = new PrintWriter(new FileWriter(this.file));
+		for (int i = 0; i < lines; i++) {
+			out.println((i % 1000) + ";" + (i % 7) + ";line" + i);
+		}
+		out.close();
+
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 1, 2 }, 3);
+		MultiKeyTable sequential = new MultiKeyTableLoader(format, 1).load(this.file.getPath());
+		MultiKeyTable parallel = new MultiKeyTableLoader(format, 4).load(this.file.getPath());
+		assertEquals(7000, sequential.size());
+		assertEquals(7000, parallel.size());
+		String[] keys = new String[2];
+		for (int i = lines - 7000; i < lines; i++) {
+			keys[0] = String.valueOf(i % 1000);
+			keys[1] = String.valueOf(i % 7);
+			assertEquals("line" + i, sequential.get(keys));
+			assertEquals("line" + i, parallel.get(keys));
+		}
+	}
+
+	public void testMalformedLinesAreSkipped() throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(this.file));
+		out.println("1;one");
+		out.println("2");
+		out.println("");
+		out.println("3;three;extra");
+		out.close();
+
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(";", new int[] { 1 }, 2);
+		MultiKeyTable table = new MultiKeyTableLoader(format, 2).load(this.file.getPath());
+		assertEquals(2, table.size());
+		assertEquals("one", table.getTrimmed("1"));
+		assertNull(table.getTrimmed("2"));
+		assertEquals("three", table.getTrimmed("3"));
+	}
+
+	public void testSlices() throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(this.file));
+		out.println("001 SP  Sao Paulo");
+		out.println("002 RJ  Rio");
+		out.println("003");
+		out.close();
+
+		MultiKeyRecordFormat format = new MultiKeyRecordFormat(new int[] { 1, 5 }, new int[] { 3, 3 }, 9, 20);
+		MultiKeyTable table = new MultiKeyTableLoader(format, 1).load(this.file.getPath());
+		assertEquals(2, table.size());
+		assertEquals("Sao Paulo", table.getTrimmed("001", "SP"));
+		assertEquals("Rio", table.getTrimmed("002", "RJ"));
+	}
+
+	public void testInvalidThreads() {
+		try {
+			new MultiKeyTableLoader(new MultiKeyRecordFormat(";", new int[] { 1 }, 2), 0);
+			fail("no threads");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestTableLoadGroup extends TestCase {
+
+	private static Callable loaded() {
+		return new Callable() {
+			public Object call() {
+				return null;
+			}
+		};
+	}
+
+	private static Callable failing(final Exception e) {
+		return new Callable() {
+			public Object call() throws Exception {
+				throw e;
+			}
+		};
+	}
+
+	private static Callable blocked(final CountDownLatch release) {
+		return new Callable() {
+			public Object call() throws Exception {
+				release.await();
+				return null;
+			}
+		};
+	}
+
+	public void testAllLoaded() throws Exception {
+		TableLoadGroup group = new TableLoadGroup("test", 3, 2);
+		group.submit("a", loaded());
+		group.submit("b", loaded());
+		group.submit("c", loaded());
+		assertTrue(group.await(0));
+		assertTrue(group.isDone());
+		assertTrue(group.getErrors().isEmpty());
+		assertTrue(group.getPending().isEmpty());
+	}
+
+	public void testErrorsAreKeptByTable() throws Exception {
+		IOException io = new IOException("bad file");
+		final Error error = new OutOfMemoryError("too large");
+		Exception runtime = new IllegalStateException("bad format");
+		TableLoadGroup group = new TableLoadGroup("test", 4, 1);
+		group.submit("a", failing(io));
+		group.submit("b", loaded());
+		group.submit("c", new Callable() {
+			public Object call() {
+				throw error;
+			}
+		});
+		group.submit("d", failing(runtime));
+		assertTrue(group.await(10000));
+
+		// one thread, so the tables failed in the order they were submitted
+		Map errors = group.getErrors();
+		assertEquals(Arrays.asList(new Object[] { "a", "c", "d" }), Arrays.asList(errors.keySet().toArray()));
+		assertSame(io, errors.get("a"));
+		assertSame(error, errors.get("c"));
+		assertSame(runtime, errors.get("d"));
+		assertTrue(group.getPending().isEmpty());
+
+		// a copy is returned
+		errors.clear();
+		assertEquals(3, group.getErrors().size());
+	}
+
+	public void testTimeout() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		TableLoadGroup group = new TableLoadGroup("test", 3, 2);
+		group.submit("slow", blocked(release));
+		group.submit("fast", loaded());
+		group.submit("waiting", blocked(release));
+		assertFalse(group.await(200));
+		assertFalse(group.isDone());
+		assertEquals(Arrays.asList(new Object[] { "slow", "waiting" }), group.getPending());
+		assertTrue(group.getErrors().isEmpty());
+
+		// still loading in the background, and can be waited for again
+		release.countDown();
+		assertTrue(group.await(10000));
+		assertTrue(group.isDone());
+		assertTrue(group.getPending().isEmpty());
+	}
+
+	public void testPendingBeforeStarting() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		TableLoadGroup group = new TableLoadGroup("test", 3, 1);
+		group.submit("a", blocked(release));
+		// queued behind a
+		group.submit("b", loaded());
+		assertEquals(Arrays.asList(new Object[] { "a", "b" }), group.getPending());
+		group.submit("c", loaded());
+		assertEquals(Arrays.asList(new Object[] { "a", "b", "c" }), group.getPending());
+		release.countDown();
+		assertTrue(group.await(10000));
+		assertTrue(group.getPending().isEmpty());
+	}
+
+	public void testNoTables() throws Exception {
+		TableLoadGroup group = new TableLoadGroup("test", 0, 0);
+		assertTrue(group.await(1));
+		assertTrue(group.isDone());
+		assertTrue(group.getErrors().isEmpty());
+		assertTrue(group.getPending().isEmpty());
+	}
+}
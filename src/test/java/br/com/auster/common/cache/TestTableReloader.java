@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestTableReloader extends TestCase {
+
+	private static final long TIME = 1000000000000L;
+
+	private File dataFile;
+	private CacheTableStats stats;
+	private int reloads;
+	private Exception failure;
+	private TableReloader reloader;
+
+	protected void setUp() throws Exception {
+		this.dataFile = File.createTempFile("reloader", ".txt");
+		this.dataFile.deleteOnExit();
+		write("a;1\n", TIME);
+		this.stats = new CacheTableStats("test");
+		this.reloader = new TableReloader("test", this.dataFile, this.stats, new TableReloader.Task() {
+			public void reload() throws Exception {
+				reloads++;
+				if (failure != null) {
+					throw failure;
+				}
+			}
+		});
+	}
+
+	protected void tearDown() throws Exception {
+		this.dataFile.delete();
+	}
+
+	private void write(String content, long modified) throws IOException {
+		OutputStream out = new FileOutputStream(this.dataFile);
+		out.write(content.getBytes());
+		out.close();
+		assertTrue(this.dataFile.setLastModified(modified));
+	}
+
+	public void testUnchanged() {
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(0, this.reloads);
+	}
+
+	public void testChangedFileIsReloadedOnceSettled() throws IOException {
+		write("a;2\n", TIME + 1000);
+		// seen changed for the first time: may still be being written
+		this.reloader.run();
+		assertEquals(0, this.reloads);
+		// the same in the next check
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+		// and not reloaded again while it does not change
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+	}
+
+	public void testFileStillBeingWritten() throws IOException {
+		write("a;2\n", TIME + 1000);
+		this.reloader.run();
+		write("a;2\nb;3\n", TIME + 2000);
+		this.reloader.run();
+		// only the length changed
+		write("a;2\nb;33\n", TIME + 2000);
+		this.reloader.run();
+		assertEquals(0, this.reloads);
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+	}
+
+	public void testLengthChangeIsSeen() throws IOException {
+		// copied keeping the modification time
+		write("a;1\nb;2\n", TIME);
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+	}
+
+	public void testFailedReload() throws IOException {
+		this.failure = new IOException("bad file");
+		write("a;", TIME + 1000);
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+		assertEquals(1, this.stats.getFailureCount());
+		assertTrue(this.stats.getLastError().indexOf("bad file") >= 0);
+
+		// not tried again until the file changes
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+
+		this.failure = null;
+		write("a;2\n", TIME + 2000);
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(2, this.reloads);
+		assertEquals(1, this.stats.getFailureCount());
+	}
+
+	public void testMissingFile() throws IOException {
+		assertTrue(this.dataFile.delete());
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(0, this.reloads);
+
+		// loaded once it is back
+		write("a;2\n", TIME + 1000);
+		this.reloader.run();
+		this.reloader.run();
+		assertEquals(1, this.reloads);
+	}
+}
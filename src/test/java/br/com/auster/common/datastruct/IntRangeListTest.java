@@ -100,6 +100,50 @@ public class IntRangeListTest extends TestCase {
 	}
 
 
+	public void testTouchingRanges() {
+		IntRangeList list = new IntRangeList();
+		list.add(10, 20, "A");
+		list.add(30, 40, "B");
+		list.add(20, 25, "C");
+		list.add(5, 10, "D");
+		list.add(41, 50, "E");
+
+		List<IntRangeNode> nodes = list.getNodes();
+		assertEquals(3, nodes.size());
+		assertEquals(5, nodes.get(0).getFrom());
+		assertEquals(25, nodes.get(0).getTo());
+		assertTrue(nodes.get(0).getIsOverlappingControl());
+		assertEquals("B", nodes.get(1).getValue());
+		assertEquals("E", nodes.get(2).getValue());
+
+		List<IntRangeNode> overlaps = list.getSortedOverlaps();
+		assertEquals(3, overlaps.size());
+		assertEquals("D", overlaps.get(0).getValue());
+		assertEquals("A", overlaps.get(1).getValue());
+		assertEquals("C", overlaps.get(2).getValue());
+	}
+
+	public void testNodesStaySorted() {
+		IntRangeList list = new IntRangeList();
+		java.util.Random random = new java.util.Random(20061120L);
+		for (int i = 0; i < 5000; i++) {
+			int from = random.nextInt(100000);
+			list.add(from, from + random.nextInt(20), null);
+		}
+		List<IntRangeNode> nodes = list.getNodes();
+		for (int i = 1; i < nodes.size(); i++) {
+			assertTrue(nodes.get(i - 1).getTo() < nodes.get(i).getFrom());
+		}
+		int controls = 0;
+		for (IntRangeNode node : nodes) {
+			if (node.getIsOverlappingControl()) {
+				controls++;
+			}
+		}
+		assertEquals(5000, nodes.size() - controls + list.getOverlaps().size());
+	}
+
+
 	public static final CallInfo buildCall(String _date1, String _date2) throws Exception {
 
 		return new CallInfo(sdf.parse(_date1), sdf.parse(_date2));
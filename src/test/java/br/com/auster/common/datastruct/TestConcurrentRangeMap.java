@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestConcurrentRangeMap extends TestCase {
+
+	private volatile boolean done;
+	private volatile boolean failed;
+
+	public void testAutoPublish() {
+		ConcurrentRangeMap map = new ConcurrentRangeMap();
+		map.add(10, 20, "A");
+		assertEquals(1, map.getSize());
+		assertEquals("A", map.get(15).get(0));
+		assertEquals("A", map.removeRange(15).get(0));
+		assertNull(map.get(15));
+	}
+
+	public void testManualPublish() {
+		ConcurrentRangeMap map = new ConcurrentRangeMap(false);
+		map.add(10, 20, "A");
+		map.add(15, 25, "B");
+		assertEquals(0, map.getSize());
+		assertNull(map.get(15));
+
+		map.publish();
+		RangeMap expected = new RangeMap();
+		expected.add(10, 20, "A");
+		expected.add(15, 25, "B");
+		assertEquals(3, map.getSize());
+		assertEquals(2, map.get(15).size());
+		assertEquals(expected.getOverlappingRanges().size(), map.getOverlappingRanges().size());
+	}
+
+	public void testReadersSeeWholeVersions() throws Exception {
+		final ConcurrentRangeMap map = new ConcurrentRangeMap(build(0), false);
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread() {
+				public void run() {
+					while (!done) {
+						FrozenRangeMap snapshot = map.getSnapshot();
+						Object version = snapshot.get(0).get(0);
+						for (long key = 0; key < 1000; key += 10) {
+							List values = snapshot.get(key);
+							if (values == null || !version.equals(values.get(0))) {
+								failed = true;
+							}
+						}
+					}
+				}
+			};
+			readers[t].start();
+		}
+		for (int version = 1; version <= 50; version++) {
+			map.replace(build(version));
+		}
+		done = true;
+		for (int t = 0; t < readers.length; t++) {
+			readers[t].join();
+		}
+		assertFalse(failed);
+		assertEquals(new Integer(50), map.get(999).get(0));
+	}
+
+	private static RangeMap build(int version) {
+		RangeMap map = new RangeMap();
+		for (long from = 0; from < 1000; from += 10) {
+			map.add(from, from + 10, new Integer(version));
+		}
+		return map;
+	}
+}
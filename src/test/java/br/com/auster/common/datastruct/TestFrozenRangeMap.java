@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestFrozenRangeMap extends TestCase {
+
+	private RangeMap rm;
+
+	protected void setUp() throws Exception {
+		this.rm = new RangeMap();
+		Random random = new Random(20061021L);
+		for (int i = 0; i < 500; i++) {
+			long from = random.nextInt(10000);
+			long to = from + 1 + random.nextInt(50);
+			rm.add(from, to, "V" + (i % 7));
+		}
+	}
+
+	public void testEmpty() {
+		FrozenRangeMap frozen = new RangeMap().freeze();
+		assertEquals(0, frozen.getSize());
+		assertNull(frozen.get(0));
+		assertFalse(frozen.iterator().hasNext());
+	}
+
+	public void testSameLookups() {
+		FrozenRangeMap frozen = rm.freeze();
+		assertEquals(rm.getSize(), frozen.getSize());
+		for (long key = -10; key < 10100; key++) {
+			assertEquals("key " + key, rm.get(key), frozen.get(key));
+		}
+	}
+
+	public void testSameIteration() {
+		FrozenRangeMap frozen = rm.freeze();
+		Iterator expected = rm.iterator();
+		Iterator actual = frozen.iterator();
+		while (expected.hasNext()) {
+			assertTrue(actual.hasNext());
+			RangeEntry e1 = (RangeEntry) expected.next();
+			RangeEntry e2 = (RangeEntry) actual.next();
+			assertEquals(e1.getFrom(), e2.getFrom());
+			assertEquals(e1.getTo(), e2.getTo());
+			assertEquals(e1.getValues(), e2.getValues());
+		}
+		assertFalse(actual.hasNext());
+		assertEquals(rm.getOverlappingRanges().size(), frozen.getOverlappingRanges().size());
+	}
+
+	public void testSnapshotIsIsolated() {
+		RangeMap map = new RangeMap();
+		map.add(10, 20, "A");
+		FrozenRangeMap frozen = map.freeze();
+		map.add(15, 25, "B");
+		map.get(10).add("C");
+
+		assertEquals(1, frozen.getSize());
+		assertEquals(1, frozen.get(15).size());
+		assertNull(frozen.get(20));
+		try {
+			frozen.get(10).add("D");
+			fail("values should be read-only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testEqualValuesAreShared() {
+		RangeMap map = new RangeMap();
+		map.add(0, 10, "A");
+		map.add(20, 30, "A");
+		FrozenRangeMap frozen = map.freeze();
+		List first = frozen.get(5);
+		assertSame(first, frozen.get(25));
+	}
+}
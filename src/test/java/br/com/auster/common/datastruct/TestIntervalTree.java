@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestIntervalTree extends TestCase {
+
+	public void testOverlapsAreNotSplit() {
+		IntervalTree tree = new IntervalTree();
+		tree.add(10, 20, "A");
+		tree.add(15, 25, "B");
+		assertEquals(2, tree.getSize());
+		assertEquals(1, tree.get(12).size());
+		assertEquals(2, tree.get(17).size());
+		assertEquals("A", tree.get(17).get(0));
+		assertEquals("B", tree.get(20).get(0));
+		assertNull(tree.get(25));
+		assertEquals(2, tree.getOverlapping(19, 21).size());
+		assertEquals(0, tree.getOverlapping(25, 30).size());
+		assertEquals(0, tree.getCovering(Long.MAX_VALUE - 1).size());
+		tree.add(Long.MAX_VALUE - 10, Long.MAX_VALUE, "C");
+		assertEquals(1, tree.getCovering(Long.MAX_VALUE - 1).size());
+	}
+
+	public void testSameAsBruteForce() {
+		Random random = new Random(20061021L);
+		IntervalTree tree = new IntervalTree();
+		List intervals = new ArrayList();
+		for (int i = 0; i < 2000; i++) {
+			long from = random.nextInt(10000);
+			long to = from + 1 + random.nextInt(random.nextBoolean() ? 10 : 2000);
+			tree.add(from, to, new Integer(i));
+			intervals.add(new IntervalTree.Interval(from, to, new Integer(i)));
+		}
+		assertEquals(2000, tree.getSize());
+
+		for (int q = 0; q < 500; q++) {
+			long key = random.nextInt(12100) - 50;
+			List expected = new ArrayList();
+			for (Iterator it = intervals.iterator(); it.hasNext();) {
+				IntervalTree.Interval interval = (IntervalTree.Interval) it.next();
+				if (interval.getFrom() <= key && key < interval.getTo()) {
+					expected.add(interval.getValue());
+				}
+			}
+			List actual = tree.get(key);
+			assertEquals(expected.size(), actual == null ? 0 : actual.size());
+			if (actual != null) {
+				assertTrue(actual.containsAll(expected));
+			}
+
+			long from = random.nextInt(12000);
+			long to = from + 1 + random.nextInt(100);
+			int count = 0;
+			for (Iterator it = intervals.iterator(); it.hasNext();) {
+				IntervalTree.Interval interval = (IntervalTree.Interval) it.next();
+				if (interval.getFrom() < to && from < interval.getTo()) {
+					count++;
+				}
+			}
+			assertEquals(count, tree.getOverlapping(from, to).size());
+		}
+	}
+
+	public void testIterationOrder() {
+		IntervalTree tree = new IntervalTree();
+		for (int i = 0; i < 100; i++) {
+			tree.add(1000 - i, 2000, new Integer(i));
+			tree.add(50, 60, new Integer(i));
+		}
+		long last = Long.MIN_VALUE;
+		int count = 0;
+		int sameStart = -1;
+		for (Iterator it = tree.iterator(); it.hasNext(); count++) {
+			IntervalTree.Interval interval = (IntervalTree.Interval) it.next();
+			assertTrue(last <= interval.getFrom());
+			if (interval.getFrom() == 50) {
+				// same start: insertion order
+				assertEquals(sameStart + 1, ((Integer) interval.getValue()).intValue());
+				sameStart++;
+			}
+			last = interval.getFrom();
+		}
+		assertEquals(200, count);
+
+		tree.clear();
+		assertEquals(0, tree.getSize());
+		assertNull(tree.get(50));
+	}
+}
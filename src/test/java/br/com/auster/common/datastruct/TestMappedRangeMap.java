@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestMappedRangeMap extends TestCase {
+
+	private File file;
+
+	protected void setUp() throws Exception {
+		this.file = File.createTempFile("rangemap", ".bin");
+		this.file.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		this.file.delete();
+	}
+
+	public void testSameLookups() throws IOException {
+		RangeMap rm = new RangeMap();
+		Random random = new Random(20061021L);
+		for (int i = 0; i < 500; i++) {
+			long from = random.nextInt(10000) - 5000;
+			rm.add(from, from + 1 + random.nextInt(50), "V" + (i % 7));
+		}
+		MappedRangeMap.write(rm, this.file);
+		MappedRangeMap mapped = new MappedRangeMap(this.file);
+
+		assertEquals(rm.getSize(), mapped.getSize());
+		for (long key = -5010; key < 5100; key++) {
+			assertEquals("key " + key, rm.get(key), mapped.get(key));
+		}
+		Iterator expected = rm.iterator();
+		Iterator actual = mapped.iterator();
+		while (expected.hasNext()) {
+			RangeEntry e1 = (RangeEntry) expected.next();
+			RangeEntry e2 = (RangeEntry) actual.next();
+			assertEquals(e1.getFrom(), e2.getFrom());
+			assertEquals(e1.getTo(), e2.getTo());
+			assertEquals(e1.getValues(), e2.getValues());
+		}
+		assertFalse(actual.hasNext());
+	}
+
+	public void testEmptyAndFrozen() throws IOException {
+		MappedRangeMap.write(new RangeMap(), this.file);
+		assertEquals(0, new MappedRangeMap(this.file).getSize());
+		assertNull(new MappedRangeMap(this.file).get(0));
+
+		RangeMap rm = new RangeMap();
+		rm.add(Long.MIN_VALUE, 0, "N");
+		rm.add(0, Long.MAX_VALUE, "P");
+		MappedRangeMap.write(rm.freeze(), this.file);
+		MappedRangeMap mapped = new MappedRangeMap(this.file);
+		assertEquals("N", mapped.get(Long.MIN_VALUE).get(0));
+		assertEquals("P", mapped.get(Long.MAX_VALUE - 1).get(0));
+		assertNull(mapped.get(Long.MAX_VALUE));
+		try {
+			mapped.get(0).add("X");
+			fail("values should be read-only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testRewriteWhileOpen() throws IOException {
+		RangeMap large = new RangeMap();
+		for (int i = 0; i < 10000; i++) {
+			large.add(i * 10, i * 10 + 5, "L" + (i % 13));
+		}
+		MappedRangeMap.write(large, this.file);
+		MappedRangeMap old = new MappedRangeMap(this.file);
+
+		RangeMap small = new RangeMap();
+		small.add(0, 5, "S");
+		MappedRangeMap.write(small, this.file);
+
+		// the old mapping still reads the old contents
+		assertEquals(10000, old.getSize());
+		assertEquals("L" + (9999 % 13), old.get(99992).get(0));
+		assertEquals("L0", old.get(0).get(0));
+		// reopening shows the new ones
+		MappedRangeMap reopened = new MappedRangeMap(this.file);
+		assertEquals(1, reopened.getSize());
+		assertEquals("S", reopened.get(0).get(0));
+		assertNull(reopened.get(99992));
+
+		File[] siblings = this.file.getAbsoluteFile().getParentFile().listFiles();
+		for (int i = 0; i < siblings.length; i++) {
+			assertFalse(siblings[i].getName().startsWith("rangemap") && siblings[i].getName().endsWith(".tmp"));
+		}
+	}
+
+	public void testInvalidFile() throws IOException {
+		FileOutputStream out = new FileOutputStream(this.file);
+		out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+		out.close();
+		try {
+			new MappedRangeMap(this.file);
+			fail("not a range map file");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
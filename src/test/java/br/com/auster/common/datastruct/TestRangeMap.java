@@ -17,8 +17,11 @@
  */
 package br.com.auster.common.datastruct;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -94,4 +97,97 @@ public class TestRangeMap extends TestCase {
 		System.out.println("Overlap Size:" + rm.getOverlappingRanges().size() + ".Overlap:"+ rm.getOverlappingRanges());
 	}
 
+	/**
+	 * Test method for {@link br.com.auster.common.datastruct.RangeMap#getFirst(long)}
+	 * and the compact value storage of {@link br.com.auster.common.datastruct.RangeEntry}.
+	 */
+	public void testGetFirst() {
+		rm.add(10, 20, "A");
+		assertNull(rm.getFirst(5));
+		assertEquals("A", rm.getFirst(10));
+		rm.add(10, 20, "B");
+		rm.add(10, 20, "C");
+		assertEquals("A", rm.getFirst(15));
+		assertEquals(3, rm.get(15).size());
+
+		List values = rm.get(15);
+		values.remove(0);
+		values.add(0, "Z");
+		assertEquals("Z", rm.getFirst(15));
+		assertEquals("B", rm.get(15).get(1));
+
+		RangeEntry entry = new RangeEntry(0, 1);
+		assertEquals(0, entry.getValueCount());
+		assertNull(entry.getFirstValue());
+		entry.addValue("X");
+		entry.addValues(entry.getValues());
+		entry.removeValue("X");
+		assertEquals(1, entry.getValueCount());
+		assertEquals("[ 0, 1 ) => [X]", entry.toString());
+	}
+
+	/**
+	 * Test method for {@link br.com.auster.common.datastruct.RangeMap#getAll(long[])}.
+	 */
+	public void testGetAll() {
+		Random random = new Random(20061021L);
+		for (int i = 0; i < 300; i++) {
+			long from = random.nextInt(5000);
+			rm.add(from, from + 1 + random.nextInt(30), new Integer(i));
+		}
+		long[] keys = new long[2000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextInt(5200) - 100;
+		}
+		Arrays.sort(keys);
+		List[] values = rm.getAll(keys);
+		assertEquals(keys.length, values.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertSame(rm.get(keys[i]), values[i]);
+		}
+
+		// unsorted keys are still answered
+		values = rm.getAll(new long[] { keys[10], keys[2], keys[1999] });
+		assertSame(rm.get(keys[2]), values[1]);
+		assertSame(rm.get(keys[1999]), values[2]);
+		assertNull(new RangeMap().getAll(keys)[0]);
+	}
+
+	/**
+	 * Test method for {@link br.com.auster.common.datastruct.RangeMap#entriesIntersecting(long, long)}
+	 * and {@link br.com.auster.common.datastruct.RangeMap#subMap(long, long)}.
+	 */
+	public void testRangeScans() {
+		rm.add(0, 10, "A");
+		rm.add(20, 30, "B");
+		rm.add(25, 40, "C");
+		rm.add(50, 60, "D");
+
+		List entries = rm.entriesIntersecting(10, 26);
+		assertEquals(2, entries.size());
+		assertEquals(20, ((RangeEntry) entries.get(0)).getFrom());
+		assertEquals(25, ((RangeEntry) entries.get(1)).getFrom());
+		assertEquals(0, rm.entriesIntersecting(40, 50).size());
+		assertEquals(5, rm.entriesIntersecting(Long.MIN_VALUE, Long.MAX_VALUE).size());
+
+		RangeMap sub = rm.subMap(5, 28);
+		assertEquals(3, sub.getSize());
+		assertEquals(Collections.singletonList("A"), sub.get(5));
+		assertNull(sub.get(4));
+		assertNull(sub.get(10));
+		assertEquals(2, sub.get(27).size());
+		assertNull(sub.get(28));
+		assertEquals(1, sub.getOverlappingRanges().size());
+
+		sub.get(5).add("X");
+		assertEquals(1, rm.get(5).size());
+
+		try {
+			rm.subMap(10, 10);
+			fail("empty intervals are not allowed");
+		} catch (InvalidRangeException e) {
+			// expected
+		}
+	}
+
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.datastruct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestRangeMapBuilder extends TestCase {
+
+	public void testSameRangesAsAdd() {
+		Random random = new Random(20051101L);
+		for (int round = 0; round < 50; round++) {
+			RangeMap expected = new RangeMap();
+			RangeMapBuilder builder = new RangeMapBuilder(4);
+			for (int i = 0; i < 60; i++) {
+				long from = random.nextInt(300);
+				long to = from + 1 + random.nextInt(40);
+				String value = "V" + i;
+				if (i % 5 == 0) {
+					expected.addAll(from, to, list(value, value + "'"));
+					builder.addAll(from, to, list(value, value + "'"));
+				} else {
+					expected.add(from, to, value);
+					builder.add(from, to, value);
+				}
+			}
+			RangeMap actual = builder.build();
+			assertEquals(expected.getSize(), actual.getSize());
+			Iterator it1 = expected.iterator();
+			Iterator it2 = actual.iterator();
+			while (it1.hasNext()) {
+				RangeEntry e1 = (RangeEntry) it1.next();
+				RangeEntry e2 = (RangeEntry) it2.next();
+				assertEquals(e1.getFrom(), e2.getFrom());
+				assertEquals(e1.getTo(), e2.getTo());
+				assertEquals(e1.getValues(), e2.getValues());
+			}
+			for (long key = -1; key < 345; key++) {
+				assertEquals(expected.get(key), actual.get(key));
+			}
+			assertValidTree(actual);
+		}
+	}
+
+	public void testNewerValueFirst() {
+		RangeMap map = new RangeMapBuilder().add(10, 30, "A").add(15, 20, "B").build();
+		assertEquals(3, map.getSize());
+		assertEquals(list("A"), map.get(12));
+		assertEquals(list("B", "A"), map.get(15));
+		assertEquals(list("A"), map.get(20));
+
+		// as RangeMap.add does, values only go first where their range
+		// starts inside an earlier one
+		map = new RangeMapBuilder().add(10, 20, "A").add(10, 15, "B").add(5, 25, "C").build();
+		assertEquals(list("C"), map.get(5));
+		assertEquals(list("A", "B", "C"), map.get(10));
+		assertEquals(list("A", "C"), map.get(15));
+		assertEquals(list("C"), map.get(20));
+	}
+
+	public void testValuesInAddOrder() {
+		RangeMapBuilder builder = new RangeMapBuilder();
+		builder.add(10, 30, "A");
+		builder.add(0, 20, "B");
+		List list = new ArrayList();
+		list.add("C");
+		list.add("D");
+		builder.addAll(15, 40, list);
+		RangeMap map = builder.build();
+
+		assertEquals(5, map.getSize());
+		assertEquals(Collections.singletonList("B"), map.get(5));
+		assertEquals(list("A", "B"), map.get(12));
+		assertEquals(list("C", "D", "A", "B"), map.get(17));
+		assertEquals(list("A", "C", "D"), map.get(25));
+		assertEquals(list("C", "D"), map.get(35));
+		assertNull(map.get(40));
+		assertEquals(3, map.getOverlappingRanges().size());
+	}
+
+	public void testNoRecursionLimit() {
+		RangeMapBuilder builder = new RangeMapBuilder();
+		for (int i = 0; i < 200; i++) {
+			builder.add(i, 1000 - i, new Integer(i));
+		}
+		RangeMap map = new RangeMap(1, true);
+		builder.build(map);
+		assertEquals(399, map.getSize());
+		assertEquals(200, map.get(500).size());
+		assertValidTree(map);
+
+		// the map is still a regular map after the bulk load
+		map.removeRange(500);
+		map.add(2000, 2010, "X");
+		assertEquals(399, map.getSize());
+		assertValidTree(map);
+	}
+
+	public void testBulkLoad() {
+		List entries = new ArrayList();
+		entries.add(new RangeEntry(50, 60, list("B")));
+		entries.add(new RangeEntry(0, 10, list("A")));
+		RangeMap map = RangeMap.bulkLoad(entries.iterator());
+		assertEquals(2, map.getSize());
+		assertEquals(list("A"), map.get(0));
+		assertEquals(list("B"), map.get(59));
+		assertNull(map.get(30));
+		assertValidTree(new RangeMapBuilder().build());
+	}
+
+	public void testInvalidRange() {
+		try {
+			new RangeMapBuilder().add(10, 10, "A");
+			fail("empty ranges are not allowed");
+		} catch (InvalidRangeException e) {
+			// expected
+		}
+	}
+
+	private static List list(String a) {
+		return list(new String[] { a });
+	}
+
+	private static List list(String a, String b) {
+		return list(new String[] { a, b });
+	}
+
+	private static List list(String a, String b, String c) {
+		return list(new String[] { a, b, c });
+	}
+
+	private static List list(String a, String b, String c, String d) {
+		return list(new String[] { a, b, c, d });
+	}
+
+	private static List list(String[] values) {
+		List result = new ArrayList();
+		for (int i = 0; i < values.length; i++) {
+			result.add(values[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks the red black tree invariants and the parent links.
+	 */
+	private static void assertValidTree(RangeMap map) {
+		if (map.root != null) {
+			assertNull(map.root.parent);
+			assertEquals(RangeNode.BLACK, map.root.color);
+		}
+		blackHeight(map.root);
+	}
+
+	private static int blackHeight(RangeNode node) {
+		if (node == null) {
+			return 1;
+		}
+		if (node.left != null) {
+			assertSame(node, node.left.parent);
+			assertTrue(node.left.getEntry().getTo() <= node.getEntry().getFrom());
+		}
+		if (node.right != null) {
+			assertSame(node, node.right.parent);
+			assertTrue(node.getEntry().getTo() <= node.right.getEntry().getFrom());
+		}
+		if (node.color == RangeNode.RED) {
+			assertTrue(node.left == null || node.left.color == RangeNode.BLACK);
+			assertTrue(node.right == null || node.right.color == RangeNode.BLACK);
+		}
+		int left = blackHeight(node.left);
+		assertEquals(left, blackHeight(node.right));
+		return left + (node.color == RangeNode.BLACK ? 1 : 0);
+	}
+}
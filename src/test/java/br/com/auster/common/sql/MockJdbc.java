@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.DelegatingConnection;
+
+/**
+ * JDBC objects made with <code>java.lang.reflect.Proxy</code>, which record
+ * how they are used, for the tests that do not need a database. Methods not
+ * handled throw <code>UnsupportedOperationException</code>. Calls are
+ * serialized, so the objects can be used by the asynchronous queries.
+ * 
+ * @version $Id$
+ */
+class MockJdbc {
+
+	private MockJdbc() {
+	}
+
+	/**
+	 * Returns a data source that always hands out <code>con</code>.
+	 */
+	static DataSource dataSource(final Connection con) {
+		return (DataSource) Proxy.newProxyInstance(MockJdbc.class
+				.getClassLoader(), new Class[] { DataSource.class },
+				new Handler() {
+					Object call(String name, Object[] args) {
+						if (name.equals("getConnection")) {
+							return con;
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+
+	/**
+	 * Returns a DBCP connection over <code>con</code>, which is not closed
+	 * when the pooled connection is: "close" is only recorded in its events,
+	 * as if it were given back to the pool.
+	 */
+	static Connection pooled(final MockConnection con) {
+		return new DelegatingConnection(con.proxy) {
+			public void close() {
+				con.events.add("close");
+			}
+		};
+	}
+
+	/**
+	 * Base for the handlers, answering the methods of <code>Object</code>.
+	 */
+	abstract static class Handler implements InvocationHandler {
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			final String name = method.getName();
+			if (name.equals("equals")) {
+				return Boolean.valueOf(proxy == args[0]);
+			} else if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			} else if (name.equals("toString")) {
+				return this.toString();
+			}
+			synchronized (MockJdbc.class) {
+				return this.call(name, args == null ? new Object[0] : args);
+			}
+		}
+
+		abstract Object call(String name, Object[] args) throws SQLException;
+	}
+
+	/**
+	 * A connection that prepares {@link MockStatement}s. Its queries return
+	 * the rows given for their text, or the same rows for all of them.
+	 */
+	static class MockConnection extends Handler {
+		final Connection proxy = (Connection) Proxy.newProxyInstance(
+				MockJdbc.class.getClassLoader(),
+				new Class[] { Connection.class }, this);
+		// the statements prepared, in order
+		final List statements = new ArrayList();
+		// what was done to the connection and its statements, in order
+		final List events = new ArrayList();
+		boolean autoCommit = true;
+		boolean closed;
+		int commits;
+		int rollbacks;
+		// the result of the queries
+		String[] columns = new String[0];
+		int[] types;
+		Object[][] rows = new Object[0][];
+		final Map rowsByQuery = new HashMap();
+		// the number of queries run, and what to do when one runs
+		int queries;
+		Runnable onQuery;
+		// the number of the call to executeBatch() that fails, 0 for none
+		int failingBatch;
+		int batches;
+
+		Object call(String name, Object[] args) throws SQLException {
+			if (name.equals("prepareStatement")) {
+				MockStatement statement = new MockStatement(this,
+						(String) args[0]);
+				this.statements.add(statement);
+				return statement.proxy;
+			} else if (name.equals("createStatement")) {
+				MockStatement statement = new MockStatement(this, null);
+				this.statements.add(statement);
+				return statement.proxy;
+			} else if (name.equals("getAutoCommit")) {
+				return Boolean.valueOf(this.autoCommit);
+			} else if (name.equals("setAutoCommit")) {
+				this.autoCommit = ((Boolean) args[0]).booleanValue();
+				this.events.add("autoCommit " + this.autoCommit);
+				return null;
+			} else if (name.equals("commit")) {
+				this.commits++;
+				this.events.add("commit");
+				return null;
+			} else if (name.equals("rollback")) {
+				this.rollbacks++;
+				this.events.add("rollback");
+				return null;
+			} else if (name.equals("isClosed")) {
+				return Boolean.valueOf(this.closed);
+			} else if (name.equals("close")) {
+				this.closed = true;
+				this.events.add("close");
+				return null;
+			}
+			throw new UnsupportedOperationException(name);
+		}
+
+		/**
+		 * Returns the handler of a statement prepared by this connection.
+		 */
+		MockStatement statement(int index) {
+			return (MockStatement) this.statements.get(index);
+		}
+	}
+
+	/**
+	 * A prepared statement that records its parameters.
+	 */
+	static class MockStatement extends Handler {
+		final PreparedStatement proxy = (PreparedStatement) Proxy
+				.newProxyInstance(MockJdbc.class.getClassLoader(),
+						new Class[] { PreparedStatement.class }, this);
+		final MockConnection connection;
+		final String query;
+		// the parameters currently set, by index
+		final Map params = new HashMap();
+		// the parameters of the rows added to the batch, and of each batch
+		// run
+		List batch = new ArrayList();
+		final List batches = new ArrayList();
+		int fetchSize;
+		boolean closed;
+
+		MockStatement(MockConnection connection, String query) {
+			this.connection = connection;
+			this.query = query;
+		}
+
+		Object call(String name, Object[] args) throws SQLException {
+			if (name.equals("executeQuery")) {
+				this.connection.queries++;
+				this.connection.events.add("query");
+				if (this.connection.onQuery != null) {
+					this.connection.onQuery.run();
+				}
+				Object[][] rows = (Object[][]) this.connection.rowsByQuery
+						.get(this.query != null ? this.query : args[0]);
+				return new MockResultSet(this.connection.columns,
+						this.connection.types, rows != null ? rows
+								: this.connection.rows).proxy;
+			} else if (name.equals("addBatch")) {
+				this.batch.add(new HashMap(this.params));
+				return null;
+			} else if (name.equals("executeBatch")) {
+				final List rows = this.batch;
+				this.batch = new ArrayList();
+				this.connection.events.add("batch " + rows.size());
+				if (++this.connection.batches == this.connection.failingBatch) {
+					throw new SQLException("Batch " + this.connection.batches
+							+ " failed");
+				}
+				this.batches.add(rows);
+				final int[] counts = new int[rows.size()];
+				Arrays.fill(counts, 1);
+				return counts;
+			} else if (name.equals("setObject")) {
+				this.params.put(args[0], args[1]);
+				return null;
+			} else if (name.equals("getFetchSize")) {
+				return new Integer(this.fetchSize);
+			} else if (name.equals("setFetchSize")) {
+				this.fetchSize = ((Integer) args[0]).intValue();
+				this.connection.events.add("fetchSize " + this.fetchSize);
+				return null;
+			} else if (name.equals("clearParameters")) {
+				this.params.clear();
+				return null;
+			} else if (name.equals("isClosed")) {
+				return Boolean.valueOf(this.closed);
+			} else if (name.equals("close")) {
+				this.closed = true;
+				return null;
+			}
+			throw new UnsupportedOperationException(name);
+		}
+	}
+
+	/**
+	 * A result set over fixed rows. The column types are VARCHAR when not
+	 * given.
+	 */
+	static class MockResultSet extends Handler {
+		final ResultSet proxy = (ResultSet) Proxy.newProxyInstance(
+				MockJdbc.class.getClassLoader(),
+				new Class[] { ResultSet.class }, this);
+		final String[] columns;
+		final int[] types;
+		final Object[][] rows;
+		int row = -1;
+		boolean wasNull;
+		boolean closed;
+
+		MockResultSet(String[] columns, int[] types, Object[][] rows) {
+			this.columns = columns;
+			this.types = types;
+			this.rows = rows;
+		}
+
+		Object call(String name, Object[] args) throws SQLException {
+			if (name.equals("next")) {
+				if (this.row < this.rows.length) {
+					this.row++;
+				}
+				return Boolean.valueOf(this.row < this.rows.length);
+			} else if (name.equals("getObject")) {
+				return this.value(args[0]);
+			} else if (name.equals("getString")) {
+				Object value = this.value(args[0]);
+				return (value == null ? null : value.toString());
+			} else if (name.equals("getLong")) {
+				Number value = (Number) this.value(args[0]);
+				return new Long(value == null ? 0 : value.longValue());
+			} else if (name.equals("getInt")) {
+				Number value = (Number) this.value(args[0]);
+				return new Integer(value == null ? 0 : value.intValue());
+			} else if (name.equals("getDouble")) {
+				Number value = (Number) this.value(args[0]);
+				return new Double(value == null ? 0 : value.doubleValue());
+			} else if (name.equals("getFloat")) {
+				Number value = (Number) this.value(args[0]);
+				return new Float(value == null ? 0 : value.floatValue());
+			} else if (name.equals("wasNull")) {
+				return Boolean.valueOf(this.wasNull);
+			} else if (name.equals("findColumn")) {
+				return new Integer(this.column(args[0]));
+			} else if (name.equals("getMetaData")) {
+				return Proxy.newProxyInstance(MockJdbc.class.getClassLoader(),
+						new Class[] { ResultSetMetaData.class },
+						new MetaData());
+			} else if (name.equals("close")) {
+				this.closed = true;
+				return null;
+			}
+			throw new UnsupportedOperationException(name);
+		}
+
+		private int column(Object column) throws SQLException {
+			if (column instanceof Integer) {
+				return ((Integer) column).intValue();
+			}
+			for (int i = 0; i < this.columns.length; i++) {
+				if (this.columns[i].equalsIgnoreCase((String) column)) {
+					return i + 1;
+				}
+			}
+			throw new SQLException("No column " + column);
+		}
+
+		private Object value(Object column) throws SQLException {
+			if (this.row < 0 || this.row >= this.rows.length) {
+				throw new SQLException("Not on a row");
+			}
+			final int i = this.column(column);
+			if (i < 1 || i > this.columns.length) {
+				throw new SQLException("No column " + column);
+			}
+			final Object value = this.rows[this.row][i - 1];
+			this.wasNull = (value == null);
+			return value;
+		}
+
+		private final class MetaData extends Handler {
+			Object call(String name, Object[] args) {
+				if (name.equals("getColumnCount")) {
+					return new Integer(columns.length);
+				}
+				final int i = ((Integer) args[0]).intValue() - 1;
+				if (name.equals("getColumnName")
+						|| name.equals("getColumnLabel")) {
+					return columns[i];
+				} else if (name.equals("getColumnType")) {
+					return new Integer(types == null ? Types.VARCHAR
+							: types[i]);
+				} else if (name.equals("isSigned")) {
+					return Boolean.TRUE;
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.dbcp.DelegatingConnection;
+
+import br.com.auster.common.sql.MockJdbc.MockConnection;
+import br.com.auster.common.sql.MockJdbc.MockStatement;
+import br.com.auster.common.sql.param.SQLParam;
+
+/**
+ * @version $Id$
+ */
+public class TestPreparedStatementCache extends TestCase {
+
+	private final SQLStatement first = statement("first",
+			"SELECT a FROM t WHERE b = ?", 1);
+	private final SQLStatement second = statement("second",
+			"SELECT c FROM t", 0);
+	private final SQLStatement third = statement("third",
+			"SELECT d FROM t", 0);
+
+	private MockConnection physical;
+	private Connection pooled;
+	private PreparedStatementCache cache;
+
+	protected void setUp() {
+		this.physical = new MockConnection();
+		this.pooled = new DelegatingConnection(this.physical.proxy);
+		this.cache = new PreparedStatementCache(2);
+	}
+
+	/**
+	 * A pooled connection whose pool does not allow access to the physical
+	 * one, like those of DBCP by default.
+	 */
+	private static final class HiddenConnection extends DelegatingConnection {
+		HiddenConnection(Connection physical) {
+			super(physical);
+		}
+
+		public Connection getInnermostDelegate() {
+			return null;
+		}
+	}
+
+	private static SQLStatement statement(String name, String query,
+			int paramCount) {
+		final TIntObjectHashMap params = new TIntObjectHashMap();
+		for (int i = 1; i <= paramCount; i++) {
+			params.put(i, new SQLParam());
+		}
+		return new SQLStatement(name, query, params);
+	}
+
+	private PreparedStatement run(SQLStatement statement, Object[] params)
+			throws SQLException {
+		final PreparedStatement ps = this.cache.prepare(this.pooled,
+				statement, params);
+		this.cache.release(this.pooled, statement, ps, true);
+		return ps;
+	}
+
+	public void testInvalidSize() {
+		try {
+			new PreparedStatementCache(0);
+			fail("a cache with no statements was created");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testHits() throws SQLException {
+		assertTrue(this.cache.isCacheable(this.pooled));
+
+		final PreparedStatement ps = this.cache.prepare(this.pooled,
+				this.first, new Object[] { "x" });
+		final MockStatement stmt = this.physical.statement(0);
+		assertSame(stmt.proxy, ps);
+		assertEquals(this.first.getStatementText(), stmt.query);
+		assertEquals("x", stmt.params.get(new Integer(1)));
+		this.cache.release(this.pooled, this.first, ps, true);
+		assertTrue(stmt.params.isEmpty());
+		assertFalse(stmt.closed);
+		assertEquals(1, this.cache.getCachedStatements());
+
+		final PreparedStatement again = this.cache.prepare(this.pooled,
+				this.first, new Object[] { "y" });
+		assertSame(ps, again);
+		assertEquals("y", stmt.params.get(new Integer(1)));
+		// in use, so not in the cache
+		assertEquals(0, this.cache.getCachedStatements());
+		this.cache.release(this.pooled, this.first, again, true);
+
+		assertEquals(1, this.physical.statements.size());
+		assertEquals(1, this.cache.getHits());
+		assertEquals(1, this.cache.getMisses());
+		assertEquals(0, this.cache.getBypassed());
+		assertEquals(0.5, this.cache.getHitRatio(), 0.0);
+	}
+
+	public void testStatementsInUseAreNotShared() throws SQLException {
+		final PreparedStatement ps = this.cache.prepare(this.pooled,
+				this.second, null);
+		final PreparedStatement other = this.cache.prepare(this.pooled,
+				this.second, null);
+		assertNotSame(ps, other);
+		this.cache.release(this.pooled, this.second, ps, true);
+		this.cache.release(this.pooled, this.second, other, true);
+
+		// only one is kept for the same query
+		assertEquals(1, this.cache.getCachedStatements());
+		assertTrue(this.physical.statement(0).closed);
+		assertFalse(this.physical.statement(1).closed);
+	}
+
+	public void testConnectionsAreSeparate() throws SQLException {
+		final PreparedStatement ps = this.run(this.second, null);
+
+		final MockConnection otherPhysical = new MockConnection();
+		final Connection otherPooled = new DelegatingConnection(
+				otherPhysical.proxy);
+		final PreparedStatement other = this.cache.prepare(otherPooled,
+				this.second, null);
+		assertNotSame(ps, other);
+		assertSame(otherPhysical.statement(0).proxy, other);
+		this.cache.release(otherPooled, this.second, other, true);
+
+		assertEquals(2, this.cache.getCachedStatements());
+		assertEquals(2, this.cache.getMisses());
+	}
+
+	public void testEviction() throws SQLException {
+		this.run(this.first, new Object[] { "x" });
+		this.run(this.second, null);
+		// the first is now the most recently used
+		this.run(this.first, new Object[] { "y" });
+		this.run(this.third, null);
+
+		final MockStatement firstStmt = this.physical.statement(0);
+		final MockStatement secondStmt = this.physical.statement(1);
+		final MockStatement thirdStmt = this.physical.statement(2);
+		assertFalse(firstStmt.closed);
+		assertTrue(secondStmt.closed);
+		assertFalse(thirdStmt.closed);
+		assertEquals(2, this.cache.getCachedStatements());
+		assertEquals(1, this.cache.getEvictions());
+
+		// the evicted one is prepared again
+		this.run(this.second, null);
+		assertEquals(4, this.physical.statements.size());
+		assertTrue(firstStmt.closed);
+		assertEquals(2, this.cache.getEvictions());
+		assertEquals(1, this.cache.getHits());
+		assertEquals(4, this.cache.getMisses());
+	}
+
+	public void testFailedStatementsAreClosed() throws SQLException {
+		final PreparedStatement ps = this.cache.prepare(this.pooled,
+				this.first, new Object[] { "x" });
+		this.cache.release(this.pooled, this.first, ps, false);
+		assertTrue(this.physical.statement(0).closed);
+		assertEquals(0, this.cache.getCachedStatements());
+
+		// wrong number of parameters
+		try {
+			this.cache.prepare(this.pooled, this.first, null);
+			fail("the parameters were not checked");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertTrue(this.physical.statement(1).closed);
+		assertEquals(0, this.cache.getCachedStatements());
+
+		// a cached statement that fails is closed and not put back
+		this.run(this.first, new Object[] { "x" });
+		try {
+			this.cache.prepare(this.pooled, this.first, new Object[0]);
+			fail("the parameters were not checked");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertTrue(this.physical.statement(2).closed);
+		assertEquals(0, this.cache.getCachedStatements());
+		assertEquals(3, this.physical.statements.size());
+	}
+
+	public void testClear() throws SQLException {
+		this.run(this.first, new Object[] { "x" });
+		this.run(this.second, null);
+		this.cache.clear();
+		assertEquals(0, this.cache.getCachedStatements());
+		assertTrue(this.physical.statement(0).closed);
+		assertTrue(this.physical.statement(1).closed);
+
+		this.run(this.first, new Object[] { "x" });
+		assertEquals(3, this.physical.statements.size());
+		assertEquals(0, this.cache.getHits());
+	}
+
+	public void testClosedConnectionsAreDropped() throws SQLException {
+		this.run(this.second, null);
+		this.physical.closed = true;
+
+		// a closed connection is not cacheable any more
+		final PreparedStatement ps = this.run(this.second, null);
+		assertTrue(this.physical.statement(1).closed);
+		assertSame(this.physical.statement(1).proxy, ps);
+
+		// its statements are closed once another connection is seen
+		final MockConnection otherPhysical = new MockConnection();
+		this.pooled = new DelegatingConnection(otherPhysical.proxy);
+		this.run(this.second, null);
+		assertTrue(this.physical.statement(0).closed);
+		assertEquals(1, this.cache.getCachedStatements());
+	}
+
+	public void testHiddenConnectionsAreBypassed() throws SQLException {
+		this.pooled = new HiddenConnection(this.physical.proxy);
+		assertFalse(this.cache.isCacheable(this.pooled));
+
+		this.run(this.second, null);
+		this.run(this.second, null);
+		assertEquals(2, this.physical.statements.size());
+		assertTrue(this.physical.statement(0).closed);
+		assertTrue(this.physical.statement(1).closed);
+		assertEquals(0, this.cache.getCachedStatements());
+		assertEquals(2, this.cache.getBypassed());
+		assertEquals(0, this.cache.getMisses());
+		assertEquals(0, this.cache.getHits());
+		assertEquals(0.0, this.cache.getHitRatio(), 0.0);
+
+		// connections that do not come from DBCP are not cached either
+		this.pooled = this.physical.proxy;
+		assertFalse(this.cache.isCacheable(this.pooled));
+		this.run(this.second, null);
+		assertTrue(this.physical.statement(2).closed);
+		assertEquals(3, this.cache.getBypassed());
+	}
+
+	public void testManagerDisablesCacheForHiddenConnections()
+			throws Exception {
+		final SQLConnectionManager manager = new SQLConnectionManager(
+				"test", "jdbc:test", new HashMap(), 2);
+		manager.ds = MockJdbc.dataSource(new HiddenConnection(this.physical.proxy));
+		assertNotNull(manager.getStatementCache());
+		manager.testConfiguration();
+		assertNull(manager.getStatementCache());
+		assertTrue(this.physical.closed);
+	}
+
+	public void testManagerKeepsCacheForAccessibleConnections()
+			throws Exception {
+		final SQLConnectionManager manager = new SQLConnectionManager(
+				"test", "jdbc:test", new HashMap(), 2);
+		manager.ds = MockJdbc.dataSource(this.pooled);
+		final PreparedStatementCache statementCache = manager
+				.getStatementCache();
+		manager.testConfiguration();
+		assertSame(statementCache, manager.getStatementCache());
+		assertTrue(this.physical.closed);
+	}
+}
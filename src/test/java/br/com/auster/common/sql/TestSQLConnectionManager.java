@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase;
+
+import br.com.auster.common.sql.MockJdbc.MockConnection;
+import br.com.auster.common.sql.MockJdbc.MockResultSet;
+import br.com.auster.common.sql.MockJdbc.MockStatement;
+import br.com.auster.common.sql.param.SQLParam;
+
+/**
+ * @version $Id$
+ */
+public class TestSQLConnectionManager extends TestCase {
+
+	private MockConnection con;
+	private SQLConnectionManager manager;
+
+	protected void setUp() throws Exception {
+		final Map statements = new HashMap();
+		statements.put("insert", statement("insert",
+				"INSERT INTO t (a, b) VALUES (?, ?)", 2));
+		statements.put("select", statement("select",
+				"SELECT a, b FROM t WHERE a > ?", 1));
+		statements.put("other", statement("other", "SELECT a, b FROM u", 0));
+
+		this.con = new MockConnection();
+		this.con.columns = new String[] { "a", "b" };
+		this.con.rows = new Object[][] { { new Integer(1), "one" },
+				{ new Integer(2), "two" }, { new Integer(3), "three" } };
+		this.manager = new SQLConnectionManager("test", "jdbc:test",
+				statements, 0);
+		this.manager.ds = MockJdbc.dataSource(this.con.proxy);
+	}
+
+	/**
+	 * Keeps a copy of the rows it receives, and the arrays they came in.
+	 */
+	private static class Collector implements RowHandler {
+		final List rows = new ArrayList();
+		final List arrays = new ArrayList();
+		String[] columnNames;
+		// the number of rows wanted, or -1 for all
+		int limit = -1;
+		SQLException error;
+
+		public void startRows(String[] columnNames) {
+			this.columnNames = columnNames;
+		}
+
+		public boolean handleRow(Object[] row) throws SQLException {
+			if (this.error != null) {
+				throw this.error;
+			}
+			this.rows.add(Arrays.asList((Object[]) row.clone()));
+			this.arrays.add(row);
+			return this.rows.size() != this.limit;
+		}
+	}
+
+	private static SQLStatement statement(String name, String query,
+			int paramCount) {
+		final TIntObjectHashMap params = new TIntObjectHashMap();
+		for (int i = 1; i <= paramCount; i++) {
+			params.put(i, new SQLParam());
+		}
+		return new SQLStatement(name, query, params);
+	}
+
+	/**
+	 * Returns <code>count</code> rows of parameters for the insert.
+	 */
+	private static List rows(int count) {
+		final List rows = new ArrayList();
+		for (int i = 0; i < count; i++) {
+			rows.add(new Object[] { new Integer(i), "row " + i });
+		}
+		return rows;
+	}
+
+	private static void assertCounts(int[] expected, Object counts) {
+		assertTrue(Arrays.equals(expected, (int[]) counts));
+	}
+
+	private void assertEvents(String[] expected) {
+		assertEquals(Arrays.asList(expected), this.con.events);
+	}
+
+	public void testBatchChunks() throws SQLException {
+		final List counts = this.manager.executeBatch("insert", rows(7)
+				.iterator(), 3);
+		assertEquals(3, counts.size());
+		assertCounts(new int[] { 1, 1, 1 }, counts.get(0));
+		assertCounts(new int[] { 1, 1, 1 }, counts.get(1));
+		assertCounts(new int[] { 1 }, counts.get(2));
+		assertEvents(new String[] { "autoCommit false", "batch 3", "commit",
+				"batch 3", "commit", "batch 1", "commit", "autoCommit true",
+				"close" });
+
+		// every row is sent once, in order, on a single statement
+		assertEquals(1, this.con.statements.size());
+		final MockStatement stmt = this.con.statement(0);
+		assertTrue(stmt.closed);
+		int row = 0;
+		for (int i = 0; i < stmt.batches.size(); i++) {
+			List batch = (List) stmt.batches.get(i);
+			for (int j = 0; j < batch.size(); j++, row++) {
+				Map params = (Map) batch.get(j);
+				assertEquals(new Integer(row), params.get(new Integer(1)));
+				assertEquals("row " + row, params.get(new Integer(2)));
+			}
+		}
+		assertEquals(7, row);
+	}
+
+	public void testBatchExactChunks() throws SQLException {
+		this.manager.setBatchSize(2);
+		final List counts = this.manager.executeBatch("insert", rows(4)
+				.iterator());
+		assertEquals(2, counts.size());
+		assertEvents(new String[] { "autoCommit false", "batch 2", "commit",
+				"batch 2", "commit", "autoCommit true", "close" });
+	}
+
+	public void testEmptyBatch() throws SQLException {
+		assertTrue(this.manager.executeBatch("insert", rows(0).iterator(), 3)
+				.isEmpty());
+		assertTrue(this.con.events.isEmpty());
+	}
+
+	public void testInvalidBatchSize() throws SQLException {
+		try {
+			this.manager.executeBatch("insert", rows(1).iterator(), 0);
+			fail("an empty batch size was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			this.manager.setBatchSize(-1);
+			fail("a negative batch size was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testBatchFailsAfterCommit() {
+		this.con.failingBatch = 3;
+		try {
+			this.manager.executeBatch("insert", rows(8).iterator(), 3);
+			fail("the failed batch was not reported");
+		} catch (BatchExecutionException e) {
+			assertEquals(6, e.getCommittedRows());
+			assertEquals(2, e.getCommittedCounts().size());
+			assertCounts(new int[] { 1, 1, 1 }, e.getCommittedCounts().get(0));
+			assertCounts(new int[] { 1, 1, 1, 1, 1, 1 }, e.getUpdateCounts());
+			assertTrue(e.getCause() instanceof SQLException);
+			assertSame(e.getCause(), e.getNextException());
+			assertEquals("Batch 3 failed", e.getCause().getMessage());
+		} catch (SQLException e) {
+			fail("the committed batches were not reported: " + e);
+		}
+		assertEvents(new String[] { "autoCommit false", "batch 3", "commit",
+				"batch 3", "commit", "batch 2", "rollback",
+				"autoCommit true", "close" });
+		assertTrue(this.con.statement(0).closed);
+	}
+
+	public void testFirstBatchFails() {
+		this.con.failingBatch = 1;
+		try {
+			this.manager.executeBatch("insert", rows(5).iterator(), 3);
+			fail("the failed batch was not reported");
+		} catch (BatchExecutionException e) {
+			fail("nothing was committed: " + e);
+		} catch (SQLException e) {
+			assertEquals("Batch 1 failed", e.getMessage());
+		}
+		assertEvents(new String[] { "autoCommit false", "batch 3",
+				"rollback", "autoCommit true", "close" });
+		assertTrue(this.con.statement(0).closed);
+	}
+
+	public void testBatchWithInvalidRow() throws SQLException {
+		final List rows = rows(4);
+		rows.set(1, new Object[] { "too few" });
+		try {
+			this.manager.executeBatch("insert", rows.iterator(), 3);
+			fail("an invalid row was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEvents(new String[] { "autoCommit false", "rollback",
+				"autoCommit true", "close" });
+	}
+
+	public void testBatchKeepsAutoCommit() throws SQLException {
+		this.con.autoCommit = false;
+		this.manager.executeBatch("insert", rows(2).iterator(), 3);
+		assertFalse(this.con.autoCommit);
+		assertEvents(new String[] { "autoCommit false", "batch 2", "commit",
+				"autoCommit false", "close" });
+	}
+
+	public void testQueryRows() throws SQLException {
+		this.manager.setFetchSize(50);
+		final Collector handler = new Collector();
+		assertEquals(3, this.manager.queryRows("select",
+				new Object[] { new Integer(0) }, handler));
+		assertEquals(Arrays.asList(new String[] { "a", "b" }), Arrays
+				.asList(handler.columnNames));
+		assertEquals(Arrays.asList(new Object[] { new Integer(1), "one" }),
+				handler.rows.get(0));
+		assertEquals(Arrays.asList(new Object[] { new Integer(3), "three" }),
+				handler.rows.get(2));
+		// the same array is used for all rows
+		assertSame(handler.arrays.get(0), handler.arrays.get(1));
+		assertSame(handler.arrays.get(0), handler.arrays.get(2));
+
+		assertEvents(new String[] { "autoCommit false", "fetchSize 50",
+				"query", "commit", "autoCommit true", "close" });
+		assertEquals(new Integer(0), this.con.statement(0).params
+				.get(new Integer(1)));
+		assertTrue(this.con.statement(0).closed);
+	}
+
+	public void testQueryRowsStops() throws SQLException {
+		final Collector handler = new Collector();
+		handler.limit = 2;
+		assertEquals(2, this.manager.queryRows("select",
+				new Object[] { new Integer(0) }, handler));
+		assertEquals(2, handler.rows.size());
+		assertEvents(new String[] { "autoCommit false", "fetchSize 1000",
+				"query", "commit", "autoCommit true", "close" });
+	}
+
+	public void testQueryRowsHandlerFails() {
+		final Collector handler = new Collector();
+		handler.error = new SQLException("handler failed");
+		try {
+			this.manager.queryRows("select", new Object[] { new Integer(0) },
+					handler);
+			fail("the error of the handler was lost");
+		} catch (SQLException e) {
+			assertSame(handler.error, e);
+		}
+		assertEvents(new String[] { "autoCommit false", "fetchSize 1000",
+				"query", "rollback", "autoCommit true", "close" });
+		assertTrue(this.con.statement(0).closed);
+	}
+
+	public void testQueryRowsKeepsAutoCommit() throws SQLException {
+		this.con.autoCommit = false;
+		this.manager.queryRows("select", new Object[] { new Integer(0) },
+				new Collector());
+		assertFalse(this.con.autoCommit);
+		assertEvents(new String[] { "autoCommit false", "fetchSize 1000",
+				"query", "commit", "autoCommit false", "close" });
+	}
+
+	public void testQueryRowsRestoresFetchSize() throws Exception {
+		final SQLConnectionManager cached = new SQLConnectionManager("test",
+				"jdbc:test", this.manager.statements, 4);
+		cached.ds = MockJdbc.dataSource(MockJdbc.pooled(this.con));
+		cached.setFetchSize(Integer.MIN_VALUE);
+
+		cached.queryRows("select", new Object[] { new Integer(0) },
+				new Collector());
+		// given back to the cache with the fetch size it had
+		final MockStatement stmt = this.con.statement(0);
+		assertFalse(stmt.closed);
+		assertEquals(0, stmt.fetchSize);
+		assertEvents(new String[] { "autoCommit false",
+				"fetchSize " + Integer.MIN_VALUE, "query", "fetchSize 0",
+				"commit", "autoCommit true", "close" });
+
+		// so other queries do not inherit it
+		assertEquals(3, cached.queryList("select",
+				new Object[] { new Integer(0) }).size());
+		assertEquals(1, this.con.statements.size());
+		assertEquals(0, stmt.fetchSize);
+		assertEquals(1, cached.getStatementCache().getHits());
+	}
+
+	public void testQueryRowsFromText() throws SQLException {
+		this.manager.setFetchSize(10);
+		final Collector handler = new Collector();
+		handler.limit = 1;
+		assertEquals(1, this.manager.queryRows("SELECT a, b FROM t", handler));
+		assertEquals(1, handler.rows.size());
+		assertEvents(new String[] { "autoCommit false", "fetchSize 10",
+				"query", "commit", "autoCommit true", "close" });
+		assertTrue(this.con.statement(0).closed);
+
+		this.con.events.clear();
+		handler.error = new SQLException("handler failed");
+		try {
+			this.manager.queryRows("SELECT a, b FROM t", handler);
+			fail("the error of the handler was lost");
+		} catch (SQLException e) {
+			assertSame(handler.error, e);
+		}
+		assertEvents(new String[] { "autoCommit false", "fetchSize 10",
+				"query", "rollback", "autoCommit true", "close" });
+		assertTrue(this.con.statement(1).closed);
+	}
+
+	public void testStreamRows() throws SQLException {
+		final MockResultSet rs = new MockResultSet(this.con.columns, null,
+				this.con.rows);
+		final Collector handler = new Collector();
+		handler.limit = 2;
+		assertEquals(2, SQLConnectionManager.streamRows(rs.proxy, handler));
+		assertEquals(2, handler.rows.size());
+		assertEquals(Arrays.asList(new Object[] { new Integer(2), "two" }),
+				handler.rows.get(1));
+		assertSame(handler.arrays.get(0), handler.arrays.get(1));
+		// stopped at the second row
+		assertEquals(1, rs.row);
+	}
+
+	/**
+	 * Returns a task that waits for <code>start</code>, then returns
+	 * <code>value</code> or throws it if it is an exception.
+	 */
+	private static FutureTask task(final CountDownLatch start,
+			final Object value) {
+		return new FutureTask(new Callable() {
+			public Object call() throws Exception {
+				start.await();
+				if (value instanceof Exception) {
+					throw (Exception) value;
+				}
+				return value;
+			}
+		});
+	}
+
+	/**
+	 * Runs the tasks in new threads, after a while, so getAll() is already
+	 * waiting for them.
+	 */
+	private static void runLater(final CountDownLatch start, List tasks) {
+		for (int i = tasks.size() - 1; i >= 0; i--) {
+			new Thread((Runnable) tasks.get(i)).start();
+		}
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					// starts now
+				}
+				start.countDown();
+			}
+		}.start();
+	}
+
+	public void testQueryListAll() throws SQLException {
+		this.con.rowsByQuery.put("SELECT a, b FROM u",
+				new Object[][] { { new Integer(9), "nine" } });
+		final List results = this.manager.queryListAll(new String[] {
+				"select", "other", "select" }, new Object[][] {
+				{ new Integer(0) }, null, { new Integer(1) } });
+		assertEquals(3, results.size());
+		assertEquals(3, ((List) results.get(0)).size());
+		assertEquals(Arrays.asList(new Object[] { Arrays.asList(new Object[] {
+				new Integer(9), "nine" }) }), results.get(1));
+		assertEquals(3, ((List) results.get(2)).size());
+		assertEquals(3, this.con.statements.size());
+		this.manager.shutdownAsync();
+	}
+
+	public void testQueryListAllWithUnknownStatement() throws SQLException {
+		try {
+			this.manager.queryListAll(new String[] { "select", "unknown" },
+					new Object[][] { { new Integer(0) }, null });
+			fail("an unknown statement was run");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		this.manager.shutdownAsync();
+	}
+
+	public void testGetAllKeepsOrder() throws SQLException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List tasks = new ArrayList();
+		for (int i = 0; i < 5; i++) {
+			tasks.add(task(start, new Integer(i)));
+		}
+		runLater(start, tasks);
+		final List results = SQLConnectionManager.getAll(tasks);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(new Integer(i), results.get(i));
+		}
+	}
+
+	public void testGetAllThrowsFirstSQLException() {
+		final CountDownLatch start = new CountDownLatch(1);
+		final SQLException first = new SQLException("first");
+		final List tasks = new ArrayList();
+		tasks.add(task(start, "ok"));
+		tasks.add(task(start, first));
+		tasks.add(task(start, new SQLException("second")));
+		tasks.add(task(start, "last"));
+		runLater(start, tasks);
+		try {
+			SQLConnectionManager.getAll(tasks);
+			fail("the errors were lost");
+		} catch (SQLException e) {
+			assertSame(first, e);
+		}
+		// all of them finished before the error was thrown
+		for (int i = 0; i < tasks.size(); i++) {
+			assertTrue(((Future) tasks.get(i)).isDone());
+		}
+	}
+
+	public void testGetAllRethrowsRuntimeExceptions() throws SQLException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final IllegalStateException error = new IllegalStateException();
+		final List tasks = new ArrayList();
+		tasks.add(task(start, error));
+		tasks.add(task(start, new SQLException("second")));
+		runLater(start, tasks);
+		try {
+			SQLConnectionManager.getAll(tasks);
+			fail("the errors were lost");
+		} catch (IllegalStateException e) {
+			assertSame(error, e);
+		}
+	}
+
+	public void testGetAllWrapsOtherErrors() {
+		final CountDownLatch start = new CountDownLatch(1);
+		final IOException error = new IOException("not SQL");
+		final List tasks = new ArrayList();
+		tasks.add(task(start, "ok"));
+		tasks.add(task(start, error));
+		runLater(start, tasks);
+		try {
+			SQLConnectionManager.getAll(tasks);
+			fail("the errors were lost");
+		} catch (SQLException e) {
+			assertSame(error, e.getCause());
+		}
+	}
+
+	public void testGetAllCancelsWhenInterrupted() {
+		final CountDownLatch start = new CountDownLatch(1);
+		final List tasks = new ArrayList();
+		tasks.add(task(start, "never run"));
+		tasks.add(task(start, "never run"));
+		Thread.currentThread().interrupt();
+		try {
+			SQLConnectionManager.getAll(tasks);
+			fail("the interruption was ignored");
+		} catch (SQLException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		// the interruption is kept for the caller
+		assertTrue(Thread.interrupted());
+		for (int i = 0; i < tasks.size(); i++) {
+			assertTrue(((Future) tasks.get(i)).isCancelled());
+		}
+	}
+}
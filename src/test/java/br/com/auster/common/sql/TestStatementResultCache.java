@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import br.com.auster.common.sql.MockJdbc.MockConnection;
+import br.com.auster.common.sql.param.SQLParam;
+
+/**
+ * @version $Id$
+ */
+public class TestStatementResultCache extends TestCase {
+
+	private long now = 1000000;
+	private StatementResultCache cache;
+
+	private MockConnection con;
+	private SQLConnectionManager manager;
+
+	protected void setUp() throws Exception {
+		this.cache = new StatementResultCache("test", 10, 3) {
+			protected long currentTimeMillis() {
+				return now;
+			}
+		};
+
+		final TIntObjectHashMap params = new TIntObjectHashMap();
+		params.put(1, new SQLParam());
+		final SQLStatement statement = new SQLStatement("states",
+				"SELECT code, name FROM states WHERE country = ?", params);
+		statement.setResultCache(this.cache);
+		final Map statements = new HashMap();
+		statements.put("states", statement);
+
+		this.con = new MockConnection();
+		this.con.columns = new String[] { "code", "name" };
+		this.con.rows = new Object[][] { { "SP", "Sao Paulo" },
+				{ "RJ", "Rio de Janeiro" } };
+		this.manager = new SQLConnectionManager("test", "jdbc:test",
+				statements, 0);
+		this.manager.ds = MockJdbc.dataSource(this.con.proxy);
+	}
+
+	private Object get(Object[] args) {
+		return this.cache.get("pool", "list", args);
+	}
+
+	private void put(Object[] args, Object value) {
+		assertTrue(this.cache.put("pool", "list", args, value, this.cache
+				.getGeneration()));
+	}
+
+	public void testInvalidConfiguration() {
+		try {
+			new StatementResultCache("test", 0, 10);
+			fail("a cache with no ttl was created");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new StatementResultCache("test", 10, 0);
+			fail("a cache with no entries was created");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testKeys() {
+		this.put(new Object[] { "a", new Integer(1) }, "a1");
+		this.put(null, "none");
+		assertEquals("a1", this.get(new Object[] { "a", new Integer(1) }));
+		assertEquals("none", this.get(null));
+		assertEquals("none", this.get(new Object[0]));
+		assertNull(this.get(new Object[] { "a", new Integer(2) }));
+		assertNull(this.cache.get("other", "list", null));
+		assertNull(this.cache.get("pool", "records", null));
+
+		assertEquals(3, this.cache.getHits());
+		assertEquals(3, this.cache.getMisses());
+		assertEquals(0.5, this.cache.getHitRatio(), 0.0);
+	}
+
+	public void testArgumentsAreCopied() {
+		final Date date = new Date(1000);
+		final Object[] args = new Object[] { date };
+		this.put(args, "value");
+		date.setTime(2000);
+		args[0] = "changed";
+		assertEquals("value", this.get(new Object[] { new Date(1000) }));
+		assertNull(this.get(new Object[] { new Date(2000) }));
+	}
+
+	public void testExpiry() {
+		this.put(null, "value");
+		this.now += 9999;
+		assertEquals("value", this.get(null));
+		this.now += 1;
+		assertNull(this.get(null));
+		// expired entries are dropped when found
+		assertEquals(0, this.cache.getSize());
+	}
+
+	public void testEviction() {
+		this.put(new Object[] { "a" }, "a");
+		this.put(new Object[] { "b" }, "b");
+		this.put(new Object[] { "c" }, "c");
+		// a is now the most recently used
+		assertEquals("a", this.get(new Object[] { "a" }));
+		this.put(new Object[] { "d" }, "d");
+
+		assertEquals(3, this.cache.getSize());
+		assertEquals(1, this.cache.getEvictions());
+		assertNull(this.get(new Object[] { "b" }));
+		assertEquals("a", this.get(new Object[] { "a" }));
+		assertEquals("c", this.get(new Object[] { "c" }));
+		assertEquals("d", this.get(new Object[] { "d" }));
+	}
+
+	public void testInvalidate() {
+		this.put(new Object[] { "a" }, "a");
+		final long generation = this.cache.getGeneration();
+		this.cache.invalidate();
+		assertEquals(0, this.cache.getSize());
+		assertNull(this.get(new Object[] { "a" }));
+
+		// a result read before the invalidation is not kept
+		assertFalse(this.cache.put("pool", "list", new Object[] { "a" },
+				"old", generation));
+		assertNull(this.get(new Object[] { "a" }));
+		this.put(new Object[] { "a" }, "new");
+		assertEquals("new", this.get(new Object[] { "a" }));
+	}
+
+	public void testCachedQueries() throws Exception {
+		final Object[] args = new Object[] { "BR" };
+		final List rows = this.manager.queryList("states", args);
+		assertEquals(Arrays.asList(new Object[] {
+				Arrays.asList(new Object[] { "SP", "Sao Paulo" }),
+				Arrays.asList(new Object[] { "RJ", "Rio de Janeiro" }) }),
+				rows);
+		assertSame(rows, this.manager.queryList("states", args));
+		assertEquals(1, this.con.queries);
+
+		// the other kinds of result are kept apart
+		assertEquals(Arrays.asList(new Object[] { "Sao Paulo",
+				"Rio de Janeiro" }), this.manager.queryField("states", "name",
+				args));
+		assertEquals(2, this.con.queries);
+		assertEquals(Arrays.asList(new Object[] { "SP", "RJ" }), this.manager
+				.queryField("states", 1, args));
+		// the columns are taken from the cached rows
+		assertEquals(2, this.con.queries);
+		this.manager.queryField("states", "name", args);
+		assertEquals(2, this.con.queries);
+
+		this.manager.queryList("states", new Object[] { "AR" });
+		assertEquals(3, this.con.queries);
+		this.manager.invalidateResults("states");
+		this.manager.queryList("states", args);
+		assertEquals(4, this.con.queries);
+		assertTrue(this.con.statement(3).closed);
+	}
+
+	public void testCachedResultsAreUnmodifiable() throws Exception {
+		final Object[] args = new Object[] { "BR" };
+		final List rows = this.manager.queryList("states", args);
+		try {
+			rows.clear();
+			fail("the cached rows were changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			((List) rows.get(0)).set(0, "MG");
+			fail("a cached row was changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			this.manager.queryField("states", "code", args).add("MG");
+			fail("the cached values were changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			this.manager.queryField("states", 2, args).remove(0);
+			fail("the cached values were changed");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testInvalidateWhileQuerying() throws Exception {
+		final Object[] args = new Object[] { "BR" };
+		this.con.onQuery = new Runnable() {
+			public void run() {
+				manager.invalidateResults("states");
+			}
+		};
+		this.manager.queryList("states", args);
+		this.manager.queryField("states", "code", args);
+		assertEquals(0, this.cache.getSize());
+
+		this.con.onQuery = null;
+		this.manager.queryList("states", args);
+		assertEquals(1, this.cache.getSize());
+		this.manager.queryList("states", args);
+		assertEquals(3, this.con.queries);
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql.connection;
+
+import java.net.ConnectException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * @version $Id$
+ */
+public class TestConnectionPoolManager extends TestCase {
+
+	private final AtomicInteger created = new AtomicInteger();
+	private final AtomicInteger closed = new AtomicInteger();
+	private final AtomicInteger inUse = new AtomicInteger();
+	private final AtomicInteger maxInUse = new AtomicInteger();
+	// when set, opening a connection waits for it
+	private volatile CountDownLatch opening;
+	private ConnectionPoolManager manager;
+
+	private final class TestConnection implements Connection {
+		final Server server;
+		volatile boolean broken;
+		volatile boolean disconnected;
+
+		TestConnection(Server server) {
+			this.server = server;
+		}
+
+		public void disconnect() {
+			assertFalse("closed twice", this.disconnected);
+			this.disconnected = true;
+			closed.incrementAndGet();
+		}
+
+		public Server getServer() {
+			return this.server;
+		}
+
+		public boolean test() {
+			return !this.broken;
+		}
+	}
+
+	private final ConnectionFactory factory = new ConnectionFactory() {
+		public Server createServer(Element config) {
+			return new Server() {
+			};
+		}
+
+		public Connection createConnection(Server server, int soTimeout, int conTimeout) throws Exception {
+			CountDownLatch latch = opening;
+			// not even the shutdown of the validation thread stops it
+			while (latch != null && latch.getCount() > 0) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					// keeps waiting
+				}
+			}
+			created.incrementAndGet();
+			return new TestConnection(server);
+		}
+	};
+
+	protected void tearDown() {
+		if (this.manager != null) {
+			this.manager.shutdown();
+		}
+	}
+
+	public void testIdleConnectionsAreReused() throws Exception {
+		this.manager = new ConnectionPoolManager(config("0", "0", "0"), this.factory);
+		Connection first = this.manager.getConnection();
+		assertEquals(1, this.manager.getActiveConnections());
+		this.manager.giveConnection(first);
+		assertEquals(0, this.manager.getActiveConnections());
+		assertEquals(1, this.manager.getIdleConnections());
+		assertSame(first, this.manager.getConnection());
+		assertEquals(1, this.created.get());
+	}
+
+	public void testMaxIdle() throws Exception {
+		Element config = config("10", "0", "0");
+		config.setAttribute("max-idle-connections", "2");
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		Connection[] connections = new Connection[5];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = this.manager.getConnection();
+		}
+		for (int i = 0; i < connections.length; i++) {
+			this.manager.giveConnection(connections[i]);
+		}
+		assertEquals(2, this.manager.getIdleConnections());
+		assertEquals(3, this.closed.get());
+		// the first ones given back fill the stack
+		assertFalse(((TestConnection) connections[0]).disconnected);
+		assertTrue(((TestConnection) connections[4]).disconnected);
+	}
+
+	public void testMaxIdleIsCappedByMaxConnections() throws Exception {
+		Element config = config("2", "0", "0");
+		config.setAttribute("max-idle-connections", "10");
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		assertEquals(2, this.manager.maxIdle);
+	}
+
+	public void testCheckoutTimeout() throws Exception {
+		this.manager = new ConnectionPoolManager(config("1", "100", "0"), this.factory);
+		Connection held = this.manager.getConnection();
+		long start = System.currentTimeMillis();
+		try {
+			this.manager.getConnection();
+			fail("No connection should be available");
+		} catch (ConnectException e) {
+			// expected
+		}
+		assertTrue(System.currentTimeMillis() - start >= 90);
+
+		// a connection given back meanwhile is handed to the waiting thread
+		final Connection[] got = new Connection[1];
+		Thread waiting = new Thread() {
+			public void run() {
+				try {
+					got[0] = manager.getConnection();
+				} catch (ConnectException e) {
+					// left null
+				}
+			}
+		};
+		waiting.start();
+		Thread.sleep(20);
+		this.manager.giveConnection(held);
+		waiting.join();
+		assertSame(held, got[0]);
+	}
+
+	public void testDiscard() throws Exception {
+		this.manager = new ConnectionPoolManager(config("1", "100", "0"), this.factory);
+		Connection broken = this.manager.getConnection();
+		this.manager.discardConnection(broken);
+		assertTrue(((TestConnection) broken).disconnected);
+		assertEquals(0, this.manager.getIdleConnections());
+		// its slot is free again
+		assertNotSame(broken, this.manager.getConnection());
+	}
+
+	public void testReloadClosesConnectionsGivenBack() throws Exception {
+		Element config = config("2", "0", "0");
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		Connection idle = this.manager.getConnection();
+		Connection old = this.manager.getConnection();
+		this.manager.giveConnection(idle);
+
+		this.manager.reload(config);
+		assertTrue(((TestConnection) idle).disconnected);
+		assertEquals(1, this.manager.servers.size());
+		this.manager.giveConnection(old);
+		assertTrue(((TestConnection) old).disconnected);
+		assertEquals(0, this.manager.getIdleConnections());
+
+		// the new pool has its own limit
+		Connection first = this.manager.getConnection();
+		Connection second = this.manager.getConnection();
+		assertNotSame(old, first);
+		assertNotSame(old, second);
+		assertEquals(4, this.created.get());
+	}
+
+	public void testValidation() throws Exception {
+		Element config = config("0", "0", "20");
+		config.setAttribute("min-idle-connections", "2");
+		config.setAttribute("max-idle-time", "50");
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		waitFor(2, this.created);
+		assertEquals(2, this.manager.getIdleConnections());
+
+		// broken connections are closed and replaced
+		TestConnection broken = (TestConnection) this.manager.getConnection();
+		broken.broken = true;
+		this.manager.giveConnection(broken);
+		waitFor(1, this.closed);
+		assertTrue(broken.disconnected);
+		waitFor(3, this.created);
+		Thread.sleep(50);
+		assertEquals(2, this.manager.getIdleConnections());
+
+		// expired connections are closed down to the minimum
+		Connection[] extra = new Connection[4];
+		for (int i = 0; i < extra.length; i++) {
+			extra[i] = this.manager.getConnection();
+		}
+		for (int i = 0; i < extra.length; i++) {
+			this.manager.giveConnection(extra[i]);
+		}
+		assertEquals(4, this.manager.getIdleConnections());
+		long deadline = System.currentTimeMillis() + 2000;
+		while (this.manager.getIdleConnections() > 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, this.manager.getIdleConnections());
+	}
+
+	public void testShutdownDuringValidation() throws Exception {
+		this.opening = new CountDownLatch(1);
+		Element config = config("0", "0", "10");
+		config.setAttribute("min-idle-connections", "3");
+		config.appendChild(config.getOwnerDocument().createElement("host"));
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		// the validation thread is now opening a connection to the first server
+		Thread.sleep(50);
+		this.manager.shutdown();
+		this.opening.countDown();
+		Thread.sleep(100);
+
+		// what it opened after the shutdown was closed, and no pool came back
+		assertEquals(this.created.get(), this.closed.get());
+		assertEquals(0, this.manager.getIdleConnections());
+		assertTrue(this.manager.connectionMap.isEmpty());
+		this.manager = null;
+	}
+
+	public void testConcurrentCheckouts() throws Exception {
+		Element config = config("4", "0", "5");
+		config.setAttribute("max-idle-connections", "3");
+		config.setAttribute("max-idle-time", "5");
+		this.manager = new ConnectionPoolManager(config, this.factory);
+		final Set handedOut = Collections.synchronizedSet(new HashSet());
+		final AtomicInteger errors = new AtomicInteger();
+		Thread[] threads = new Thread[16];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 500; i++) {
+						try {
+							Connection connection = manager.getConnection();
+							if (!handedOut.add(connection) || ((TestConnection) connection).disconnected) {
+								errors.incrementAndGet();
+							}
+							int now = inUse.incrementAndGet();
+							if (now > maxInUse.get()) {
+								maxInUse.set(now);
+							}
+							inUse.decrementAndGet();
+							handedOut.remove(connection);
+							manager.giveConnection(connection);
+						} catch (Throwable e) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		assertEquals(0, errors.get());
+		assertTrue(this.maxInUse.get() <= 4);
+		assertEquals(0, this.manager.getActiveConnections());
+		assertTrue(this.manager.getIdleConnections() <= 3);
+
+		this.manager.shutdown();
+		this.manager = null;
+		assertEquals(this.created.get(), this.closed.get());
+	}
+
+	private static void waitFor(int count, AtomicInteger counter) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (counter.get() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(counter.get() >= count);
+	}
+
+	private static Element config(String maxConnections, String checkoutTimeout, String validationInterval)
+			throws Exception {
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		Element pool = doc.createElement("pool");
+		doc.appendChild(pool);
+		pool.setAttribute("name", "test");
+		pool.setAttribute("max-connection-tries", "1");
+		pool.setAttribute("sleep-between-tries", "0");
+		pool.setAttribute("max-connections", maxConnections);
+		pool.setAttribute("checkout-timeout", checkoutTimeout);
+		pool.setAttribute("validation-interval", validationInterval);
+		pool.appendChild(doc.createElement("host"));
+		return pool;
+	}
+}
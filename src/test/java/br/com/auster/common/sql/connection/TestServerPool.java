@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.sql.connection;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * @version $Id$
+ */
+public class TestServerPool extends TestCase {
+
+	private static final Server SERVER = new Server() {
+	};
+
+	static final class TestConnection implements Connection {
+		final String name;
+		final AtomicBoolean inUse = new AtomicBoolean();
+
+		TestConnection(String name) {
+			this.name = name;
+		}
+
+		public void disconnect() {
+		}
+
+		public Server getServer() {
+			return SERVER;
+		}
+
+		public boolean test() {
+			return true;
+		}
+
+		public String toString() {
+			return this.name;
+		}
+	}
+
+	public void testMostRecentFirst() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		Connection a = new TestConnection("a");
+		Connection b = new TestConnection("b");
+		assertTrue(pool.push(a, 1));
+		assertTrue(pool.push(b, 2));
+		assertEquals(2, pool.getIdleCount());
+		assertSame(b, pool.pop());
+		assertSame(a, pool.pop());
+		assertNull(pool.pop());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	public void testMaxIdle() {
+		ServerPool pool = new ServerPool(SERVER, 0, 2);
+		assertEquals(2, pool.getMaxIdle());
+		assertTrue(pool.push(new TestConnection("a"), 1));
+		assertTrue(pool.push(new TestConnection("b"), 2));
+		assertFalse(pool.push(new TestConnection("c"), 3));
+		assertEquals(2, pool.getIdleCount());
+		assertNotNull(pool.pop());
+		assertTrue(pool.push(new TestConnection("d"), 4));
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	public void testClaimAndRelease() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		Connection a = new TestConnection("a");
+		pool.push(a, 1);
+		ServerPool.Node node = (ServerPool.Node) pool.idleNodes().get(0);
+		assertSame(a, node.connection);
+		assertTrue(pool.claim(node));
+		assertEquals(ServerPool.TESTING, node.state);
+		// claimed twice, or evicted while claimed
+		assertFalse(pool.claim(node));
+		assertFalse(pool.evict(node));
+		assertEquals(0, pool.idleNodes().size());
+		assertTrue(pool.release(node));
+		assertEquals(ServerPool.IDLE, node.state);
+		assertEquals(1, pool.getIdleCount());
+		assertSame(a, pool.pop());
+	}
+
+	public void testTakenWhileTested() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		Connection a = new TestConnection("a");
+		Connection b = new TestConnection("b");
+		pool.push(a, 1);
+		pool.push(b, 2);
+		List nodes = pool.idleNodes();
+		ServerPool.Node nodeB = (ServerPool.Node) nodes.get(1);
+		assertSame(b, nodeB.connection);
+		assertTrue(pool.claim(nodeB));
+
+		// a checkout skips the connection being tested, which is detached
+		assertSame(a, pool.pop());
+		assertEquals(ServerPool.DETACHED, nodeB.state);
+		assertEquals(0, pool.getIdleCount());
+		assertNull(pool.pop());
+		// so the tester owns it and gives it back
+		assertFalse(pool.release(nodeB));
+		assertTrue(pool.push(b, nodeB.idleSince));
+		assertSame(b, pool.pop());
+	}
+
+	public void testDiscardAndEvict() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		Connection a = new TestConnection("a");
+		Connection b = new TestConnection("b");
+		Connection c = new TestConnection("c");
+		pool.push(a, 1);
+		pool.push(b, 2);
+		pool.push(c, 3);
+		List nodes = pool.idleNodes();
+		ServerPool.Node nodeA = (ServerPool.Node) nodes.get(0);
+		ServerPool.Node nodeC = (ServerPool.Node) nodes.get(2);
+
+		assertTrue(pool.claim(nodeC));
+		pool.discard(nodeC);
+		assertEquals(ServerPool.TAKEN, nodeC.state);
+		assertTrue(pool.evict(nodeA));
+		assertFalse(pool.evict(nodeA));
+		assertFalse(pool.claim(nodeA));
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(2, pool.getRemovedCount());
+
+		// the closed connections are skipped and unlinked
+		assertSame(b, pool.pop());
+		assertNull(pool.pop());
+		assertEquals(0, pool.getRemovedCount());
+	}
+
+	public void testCompact() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		Connection[] connections = new Connection[5];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = new TestConnection("c" + i);
+			pool.push(connections[i], i);
+		}
+		List nodes = pool.idleNodes();
+		assertTrue(pool.evict((ServerPool.Node) nodes.get(1)));
+		assertTrue(pool.evict((ServerPool.Node) nodes.get(3)));
+		assertEquals(2, pool.getRemovedCount());
+
+		assertTrue(pool.compact().isEmpty());
+		assertEquals(0, pool.getRemovedCount());
+		assertEquals(3, pool.getIdleCount());
+		nodes = pool.idleNodes();
+		assertEquals(3, nodes.size());
+		// same order, and the time each became idle is kept
+		assertSame(connections[0], ((ServerPool.Node) nodes.get(0)).connection);
+		assertEquals(2, ((ServerPool.Node) nodes.get(1)).idleSince);
+		assertSame(connections[4], pool.pop());
+		assertSame(connections[2], pool.pop());
+		assertSame(connections[0], pool.pop());
+	}
+
+	public void testCheckoutLimit() throws InterruptedException {
+		ServerPool pool = new ServerPool(SERVER, 2, 2);
+		assertEquals(2, pool.getMaxConnections());
+		assertTrue(pool.checkout(0));
+		assertTrue(pool.tryCheckout());
+		assertEquals(2, pool.getActiveCount());
+		assertFalse(pool.tryCheckout());
+		long start = System.currentTimeMillis();
+		assertFalse(pool.checkout(100));
+		assertTrue(System.currentTimeMillis() - start >= 90);
+		pool.checkin();
+		assertTrue(pool.checkout(100));
+		pool.checkin();
+		pool.checkin();
+		assertEquals(0, pool.getActiveCount());
+
+		ServerPool unlimited = new ServerPool(SERVER, 0, 2);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(unlimited.tryCheckout());
+		}
+		assertEquals(100, unlimited.getActiveCount());
+	}
+
+	public void testClose() {
+		ServerPool pool = new ServerPool(SERVER, 0, 8);
+		pool.push(new TestConnection("a"), 1);
+		pool.push(new TestConnection("b"), 2);
+		pool.close();
+		assertTrue(pool.isClosed());
+		assertFalse(pool.push(new TestConnection("c"), 3));
+		List drained = pool.drain();
+		assertEquals(2, drained.size());
+		assertEquals("a", ((ServerPool.Node) drained.get(0)).connection.toString());
+		assertEquals(0, pool.getIdleCount());
+		assertNull(pool.pop());
+	}
+
+	public void testConcurrentUse() throws InterruptedException {
+		final ServerPool pool = new ServerPool(SERVER, 4, 3);
+		final AtomicInteger created = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		final AtomicInteger errors = new AtomicInteger();
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						for (int i = 0; i < 20000; i++) {
+							assertTrue(pool.checkout(0));
+							if (pool.getActiveCount() > 4) {
+								errors.incrementAndGet();
+							}
+							TestConnection connection = (TestConnection) pool.pop();
+							if (connection == null) {
+								connection = new TestConnection("c" + created.incrementAndGet());
+							}
+							if (!connection.inUse.compareAndSet(false, true)) {
+								errors.incrementAndGet();
+							}
+							connection.inUse.set(false);
+							if (!pool.push(connection, i)) {
+								closed.incrementAndGet();
+							}
+							pool.checkin();
+						}
+					} catch (Throwable e) {
+						errors.incrementAndGet();
+					}
+				}
+			};
+		}
+		// a validation thread testing and evicting meanwhile
+		Thread validator = new Thread() {
+			public void run() {
+				int round = 0;
+				while (running.get()) {
+					List nodes = pool.idleNodes();
+					for (int i = 0; i < nodes.size(); i++) {
+						ServerPool.Node node = (ServerPool.Node) nodes.get(i);
+						if (++round % 7 == 0) {
+							if (pool.evict(node)) {
+								closed.incrementAndGet();
+							}
+						} else if (pool.claim(node)) {
+							TestConnection connection = (TestConnection) node.connection;
+							if (!connection.inUse.compareAndSet(false, true)) {
+								errors.incrementAndGet();
+							}
+							connection.inUse.set(false);
+							if (!pool.release(node) && !pool.push(connection, node.idleSince)) {
+								closed.incrementAndGet();
+							}
+						}
+					}
+					if (pool.getRemovedCount() > pool.getMaxIdle()) {
+						closed.addAndGet(pool.compact().size());
+					}
+				}
+			}
+		};
+		validator.start();
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		running.set(false);
+		validator.join();
+
+		assertEquals(0, errors.get());
+		assertEquals(0, pool.getActiveCount());
+		assertTrue(pool.getIdleCount() <= 3);
+		// every connection created is either idle or was closed
+		assertEquals(created.get(), closed.get() + pool.drain().size());
+		assertEquals(0, pool.getIdleCount());
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2004 Auster Solutions. All Rights Reserved.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO,
+ * THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * Created on 17/10/2026
+ */
+package br.com.auster.common.xml;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * @version $Id$
+ */
+public class TestTypedRowReader extends TestCase {
+
+	private static final String[] NAMES = { "ID ", "PRICE", "RATE", "NAME",
+			"AMOUNT", "CREATED", "COUNTER" };
+	private static final int[] TYPES = { Types.INTEGER, Types.DOUBLE,
+			Types.REAL, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP,
+			Types.BIGINT };
+
+	private static final BigInteger HUGE = new BigInteger("18446744073709551615");
+
+	// the getters called on the result set
+	private final List calls = new ArrayList();
+
+	/**
+	 * Returns a result set over <code>rows</code>, with the columns above.
+	 * The BIGINT column is unsigned if <code>unsigned</code> is true.
+	 */
+	private ResultSet resultSet(final Object[][] rows, final boolean unsigned) {
+		final ResultSetMetaData metaData = (ResultSetMetaData) Proxy
+				.newProxyInstance(getClass().getClassLoader(),
+						new Class[] { ResultSetMetaData.class },
+						new InvocationHandler() {
+							public Object invoke(Object proxy, Method method,
+									Object[] args) {
+								final String name = method.getName();
+								if (name.equals("getColumnCount")) {
+									return new Integer(NAMES.length);
+								}
+								final int i = ((Integer) args[0]).intValue() - 1;
+								if (name.equals("getColumnName")) {
+									return NAMES[i];
+								} else if (name.equals("getColumnType")) {
+									return new Integer(TYPES[i]);
+								} else if (name.equals("isSigned")) {
+									return Boolean.valueOf(!unsigned
+											|| TYPES[i] != Types.BIGINT);
+								}
+								throw new UnsupportedOperationException(name);
+							}
+						});
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class[] { ResultSet.class }, new InvocationHandler() {
+					private int row = -1;
+					private boolean wasNull;
+
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws SQLException {
+						final String name = method.getName();
+						if (name.equals("getMetaData")) {
+							return metaData;
+						} else if (name.equals("next")) {
+							return Boolean.valueOf(++this.row < rows.length);
+						} else if (name.equals("wasNull")) {
+							return Boolean.valueOf(this.wasNull);
+						}
+						calls.add(name);
+						final Object value = rows[this.row][((Integer) args[0])
+								.intValue() - 1];
+						this.wasNull = (value == null);
+						if (name.equals("getLong")) {
+							if (value instanceof BigInteger
+									&& ((BigInteger) value).bitLength() > 63) {
+								throw new SQLException("Out of range: "
+										+ value);
+							}
+							return new Long(value == null ? 0
+									: ((Number) value).longValue());
+						} else if (name.equals("getDouble")) {
+							return new Double(value == null ? 0
+									: ((Number) value).doubleValue());
+						} else if (name.equals("getFloat")) {
+							return new Float(value == null ? 0
+									: ((Number) value).floatValue());
+						} else if (name.equals("getString")) {
+							return (String) value;
+						} else if (name.equals("getTimestamp")) {
+							return (Timestamp) value;
+						} else if (name.equals("getObject")) {
+							return value;
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+
+	private static final Timestamp CREATED = new Timestamp(1000000000000L);
+
+	private final Object[][] rows = {
+			{ new Integer(1), new Double(1.5), new Float(0.25f), " first ",
+					new BigDecimal("10.50"), CREATED, new Long(7) },
+			{ new Integer(1), new Double(1.5), new Float(0.25f), "second",
+					new BigDecimal("11"), CREATED, new Long(7) },
+			{ null, null, null, null, null, null, null },
+			{ new Integer(-3), new Double(2), new Float(0.5f), "", null, null,
+					new Long(Long.MAX_VALUE) } };
+
+	public void testColumns() throws SQLException {
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(
+				this.rows, false));
+		assertEquals(7, reader.getColumnCount());
+		// names are trimmed
+		assertEquals("ID", reader.getColumnName(0));
+		assertEquals("COUNTER", reader.getColumnName(6));
+	}
+
+	public void testValues() throws SQLException {
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(
+				this.rows, false));
+
+		assertTrue(reader.next());
+		assertEquals(1, reader.getLong(0));
+		assertEquals(new Long(1), reader.getObject(0));
+		assertEquals("1", reader.getText(0));
+		assertEquals(1.5, reader.getDouble(1), 0.0);
+		assertEquals(new Double(1.5), reader.getObject(1));
+		assertEquals("1.5", reader.getText(1));
+		assertEquals(new Float(0.25f), reader.getObject(2));
+		assertEquals("0.25", reader.getText(2));
+		assertEquals(" first ", reader.getObject(3));
+		assertEquals("first", reader.getText(3));
+		assertEquals(new BigDecimal("10.50"), reader.getObject(4));
+		assertEquals("10.50", reader.getText(4));
+		assertEquals(10, reader.getLong(4));
+		assertEquals(CREATED, reader.getObject(5));
+		assertEquals(CREATED.toString(), reader.getText(5));
+		assertEquals("7", reader.getText(6));
+		for (int i = 0; i < 7; i++) {
+			assertFalse(reader.isNull(i));
+		}
+
+		assertTrue(reader.next());
+		assertTrue(reader.next());
+		for (int i = 0; i < 7; i++) {
+			assertTrue(reader.isNull(i));
+			assertNull(reader.getObject(i));
+			assertNull(reader.getText(i));
+		}
+		assertEquals(0, reader.getLong(0));
+		assertEquals(0.0, reader.getDouble(1), 0.0);
+
+		assertTrue(reader.next());
+		assertEquals("-3", reader.getText(0));
+		assertEquals("2.0", reader.getText(1));
+		assertEquals("0.5", reader.getText(2));
+		assertEquals("", reader.getText(3));
+		assertTrue(reader.isNull(4));
+		assertEquals(Long.toString(Long.MAX_VALUE), reader.getText(6));
+		assertFalse(reader.next());
+	}
+
+	public void testTypedGetters() throws SQLException {
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(
+				this.rows, false));
+		assertTrue(reader.next());
+		final List expected = new ArrayList();
+		expected.add("getLong");
+		expected.add("getDouble");
+		expected.add("getFloat");
+		expected.add("getString");
+		expected.add("getObject");
+		expected.add("getTimestamp");
+		expected.add("getLong");
+		assertEquals(expected, this.calls);
+	}
+
+	public void testTextIsReused() throws SQLException {
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(
+				this.rows, false));
+		assertTrue(reader.next());
+		final String id = reader.getText(0);
+		final String price = reader.getText(1);
+		final String rate = reader.getText(2);
+		final String counter = reader.getText(6);
+		assertSame(id, reader.getText(0));
+
+		// the same values keep their text
+		assertTrue(reader.next());
+		assertSame(id, reader.getText(0));
+		assertSame(price, reader.getText(1));
+		assertSame(rate, reader.getText(2));
+		assertSame(counter, reader.getText(6));
+		assertEquals("second", reader.getText(3));
+
+		// but not across a NULL
+		assertTrue(reader.next());
+		assertTrue(reader.next());
+		assertEquals("-3", reader.getText(0));
+	}
+
+	public void testNullAfterSameValue() throws SQLException {
+		final Object[][] zeros = {
+				{ new Integer(0), new Double(0), new Float(0), "a", null,
+						null, new Long(0) },
+				{ null, null, null, "b", null, null, null },
+				{ new Integer(0), new Double(0), new Float(0), "c", null,
+						null, new Long(0) } };
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(zeros,
+				false));
+		assertTrue(reader.next());
+		assertEquals("0", reader.getText(0));
+		assertTrue(reader.next());
+		assertNull(reader.getText(0));
+		assertNull(reader.getText(1));
+		assertTrue(reader.next());
+		assertEquals("0", reader.getText(0));
+		assertEquals("0.0", reader.getText(1));
+		assertEquals("0.0", reader.getText(2));
+	}
+
+	public void testUnsignedBigint() throws SQLException {
+		final Object[][] values = { { null, null, null, null, null, null,
+				HUGE } };
+		try {
+			new TypedRowReader(this.resultSet(values, false)).next();
+			fail("the value fit in a long");
+		} catch (SQLException e) {
+			// expected
+		}
+
+		final TypedRowReader reader = new TypedRowReader(this.resultSet(
+				values, true));
+		assertTrue(reader.next());
+		assertEquals(HUGE, reader.getObject(6));
+		assertEquals("18446744073709551615", reader.getText(6));
+	}
+
+	public void testNodeSet() throws Exception {
+		final Node root = DOMUtils.resultSet2NodeSet(this.resultSet(this.rows,
+				false), null);
+		assertEquals(4, root.getChildNodes().getLength());
+		final Element first = (Element) root.getFirstChild();
+		assertEquals("1", first.getAttribute("ID"));
+		assertEquals("1.5", first.getAttribute("PRICE"));
+		assertEquals("0.25", first.getAttribute("RATE"));
+		assertEquals("first", first.getAttribute("NAME"));
+		assertEquals("10.50", first.getAttribute("AMOUNT"));
+		// NULL columns are left out
+		final Element nulls = (Element) root.getChildNodes().item(2);
+		assertEquals(0, nulls.getAttributes().getLength());
+	}
+}